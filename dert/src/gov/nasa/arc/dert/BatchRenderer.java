@@ -0,0 +1,390 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert;
+
+import gov.nasa.arc.dert.landscape.Landscape;
+import gov.nasa.arc.dert.render.BasicScene;
+import gov.nasa.arc.dert.render.FrameGrabEncoder;
+import gov.nasa.arc.dert.render.JoglRendererDouble;
+import gov.nasa.arc.dert.render.OffscreenRenderer;
+import gov.nasa.arc.dert.scene.World;
+import gov.nasa.arc.dert.scene.tool.Path;
+import gov.nasa.arc.dert.scenegraph.Marker;
+import gov.nasa.arc.dert.scenegraph.text.BitmapFont;
+import gov.nasa.arc.dert.scenegraph.text.BitmapText;
+import gov.nasa.arc.dert.scenegraph.text.Text;
+import gov.nasa.arc.dert.state.AnimationState;
+import gov.nasa.arc.dert.state.Configuration;
+import gov.nasa.arc.dert.state.ConfigurationManager;
+import gov.nasa.arc.dert.state.PathState;
+import gov.nasa.arc.dert.state.ViewpointState;
+import gov.nasa.arc.dert.util.StringUtil;
+import gov.nasa.arc.dert.view.world.WorldScene;
+import gov.nasa.arc.dert.viewpoint.Animator;
+import gov.nasa.arc.dert.viewpoint.FlyThroughParameters;
+import gov.nasa.arc.dert.viewpoint.TilePrefetcher;
+import gov.nasa.arc.dert.viewpoint.Viewpoint;
+import gov.nasa.arc.dert.viewpoint.ViewpointStore;
+
+import java.awt.Font;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Vector;
+
+import com.ardor3d.framework.DisplaySettings;
+import com.ardor3d.image.ImageDataFormat;
+import com.ardor3d.image.PixelDataType;
+
+/**
+ * Renders the viewpoints or a fly through of a saved configuration to an
+ * image sequence without opening any windows. Frames are drawn with the
+ * OffscreenRenderer and written by a FrameGrabEncoder.
+ *
+ */
+public class BatchRenderer extends Dert {
+
+	public static final String USAGE = "batchrender -config=configPath -output=directoryPath [-width=pixels] [-height=pixels]"
+		+ " [-flythrough] [-path=pathName] [-frames=numFrames] [-format=PNG|FastPNG|Raw]";
+
+	// Screen resolution used to size text, there is no screen
+	private static final int DOTS_PER_INCH = 96;
+
+	// Arguments
+	private String configPath, outputPath, pathName;
+	private int width, height, numFrames;
+	private boolean flyThrough;
+	private FrameGrabEncoder.Format format;
+
+	/**
+	 * Main method.
+	 * 
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		if ((args.length == 0) || args[0].equals("-usage")) {
+			System.out.println(USAGE);
+			System.exit(0);
+		}
+
+		// Make sure no windows are created.
+		System.setProperty("java.awt.headless", "true");
+
+		BatchRenderer batch = new BatchRenderer(args);
+		if (!batch.checkArgs()) {
+			System.out.println(USAGE);
+			System.exit(1);
+		}
+		BasicScene.imagePath = path + SPLASH_SCREEN;
+		batch.initialize();
+		System.exit(batch.render() ? 0 : 1);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param args
+	 */
+	public BatchRenderer(String[] args) {
+		super(args);
+	}
+
+	/**
+	 * Parse the command line arguments.
+	 * 
+	 * @return false if a required argument is missing or invalid
+	 */
+	protected boolean checkArgs() {
+		width = 1280;
+		height = 720;
+		for (int i = 0; i < args.length; ++i) {
+			if (args[i].startsWith("-config=")) {
+				configPath = args[i].substring(8);
+			} else if (args[i].startsWith("-output=")) {
+				outputPath = args[i].substring(8);
+			} else if (args[i].startsWith("-width=")) {
+				width = parseInt(args[i].substring(7));
+			} else if (args[i].startsWith("-height=")) {
+				height = parseInt(args[i].substring(8));
+			} else if (args[i].startsWith("-frames=")) {
+				numFrames = parseInt(args[i].substring(8));
+			} else if (args[i].startsWith("-path=")) {
+				pathName = args[i].substring(6);
+			} else if (args[i].equals("-flythrough")) {
+				flyThrough = true;
+			} else if (args[i].startsWith("-format=")) {
+				try {
+					format = FrameGrabEncoder.Format.valueOf(args[i].substring(8));
+				} catch (Exception e) {
+					System.out.println("Unknown image format " + args[i].substring(8) + ".");
+					return (false);
+				}
+			} else if (!args[i].equals("-debug")) {
+				System.out.println("Unknown argument " + args[i] + ".");
+				return (false);
+			}
+		}
+		if ((configPath == null) || configPath.isEmpty()) {
+			System.out.println("Please provide a configuration path.");
+			return (false);
+		}
+		if ((outputPath == null) || outputPath.isEmpty()) {
+			System.out.println("Please provide an output directory.");
+			return (false);
+		}
+		if ((width <= 0) || (height <= 0)) {
+			System.out.println("Invalid image dimensions " + width + "x" + height + ".");
+			return (false);
+		}
+		return (true);
+	}
+
+	private static int parseInt(String str) {
+		try {
+			return (Integer.parseInt(str));
+		} catch (Exception e) {
+			System.out.println("Invalid number " + str + ".");
+			return (-1);
+		}
+	}
+
+	/**
+	 * No main window or console window in batch mode.
+	 */
+	@Override
+	protected void createMainWindows(String[] args) {
+		// nothing here
+	}
+
+	/**
+	 * Create the font without a main window.
+	 */
+	@Override
+	protected void createFont() {
+		int fontSize = StringUtil.getIntegerValue(dertProperties, "RasterText.FontSize", true, 0, false);
+		if (fontSize == 0) {
+			fontSize = (int) Math.ceil(DOTS_PER_INCH / 10.0);
+			if (fontSize % 2 == 1)
+				fontSize++;
+		}
+		Text.FONT_SIZE = fontSize;
+		Marker.PIXEL_SIZE = DOTS_PER_INCH / 7.5;
+		String fName = StringUtil.getStringValue(dertProperties, "RasterText.Font", "Courier New", false);
+		BitmapText.DEFAULT_FONT = new BitmapFont(fName, Font.BOLD, fontSize);
+	}
+
+	/**
+	 * Load the configuration and render the image sequence.
+	 * 
+	 * @return true if all frames were rendered
+	 */
+	public boolean render() {
+		ConfigurationManager configManager = ConfigurationManager.getInstance();
+		Configuration config = configManager.loadConfiguration(configPath);
+		if (config == null) {
+			System.out.println("Unable to load configuration " + configPath + ", see log.");
+			return (false);
+		}
+		World world = configManager.createWorld(config);
+		if (world == null) {
+			System.out.println("Unable to create world for " + configPath + ", see log.");
+			return (false);
+		}
+
+		// Create the drawable first, the world is initialized in its context.
+		JoglRendererDouble renderer = new JoglRendererDouble();
+		OffscreenRenderer offscreen = new OffscreenRenderer(new DisplaySettings(width, height, 32, 0, false), renderer,
+			world.getLighting().getBackgroundColor());
+		WorldScene scene = new WorldScene();
+		scene.setState(config.worldState);
+		scene.resize(width, height);
+		Viewpoint viewpoint = scene.getViewpoint();
+
+		Vector<ViewpointStore> flyList = getFlyList(config, world, viewpoint);
+		if (flyList == null) {
+			offscreen.cleanup();
+			return (false);
+		}
+		if (format == null)
+			format = FrameGrabEncoder.Format.PNG;
+		System.out.println("Rendering " + flyList.size() + " frames to " + outputPath);
+
+		// Load the tiles for the upcoming frames while rendering.
+		TilePrefetcher prefetcher = new TilePrefetcher(flyList, viewpoint.getCamera(), false);
+		prefetcher.start();
+		int n = renderer.getExpectedBufferSizeToGrabScreenContents(ImageDataFormat.RGB, PixelDataType.Byte, width, height);
+		FrameGrabEncoder encoder = new FrameGrabEncoder(outputPath, format, width, height, 3, n);
+		boolean success = true;
+		for (int i = 0; i < flyList.size(); ++i) {
+			prefetcher.setFrame(i);
+			prefetcher.waitForFrame(i, TilePrefetcher.GRAB_WAIT_MILLIS);
+			viewpoint.set(flyList.get(i), false);
+			Landscape.getInstance().updateFully(viewpoint.getCamera(), Landscape.MAX_LEVELS);
+			scene.update(null);
+			ByteBuffer store = encoder.getBuffer();
+			if (store == null) {
+				success = false;
+				break;
+			}
+			if (offscreen.render(scene, store, ImageDataFormat.RGB)) {
+				encoder.submit(store);
+			} else {
+				encoder.release(store);
+				System.out.println("Unable to render frame " + i + ", see log.");
+				success = false;
+			}
+			World.markClean();
+		}
+		prefetcher.stop();
+		System.out.println(encoder.finish());
+		offscreen.cleanup();
+		return (success);
+	}
+
+	/**
+	 * Get the viewpoints to render. These are the stored viewpoints, a fly
+	 * through of the stored viewpoints, or a fly through along a path.
+	 */
+	private Vector<ViewpointStore> getFlyList(Configuration config, World world, Viewpoint viewpoint) {
+		Vector<ViewpointStore> flyList = new Vector<ViewpointStore>();
+		if (pathName != null) {
+			Path path = null;
+			ArrayList<Path> pathList = world.getTools().getFlyablePaths();
+			for (int i = 0; i < pathList.size(); ++i) {
+				if (pathList.get(i).getName().equals(pathName)) {
+					path = pathList.get(i);
+					break;
+				}
+			}
+			if (path == null) {
+				System.out.println("Unable to find a path named " + pathName + " with at least 2 waypoints.");
+				return (null);
+			}
+			FlyThroughParameters flyParams = ((PathState) path.getState()).flyParams;
+			if (format == null)
+				format = flyParams.grabFormat;
+			int frames = (numFrames > 0) ? numFrames : flyParams.numFrames;
+			return (Animator.getPathFlyList(path, flyParams.pathHeight, frames, viewpoint.getCamera(),
+				viewpoint.getSceneBounds()));
+		}
+
+		Vector<ViewpointStore> viewpointList = ((ViewpointState) config.getState("ViewpointState")).viewpointList;
+		if (viewpointList.isEmpty()) {
+			System.out.println("The configuration has no viewpoints.");
+			return (null);
+		}
+		if (flyThrough) {
+			if (viewpointList.size() < 2) {
+				System.out.println("Too few viewpoints to animate.");
+				return (null);
+			}
+			FlyThroughParameters flyParams = ((AnimationState) config.getState("AnimationState")).getFlyParams();
+			if (format == null)
+				format = flyParams.grabFormat;
+			int frames = (numFrames > 0) ? numFrames : flyParams.numFrames;
+			Animator.fillFlyList(viewpointList, flyList, frames);
+		} else {
+			flyList.addAll(viewpointList);
+		}
+		return (flyList);
+	}
+
+}
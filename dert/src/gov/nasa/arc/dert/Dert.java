@@ -103,14 +103,21 @@ package gov.nasa.arc.dert;
 
 import gov.nasa.arc.dert.action.edit.BackgroundColorDialog;
 import gov.nasa.arc.dert.ephemeris.Ephemeris;
+import gov.nasa.arc.dert.io.geojson.GeojsonLoader;
+import gov.nasa.arc.dert.landscape.HorizonMap;
 import gov.nasa.arc.dert.landscape.Landscape;
+import gov.nasa.arc.dert.landscape.RegionStatistics;
+import gov.nasa.arc.dert.landscape.io.HttpTileSource;
 import gov.nasa.arc.dert.landscape.layer.DerivativeLayer;
 import gov.nasa.arc.dert.landscape.layer.FieldLayer;
 import gov.nasa.arc.dert.landscape.quadtree.QuadTree;
 import gov.nasa.arc.dert.landscape.quadtree.QuadTreeCache;
+import gov.nasa.arc.dert.landscape.quadtree.QuadTreeFactory;
 import gov.nasa.arc.dert.lighting.Lighting;
 import gov.nasa.arc.dert.proj.Proj4;
 import gov.nasa.arc.dert.render.BasicScene;
+import gov.nasa.arc.dert.render.FrameGrabEncoder;
+import gov.nasa.arc.dert.render.FrameProfiler;
 import gov.nasa.arc.dert.render.SceneCanvas;
 import gov.nasa.arc.dert.render.SceneFramework;
 import gov.nasa.arc.dert.scene.World;
@@ -141,6 +148,7 @@ import gov.nasa.arc.dert.view.Console;
 import gov.nasa.arc.dert.view.ConsoleView;
 import gov.nasa.arc.dert.view.graph.Axes;
 import gov.nasa.arc.dert.view.world.WorldView;
+import gov.nasa.arc.dert.viewpoint.TilePrefetcher;
 import gov.nasa.arc.dert.viewpoint.ViewpointController;
 
 import java.awt.Font;
@@ -418,11 +426,26 @@ public class Dert {
 
 			version = dertProperties.getProperty("Dert.Version");
 			SceneFramework.millisBetweenFrames = StringUtil.getIntegerValue(dertProperties, "MillisBetweenFrames", true, 33, false);
+			FrameProfiler.TRACE_FRAMES = StringUtil.getIntegerValue(dertProperties, "FrameProfiler.TraceFrames", true, FrameProfiler.TRACE_FRAMES, false);
 			World.defaultStereoEyeSeparation = StringUtil.getDoubleValue(dertProperties, "Stereo.eyeSeparation", false, World.defaultStereoEyeSeparation, false);
 			World.defaultStereoFocalDistance = StringUtil.getDoubleValue(dertProperties, "Stereo.focalDistance", false, World.defaultStereoFocalDistance, false);
 			//RasterText.setFont(StringUtil.getIntegerValue(dertProperties, "RasterText.Font", true, 18, false));
 			Lighting.loadProperties(dertProperties);
 			QuadTreeCache.MAX_CACHE_MEMORY = (long)(Runtime.getRuntime().maxMemory()*0.75);
+			QuadTreeFactory.LOADER_THREADS = StringUtil.getIntegerValue(dertProperties, "QuadTree.LoaderThreads", true, 0, false);
+			RegionStatistics.THREADS = StringUtil.getIntegerValue(dertProperties, "RegionStatistics.Threads", true, 0, false);
+			GeojsonLoader.THREADS = StringUtil.getIntegerValue(dertProperties, "GeojsonLoader.Threads", true, 0, false);
+			HorizonMap.THREADS = StringUtil.getIntegerValue(dertProperties, "HorizonMap.Threads", true, 0, false);
+			HorizonMap.SECTORS = StringUtil.getIntegerValue(dertProperties, "HorizonMap.Sectors", true, HorizonMap.SECTORS, false);
+			HorizonMap.GRID_SIZE = StringUtil.getIntegerValue(dertProperties, "HorizonMap.GridSize", true, HorizonMap.GRID_SIZE, false);
+			HorizonMap.TIME_STEP_SECONDS = StringUtil.getIntegerValue(dertProperties, "HorizonMap.TimeStepSeconds", true, HorizonMap.TIME_STEP_SECONDS, false);
+			TilePrefetcher.LOOKAHEAD = StringUtil.getIntegerValue(dertProperties, "TilePrefetcher.Lookahead", true, TilePrefetcher.LOOKAHEAD, false);
+			TilePrefetcher.GRAB_WAIT_MILLIS = StringUtil.getIntegerValue(dertProperties, "TilePrefetcher.GrabWaitMillis", true, TilePrefetcher.GRAB_WAIT_MILLIS, false);
+			FrameGrabEncoder.THREADS = StringUtil.getIntegerValue(dertProperties, "FrameGrab.EncoderThreads", true, 0, false);
+			HttpTileSource.MAX_CONNECTIONS = StringUtil.getIntegerValue(dertProperties, "HttpTileSource.MaxConnections", true, HttpTileSource.MAX_CONNECTIONS, false);
+			HttpTileSource.CACHE_SIZE_MB = StringUtil.getIntegerValue(dertProperties, "HttpTileSource.CacheSizeMB", true, HttpTileSource.CACHE_SIZE_MB, false);
+			HttpTileSource.REVALIDATE_SECONDS = StringUtil.getIntegerValue(dertProperties, "HttpTileSource.RevalidateSeconds", true, HttpTileSource.REVALIDATE_SECONDS, false);
+			HttpTileSource.CACHE_PATH = StringUtil.getStringValue(dertProperties, "HttpTileSource.CachePath", new File(userPath, "tilecache").getAbsolutePath(), false);
 			DerivativeLayer.defaultColorMapName = dertProperties.getProperty("ColorMap.Default", "default0");
 			FieldLayer.defaultColorMapName = DerivativeLayer.defaultColorMapName;
 			QuadTree.CELL_SIZE = StringUtil.getIntegerValue(dertProperties, "MeshCellSize", true, QuadTree.CELL_SIZE,
@@ -118,6 +118,7 @@ import gov.nasa.arc.dert.action.file.SaveConfigAsAction;
 import gov.nasa.arc.dert.icon.Icons;
 import gov.nasa.arc.dert.landscape.Landscape;
 import gov.nasa.arc.dert.lighting.Lighting;
+import gov.nasa.arc.dert.render.FrameProfiler;
 import gov.nasa.arc.dert.scene.World;
 import gov.nasa.arc.dert.scene.tapemeasure.ActivateTapeMeasureAction;
 import gov.nasa.arc.dert.state.ColorBarsState;
@@ -132,6 +133,7 @@ import gov.nasa.arc.dert.state.State;
 import gov.nasa.arc.dert.state.SurfaceAndLayersState;
 import gov.nasa.arc.dert.ui.CoordTextField;
 import gov.nasa.arc.dert.ui.OptionDialog;
+import gov.nasa.arc.dert.util.FileHelper;
 import gov.nasa.arc.dert.view.Console;
 import gov.nasa.arc.dert.view.lighting.LightPositionView;
 import gov.nasa.arc.dert.viewpoint.ActivateZoomAction;
@@ -496,6 +498,41 @@ public class ToolPanel
 		scaleOverlay.setState(Dert.getWorldView().getScenePanel().isShowCenterScale());
 		menu.add(scaleOverlay);
 
+		CheckboxMenuItem profileOverlay = new CheckboxMenuItem("Show Frame Profile Overlay");
+		profileOverlay.addItemListener(new ItemListener() {
+			@Override
+			public void itemStateChanged(ItemEvent event) {
+				Dert.getWorldView().getScenePanel().setShowProfileOverlay(event.getStateChange() == ItemEvent.SELECTED);
+			}
+		});
+		profileOverlay.setState(Dert.getWorldView().getScenePanel().isShowProfileOverlay());
+		menu.add(profileOverlay);
+
+		MenuItemAction profileExportAction = new MenuItemAction("Export Frame Profile") {
+			@Override
+			protected void run() {
+				FrameProfiler profiler = FrameProfiler.getInstance();
+				if (profiler.getFrameCount() == 0) {
+					OptionDialog.showErrorMessageDialog(Dert.getMainWindow(), "No frames have been profiled. Show the frame profile overlay first.");
+					return;
+				}
+				String fileName = FileHelper.getCSVFile();
+				if (fileName == null)
+					return;
+				String jsonName = fileName.substring(0, fileName.length()-4)+".json";
+				try {
+					profiler.exportCsv(new File(fileName));
+					profiler.exportJson(new File(jsonName));
+					Console.println("Frame profile of "+profiler.getFrameCount()+" frames written to "+fileName+" and "+jsonName);
+				}
+				catch (Exception e) {
+					Console.println("Unable to write frame profile to "+fileName+", see log.");
+					e.printStackTrace();
+				}
+			}
+		};
+		menu.add(profileExportAction);
+
 		CheckboxMenuItem mapElementsOnTopAction = new CheckboxMenuItem("Map Elements On Top");
 		mapElementsOnTopAction.addItemListener(new ItemListener() {
 			@Override
@@ -102,6 +102,7 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 package gov.nasa.arc.dert.ephemeris;
 
 import gov.nasa.arc.dert.Dert;
+import gov.nasa.arc.dert.util.StringUtil;
 import gov.nasa.arc.dert.view.Console;
 
 import java.io.BufferedOutputStream;
@@ -114,6 +115,10 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.Properties;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 
 import spice.basic.BodyName;
 import spice.basic.CSPICE;
@@ -132,6 +137,24 @@ public class Ephemeris {
 	protected final double[] zAxis = { 0, 0, 1 };
 	protected SimpleDateFormat utcDateFormat;
 
+	// Interval between precomputed samples in seconds
+	public static int TABLE_STEP_SECONDS = 60;
+
+	// Time range of the precomputed table in hours, 0 disables it
+	public static int TABLE_HOURS = 48;
+
+	// Precomputed table for the current location
+	protected volatile EphemerisTable table;
+
+	// Table being built in the background
+	protected EphemerisTable pendingTable;
+
+	// Builds tables one at a time in the background
+	protected ExecutorService tableExecutor;
+
+	// Number of vectors taken from the table and from SPICE
+	protected AtomicLong tableCount, spiceCount;
+
 	// Load the native libraries for JNISpice.
 	static {
 		if (Dert.isMac) {
@@ -200,6 +223,10 @@ public class Ephemeris {
 	protected void initialize(String path, Properties properties) {
 		utcDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
 		utcDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		tableCount = new AtomicLong();
+		spiceCount = new AtomicLong();
+		TABLE_STEP_SECONDS = StringUtil.getIntegerValue(properties, "Ephemeris.TableStepSeconds", true, TABLE_STEP_SECONDS, false);
+		TABLE_HOURS = StringUtil.getIntegerValue(properties, "Ephemeris.TableHours", false, TABLE_HOURS, false);
 		File file = new File(path);
 		if (!file.exists()) {
 			throw new IllegalStateException("Unable to initialize ephemeris: " + path + " not found.");
@@ -273,6 +300,134 @@ public class Ephemeris {
 		}
 	}
 
+	/**
+	 * Get the vector to a target body from a point on an observer body at a
+	 * Unix time. The vector is interpolated from the precomputed table if it
+	 * covers the time and location. Otherwise it is computed with SPICE and a
+	 * table for the time range around it is built in the background.
+	 * 
+	 * @param observer
+	 *            the name for the observer body (Mars, for example)
+	 * @param target
+	 *            the name for the target (Sun, for example)
+	 * @param time
+	 *            the Unix time
+	 * @param lon
+	 *            the longitude on the observer surface
+	 * @param lat
+	 *            the latitude on the observer surface
+	 * @param alt
+	 *            the altitude on the observer surface
+	 * @return the vector
+	 */
+	public static double[] getTargetVector(String observer, String target, long time, double lon, double lat, double alt) {
+		EphemerisTable t = instance.table;
+		if ((t != null) && t.matches(observer, target, lon, lat, alt)) {
+			double[] vector = t.get(time);
+			if (vector != null) {
+				instance.tableCount.incrementAndGet();
+				return (vector);
+			}
+		}
+		instance.spiceCount.incrementAndGet();
+		instance.requestTable(observer, target, time, lon, lat, alt);
+		String timeStr = null;
+		synchronized (instance.utcDateFormat) {
+			timeStr = instance.time2UtcStr(time);
+		}
+		return (getTargetVector(observer, target, timeStr, lon, lat, alt));
+	}
+
+	/**
+	 * Compute a table of target vectors for a time range. This is done on the
+	 * calling thread and the table becomes the current table.
+	 * 
+	 * @param observer
+	 * @param target
+	 * @param lon
+	 * @param lat
+	 * @param alt
+	 * @param startTime
+	 *            Unix time
+	 * @param endTime
+	 *            Unix time
+	 * @param stepMillis
+	 *            the interval between samples
+	 * @return the table, or null if SPICE failed
+	 */
+	public static EphemerisTable precompute(String observer, String target, double lon, double lat, double alt,
+		long startTime, long endTime, long stepMillis) {
+		EphemerisTable t = new EphemerisTable(observer, target, lon, lat, alt, startTime, endTime, stepMillis);
+		if (!t.build())
+			return (null);
+		instance.table = t;
+		return (t);
+	}
+
+	/**
+	 * Start building a table centered on the given time if neither the
+	 * current table nor the one being built covers it. A build that has been
+	 * superseded is cancelled.
+	 */
+	protected synchronized void requestTable(String observer, String target, long time, double lon, double lat,
+		double alt) {
+		if (TABLE_HOURS <= 0)
+			return;
+		if ((pendingTable != null) && pendingTable.matches(observer, target, lon, lat, alt)
+			&& pendingTable.contains(time))
+			return;
+		if (pendingTable != null)
+			pendingTable.cancel();
+		long halfRange = TABLE_HOURS * 1800000L;
+		final EphemerisTable t = new EphemerisTable(observer, target, lon, lat, alt, time - halfRange,
+			time + halfRange, TABLE_STEP_SECONDS * 1000L);
+		pendingTable = t;
+		if (tableExecutor == null) {
+			tableExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "EphemerisTable");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return (thread);
+				}
+			});
+		}
+		tableExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				boolean built = t.build();
+				synchronized (Ephemeris.this) {
+					// a newer request may have replaced this one
+					if (pendingTable == t) {
+						if (built)
+							table = t;
+						else
+							pendingTable = null;
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Get the number of vectors taken from the precomputed table.
+	 * 
+	 * @return
+	 */
+	public long getTableCount() {
+		return (tableCount.get());
+	}
+
+	/**
+	 * Get the number of vectors computed directly with SPICE.
+	 * 
+	 * @return
+	 */
+	public long getSpiceCount() {
+		return (spiceCount.get());
+	}
+
 	protected double[] getTargetVectorAtLonLatAlt(String observer, String target, String time, double lon, double lat, double alt) {
 		observer = observer.toUpperCase();
 		target = target.toUpperCase();		
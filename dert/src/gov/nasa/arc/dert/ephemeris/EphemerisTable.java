@@ -0,0 +1,325 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.ephemeris;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Provides target vectors precomputed with SPICE at regular intervals over a
+ * time range for one location on an observer body. Vectors between samples
+ * are interpolated.
+ *
+ */
+public class EphemerisTable {
+
+	// Observer and target body names
+	private String observer, target;
+
+	// Location on the observer surface
+	private double lon, lat, alt;
+
+	// Time range and sample interval in milliseconds
+	private long startTime, endTime, step;
+
+	// Number of samples
+	private int count;
+
+	// Sampled unit direction (x, y, z), radius, longitude, and latitude
+	private double[] direction, radius, longitude, latitude;
+
+	// Set when all samples have been computed
+	private volatile boolean ready;
+
+	// Set when the table is no longer wanted
+	private volatile boolean cancelled;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param observer
+	 *            the name of the observer body
+	 * @param target
+	 *            the name of the target
+	 * @param lon
+	 *            the longitude on the observer surface
+	 * @param lat
+	 *            the latitude on the observer surface
+	 * @param alt
+	 *            the altitude on the observer surface
+	 * @param startTime
+	 *            the first sample time (Unix time)
+	 * @param endTime
+	 *            the last sample time (Unix time)
+	 * @param step
+	 *            the interval between samples in milliseconds
+	 */
+	public EphemerisTable(String observer, String target, double lon, double lat, double alt, long startTime,
+		long endTime, long step) {
+		this.observer = observer;
+		this.target = target;
+		this.lon = lon;
+		this.lat = lat;
+		this.alt = alt;
+		this.step = Math.max(1, step);
+		this.startTime = startTime;
+		count = (int) ((endTime - startTime + this.step - 1) / this.step) + 1;
+		if (count < 2)
+			count = 2;
+		this.endTime = startTime + (count - 1) * this.step;
+		direction = new double[count * 3];
+		radius = new double[count];
+		longitude = new double[count];
+		latitude = new double[count];
+	}
+
+	/**
+	 * Compute the samples with SPICE.
+	 * 
+	 * @return false if SPICE failed for any sample or the build was cancelled
+	 */
+	public boolean build() {
+		// use our own formatter, this may be called on any thread
+		SimpleDateFormat utcDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
+		utcDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		for (int i = 0; i < count; ++i) {
+			if (cancelled)
+				return (false);
+			String timeStr = utcDateFormat.format(new Date(startTime + i * step));
+			double[] val = Ephemeris.getTargetVector(observer, target, timeStr, lon, lat, alt);
+			if (val == null)
+				return (false);
+			direction[i * 3] = val[0];
+			direction[i * 3 + 1] = val[1];
+			direction[i * 3 + 2] = val[2];
+			radius[i] = val[3];
+			longitude[i] = val[4];
+			latitude[i] = val[5];
+		}
+		ready = true;
+		return (true);
+	}
+
+	/**
+	 * Stop building this table.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Find out if this table has been built.
+	 * 
+	 * @return
+	 */
+	public boolean isReady() {
+		return (ready);
+	}
+
+	/**
+	 * Find out if this table is for the given bodies and location.
+	 * 
+	 * @param observer
+	 * @param target
+	 * @param lon
+	 * @param lat
+	 * @param alt
+	 * @return
+	 */
+	public boolean matches(String observer, String target, double lon, double lat, double alt) {
+		return (this.observer.equalsIgnoreCase(observer) && this.target.equalsIgnoreCase(target) && (this.lon == lon)
+			&& (this.lat == lat) && (this.alt == alt));
+	}
+
+	/**
+	 * Find out if a time is within the range of this table.
+	 * 
+	 * @param time
+	 * @return
+	 */
+	public boolean contains(long time) {
+		return ((time >= startTime) && (time <= endTime));
+	}
+
+	/**
+	 * Get the interpolated target vector at a time. The vector has the same
+	 * layout as Ephemeris.getTargetVector.
+	 * 
+	 * @param time
+	 * @return the vector or null if the time is outside of the table or the
+	 *         table is not built
+	 */
+	public double[] get(long time) {
+		if (!ready || !contains(time))
+			return (null);
+		double f = (double) (time - startTime) / step;
+		int i = (int) f;
+		if (i >= count - 1)
+			i = count - 2;
+		double w = f - i;
+		int j = i + 1;
+
+		double[] result = new double[6];
+		double x = direction[i * 3] + w * (direction[j * 3] - direction[i * 3]);
+		double y = direction[i * 3 + 1] + w * (direction[j * 3 + 1] - direction[i * 3 + 1]);
+		double z = direction[i * 3 + 2] + w * (direction[j * 3 + 2] - direction[i * 3 + 2]);
+		double len = Math.sqrt(x * x + y * y + z * z);
+		if (len > 0) {
+			x /= len;
+			y /= len;
+			z /= len;
+		}
+		result[0] = x;
+		result[1] = y;
+		result[2] = z;
+		result[3] = radius[i] + w * (radius[j] - radius[i]);
+		// longitude wraps at +/-PI
+		double d = longitude[j] - longitude[i];
+		if (d > Math.PI)
+			d -= 2 * Math.PI;
+		else if (d < -Math.PI)
+			d += 2 * Math.PI;
+		double a = longitude[i] + w * d;
+		if (a > Math.PI)
+			a -= 2 * Math.PI;
+		else if (a < -Math.PI)
+			a += 2 * Math.PI;
+		result[4] = a;
+		result[5] = latitude[i] + w * (latitude[j] - latitude[i]);
+		return (result);
+	}
+
+	/**
+	 * Get the number of samples
+	 * 
+	 * @return
+	 */
+	public int getCount() {
+		return (count);
+	}
+
+	/**
+	 * Get the first sample time
+	 * 
+	 * @return
+	 */
+	public long getStartTime() {
+		return (startTime);
+	}
+
+	/**
+	 * Get the last sample time
+	 * 
+	 * @return
+	 */
+	public long getEndTime() {
+		return (endTime);
+	}
+
+	@Override
+	public String toString() {
+		return ("EphemerisTable[" + observer + "," + target + "," + lon + "," + lat + "," + alt + "," + startTime + ","
+			+ endTime + "," + step + "]");
+	}
+
+}
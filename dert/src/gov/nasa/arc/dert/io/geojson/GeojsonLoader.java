@@ -104,6 +104,7 @@ package gov.nasa.arc.dert.io.geojson;
 import gov.nasa.arc.dert.io.geojson.json.GeoJsonFeature;
 import gov.nasa.arc.dert.io.geojson.json.GeoJsonFeatureCollection;
 import gov.nasa.arc.dert.io.geojson.json.GeoJsonObject;
+import gov.nasa.arc.dert.io.geojson.json.GeoJsonStreamReader;
 import gov.nasa.arc.dert.io.geojson.json.Geometry;
 import gov.nasa.arc.dert.io.geojson.json.GeometryCollection;
 import gov.nasa.arc.dert.io.geojson.json.Json;
@@ -113,6 +114,7 @@ import gov.nasa.arc.dert.io.geojson.json.LineString;
 import gov.nasa.arc.dert.io.geojson.json.MultiLineString;
 import gov.nasa.arc.dert.io.geojson.json.MultiPoint;
 import gov.nasa.arc.dert.io.geojson.json.MultiPolygon;
+import gov.nasa.arc.dert.io.geojson.json.PackedGeometry;
 import gov.nasa.arc.dert.io.geojson.json.Point;
 import gov.nasa.arc.dert.io.geojson.json.Polygon;
 import gov.nasa.arc.dert.landscape.Landscape;
@@ -131,14 +133,21 @@ import gov.nasa.arc.dert.state.MapElementState.Type;
 import gov.nasa.arc.dert.view.Console;
 
 import java.awt.Color;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.nio.FloatBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.ardor3d.bounding.BoundingBox;
 import com.ardor3d.math.Vector3;
@@ -152,12 +161,43 @@ import com.ardor3d.util.geom.BufferUtils;
  * Provides a file loader for GeoJSON format.
  *
  */
-public class GeojsonLoader {
+public class GeojsonLoader
+	implements GeoJsonStreamReader.PositionFilter {
+
+	// Number of threads used to drape features, 0 means use the number of
+	// available processors
+	public static int THREADS = 0;
+
+	// A feature that has been read and is waiting to be added
+	private static class PendingFeature {
+		public String id;
+		public HashMap<String, Object> properties;
+		public PackedGeometry geometry;
+		public Future<PackedGeometry> future;
+	}
+
+	// Reprojects positions, Proj4 is not thread safe so this is only used on
+	// the thread reading the file
+	private GeoJsonStreamReader.PositionFilter reprojectFilter = new GeoJsonStreamReader.PositionFilter() {
+		@Override
+		public void filter(double[] position, int n) {
+			reproject(position, n);
+		}
+	};
+
+	// Drapes reprojected positions, used on the pool
+	private GeoJsonStreamReader.PositionFilter drapeFilter = new GeoJsonStreamReader.PositionFilter() {
+		@Override
+		public void filter(double[] position, int n) {
+			drape(position, n);
+		}
+	};
 
 	private String filePath;
 	private double minZ, maxZ;
 	private Vector3 coord = new Vector3();
 	private double[] dcoord = new double[3];
+	private double[] lineCoord = new double[0];
 	private SpatialReferenceSystem srs;
 	private double landscapeMinZ;
 	private String elevAttrName;
@@ -288,6 +328,131 @@ public class GeojsonLoader {
 			}
 			result = root;
 		}
+		finishFeatureSet(root, count);
+		return (result);
+	}
+
+	/**
+	 * Load a GeoJSON file directly into a FeatureSet. Features are read one at
+	 * a time and their coordinates are converted as they are read and put in
+	 * the vertex buffers, so a large file can be loaded without holding it in
+	 * memory.
+	 * 
+	 * @param filePath
+	 *            path to the file
+	 * @param root
+	 *            the FeatureSet
+	 * @param labelProp
+	 *            the property to use for Feature labels
+	 * @return the number of Features
+	 */
+	public int loadFeatureSet(String filePath, FeatureSet root, String labelProp) {
+		this.filePath = filePath;
+		Color color = root.getColor();
+		if (labelProp == null)
+			labelProp = ((FeatureSetState)root.getState()).labelProp;
+
+		// Minimum landscape elevation
+		landscapeMinZ = 0;
+		if ((elevAttrName == null) && ground)
+			landscapeMinZ = Landscape.getInstance().getMinimumElevation();
+
+		// Features are read and reprojected in order on this thread, draped on
+		// the pool, and then added to the scene in order
+		int threads = getThreadCount();
+		ExecutorService executor = null;
+		if (threads > 1)
+			executor = Executors.newFixedThreadPool(threads);
+		ArrayDeque<PendingFeature> pending = new ArrayDeque<PendingFeature>();
+		int count = 0;
+		GeoJsonStreamReader reader = null;
+		try {
+			reader = new GeoJsonStreamReader(new BufferedInputStream(new FileInputStream(filePath)), (executor == null) ? this : null);
+			while (reader.nextFeature()) {
+				final PackedGeometry geometry = reader.getGeometry();
+				if (geometry == null)
+					continue;
+				PendingFeature feature = new PendingFeature();
+				feature.id = reader.getId();
+				feature.properties = reader.getProperties();
+				feature.geometry = geometry;
+				if (executor != null) {
+					geometry.filter(reprojectFilter);
+					feature.future = executor.submit(new Callable<PackedGeometry>() {
+						@Override
+						public PackedGeometry call() {
+							geometry.pack(drapeFilter);
+							return (geometry);
+						}
+					});
+				}
+				pending.add(feature);
+				// limit the number of features held in memory
+				while (pending.size() > threads * 4) {
+					if (addFeature(root, pending.poll(), color, labelProp, count))
+						count++;
+				}
+			}
+			while (!pending.isEmpty()) {
+				if (addFeature(root, pending.poll(), color, labelProp, count))
+					count++;
+			}
+		} catch (Exception e) {
+			Console.println("Unable to load GeoJSON file " + filePath + ", see log.");
+			e.printStackTrace();
+		} finally {
+			if (reader != null)
+				reader.close();
+			if (executor != null)
+				executor.shutdownNow();
+		}
+		finishFeatureSet(root, count);
+		return (count);
+	}
+
+	/**
+	 * Get the number of threads used to load a FeatureSet.
+	 * 
+	 * @return
+	 */
+	public static int getThreadCount() {
+		if (THREADS > 0)
+			return (THREADS);
+		return (Math.max(1, Runtime.getRuntime().availableProcessors()));
+	}
+
+	private boolean addFeature(FeatureSet root, PendingFeature pending, Color color, String labelProp, int count)
+		throws Exception {
+		PackedGeometry geometry = pending.geometry;
+		if (pending.future != null) {
+			try {
+				geometry = pending.future.get();
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof Exception)
+					throw ((Exception) e.getCause());
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+		String name = null;
+		if (labelProp != null) {
+			Object obj = pending.properties.get(labelProp);
+			if (obj != null)
+				name = obj.toString();
+		}
+		if ((name == null) || name.isEmpty())
+			name = pending.id;
+		if (name == null)
+			name = "Feature"+count;
+		FeatureState fState = new FeatureState(count, name, Type.Feature, "Feature", color);
+		Feature feature = new Feature(fState, pending.properties);
+		if (packedGeometryToArdor3D(feature, geometry, color, pending.properties)) {
+			root.attachChild(feature);
+			return (true);
+		}
+		return (false);
+	}
+
+	private void finishFeatureSet(FeatureSet root, int count) {
 		Collections.sort(root.getChildren(), new Comparator<Spatial>() {
 			public int compare(Spatial spat1, Spatial spat2) {
 				return(spat1.getName().compareTo(spat2.getName()));
@@ -301,7 +466,6 @@ public class GeojsonLoader {
 			Console.println("Found " + count + " features for GeoJSON file " + filePath + ".");
 		else
 			System.out.println("Found " + count + " features for GeoJSON file " + filePath + ".");
-		return (result);
 	}
 
 	private Feature geojsonFeatureToArdor3D(GeoJsonFeature gjFeature, Color color, String labelProp, int count) {
@@ -493,6 +657,127 @@ public class GeojsonLoader {
 		
 	}
 
+	private boolean packedGeometryToArdor3D(Node parent, PackedGeometry geometry, Color color, HashMap<String, Object> properties) {
+		// this is a contour map, we have an elevation attribute from gdaldem
+		boolean isContour = (elevAttrName != null);
+		float[] coordinate = geometry.coordinate;
+		switch (geometry.type) {
+		case Point:
+		case MultiPoint:
+			if ((geometry.type == Geometry.GeojsonType.MultiPoint) && (geometry.numLines == 0))
+				return (false);
+			for (int i = 0; i < geometry.numPositions; ++i) {
+				Vector3 pos = new Vector3(coordinate[i * 3], coordinate[i * 3 + 1], coordinate[i * 3 + 2]);
+				String name = parent.getName();
+				if (geometry.type == Geometry.GeojsonType.MultiPoint)
+					name += i;
+				FigureMarker fm = new FigureMarker(name, pos, size, 0, color, false, true, true);
+				fm.setShape(ShapeType.crystal, false);
+				fm.setAutoShowLabel(true);
+				parent.attachChild(fm);
+			}
+			break;
+
+		case LineString:
+		case MultiLineString:
+		case Polygon:
+		case MultiPolygon:
+			if (geometry.numLines == 0)
+				return (false);
+			boolean attached = false;
+			for (int i = 0; i < geometry.numLines; ++i) {
+				String name = "_geom";
+				if (geometry.type == Geometry.GeojsonType.MultiPolygon)
+					name += geometry.lineIndex0[i] + "." + geometry.lineIndex1[i];
+				else if (geometry.type != Geometry.GeojsonType.LineString)
+					name += geometry.lineIndex0[i];
+				LineStrip lineStrip = createLineStrip(name, coordinate, geometry.lineStart[i], geometry.lineEnd[i], color);
+				if (lineStrip == null)
+					continue;
+				attached = true;
+				// if this is a contour map put the line strip in a Contour object
+				Object elevation = null;
+				if (isContour && (geometry.type != Geometry.GeojsonType.Polygon) && (geometry.type != Geometry.GeojsonType.MultiPolygon))
+					elevation = properties.get(elevAttrName);
+				if (elevation != null) {
+					double el = ((Number)elevation).doubleValue();
+					parent.attachChild(new ContourLine(lineStrip, el, color));
+				} else {
+					parent.attachChild(lineStrip);
+				}
+			}
+			if (!attached && (geometry.type == Geometry.GeojsonType.LineString))
+				return (false);
+			break;
+
+		case GeometryCollection:
+			if ((geometry.geometryList == null) || (geometry.geometryList.size() == 0))
+				return(false);
+			GroupNode group = new GroupNode("_geom");
+			for (int i=0; i<geometry.geometryList.size(); ++i) {
+				packedGeometryToArdor3D(group, geometry.geometryList.get(i), color, properties);
+			}
+			parent.attachChild(group);
+			break;
+		}
+		return(true);
+	}
+
+	/**
+	 * Convert the GeoJSON positions of a geometry read by the
+	 * GeoJsonStreamReader. The positions are reprojected in one call and
+	 * draped with one elevation lookup per tile.
+	 */
+	@Override
+	public void filter(double[] position, int n) {
+		reproject(position, n);
+		drape(position, n);
+	}
+
+	// Reproject positions to local coordinates in one call
+	private void reproject(double[] position, int n) {
+		boolean[] is2D = new boolean[n];
+		for (int i = 0, k = 2; i < n; ++i, k += 3) {
+			is2D[i] = Double.isNaN(position[k]);
+			if (is2D[i])
+				position[k] = 0;
+		}
+		Projection projection = srs.getProjection();
+		projection.sphericalToWorld(position, n);
+		Vector3 vec = new Vector3();
+		for (int i = 0, k = 0; i < n; ++i, k += 3) {
+			if (Double.isNaN(position[k]))
+				continue;
+			vec.set(position[k], position[k + 1], position[k + 2]);
+			projection.worldToLocal(vec);
+			if (!ground && !is2D[i])
+				vec.setZ(vec.getZ() - landscapeMinZ);
+			position[k] = vec.getX();
+			position[k + 1] = vec.getY();
+			position[k + 2] = vec.getZ();
+		}
+	}
+
+	// Drape reprojected positions with one elevation lookup per tile, may be
+	// called from several threads at once during loadFeatureSet
+	private void drape(double[] position, int n) {
+		if (ground) {
+			double[] xy = new double[n * 2];
+			for (int i = 0, k = 0; i < n; ++i, k += 3) {
+				xy[i * 2] = position[k];
+				xy[i * 2 + 1] = position[k + 1];
+			}
+			double[] z = new double[n];
+			Landscape.getInstance().getZ(xy, n, z);
+			for (int i = 0, k = 0; i < n; ++i, k += 3) {
+				if (Double.isNaN(z[i]))
+					position[k] = Double.NaN;
+				else
+					position[k + 2] = z[i];
+			}
+		}
+	}
+
 	private ReadOnlyVector3 toWorld(double[] coordinate, boolean getZ) {
 		if (coordinate.length == 3) {
 			translate(coordinate);
@@ -519,13 +804,22 @@ public class GeojsonLoader {
 	}
 	
 	private LineStrip createLineStrip(String name, double[][] coord, Color color) {
-		FloatBuffer vertexBuffer = BufferUtils.createFloatBuffer(3 * coord.length);
+		if (lineCoord.length < coord.length * 3)
+			lineCoord = new double[coord.length * 3];
 		for (int i = 0; i < coord.length; ++i) {
-			ReadOnlyVector3 pos = toWorld(coord[i], ground);
-			if (pos != null) {
-				vertexBuffer.put(pos.getXf()).put(pos.getYf()).put(pos.getZf());
-				minZ = Math.min(minZ, pos.getZ());
-				maxZ = Math.max(maxZ, pos.getZ());
+			if (coord[i].length < 2)
+				throw new IllegalArgumentException("GeoJSON Position has < 2 elements.");
+			lineCoord[i * 3] = coord[i][0];
+			lineCoord[i * 3 + 1] = coord[i][1];
+			lineCoord[i * 3 + 2] = (coord[i].length == 3) ? coord[i][2] : Double.NaN;
+		}
+		filter(lineCoord, coord.length);
+		FloatBuffer vertexBuffer = BufferUtils.createFloatBuffer(3 * coord.length);
+		for (int i = 0, k = 0; i < coord.length; ++i, k += 3) {
+			if (!Double.isNaN(lineCoord[k])) {
+				vertexBuffer.put((float) lineCoord[k]).put((float) lineCoord[k + 1]).put((float) lineCoord[k + 2]);
+				minZ = Math.min(minZ, lineCoord[k + 2]);
+				maxZ = Math.max(maxZ, lineCoord[k + 2]);
 			}
 		}
 		vertexBuffer.flip();
@@ -541,6 +835,21 @@ public class GeojsonLoader {
 		return(null);
 	}
 	
+	private LineStrip createLineStrip(String name, float[] coordinate, int start, int end, Color color) {
+		if (end <= start)
+			return (null);
+		FloatBuffer vertexBuffer = BufferUtils.createFloatBuffer(3 * (end - start));
+		vertexBuffer.put(coordinate, start * 3, (end - start) * 3);
+		vertexBuffer.flip();
+		LineStrip lineStrip = new LineStrip(name, vertexBuffer, null, null, null);
+		lineStrip.setLineWidth(lineWidth);
+		lineStrip.setModelBound(new BoundingBox());
+		lineStrip.updateModelBound();
+		lineStrip.setColor(color);
+		lineStrip.getSceneHints().setLightCombineMode(LightCombineMode.Off);
+		return(lineStrip);
+	}
+	
 	public void translate(double[] coordinate) {
 		Projection projection = srs.getProjection();
 		if (coordinate.length == 3)
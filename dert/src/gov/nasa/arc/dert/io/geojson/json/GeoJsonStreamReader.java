@@ -0,0 +1,387 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.io.geojson.json;
+
+import gov.nasa.arc.dert.io.geojson.json.Geometry.GeojsonType;
+import gov.nasa.arc.dert.io.geojson.json.JsonParser.Event;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Reads the Features of a GeoJSON FeatureCollection (or a single Feature) one
+ * at a time. The positions of each geometry are converted together by a
+ * PositionFilter and stored as floats in a PackedGeometry, so only the current
+ * Feature is held in memory. Without a filter the geometries are returned
+ * unpacked so they can be converted on another thread.
+ *
+ */
+public class GeoJsonStreamReader {
+
+	/**
+	 * Converts GeoJSON positions to the coordinates stored in a geometry.
+	 */
+	public static interface PositionFilter {
+		/**
+		 * Convert the positions of a geometry in place. Set x to NaN to leave a
+		 * position out.
+		 * 
+		 * @param position
+		 *            x, y, z for each position, z is NaN if the position has
+		 *            only x and y
+		 * @param n
+		 *            the number of positions
+		 */
+		public void filter(double[] position, int n);
+	}
+
+	private JsonParser parser;
+	private PositionFilter filter;
+	private int[] index = new int[8];
+	private double[] position = new double[3];
+
+	// The current Feature
+	private String id;
+	private HashMap<String, Object> properties;
+	private PackedGeometry geometry;
+
+	// The root object
+	private String rootType;
+	private String rootId;
+	private HashMap<String, Object> rootProperties;
+	private PackedGeometry rootGeometry;
+	private boolean started, inFeatures, done;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param inputStream
+	 *            UTF-8 GeoJSON
+	 * @param filter
+	 *            position converter, null to leave geometries unpacked
+	 */
+	public GeoJsonStreamReader(InputStream inputStream, PositionFilter filter) {
+		parser = new JsonParser(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+		this.filter = filter;
+	}
+
+	/**
+	 * Read the next Feature.
+	 * 
+	 * @return false if there are no more Features
+	 * @throws IOException
+	 */
+	public boolean nextFeature() throws IOException {
+		while (true) {
+			if (inFeatures) {
+				Event event = parser.next();
+				if (event == Event.START_OBJECT) {
+					readFeature();
+					return (true);
+				}
+				parser.checkEvent(event, Event.END_ARRAY);
+				inFeatures = false;
+			}
+			if (done)
+				return (false);
+			if (!started) {
+				parser.checkEvent(parser.next(), Event.START_OBJECT);
+				started = true;
+			}
+			Event event = parser.next();
+			if (event == Event.END_OBJECT) {
+				done = true;
+				if ("Feature".equals(rootType)) {
+					id = rootId;
+					properties = getProperties(rootProperties);
+					geometry = rootGeometry;
+					return (true);
+				}
+				return (false);
+			}
+			parser.checkEvent(event, Event.KEY_NAME);
+			String key = parser.getString();
+			event = parser.next();
+			if (key.equals("features") && (event == Event.START_ARRAY)) {
+				inFeatures = true;
+			} else if (key.equals("type") && (event == Event.VALUE_STRING)) {
+				rootType = parser.getString();
+			} else if (key.equals("id")) {
+				rootId = toId(parser.readValue(event));
+			} else if (key.equals("properties") && (event == Event.START_OBJECT)) {
+				rootProperties = createProperties((JsonObject) parser.readValue(event));
+			} else if (key.equals("geometry") && (event == Event.START_OBJECT)) {
+				rootGeometry = readGeometry();
+			} else {
+				parser.skipValue(event);
+			}
+		}
+	}
+
+	/**
+	 * Get the type of the root object, FeatureCollection or Feature. This is
+	 * known once the type member has been read.
+	 * 
+	 * @return
+	 */
+	public String getRootType() {
+		return (rootType);
+	}
+
+	/**
+	 * Get the id of the current Feature
+	 * 
+	 * @return
+	 */
+	public String getId() {
+		return (id);
+	}
+
+	/**
+	 * Get the properties of the current Feature
+	 * 
+	 * @return
+	 */
+	public HashMap<String, Object> getProperties() {
+		return (properties);
+	}
+
+	/**
+	 * Get the geometry of the current Feature
+	 * 
+	 * @return the geometry or null if it has none
+	 */
+	public PackedGeometry getGeometry() {
+		return (geometry);
+	}
+
+	/**
+	 * Close the input.
+	 */
+	public void close() {
+		parser.close();
+	}
+
+	private void readFeature() throws IOException {
+		id = null;
+		properties = null;
+		geometry = null;
+		Event event = parser.next();
+		while (event == Event.KEY_NAME) {
+			String key = parser.getString();
+			event = parser.next();
+			if (key.equals("id")) {
+				id = toId(parser.readValue(event));
+			} else if (key.equals("properties") && (event == Event.START_OBJECT)) {
+				properties = createProperties((JsonObject) parser.readValue(event));
+			} else if (key.equals("geometry") && (event == Event.START_OBJECT)) {
+				geometry = readGeometry();
+			} else {
+				parser.skipValue(event);
+			}
+			event = parser.next();
+		}
+		parser.checkEvent(event, Event.END_OBJECT);
+		properties = getProperties(properties);
+	}
+
+	private PackedGeometry readGeometry() throws IOException {
+		PackedGeometry geom = new PackedGeometry();
+		Event event = parser.next();
+		while (event == Event.KEY_NAME) {
+			String key = parser.getString();
+			event = parser.next();
+			if (key.equals("type") && (event == Event.VALUE_STRING)) {
+				geom.type = GeojsonType.valueOf(parser.getString());
+			} else if (key.equals("coordinates") && (event == Event.START_ARRAY)) {
+				readCoordinates(geom, 0);
+				if (filter != null)
+					geom.pack(filter);
+			} else if (key.equals("geometries") && (event == Event.START_ARRAY)) {
+				geom.geometryList = new ArrayList<PackedGeometry>();
+				event = parser.next();
+				while (event != Event.END_ARRAY) {
+					parser.checkEvent(event, Event.START_OBJECT);
+					geom.geometryList.add(readGeometry());
+					event = parser.next();
+				}
+			} else {
+				parser.skipValue(event);
+			}
+			event = parser.next();
+		}
+		parser.checkEvent(event, Event.END_OBJECT);
+		if (geom.type == null)
+			throw new IllegalStateException("GeoJSON Geometry has no type.");
+		return (geom);
+	}
+
+	/**
+	 * Read an array of coordinates, the START_ARRAY has been read. Returns 1
+	 * if the array is a position, 2 if it is an array of positions, and so on.
+	 * Returns 0 for an empty array.
+	 */
+	private int readCoordinates(PackedGeometry geom, int level) throws IOException {
+		Event event = parser.next();
+		if (event == Event.VALUE_NUMBER) {
+			position[2] = Double.NaN;
+			int dims = 0;
+			while (event != Event.END_ARRAY) {
+				parser.checkEvent(event, Event.VALUE_NUMBER);
+				if (dims < 3)
+					position[dims] = parser.getDouble();
+				dims++;
+				event = parser.next();
+			}
+			if (dims < 2)
+				throw new IllegalArgumentException("GeoJSON Position has < 2 elements.");
+			geom.addPosition(position[0], position[1], position[2]);
+			return (1);
+		}
+		if (level == index.length)
+			throw new IllegalStateException("GeoJSON coordinates are nested too deeply.");
+		int start = geom.numPositions;
+		int depth = 0;
+		int count = 0;
+		while (event != Event.END_ARRAY) {
+			parser.checkEvent(event, Event.START_ARRAY);
+			index[level] = count++;
+			depth = Math.max(depth, readCoordinates(geom, level + 1));
+			event = parser.next();
+		}
+		if (depth == 0)
+			return (0);
+		if (depth == 1) {
+			// an array of positions
+			geom.addLine(start, geom.numPositions, (level > 0) ? index[0] : 0, (level > 1) ? index[1] : 0);
+		}
+		return (depth + 1);
+	}
+
+	private String toId(Object value) {
+		if (value == null)
+			return (null);
+		return (value.toString());
+	}
+
+	private HashMap<String, Object> createProperties(JsonObject jObj) {
+		HashMap<String, Object> map = new HashMap<String, Object>();
+		String[] key = jObj.getKeys();
+		for (int i = 0; i < key.length; ++i) {
+			Object val = jObj.get(key[i]);
+			if (!(val instanceof Object[]))
+				map.put(key[i], val);
+		}
+		return (map);
+	}
+
+	private HashMap<String, Object> getProperties(HashMap<String, Object> map) {
+		if (map == null)
+			return (new HashMap<String, Object>());
+		return (map);
+	}
+
+}
@@ -0,0 +1,498 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.io.geojson.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+
+/**
+ * Pull parser for JSON. Each call to next returns one event, so a large
+ * document can be read without building it in memory. Numbers are parsed
+ * straight from the character buffer. Values that are wanted whole can be
+ * read with readValue, which returns the same types as JsonReader.
+ *
+ */
+public class JsonParser {
+
+	public static enum Event {
+		START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, KEY_NAME, VALUE_STRING, VALUE_NUMBER, VALUE_TRUE, VALUE_FALSE, VALUE_NULL
+	}
+
+	// Powers of ten that are exact as doubles
+	private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+		1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private Reader reader;
+
+	// Character buffer
+	private char[] buffer;
+	private int position, limit;
+
+	// Characters of the current string or number
+	private StringBuilder sBuilder;
+
+	// Value of the current number
+	private double number;
+	private boolean isDecimal;
+
+	// Containers that are open, true for an object
+	private boolean[] isObject;
+	private int depth;
+
+	// The next string in an object is a key
+	private boolean expectKey;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param reader
+	 */
+	public JsonParser(Reader reader) {
+		this.reader = reader;
+		buffer = new char[65536];
+		sBuilder = new StringBuilder();
+		isObject = new boolean[32];
+	}
+
+	/**
+	 * Get the next event.
+	 * 
+	 * @return the event or null at the end of the input
+	 * @throws IOException
+	 */
+	public Event next() throws IOException {
+		while (true) {
+			int c = read();
+			switch (c) {
+			case -1:
+				return (null);
+			case ' ':
+			case '\t':
+			case '\n':
+			case '\r':
+			case ':':
+				break;
+			case ',':
+				expectKey = (depth > 0) && isObject[depth - 1];
+				break;
+			case '{':
+				push(true);
+				expectKey = true;
+				return (Event.START_OBJECT);
+			case '}':
+				depth--;
+				expectKey = false;
+				return (Event.END_OBJECT);
+			case '[':
+				push(false);
+				expectKey = false;
+				return (Event.START_ARRAY);
+			case ']':
+				depth--;
+				return (Event.END_ARRAY);
+			case '"':
+				readString();
+				if (expectKey) {
+					expectKey = false;
+					return (Event.KEY_NAME);
+				}
+				return (Event.VALUE_STRING);
+			case 't':
+				readLiteral("rue");
+				return (Event.VALUE_TRUE);
+			case 'f':
+				readLiteral("alse");
+				return (Event.VALUE_FALSE);
+			case 'n':
+				readLiteral("ull");
+				return (Event.VALUE_NULL);
+			default:
+				if ((c == '-') || ((c >= '0') && (c <= '9'))) {
+					readNumber(c);
+					return (Event.VALUE_NUMBER);
+				}
+				if (!Character.isWhitespace(c))
+					throw new IllegalStateException("Unexpected character '" + (char) c + "' in JSON.");
+			}
+		}
+	}
+
+	/**
+	 * Get the current key or string value.
+	 * 
+	 * @return
+	 */
+	public String getString() {
+		return (sBuilder.toString());
+	}
+
+	/**
+	 * Get the current number value.
+	 * 
+	 * @return
+	 */
+	public double getDouble() {
+		return (number);
+	}
+
+	/**
+	 * Get the current number value as an Integer, or as a Double if it has a
+	 * fraction, exponent, or is too large.
+	 * 
+	 * @return
+	 */
+	public Number getNumber() {
+		if (!isDecimal && (number >= Integer.MIN_VALUE) && (number <= Integer.MAX_VALUE))
+			return (Integer.valueOf((int) number));
+		return (Double.valueOf(number));
+	}
+
+	/**
+	 * Read the whole value that starts with the given event. Objects are
+	 * returned as JsonObjects and arrays as Object[].
+	 * 
+	 * @param event
+	 * @return
+	 * @throws IOException
+	 */
+	public Object readValue(Event event) throws IOException {
+		switch (event) {
+		case START_OBJECT:
+			JsonObject jObject = new JsonObject();
+			event = next();
+			while (event == Event.KEY_NAME) {
+				String key = getString();
+				jObject.add(key, readValue(next()));
+				event = next();
+			}
+			checkEvent(event, Event.END_OBJECT);
+			return (jObject);
+		case START_ARRAY:
+			ArrayList<Object> array = new ArrayList<Object>();
+			event = next();
+			while (event != Event.END_ARRAY) {
+				array.add(readValue(event));
+				event = next();
+			}
+			return (array.toArray());
+		case VALUE_STRING:
+			return (getString());
+		case VALUE_NUMBER:
+			return (getNumber());
+		case VALUE_TRUE:
+			return (Boolean.TRUE);
+		case VALUE_FALSE:
+			return (Boolean.FALSE);
+		case VALUE_NULL:
+			return (null);
+		default:
+			throw new IllegalStateException("Unexpected " + event + " in JSON.");
+		}
+	}
+
+	/**
+	 * Skip the whole value that starts with the given event.
+	 * 
+	 * @param event
+	 * @throws IOException
+	 */
+	public void skipValue(Event event) throws IOException {
+		if ((event != Event.START_OBJECT) && (event != Event.START_ARRAY))
+			return;
+		int d = depth - 1;
+		while (depth > d) {
+			if (next() == null)
+				throw new IllegalStateException("Unexpected end of JSON.");
+		}
+	}
+
+	/**
+	 * Throw an exception if the event is not the one expected.
+	 * 
+	 * @param event
+	 * @param expected
+	 */
+	public void checkEvent(Event event, Event expected) {
+		if (event != expected)
+			throw new IllegalStateException("Expected " + expected + " but found " + event + " in JSON.");
+	}
+
+	/**
+	 * Close the reader.
+	 */
+	public void close() {
+		try {
+			reader.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private int read() throws IOException {
+		if (position == limit) {
+			limit = reader.read(buffer, 0, buffer.length);
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return (-1);
+			}
+		}
+		return (buffer[position++]);
+	}
+
+	private void unread() {
+		position--;
+	}
+
+	private void push(boolean object) {
+		if (depth == isObject.length) {
+			boolean[] tmp = new boolean[depth * 2];
+			System.arraycopy(isObject, 0, tmp, 0, depth);
+			isObject = tmp;
+		}
+		isObject[depth++] = object;
+	}
+
+	private void readLiteral(String rest) throws IOException {
+		for (int i = 0; i < rest.length(); ++i) {
+			if (read() != rest.charAt(i))
+				throw new IllegalStateException("Invalid literal in JSON.");
+		}
+	}
+
+	private void readString() throws IOException {
+		sBuilder.setLength(0);
+		while (true) {
+			// copy runs of plain characters from the buffer
+			int start = position;
+			while ((position < limit) && (buffer[position] != '"') && (buffer[position] != '\\')) {
+				position++;
+			}
+			sBuilder.append(buffer, start, position - start);
+			int c = read();
+			switch (c) {
+			case -1:
+				throw new IllegalStateException("Unterminated string in JSON.");
+			case '"':
+				return;
+			case '\\':
+				c = read();
+				switch (c) {
+				case 'b':
+					sBuilder.append('\b');
+					break;
+				case 'f':
+					sBuilder.append('\f');
+					break;
+				case 'n':
+					sBuilder.append('\n');
+					break;
+				case 'r':
+					sBuilder.append('\r');
+					break;
+				case 't':
+					sBuilder.append('\t');
+					break;
+				case 'u':
+					int code = 0;
+					for (int i = 0; i < 4; ++i) {
+						code = code * 16 + Character.digit(read(), 16);
+					}
+					sBuilder.append((char) code);
+					break;
+				case -1:
+					throw new IllegalStateException("Unterminated string in JSON.");
+				default:
+					sBuilder.append((char) c);
+				}
+				break;
+			default:
+				// the buffer was empty, keep going
+				unread();
+			}
+		}
+	}
+
+	private void readNumber(int c) throws IOException {
+		sBuilder.setLength(0);
+		isDecimal = false;
+		boolean negative = false;
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean exact = true;
+		if (c == '-') {
+			negative = true;
+			sBuilder.append('-');
+			c = read();
+		}
+		// integer part
+		while ((c >= '0') && (c <= '9')) {
+			sBuilder.append((char) c);
+			if (digits < 18) {
+				mantissa = mantissa * 10 + (c - '0');
+				if (mantissa > 0)
+					digits++;
+			} else {
+				exponent++;
+				exact = false;
+			}
+			c = read();
+		}
+		// fraction
+		if (c == '.') {
+			isDecimal = true;
+			sBuilder.append('.');
+			c = read();
+			while ((c >= '0') && (c <= '9')) {
+				sBuilder.append((char) c);
+				if (digits < 18) {
+					mantissa = mantissa * 10 + (c - '0');
+					if (mantissa > 0)
+						digits++;
+					exponent--;
+				} else if (c != '0') {
+					exact = false;
+				}
+				c = read();
+			}
+		}
+		// exponent
+		if ((c == 'e') || (c == 'E')) {
+			isDecimal = true;
+			sBuilder.append((char) c);
+			c = read();
+			boolean negExp = false;
+			if ((c == '+') || (c == '-')) {
+				negExp = (c == '-');
+				sBuilder.append((char) c);
+				c = read();
+			}
+			int exp = 0;
+			while ((c >= '0') && (c <= '9')) {
+				sBuilder.append((char) c);
+				if (exp < 10000)
+					exp = exp * 10 + (c - '0');
+				c = read();
+			}
+			exponent += negExp ? -exp : exp;
+		}
+		if (c != -1)
+			unread();
+
+		// A mantissa of up to 15 digits and a power of ten up to 22 are both
+		// exact, so one multiply or divide is correctly rounded. Anything
+		// else goes to Double.parseDouble.
+		if (exact && (digits <= 15) && (exponent >= -22) && (exponent <= 22)) {
+			number = mantissa;
+			if (exponent < 0)
+				number /= POW10[-exponent];
+			else
+				number *= POW10[exponent];
+			if (negative)
+				number = -number;
+		} else {
+			number = Double.parseDouble(sBuilder.toString());
+		}
+	}
+}
@@ -0,0 +1,265 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.io.geojson.json;
+
+import gov.nasa.arc.dert.io.geojson.json.Geometry.GeojsonType;
+
+import java.util.ArrayList;
+
+/**
+ * Provides a GeoJSON Geometry read by GeoJsonStreamReader. Positions are read
+ * as x,y,z doubles and then packed, converted by a PositionFilter, as x,y,z
+ * floats in a single array. Every innermost array of positions (a LineString,
+ * a ring of a Polygon, the points of a MultiPoint) is a line with a range in
+ * that array.
+ *
+ */
+public class PackedGeometry {
+
+	// The geometry type
+	public GeojsonType type;
+
+	// Position coordinates, x,y,z, null until packed
+	public float[] coordinate;
+	public int numPositions;
+
+	// Positions as read, x,y,z with z NaN for 2D, null once packed
+	public double[] position;
+
+	// Lines, the start and end (exclusive) position and the index of the line
+	// in the first and second levels of the coordinates array
+	public int[] lineStart, lineEnd, lineIndex0, lineIndex1;
+	public int numLines;
+
+	// Geometries of a GeometryCollection
+	public ArrayList<PackedGeometry> geometryList;
+
+	/**
+	 * Constructor
+	 */
+	public PackedGeometry() {
+		position = new double[48];
+		lineStart = new int[4];
+		lineEnd = new int[4];
+		lineIndex0 = new int[4];
+		lineIndex1 = new int[4];
+	}
+
+	/**
+	 * Add a position as read.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param z
+	 *            NaN if the position has only x and y
+	 */
+	public void addPosition(double x, double y, double z) {
+		if (numPositions * 3 == position.length) {
+			double[] tmp = new double[position.length * 2];
+			System.arraycopy(position, 0, tmp, 0, position.length);
+			position = tmp;
+		}
+		int i = numPositions * 3;
+		position[i] = x;
+		position[i + 1] = y;
+		position[i + 2] = z;
+		numPositions++;
+	}
+
+	/**
+	 * Determine if the positions have been packed.
+	 * 
+	 * @return
+	 */
+	public boolean isPacked() {
+		return (position == null);
+	}
+
+	/**
+	 * Convert the positions with a filter in place without packing them. The
+	 * geometries of a GeometryCollection are converted as well.
+	 * 
+	 * @param filter
+	 */
+	public void filter(GeoJsonStreamReader.PositionFilter filter) {
+		if (geometryList != null) {
+			for (int i = 0; i < geometryList.size(); ++i) {
+				geometryList.get(i).filter(filter);
+			}
+		}
+		if ((position != null) && (numPositions > 0))
+			filter.filter(position, numPositions);
+	}
+
+	/**
+	 * Convert the positions with a filter and pack the ones that are kept.
+	 * Line ranges are changed to indices in the packed array. The geometries
+	 * of a GeometryCollection are packed as well.
+	 * 
+	 * @param filter
+	 */
+	public void pack(GeoJsonStreamReader.PositionFilter filter) {
+		if (geometryList != null) {
+			for (int i = 0; i < geometryList.size(); ++i) {
+				geometryList.get(i).pack(filter);
+			}
+		}
+		if (position == null)
+			return;
+		int n = numPositions;
+		if (n > 0)
+			filter.filter(position, n);
+		int[] packedIndex = new int[n + 1];
+		coordinate = new float[n * 3];
+		numPositions = 0;
+		for (int i = 0, k = 0; i < n; ++i, k += 3) {
+			packedIndex[i] = numPositions;
+			if (!Double.isNaN(position[k])) {
+				int j = numPositions * 3;
+				coordinate[j] = (float) position[k];
+				coordinate[j + 1] = (float) position[k + 1];
+				coordinate[j + 2] = (float) position[k + 2];
+				numPositions++;
+			}
+		}
+		packedIndex[n] = numPositions;
+		for (int i = 0; i < numLines; ++i) {
+			lineStart[i] = packedIndex[lineStart[i]];
+			lineEnd[i] = packedIndex[lineEnd[i]];
+		}
+		position = null;
+	}
+
+	/**
+	 * Add a line.
+	 * 
+	 * @param start
+	 *            first position
+	 * @param end
+	 *            last position (exclusive)
+	 * @param index0
+	 *            index in the first level of the coordinates array
+	 * @param index1
+	 *            index in the second level of the coordinates array
+	 */
+	public void addLine(int start, int end, int index0, int index1) {
+		if (numLines == lineStart.length) {
+			int n = numLines * 2;
+			lineStart = grow(lineStart, n);
+			lineEnd = grow(lineEnd, n);
+			lineIndex0 = grow(lineIndex0, n);
+			lineIndex1 = grow(lineIndex1, n);
+		}
+		lineStart[numLines] = start;
+		lineEnd[numLines] = end;
+		lineIndex0[numLines] = index0;
+		lineIndex1[numLines] = index1;
+		numLines++;
+	}
+
+	private int[] grow(int[] array, int n) {
+		int[] tmp = new int[n];
+		System.arraycopy(array, 0, tmp, 0, array.length);
+		return (tmp);
+	}
+
+}
@@ -0,0 +1,789 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.landscape;
+
+import gov.nasa.arc.dert.ephemeris.Ephemeris;
+import gov.nasa.arc.dert.landscape.io.QuadTreeTile;
+import gov.nasa.arc.dert.landscape.layer.RasterLayer;
+import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
+
+import java.nio.FloatBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.ardor3d.math.type.ReadOnlyVector3;
+
+/**
+ * Horizon angles for a grid of points covering the landscape, used to compute
+ * illumination and insolation over a range of times without the GPU.
+ *
+ * The elevation grid is read from the base layer tiles at the pyramid level
+ * closest to GRID_SIZE posts. Coarser copies of the grid are made by taking
+ * the maximum of each 2x2 block. For each post and azimuth sector a ray is
+ * marched outward, taking STEPS_PER_LEVEL steps at each resolution before
+ * moving to the next coarser grid and doubling the step. Since the coarse
+ * grids hold block maximums, distant terrain can only raise the horizon
+ * slightly, never hide it. Rows of posts are divided among the threads of a
+ * fork/join pool.
+ *
+ * Coordinates are in the landscape frame (X east, Y north, origin at the
+ * landscape center).
+ *
+ */
+public class HorizonMap {
+
+	// Number of threads computing horizons, 0 means use the number of
+	// available processors
+	public static int THREADS = 0;
+
+	// Number of azimuth sectors
+	public static int SECTORS = 32;
+
+	// Approximate number of grid posts along a side, the pyramid level closest
+	// to it is used
+	public static int GRID_SIZE = 512;
+
+	// Number of ray steps at each resolution
+	public static int STEPS_PER_LEVEL = 16;
+
+	// Interval between Sun positions for illumination maps
+	public static int TIME_STEP_SECONDS = 600;
+
+	// Pool shared by all computations
+	private static ForkJoinPool pool;
+
+	// Horizon map for the current base layer
+	private static HorizonMap current;
+	private static RasterLayer currentLayer;
+
+	/**
+	 * Illumination computed from a set of Sun positions. Values are NaN where
+	 * there is no elevation data.
+	 */
+	public static class Illumination {
+
+		// Fraction of the total weight for which each post is lit
+		public float[] litFraction;
+
+		// Mean cosine of the incidence angle while lit, as a fraction of the
+		// total weight
+		public float[] insolation;
+
+		// Sum of the sample weights
+		public double totalWeight;
+	}
+
+	// Grid dimensions
+	protected int columns, rows;
+
+	// Grid spacing and the location of the upper left post
+	protected double spacingX, spacingY;
+	protected double left, top;
+
+	// Elevation grids, [0] is full resolution, each following grid holds
+	// maximums of 2x2 blocks of the one before, row 0 is the north edge
+	protected float[][] elevation;
+	protected int[] levelColumns, levelRows;
+
+	// Highest elevation in the grid
+	protected float maxElevation;
+
+	// Unit surface normals, 3 per post
+	protected float[] normal;
+
+	// Horizon elevation angles in radians, SECTORS per post
+	protected float[] horizon;
+	protected int sectors;
+
+	/**
+	 * Get the horizon map for an elevation layer. The map is computed the
+	 * first time and kept until a different layer is given.
+	 * 
+	 * @param elevationLayer
+	 * @return the map or null if the elevation data could not be read
+	 */
+	public static synchronized HorizonMap getInstance(RasterLayer elevationLayer) {
+		if ((current != null) && (currentLayer == elevationLayer)) {
+			return (current);
+		}
+		current = null;
+		currentLayer = null;
+		HorizonMap map = new HorizonMap();
+		if (!map.build(elevationLayer)) {
+			return (null);
+		}
+		current = map;
+		currentLayer = elevationLayer;
+		return (map);
+	}
+
+	/**
+	 * Get the number of threads used to compute horizons.
+	 * 
+	 * @return the thread count
+	 */
+	public static int getThreadCount() {
+		if (THREADS > 0)
+			return (THREADS);
+		return (Math.max(1, Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Release the current horizon map and stop the pool threads. The pool is
+	 * started again when it is next needed.
+	 */
+	public static synchronized void dispose() {
+		current = null;
+		currentLayer = null;
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	/**
+	 * Create a horizon map from an elevation grid centered on the origin.
+	 * 
+	 * @param grid
+	 *            elevations with row 0 at the north edge, NaN where there is
+	 *            no data
+	 * @param columns
+	 * @param rows
+	 * @param spacingX
+	 *            distance between columns
+	 * @param spacingY
+	 *            distance between rows
+	 * @return the map
+	 */
+	public static HorizonMap create(float[] grid, int columns, int rows, double spacingX, double spacingY) {
+		HorizonMap map = new HorizonMap();
+		map.columns = columns;
+		map.rows = rows;
+		map.spacingX = spacingX;
+		map.spacingY = spacingY;
+		map.left = -spacingX * (columns - 1) / 2;
+		map.top = spacingY * (rows - 1) / 2;
+		map.elevation = new float[][] { grid };
+		map.computeHorizons();
+		return (map);
+	}
+
+	/**
+	 * Run a task on the pool threads. The task may start computations of its
+	 * own, they share the pool.
+	 * 
+	 * @param task
+	 */
+	public static void execute(Runnable task) {
+		getPool().execute(task);
+	}
+
+	private static synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(getThreadCount());
+		}
+		return (pool);
+	}
+
+	/**
+	 * Get directions to the Sun at regular intervals from the ephemeris.
+	 * 
+	 * @param observer
+	 *            the observer body (Mars, for example)
+	 * @param refLoc
+	 *            the surface location (lon, lat, alt)
+	 * @param startTime
+	 *            Unix time
+	 * @param endTime
+	 *            Unix time
+	 * @param stepMillis
+	 * @return x,y,z directions, or null if the ephemeris failed
+	 */
+	public static double[] getSunDirections(String observer, ReadOnlyVector3 refLoc, long startTime, long endTime,
+		long stepMillis) {
+		stepMillis = Math.max(1, stepMillis);
+		long[] time = new long[(int) ((endTime - startTime) / stepMillis) + 1];
+		for (int i = 0; i < time.length; ++i) {
+			time[i] = startTime + i * stepMillis;
+		}
+		return (getSunDirections(observer, refLoc, time));
+	}
+
+	/**
+	 * Get directions to the Sun at a list of times, 15:00 on each day of a
+	 * month for example. Each direction is computed with SPICE so no
+	 * ephemeris table is built around times that are far apart.
+	 * 
+	 * @param observer
+	 * @param refLoc
+	 * @param time
+	 *            Unix times
+	 * @return x,y,z directions, or null if the ephemeris failed
+	 */
+	public static double[] getSunDirections(String observer, ReadOnlyVector3 refLoc, long[] time) {
+		// use our own formatter, this may be called on any thread
+		SimpleDateFormat utcDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
+		utcDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		double[] dir = new double[time.length * 3];
+		for (int i = 0; i < time.length; ++i) {
+			double[] vec = Ephemeris.getTargetVector(observer, "Sun", utcDateFormat.format(new Date(time[i])),
+				refLoc.getX(), refLoc.getY(), refLoc.getZ());
+			if (vec == null) {
+				return (null);
+			}
+			System.arraycopy(vec, 0, dir, i * 3, 3);
+		}
+		return (dir);
+	}
+
+	/**
+	 * Read the elevation grid and compute the horizons.
+	 * 
+	 * @param elevationLayer
+	 * @return false if no elevation data was found
+	 */
+	protected boolean build(RasterLayer elevationLayer) {
+		if (!readElevation(elevationLayer)) {
+			return (false);
+		}
+		computeHorizons();
+		return (true);
+	}
+
+	/**
+	 * Compute the coarser grids, normals and horizons from the full
+	 * resolution grid.
+	 */
+	protected void computeHorizons() {
+		buildPyramid();
+		computeNormals();
+		sectors = Math.max(4, SECTORS);
+		horizon = new float[columns * rows * sectors];
+		getPool().invoke(new RowTask(this, 0, rows, null, null));
+	}
+
+	/**
+	 * Fill the full resolution grid from the tiles of one pyramid level.
+	 */
+	private boolean readElevation(RasterLayer layer) {
+		int tileWidth = layer.getTileWidth();
+		int tileLength = layer.getTileLength();
+		// go to the next level while it is closer to GRID_SIZE, which gives
+		// between 2/3 and 4/3 of GRID_SIZE posts if there are enough levels
+		int level = 0;
+		while ((level < layer.getNumberOfLevels() - 1) && (3 * tileWidth * (1 << level) < 2 * GRID_SIZE)) {
+			level++;
+		}
+		int numTiles = 1 << level;
+		columns = tileWidth * numTiles + 1;
+		rows = tileLength * numTiles + 1;
+		float pixelScale = layer.getPixelScale();
+		double terrainWidth = layer.getRasterWidth() * layer.getPixelWidth() * pixelScale;
+		double terrainLength = layer.getRasterLength() * layer.getPixelLength() * pixelScale;
+		spacingX = terrainWidth / (columns - 1);
+		spacingY = terrainLength / (rows - 1);
+		left = -terrainWidth / 2;
+		top = terrainLength / 2;
+
+		float[] grid = new float[columns * rows];
+		Arrays.fill(grid, Float.NaN);
+		boolean found = false;
+		for (int tr = 0; tr < numTiles; ++tr) {
+			for (int tc = 0; tc < numTiles; ++tc) {
+				QuadTreeTile tile = layer.getTile(getKey(tc, tr, level));
+				if ((tile == null) || (tile.raster == null)) {
+					continue;
+				}
+				FloatBuffer data = tile.raster.asFloatBuffer();
+				int c0 = tc * tileWidth;
+				int r0 = tr * tileLength;
+				int tileColumns = Math.min(tile.columns, columns - c0);
+				int tileRows = Math.min(tile.rows, rows - r0);
+				for (int r = 0; r < tileRows; ++r) {
+					for (int c = 0; c < tileColumns; ++c) {
+						float z = data.get(r * tile.columns + c);
+						if (!Float.isNaN(z)) {
+							grid[(r0 + r) * columns + c0 + c] = z * pixelScale;
+							found = true;
+						}
+					}
+				}
+			}
+		}
+		elevation = new float[][] { grid };
+		return (found);
+	}
+
+	/**
+	 * Get the key for a tile given its column and row (from the upper left) at
+	 * a level.
+	 */
+	private QuadKey getKey(int column, int row, int level) {
+		byte[] path = new byte[level];
+		for (int i = 0; i < level; ++i) {
+			int bit = level - 1 - i;
+			path[i] = (byte) (1 + ((column >> bit) & 1) + 2 * ((row >> bit) & 1));
+		}
+		return (new QuadKey(path));
+	}
+
+	/**
+	 * Create the coarser grids of block maximums.
+	 */
+	private void buildPyramid() {
+		int numLevels = 1;
+		while (((columns - 1) >> numLevels) > 0) {
+			numLevels++;
+		}
+		float[][] grids = new float[numLevels][];
+		levelColumns = new int[numLevels];
+		levelRows = new int[numLevels];
+		grids[0] = elevation[0];
+		levelColumns[0] = columns;
+		levelRows[0] = rows;
+		maxElevation = -Float.MAX_VALUE;
+		for (int i = 0; i < grids[0].length; ++i) {
+			if (grids[0][i] > maxElevation) {
+				maxElevation = grids[0][i];
+			}
+		}
+		for (int l = 1; l < numLevels; ++l) {
+			int pc = levelColumns[l - 1];
+			int pr = levelRows[l - 1];
+			int nc = (pc + 1) / 2;
+			int nr = (pr + 1) / 2;
+			float[] prev = grids[l - 1];
+			float[] grid = new float[nc * nr];
+			for (int r = 0; r < nr; ++r) {
+				for (int c = 0; c < nc; ++c) {
+					float z = Float.NaN;
+					for (int i = r * 2; i < Math.min(r * 2 + 2, pr); ++i) {
+						for (int j = c * 2; j < Math.min(c * 2 + 2, pc); ++j) {
+							float v = prev[i * pc + j];
+							if (!Float.isNaN(v) && (Float.isNaN(z) || (v > z))) {
+								z = v;
+							}
+						}
+					}
+					grid[r * nc + c] = z;
+				}
+			}
+			grids[l] = grid;
+			levelColumns[l] = nc;
+			levelRows[l] = nr;
+		}
+		elevation = grids;
+	}
+
+	/**
+	 * Compute unit normals from the full resolution grid.
+	 */
+	private void computeNormals() {
+		float[] grid = elevation[0];
+		normal = new float[columns * rows * 3];
+		for (int r = 0; r < rows; ++r) {
+			for (int c = 0; c < columns; ++c) {
+				int k = r * columns + c;
+				float z = grid[k];
+				double dzdx = getDifference(grid, k, (c > 0) ? k - 1 : k, (c < columns - 1) ? k + 1 : k, z)
+					/ spacingX;
+				// rows increase to the south
+				double dzdy = getDifference(grid, k, (r < rows - 1) ? k + columns : k, (r > 0) ? k - columns : k, z)
+					/ spacingY;
+				double nx = -dzdx;
+				double ny = -dzdy;
+				double len = Math.sqrt(nx * nx + ny * ny + 1);
+				normal[k * 3] = (float) (nx / len);
+				normal[k * 3 + 1] = (float) (ny / len);
+				normal[k * 3 + 2] = (float) (1 / len);
+			}
+		}
+	}
+
+	/**
+	 * Get the elevation change per post between two neighbors, falling back
+	 * to the center where a neighbor is missing.
+	 */
+	private double getDifference(float[] grid, int k, int k0, int k1, float z) {
+		float z0 = grid[k0];
+		float z1 = grid[k1];
+		if (Float.isNaN(z0)) {
+			z0 = z;
+			k0 = k;
+		}
+		if (Float.isNaN(z1)) {
+			z1 = z;
+			k1 = k;
+		}
+		int n = (k0 == k) ? 0 : 1;
+		n += (k1 == k) ? 0 : 1;
+		if (n == 0) {
+			return (0);
+		}
+		return ((z1 - z0) / n);
+	}
+
+	/**
+	 * Compute the horizon angles for one row of posts.
+	 */
+	protected void computeHorizonRow(int r) {
+		int numLevels = elevation.length;
+		double step0 = Math.min(spacingX, spacingY);
+		double[] dirX = new double[sectors];
+		double[] dirY = new double[sectors];
+		for (int s = 0; s < sectors; ++s) {
+			double a = 2 * Math.PI * s / sectors;
+			dirX[s] = Math.cos(a);
+			dirY[s] = Math.sin(a);
+		}
+		double y0 = top - r * spacingY;
+		for (int c = 0; c < columns; ++c) {
+			int k = r * columns + c;
+			float z0 = elevation[0][k];
+			if (Float.isNaN(z0)) {
+				for (int s = 0; s < sectors; ++s) {
+					horizon[k * sectors + s] = Float.NaN;
+				}
+				continue;
+			}
+			double x0 = left + c * spacingX;
+			for (int s = 0; s < sectors; ++s) {
+				double best = Double.NEGATIVE_INFINITY;
+				double dist = 0;
+				double step = step0;
+				int level = 0;
+				int n = 0;
+				while (true) {
+					dist += step;
+					// nothing further along can be above the current horizon
+					if ((maxElevation - z0) / dist <= best) {
+						break;
+					}
+					double x = x0 + dirX[s] * dist;
+					double y = y0 + dirY[s] * dist;
+					int scale = 1 << level;
+					int col = (int) Math.floor((x - left) / spacingX / scale + 0.5 / scale);
+					int row = (int) Math.floor((top - y) / spacingY / scale + 0.5 / scale);
+					if ((col < 0) || (row < 0) || (col >= levelColumns[level]) || (row >= levelRows[level])) {
+						break;
+					}
+					float z = elevation[level][row * levelColumns[level] + col];
+					if (!Float.isNaN(z)) {
+						double t = (z - z0) / dist;
+						if (t > best) {
+							best = t;
+						}
+					}
+					if ((++n == STEPS_PER_LEVEL) && (level < numLevels - 1)) {
+						level++;
+						step *= 2;
+						n = 0;
+					}
+				}
+				horizon[k * sectors + s] = (float) ((best == Double.NEGATIVE_INFINITY) ? -Math.PI / 2 : Math
+					.atan(best));
+			}
+		}
+	}
+
+	/**
+	 * Compute the illumination of each post for a set of Sun directions.
+	 * 
+	 * @param sunDir
+	 *            x,y,z unit directions to the Sun in the landscape frame
+	 * @param weight
+	 *            the weight (duration) of each direction, null for equal
+	 *            weights
+	 * @return the illumination
+	 */
+	public Illumination illuminate(double[] sunDir, double[] weight) {
+		int n = sunDir.length / 3;
+		Illumination result = new Illumination();
+		result.litFraction = new float[columns * rows];
+		result.insolation = new float[columns * rows];
+		SunSamples sun = new SunSamples(n);
+		for (int i = 0; i < n; ++i) {
+			double x = sunDir[i * 3];
+			double y = sunDir[i * 3 + 1];
+			double z = sunDir[i * 3 + 2];
+			double a = Math.atan2(y, x);
+			if (a < 0) {
+				a += 2 * Math.PI;
+			}
+			double f = a * sectors / (2 * Math.PI);
+			int s0 = (int) f;
+			sun.sector0[i] = s0 % sectors;
+			sun.sector1[i] = (s0 + 1) % sectors;
+			sun.w[i] = (float) (f - s0);
+			sun.elevation[i] = (float) Math.asin(Math.max(-1, Math.min(1, z)));
+			sun.dir[i * 3] = (float) x;
+			sun.dir[i * 3 + 1] = (float) y;
+			sun.dir[i * 3 + 2] = (float) z;
+			sun.weight[i] = (weight == null) ? 1 : (float) weight[i];
+			result.totalWeight += sun.weight[i];
+		}
+		getPool().invoke(new RowTask(this, 0, rows, sun, result));
+		return (result);
+	}
+
+	/**
+	 * Compute the illumination for one row of posts.
+	 */
+	protected void illuminateRow(int r, SunSamples sun, Illumination result) {
+		double total = result.totalWeight;
+		for (int c = 0; c < columns; ++c) {
+			int k = r * columns + c;
+			if (Float.isNaN(horizon[k * sectors])) {
+				result.litFraction[k] = Float.NaN;
+				result.insolation[k] = Float.NaN;
+				continue;
+			}
+			double lit = 0;
+			double ins = 0;
+			float nx = normal[k * 3];
+			float ny = normal[k * 3 + 1];
+			float nz = normal[k * 3 + 2];
+			int h = k * sectors;
+			for (int i = 0; i < sun.count; ++i) {
+				float w = sun.w[i];
+				float hAngle = horizon[h + sun.sector0[i]] * (1 - w) + horizon[h + sun.sector1[i]] * w;
+				if (sun.elevation[i] <= hAngle) {
+					continue;
+				}
+				lit += sun.weight[i];
+				float cos = nx * sun.dir[i * 3] + ny * sun.dir[i * 3 + 1] + nz * sun.dir[i * 3 + 2];
+				if (cos > 0) {
+					ins += cos * sun.weight[i];
+				}
+			}
+			result.litFraction[k] = (total > 0) ? (float) (lit / total) : 0;
+			result.insolation[k] = (total > 0) ? (float) (ins / total) : 0;
+		}
+	}
+
+	/**
+	 * Get a value at a landscape coordinate by bilinear interpolation of the
+	 * grid posts.
+	 * 
+	 * @param data
+	 *            one value per post (from an Illumination)
+	 * @param x
+	 * @param y
+	 * @return the value or NaN if outside the grid
+	 */
+	public float getValue(float[] data, double x, double y) {
+		double fc = (x - left) / spacingX;
+		double fr = (top - y) / spacingY;
+		if ((fc < 0) || (fr < 0) || (fc > columns - 1) || (fr > rows - 1)) {
+			return (Float.NaN);
+		}
+		int c0 = Math.min((int) fc, columns - 2);
+		int r0 = Math.min((int) fr, rows - 2);
+		float wc = (float) (fc - c0);
+		float wr = (float) (fr - r0);
+		int k = r0 * columns + c0;
+		float v00 = data[k];
+		float v01 = data[k + 1];
+		float v10 = data[k + columns];
+		float v11 = data[k + columns + 1];
+		if (Float.isNaN(v00) || Float.isNaN(v01) || Float.isNaN(v10) || Float.isNaN(v11)) {
+			// nearest post
+			return (data[(int) Math.round(fr) * columns + (int) Math.round(fc)]);
+		}
+		return ((v00 * (1 - wc) + v01 * wc) * (1 - wr) + (v10 * (1 - wc) + v11 * wc) * wr);
+	}
+
+	/**
+	 * Get the horizon elevation angle at the post nearest a coordinate.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param azimuth
+	 *            radians counterclockwise from east
+	 * @return the angle in radians, NaN if outside the grid
+	 */
+	public double getHorizonAngle(double x, double y, double azimuth) {
+		int c = (int) Math.round((x - left) / spacingX);
+		int r = (int) Math.round((top - y) / spacingY);
+		if ((c < 0) || (r < 0) || (c >= columns) || (r >= rows)) {
+			return (Double.NaN);
+		}
+		double f = azimuth * sectors / (2 * Math.PI);
+		f -= Math.floor(f / sectors) * sectors;
+		int s0 = (int) f;
+		double w = f - s0;
+		int k = (r * columns + c) * sectors;
+		return (horizon[k + s0 % sectors] * (1 - w) + horizon[k + (s0 + 1) % sectors] * w);
+	}
+
+	/**
+	 * Get the grid dimensions
+	 * 
+	 * @return columns, rows
+	 */
+	public int[] getSize() {
+		return (new int[] { columns, rows });
+	}
+
+	/**
+	 * Sun positions prepared for the sector lookup.
+	 */
+	protected static class SunSamples {
+
+		protected int count;
+		protected int[] sector0, sector1;
+		protected float[] w, elevation, dir, weight;
+
+		protected SunSamples(int count) {
+			this.count = count;
+			sector0 = new int[count];
+			sector1 = new int[count];
+			w = new float[count];
+			elevation = new float[count];
+			dir = new float[count * 3];
+			weight = new float[count];
+		}
+	}
+
+	/**
+	 * Task to compute horizons, or illumination if Sun samples are given, for
+	 * a range of rows.
+	 */
+	protected static class RowTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private HorizonMap map;
+		private int row, rowEnd;
+		private SunSamples sun;
+		private Illumination result;
+
+		protected RowTask(HorizonMap map, int row, int rowEnd, SunSamples sun, Illumination result) {
+			this.map = map;
+			this.row = row;
+			this.rowEnd = rowEnd;
+			this.sun = sun;
+			this.result = result;
+		}
+
+		@Override
+		protected void compute() {
+			int rowsPerTask = Math.max(1, map.rows / (getThreadCount() * 8));
+			if (rowEnd - row <= rowsPerTask) {
+				for (int r = row; r < rowEnd; ++r) {
+					if (sun == null) {
+						map.computeHorizonRow(r);
+					} else {
+						map.illuminateRow(r, sun, result);
+					}
+				}
+				return;
+			}
+			int mid = (row + rowEnd) / 2;
+			invokeAll(new RowTask(map, row, mid, sun, result), new RowTask(map, mid, rowEnd, sun, result));
+		}
+	}
+}
@@ -103,6 +103,7 @@ package gov.nasa.arc.dert.landscape;
 
 import gov.nasa.arc.dert.camera.BasicCamera;
 import gov.nasa.arc.dert.landscape.io.TileSource;
+import gov.nasa.arc.dert.landscape.layer.DerivativeLayer;
 import gov.nasa.arc.dert.landscape.layer.Layer;
 import gov.nasa.arc.dert.landscape.layer.RasterLayer;
 import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
@@ -111,9 +112,12 @@ import gov.nasa.arc.dert.landscape.quadtree.QuadTreeFactory;
 import gov.nasa.arc.dert.landscape.srs.SpatialReferenceSystem;
 import gov.nasa.arc.dert.render.LayerEffects;
 import gov.nasa.arc.dert.util.MathUtil;
+import gov.nasa.arc.dert.util.ScanlinePolygon;
 import gov.nasa.arc.dert.view.Console;
 
 import java.awt.Color;
+import java.awt.EventQueue;
+import java.util.ArrayList;
 import java.util.Arrays;
 
 import com.ardor3d.intersection.IntersectionRecord;
@@ -146,6 +150,9 @@ public class Landscape
 
 	public static int MAX_LEVELS = 50;
 
+	// maximum number of points sampled at once by the region methods
+	public static int SAMPLE_BATCH_SIZE = 65536;
+
 	// terrain tile source
 	protected TileSource source;
 
@@ -191,12 +198,19 @@ public class Landscape
 
 	// scale factor for millimeter scale terrains
 	protected float pixelScale = 1;
+
+	// an illumination update is running, and the light moved again since it started
+	private boolean illuminationUpdating, illuminationPending;
+	private final Object illuminationLock = new Object();
 	
 	// bounds of the terrain
 	protected double[] bounds;
 
 	// spatial reference system for base layer
 	private SpatialReferenceSystem srs;
+
+	// number of tile edges stitched, for profiling
+	private long stitchedEdgeCount;
 	
 	private static Landscape INSTANCE;
 	
@@ -263,6 +277,8 @@ public class Landscape
 		contents = null;
 		quadTree = null;
 		QuadTreeFactory.destroy();
+		HorizonMap.dispose();
+		RegionStatistics.dispose();
 		// get the new layer configuration
 		if (!layerManager.initialize(source)) {
 			return;
@@ -280,7 +296,7 @@ public class Landscape
 //		factory.enableLayers(layerManager.layersEnabled);
 
 		// create the top level quad tree tile
-		quadTree = factory.getQuadTree(new QuadKey(), terrainWidth / tileWidth, terrainLength / tileLength, true);
+		quadTree = factory.getQuadTree(new QuadKey(), terrainWidth / tileWidth, terrainLength / tileLength, true, 0);
 		if (quadTree == null)
 			throw new IllegalStateException("Root quadTree for "+getName()+" is empty or invalid.");
 		quadTree.inUse = true;
@@ -477,6 +493,54 @@ public class Landscape
 		return (Double.NaN);
 	}
 
+	/**
+	 * Get the Z coordinates in the contents object frame at a set of X,Y
+	 * coordinates. The coordinates are grouped by QuadTree so each tile is
+	 * visited once.
+	 * 
+	 * @param xy
+	 *            the x,y coordinate pairs
+	 * @param n
+	 *            the number of coordinates
+	 * @param z
+	 *            returns the Z coordinates, NaN if outside the landscape
+	 */
+	public void getZ(double[] xy, int n, double[] z) {
+		QuadTree qt = quadTree;
+		int[] index = new int[n];
+		int m = 0;
+		for (int i = 0; i < n; ++i) {
+			if (qt.contains(xy[i * 2], xy[i * 2 + 1])) {
+				index[m++] = i;
+			} else {
+				z[i] = Double.NaN;
+			}
+		}
+		qt.getElevations(xy, index, 0, m, z);
+		double offset = minZ * pixelScale;
+		for (int i = 0; i < m; ++i) {
+			z[index[i]] -= offset;
+		}
+	}
+
+	/**
+	 * Get the Z coordinate in the contents object frame at the given X,Y
+	 * coordinate from the tile at the given level. Unlike getZ(x, y) this does
+	 * not walk the displayed quad tree, so it may be called from any thread.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param level
+	 * @return NaN if outside the landscape
+	 */
+	public double getZ(double x, double y, int level) {
+		double elev = getElevation(x, y, level);
+		if (Double.isNaN(elev)) {
+			return (Double.NaN);
+		}
+		return (elev - minZ * pixelScale);
+	}
+
 	/**
 	 * Get the Z coordinate in the contents object frame at the given X,Y
 	 * coordinate in the given quad tree.
@@ -499,8 +563,8 @@ public class Landscape
 	 * @return
 	 */
 	public double getElevationAtHighestLevel(double x, double y) {
-		QuadKey key = source.getKey(x, y, terrainWidth, terrainLength);
-		if (key == null) {
+		long key = source.getPackedKey(x, y, terrainWidth, terrainLength, -1);
+		if (key == -1) {
 			return (Double.NaN);
 		}
 		QuadTree qt = QuadTreeFactory.getInstance().getQuadTree(key);
@@ -510,6 +574,151 @@ public class Landscape
 		return (qt.getElevation(x, y));
 	}
 
+	/**
+	 * Get the elevations at a set of X,Y coordinates from the highest level
+	 * tiles that can be found. The coordinates are grouped by tile so each
+	 * tile is looked up once.
+	 * 
+	 * @param xy
+	 *            the x,y coordinate pairs
+	 * @param n
+	 *            the number of coordinates
+	 * @param elev
+	 *            returns the elevations, NaN where there is no tile
+	 */
+	public void getElevationsAtHighestLevel(double[] xy, int n, float[] elev) {
+		if (n == 0) {
+			return;
+		}
+		int[] order = new int[n];
+		ArrayList<QuadKey> keyList = new ArrayList<QuadKey>();
+		ArrayList<Integer> endList = new ArrayList<Integer>();
+		source.groupByKey(xy, n, terrainWidth, terrainLength, order, keyList, endList);
+		// no groups come back without a depth index
+		Arrays.fill(elev, 0, n, Float.NaN);
+		int start = 0;
+		for (int k = 0; k < keyList.size(); ++k) {
+			QuadTree qt = QuadTreeFactory.getInstance().getQuadTree(keyList.get(k));
+			int end = endList.get(k);
+			for (int i = start; i < end; ++i) {
+				int p = order[i];
+				if (qt == null) {
+					elev[p] = Float.NaN;
+				} else {
+					elev[p] = qt.getElevation(xy[p * 2], xy[p * 2 + 1]);
+				}
+			}
+			start = end;
+		}
+	}
+
+	/**
+	 * Get the elevations on a grid of X,Y coordinates from the highest level
+	 * tiles that can be found. Elevation[row*columns+column] is at
+	 * (x0+column*dx, y0+row*dy).
+	 * 
+	 * @param x0
+	 *            , y0 the first grid coordinate
+	 * @param dx
+	 *            , dy the grid spacing
+	 * @param columns
+	 *            , rows the grid dimensions
+	 * @param elev
+	 *            returns the elevations, NaN where there is no tile
+	 */
+	public void getElevationsAtHighestLevel(double x0, double y0, double dx, double dy, int columns, int rows,
+		float[] elev) {
+		int bandRows = getSampleBandRows(columns);
+		double[] xy = new double[bandRows * columns * 2];
+		float[] bandElev = new float[bandRows * columns];
+		for (int row = 0; row < rows; row += bandRows) {
+			int rowEnd = Math.min(row + bandRows, rows);
+			int n = 0;
+			for (int i = row; i < rowEnd; ++i) {
+				for (int j = 0; j < columns; ++j) {
+					xy[n * 2] = x0 + j * dx;
+					xy[n * 2 + 1] = y0 + i * dy;
+					n++;
+				}
+			}
+			getElevationsAtHighestLevel(xy, n, bandElev);
+			System.arraycopy(bandElev, 0, elev, row * columns, n);
+		}
+	}
+
+	/**
+	 * Get the number of grid rows to sample at once
+	 */
+	private int getSampleBandRows(int columns) {
+		return (Math.max(1, SAMPLE_BATCH_SIZE / Math.max(1, columns)));
+	}
+
+	/**
+	 * Collect the points in a band of grid rows that are inside a polygon.
+	 * Returns the number of points, with the coordinates in xy and, if index is
+	 * not null, the grid index (row*columns+column) in index.
+	 */
+	private int getSamplesInRegion(ScanlinePolygon scanline, double x0, double y0, double dx, double dy, int columns,
+		int row, int rowEnd, double[] xy, int[] index) {
+		int[] span = new int[scanline.getMaximumSpans() * 2];
+		int n = 0;
+		for (int i = row; i < rowEnd; ++i) {
+			double y = y0 + i * dy;
+			int numSpans = scanline.getSpans(y, x0, dx, columns, span);
+			for (int s = 0; s < numSpans; ++s) {
+				for (int j = span[s * 2]; j < span[s * 2 + 1]; ++j) {
+					xy[n * 2] = x0 + j * dx;
+					xy[n * 2 + 1] = y;
+					if (index != null)
+						index[n] = i * columns + j;
+					n++;
+				}
+			}
+		}
+		return (n);
+	}
+
+	/**
+	 * Get the normals at a set of X,Y coordinates from the highest level tiles
+	 * that can be found. The coordinates are grouped by tile so each tile is
+	 * looked up once.
+	 * 
+	 * @param xy
+	 *            the x,y coordinate pairs
+	 * @param n
+	 *            the number of coordinates
+	 * @param normal
+	 *            returns the x,y,z normals, NaN where there is no tile
+	 */
+	public void getNormalsAtHighestLevel(double[] xy, int n, float[] normal) {
+		if (n == 0) {
+			return;
+		}
+		int[] order = new int[n];
+		ArrayList<QuadKey> keyList = new ArrayList<QuadKey>();
+		ArrayList<Integer> endList = new ArrayList<Integer>();
+		source.groupByKey(xy, n, terrainWidth, terrainLength, order, keyList, endList);
+		Vector3 store = new Vector3();
+		int start = 0;
+		for (int k = 0; k < keyList.size(); ++k) {
+			QuadTree qt = QuadTreeFactory.getInstance().getQuadTree(keyList.get(k));
+			int end = endList.get(k);
+			for (int i = start; i < end; ++i) {
+				int p = order[i];
+				if ((qt != null) && qt.getNormal(xy[p * 2], xy[p * 2 + 1], store)) {
+					normal[p * 3] = store.getXf();
+					normal[p * 3 + 1] = store.getYf();
+					normal[p * 3 + 2] = store.getZf();
+				} else {
+					normal[p * 3] = Float.NaN;
+					normal[p * 3 + 1] = Float.NaN;
+					normal[p * 3 + 2] = Float.NaN;
+				}
+			}
+			start = end;
+		}
+	}
+
 	/**
 	 * Get the elevation at the given X,Y coordinate from the specified level
 	 * 
@@ -518,8 +727,8 @@ public class Landscape
 	 * @return
 	 */
 	public double getElevation(double x, double y, int level) {
-		QuadKey key = source.getKey(x, y, terrainWidth, terrainLength, level);
-		if (key == null) {
+		long key = source.getPackedKey(x, y, terrainWidth, terrainLength, level);
+		if (key == -1) {
 			return (Double.NaN);
 		}
 		QuadTree qt = QuadTreeFactory.getInstance().getQuadTree(key);
@@ -539,8 +748,8 @@ public class Landscape
 	 * @return
 	 */
 	public boolean getNormalAtHighestLevel(double x, double y, Vector3 store) {
-		QuadKey key = source.getKey(x, y, terrainWidth, terrainLength);
-		if (key == null) {
+		long key = source.getPackedKey(x, y, terrainWidth, terrainLength, -1);
+		if (key == -1) {
 			return (false);
 		}
 		QuadTree qt = QuadTreeFactory.getInstance().getQuadTree(key);
@@ -599,6 +808,34 @@ public class Landscape
 		srs.getProjection().worldToSpherical(coord);
 	}
 
+	/**
+	 * Convert an array of unprojected (Lon/Lat degrees) coordinates to
+	 * projected (planetary) coordinates in one pass. Coordinates that cannot be
+	 * converted are set to NaN.
+	 * 
+	 * @param coord
+	 *            x, y, z for each coordinate
+	 * @param n
+	 *            the number of coordinates
+	 */
+	public void sphericalToWorldCoordinates(double[] coord, int n) {
+		srs.getProjection().sphericalToWorld(coord, n);
+	}
+
+	/**
+	 * Convert an array of projected (planetary) coordinates to unprojected
+	 * (Lon/Lat) coordinates in one pass. Coordinates that cannot be converted
+	 * are set to NaN.
+	 * 
+	 * @param coord
+	 *            x, y, z for each coordinate
+	 * @param n
+	 *            the number of coordinates
+	 */
+	public void worldToSphericalCoordinates(double[] coord, int n) {
+		srs.getProjection().worldToSpherical(coord, n);
+	}
+
 	/**
 	 * Convert unprojected (Lon/Lat degrees) coordinates to OpenGL coordinates in
 	 * contents object frame.
@@ -633,20 +870,22 @@ public class Landscape
 		double yMin = lowerBound.getY();
 		int cSampleSize = (int) ((upperBound.getX() - lowerBound.getX()) / pixelWidth);
 		int rSampleSize = (int) ((upperBound.getY() - lowerBound.getY()) / pixelLength);
-		Vector3 vert = new Vector3();
+		ScanlinePolygon scanline = new ScanlinePolygon(vertex);
+		int bandRows = getSampleBandRows(cSampleSize);
+		double[] xy = new double[bandRows * cSampleSize * 2];
+		float[] elev = new float[bandRows * cSampleSize];
 		double meanElevation = 0;
 		int count = 0;
-		for (int i = 0; i < rSampleSize; ++i) {
-			for (int j = 0; j < cSampleSize; ++j) {
-				if (Thread.currentThread().isInterrupted())
-					return(Double.NaN);
-				vert.set(xMin + j * pixelWidth, yMin + i * pixelLength, 0);
-				if (MathUtil.isInsidePolygon(vert, vertex)) {
-					double el = getElevationAtHighestLevel(vert.getX(), vert.getY());
-					if (!Double.isNaN(el)) {
-						meanElevation += el;
-						count++;
-					}
+		for (int row = 0; row < rSampleSize; row += bandRows) {
+			if (Thread.currentThread().isInterrupted())
+				return(Double.NaN);
+			int n = getSamplesInRegion(scanline, xMin, yMin, pixelWidth, pixelLength, cSampleSize, row,
+				Math.min(row + bandRows, rSampleSize), xy, null);
+			getElevationsAtHighestLevel(xy, n, elev);
+			for (int k = 0; k < n; ++k) {
+				if (!Float.isNaN(elev[k])) {
+					meanElevation += elev[k];
+					count++;
 				}
 			}
 		}
@@ -654,6 +893,25 @@ public class Landscape
 		return (meanElevation);
 	}
 
+	/**
+	 * Given a region, return its mean elevation, mean slope, surface area and
+	 * volume sampled from the landscape in a single pass on several threads.
+	 * 
+	 * @param vertex
+	 *            array of vertices defining the region
+	 * @param lowerBound
+	 *            the lower bound of the region
+	 * @param upperBound
+	 *            the upper bound of the region
+	 * @param volElev
+	 *            the base elevation for volume, NaN for none
+	 * @return the statistics, null if interrupted
+	 */
+	public RegionStatistics getSampledStatisticsOfRegion(Vector3[] vertex, ReadOnlyVector3 lowerBound,
+		ReadOnlyVector3 upperBound, double volElev) {
+		return (RegionStatistics.compute(this, vertex, lowerBound, upperBound, volElev));
+	}
+
 	/**
 	 * Given a region, return the mean slope sampled from the landscape.
 	 * 
@@ -667,21 +925,23 @@ public class Landscape
 		double yMin = lowerBound.getY();
 		int cSampleSize = (int) ((upperBound.getX() - lowerBound.getX()) / pixelWidth);
 		int rSampleSize = (int) ((upperBound.getY() - lowerBound.getY()) / pixelLength);
+		ScanlinePolygon scanline = new ScanlinePolygon(vertex);
+		int bandRows = getSampleBandRows(cSampleSize);
+		double[] xy = new double[bandRows * cSampleSize * 2];
+		float[] normal = new float[bandRows * cSampleSize * 3];
 		Vector3 vert = new Vector3();
 		Vector3 meanNormal = new Vector3();
-		Vector3 store = new Vector3();
 		int count = 0;
-		for (int i = 0; i < rSampleSize; ++i) {
-			for (int j = 0; j < cSampleSize; ++j) {
-				if (Thread.currentThread().isInterrupted())
-					return(Double.NaN);
-				vert.set((float) (xMin + j * pixelWidth), (float) (yMin + i * pixelLength), 0);
-				if (MathUtil.isInsidePolygon(vert, vertex)) {
-					boolean success = getNormalAtHighestLevel(vert.getX(), vert.getY(), store);
-					if (success) {
-						meanNormal.addLocal(store);
-						count++;
-					}
+		for (int row = 0; row < rSampleSize; row += bandRows) {
+			if (Thread.currentThread().isInterrupted())
+				return(Double.NaN);
+			int n = getSamplesInRegion(scanline, xMin, yMin, pixelWidth, pixelLength, cSampleSize, row,
+				Math.min(row + bandRows, rSampleSize), xy, null);
+			getNormalsAtHighestLevel(xy, n, normal);
+			for (int k = 0; k < n; ++k) {
+				if (!Float.isNaN(normal[k * 3])) {
+					meanNormal.addLocal(normal[k * 3], normal[k * 3 + 1], normal[k * 3 + 2]);
+					count++;
 				}
 			}
 		}
@@ -739,28 +999,33 @@ public class Landscape
 	public double[] getSampledVolumeOfRegion(Vector3[] vertex, ReadOnlyVector3 lowerBound, ReadOnlyVector3 upperBound, Spatial polygon) {
 		int cSampleSize = (int) ((upperBound.getX() - lowerBound.getX()) / pixelWidth);
 		int rSampleSize = (int) ((upperBound.getY() - lowerBound.getY()) / pixelLength);
+		ScanlinePolygon scanline = new ScanlinePolygon(vertex);
+		int bandRows = getSampleBandRows(cSampleSize);
+		double[] xy = new double[bandRows * cSampleSize * 2];
+		float[] elev = new float[bandRows * cSampleSize];
 		Vector3 vert = new Vector3();
 		double volumeAbove = 0;
 		double volumeBelow = 0;
 		// sample the landscape for elevation
-		for (int i = 0; i < rSampleSize; ++i) {
-			for (int j = 0; j < cSampleSize; ++j) {
+		for (int row = 0; row < rSampleSize; row += bandRows) {
+			if (Thread.currentThread().isInterrupted())
+				return(null);
+			int n = getSamplesInRegion(scanline, lowerBound.getX(), lowerBound.getY(), pixelWidth, pixelLength,
+				cSampleSize, row, Math.min(row + bandRows, rSampleSize), xy, null);
+			getElevationsAtHighestLevel(xy, n, elev);
+			for (int k = 0; k < n; ++k) {
 				if (Thread.currentThread().isInterrupted())
 					return(null);
-				vert.set((float) (lowerBound.getX() + j * pixelWidth), (float) (lowerBound.getY() + i * pixelLength), 0);
-				if (MathUtil.isInsidePolygon(vert, vertex)) {
-					double el = getElevationAtHighestLevel(vert.getX(), vert.getY())-minZ * pixelScale;
-					if (!Double.isNaN(el)) {
-						vert.setZ(upperBound.getZ()+1);
-						double pZ = sampleSpatial(vert, Vector3.NEG_UNIT_Z, polygon);
-//							System.err.println("Landscape.getSampledVolumeOfRegion "+el+" "+maxZ+" "+minZ+" "+pZ+" "+vert);
-						if (!Double.isNaN(pZ)) {
-							if (el < pZ) {
-								volumeBelow += (pZ-el);
-							}
-							else {
-								volumeAbove += (el-pZ);
-							}
+				double el = elev[k]-minZ * pixelScale;
+				if (!Double.isNaN(el)) {
+					vert.set(xy[k * 2], xy[k * 2 + 1], upperBound.getZ()+1);
+					double pZ = sampleSpatial(vert, Vector3.NEG_UNIT_Z, polygon);
+					if (!Double.isNaN(pZ)) {
+						if (el < pZ) {
+							volumeBelow += (pZ-el);
+						}
+						else {
+							volumeAbove += (el-pZ);
 						}
 					}
 				}
@@ -772,23 +1037,26 @@ public class Landscape
 	public double[] getSampledVolumeOfRegion(Vector3[] vertex, ReadOnlyVector3 lowerBound, ReadOnlyVector3 upperBound, double elev) {
 		int cSampleSize = (int) ((upperBound.getX() - lowerBound.getX()) / pixelWidth);
 		int rSampleSize = (int) ((upperBound.getY() - lowerBound.getY()) / pixelLength);
-		Vector3 vert = new Vector3();
+		ScanlinePolygon scanline = new ScanlinePolygon(vertex);
+		int bandRows = getSampleBandRows(cSampleSize);
+		double[] xy = new double[bandRows * cSampleSize * 2];
+		float[] sample = new float[bandRows * cSampleSize];
 		double volumeAbove = 0;
 		double volumeBelow = 0;
 		// sample the landscape for elevation
-		for (int i = 0; i < rSampleSize; ++i) {
-			for (int j = 0; j < cSampleSize; ++j) {
-				if (Thread.currentThread().isInterrupted())
-					return(null);
-				vert.set((float) (lowerBound.getX() + j * pixelWidth), (float) (lowerBound.getY() + i * pixelLength), 0);
-				if (MathUtil.isInsidePolygon(vert, vertex)) {
-					double el = getElevationAtHighestLevel(vert.getX(), vert.getY());
-					if (!Double.isNaN(el)) {
-						if (el < elev)
-							volumeBelow += (elev-el);
-						else
-							volumeAbove += (el-elev);
-					}
+		for (int row = 0; row < rSampleSize; row += bandRows) {
+			if (Thread.currentThread().isInterrupted())
+				return(null);
+			int n = getSamplesInRegion(scanline, lowerBound.getX(), lowerBound.getY(), pixelWidth, pixelLength,
+				cSampleSize, row, Math.min(row + bandRows, rSampleSize), xy, null);
+			getElevationsAtHighestLevel(xy, n, sample);
+			for (int k = 0; k < n; ++k) {
+				double el = sample[k];
+				if (!Double.isNaN(el)) {
+					if (el < elev)
+						volumeBelow += (elev-el);
+					else
+						volumeAbove += (el-elev);
 				}
 			}
 		}
@@ -834,30 +1102,34 @@ public class Landscape
 		double[] planeEq, double sampleSize, float[][] result, float[] minMaxElev) {
 		int columns = (int) ((upperBound.getX() - lowerBound.getX()) / sampleSize);
 		int rows = (int) ((upperBound.getY() - lowerBound.getY()) / sampleSize);
-		Vector3 vert = new Vector3();
+		ScanlinePolygon scanline = new ScanlinePolygon(vertex);
+		int bandRows = getSampleBandRows(columns);
+		double[] xy = new double[bandRows * columns * 2];
+		int[] index = new int[bandRows * columns];
+		float[] elev = new float[bandRows * columns];
 		minMaxElev[0] = Float.MAX_VALUE;
 		minMaxElev[1] = -Float.MAX_VALUE;
 		// sample the landscape for elevation
-		for (int i = 0; i < rows; ++i) {
-			for (int j = 0; j < columns; ++j) {
-				vert.set((float) (lowerBound.getX() + j * sampleSize), (float) (lowerBound.getY() + i * sampleSize), 0);
-				if (MathUtil.isInsidePolygon(vert, vertex)) {
-					double el = getElevationAtHighestLevel(vert.getX(), vert.getY())-minZ;
-					double elPoly = MathUtil.getPlaneZ(vert.getX(), vert.getY(), planeEq);
-//					System.err.println("Landscape.getSampledDifferenceOfRegion "+el+" "+elPoly);
-					result[i][j] = (float) (el - elPoly);
-					if (result[i][j] < minMaxElev[0]) {
-						minMaxElev[0] = result[i][j];
-					}
-					if (result[i][j] > minMaxElev[1]) {
-						minMaxElev[1] = result[i][j];
-					}
-				} else {
-					result[i][j] = Float.NaN;
-				}
+		for (int row = 0; row < rows; row += bandRows) {
+			int rowEnd = Math.min(row + bandRows, rows);
+			for (int i = row; i < rowEnd; ++i) {
+				Arrays.fill(result[i], Float.NaN);
 			}
-			for (int j = columns; j < result[0].length; ++j) {
-				result[i][j] = Float.NaN;
+			int n = getSamplesInRegion(scanline, lowerBound.getX(), lowerBound.getY(), sampleSize, sampleSize, columns,
+				row, rowEnd, xy, index);
+			getElevationsAtHighestLevel(xy, n, elev);
+			for (int k = 0; k < n; ++k) {
+				int i = index[k] / columns;
+				int j = index[k] % columns;
+				double el = elev[k]-minZ;
+				double elPoly = MathUtil.getPlaneZ(xy[k * 2], xy[k * 2 + 1], planeEq);
+				result[i][j] = (float) (el - elPoly);
+				if (result[i][j] < minMaxElev[0]) {
+					minMaxElev[0] = result[i][j];
+				}
+				if (result[i][j] > minMaxElev[1]) {
+					minMaxElev[1] = result[i][j];
+				}
 			}
 		}
 		for (int i = rows; i < result.length; ++i) {
@@ -898,19 +1170,30 @@ public class Landscape
 	 * @return
 	 */
 	public double getSampledSurfaceAreaOfRegion(Vector3[] vertex, ReadOnlyVector3 lowerBound, ReadOnlyVector3 upperBound) {
-		Vector3 vert = new Vector3();
+		ScanlinePolygon scanline = new ScanlinePolygon(vertex);
+		int[] span = new int[scanline.getMaximumSpans() * 2];
 		int cSampleSize = (int) ((upperBound.getX() - lowerBound.getX()) / pixelWidth);
 		int rSampleSize = (int) ((upperBound.getY() - lowerBound.getY()) / pixelLength);
+		double xd = pixelWidth / 2;
+		double yd = pixelLength / 2;
+		// elevations at the pixel corners and centers, each sample uses 3x3 of
+		// them and shares its edges with its neighbors
+		int columns = cSampleSize * 2 + 1;
+		int bandRows = Math.max(1, getSampleBandRows(columns) / 2);
+		float[] z = new float[(bandRows * 2 + 1) * columns];
 		double surfaceArea = 0;
-		for (int i = 0; i < rSampleSize; ++i) {
-			for (int j = 0; j < cSampleSize; ++j) {
+		for (int row = 0; row < rSampleSize; row += bandRows) {
+			int rowEnd = Math.min(row + bandRows, rSampleSize);
+			getElevationsAtHighestLevel(lowerBound.getX(), lowerBound.getY() + row * pixelLength, xd, yd, columns,
+				(rowEnd - row) * 2 + 1, z);
+			for (int i = row; i < rowEnd; ++i) {
 				if (Thread.currentThread().isInterrupted())
 					return(Double.NaN);
-				vert.set((float) (lowerBound.getX() + (j+0.5) * pixelWidth), (float) (lowerBound.getY() + (i+0.5) * pixelLength), 0);
-				if (MathUtil.isInsidePolygon(vert, vertex)) {
-					double sa = getSurfaceArea(vert);
-					if (!Double.isNaN(sa)) {
-						surfaceArea += sa;
+				int numSpans = scanline.getSpans(lowerBound.getY() + (i + 0.5) * pixelLength, lowerBound.getX() + xd,
+					pixelWidth, cSampleSize, span);
+				for (int s = 0; s < numSpans; ++s) {
+					for (int j = span[s * 2]; j < span[s * 2 + 1]; ++j) {
+						surfaceArea += getSurfaceArea(z, ((i - row) * 2 + 1) * columns + j * 2 + 1, columns, xd, yd);
 					}
 				}
 			}
@@ -918,37 +1201,27 @@ public class Landscape
 		return (surfaceArea);
 	}
 
-	private double getSurfaceArea(ReadOnlyVector3 point) {
-		double xd = pixelWidth / 2;
-		double yd = pixelLength / 2;
-		double x = point.getX();
-		double y = point.getY();
+	static double getSurfaceArea(float[] z, int center, int columns, double xd, double yd) {
+		int top = center + columns;
+		int bottom = center - columns;
 		double surfaceArea = 0;
-		surfaceArea += getAreaOfTriangle(x, y, x - xd, y + yd, x, y + yd);
-		surfaceArea += getAreaOfTriangle(x, y, x + xd, y + yd, x, y + yd);
-		surfaceArea += getAreaOfTriangle(x, y, x - xd, y, x - xd, y + yd);
-		surfaceArea += getAreaOfTriangle(x, y, x + xd, y, x + xd, y + yd);
-		surfaceArea += getAreaOfTriangle(x, y, x - xd, y, x - xd, y - yd);
-		surfaceArea += getAreaOfTriangle(x, y, x + xd, y, x + xd, y - yd);
-		surfaceArea += getAreaOfTriangle(x, y, x - xd, y - yd, x, y - yd);
-		surfaceArea += getAreaOfTriangle(x, y, x + xd, y - yd, x, y - yd);
+		surfaceArea += getAreaOfTriangle(z[center], -xd, yd, z[top - 1], 0, yd, z[top]);
+		surfaceArea += getAreaOfTriangle(z[center], xd, yd, z[top + 1], 0, yd, z[top]);
+		surfaceArea += getAreaOfTriangle(z[center], -xd, 0, z[center - 1], -xd, yd, z[top - 1]);
+		surfaceArea += getAreaOfTriangle(z[center], xd, 0, z[center + 1], xd, yd, z[top + 1]);
+		surfaceArea += getAreaOfTriangle(z[center], -xd, 0, z[center - 1], -xd, -yd, z[bottom - 1]);
+		surfaceArea += getAreaOfTriangle(z[center], xd, 0, z[center + 1], xd, -yd, z[bottom + 1]);
+		surfaceArea += getAreaOfTriangle(z[center], -xd, -yd, z[bottom - 1], 0, -yd, z[bottom]);
+		surfaceArea += getAreaOfTriangle(z[center], xd, -yd, z[bottom + 1], 0, -yd, z[bottom]);
 		return (surfaceArea);
 	}
 
-	private double getAreaOfTriangle(double x0, double y0, double x1, double y1, double x2, double y2) {
-		double z0 = getElevationAtHighestLevel(x0, y0);
-		if (Double.isNaN(z0)) {
+	private static double getAreaOfTriangle(double z0, double x1, double y1, double z1, double x2, double y2, double z2) {
+		// coordinates are relative to the first vertex
+		if (Double.isNaN(z0) || Double.isNaN(z1) || Double.isNaN(z2)) {
 			return (0);
 		}
-		double z1 = getElevationAtHighestLevel(x1, y1);
-		if (Double.isNaN(z1)) {
-			return (0);
-		}
-		double z2 = getElevationAtHighestLevel(x2, y2);
-		if (Double.isNaN(z2)) {
-			return (0);
-		}
-		double area = MathUtil.getAreaOfTriangle(x0, y0, z0, x1, y1, z1, x2, y2, z2);
+		double area = MathUtil.getAreaOfTriangle(0, 0, z0, x1, y1, z1, x2, y2, z2);
 		return(area);
 	}
 
@@ -1081,6 +1354,8 @@ public class Landscape
 	public void dispose() {
 		quadTree = null;
 		QuadTreeFactory.destroy();
+		HorizonMap.dispose();
+		RegionStatistics.dispose();
 		for (int i = 0; i < layerList.length; ++i) {
 			if (layerList[i] != null) {
 				layerList[i].dispose();
@@ -1088,6 +1363,73 @@ public class Landscape
 		}
 	}
 
+	/**
+	 * The Sun or lamp moved. Update the layers that depend on the light
+	 * direction. The values are recomputed on the horizon map pool. Moves
+	 * that arrive while that is running are coalesced into one more pass, so
+	 * dragging the lamp does not queue a recompute for every step.
+	 */
+	public void illuminationChanged() {
+		if ((layerList == null) || (QuadTreeFactory.getInstance() == null)) {
+			return;
+		}
+		synchronized (illuminationLock) {
+			if (illuminationUpdating) {
+				illuminationPending = true;
+				return;
+			}
+			illuminationUpdating = true;
+		}
+		HorizonMap.execute(new Runnable() {
+			@Override
+			public void run() {
+				updateIllumination();
+			}
+		});
+	}
+
+	// Recompute the illumination until the light stops moving, then update
+	// the texture coordinates of the loaded tiles on the event thread
+	private void updateIllumination() {
+		final ArrayList<DerivativeLayer> changed = new ArrayList<DerivativeLayer>();
+		while (true) {
+			try {
+				for (int i = 0; i < layerList.length; ++i) {
+					if ((layerList[i] instanceof DerivativeLayer) && ((DerivativeLayer) layerList[i]).updateIllumination()
+						&& !changed.contains(layerList[i])) {
+						changed.add((DerivativeLayer) layerList[i]);
+					}
+				}
+			} catch (Exception e) {
+				System.out.println("Unable to update illumination, see log.");
+				e.printStackTrace();
+			}
+			synchronized (illuminationLock) {
+				if (!illuminationPending) {
+					illuminationUpdating = false;
+					break;
+				}
+				illuminationPending = false;
+			}
+		}
+		if (changed.isEmpty()) {
+			return;
+		}
+		EventQueue.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				QuadTreeFactory factory = QuadTreeFactory.getInstance();
+				if (factory == null) {
+					return;
+				}
+				for (int i = 0; i < changed.size(); ++i) {
+					factory.getCache().updateTextureCoords(changed.get(i));
+				}
+				markDirty(DirtyType.RenderState);
+			}
+		});
+	}
+
 	/**
 	 * Set the surface color.
 	 * 
@@ -1169,15 +1511,50 @@ public class Landscape
 	public boolean update(BasicCamera camera) {
 		boolean qtChanged = false;
 		if (quadTree != null) {
+			QuadTreeFactory factory = QuadTreeFactory.getInstance();
+			factory.beginUpdate();
 			qtChanged = quadTree.update(camera);
+			factory.endUpdate();
 			if (qtChanged) {
-				quadTree.stitch();
+				stitchedEdgeCount += factory.stitch();
 //				quadTree.isDirty();
 			}
 		}
 		return(qtChanged);
 	}
 
+	/**
+	 * Get the number of tile edges stitched since the landscape was created.
+	 * Only edges next to a split or merge are stitched, the difference between
+	 * frames is the stitching work for a frame.
+	 * 
+	 * @return
+	 */
+	public long getStitchedEdgeCount() {
+		return(stitchedEdgeCount);
+	}
+
+	/**
+	 * Update the resolution of the tiles repeatedly until it no longer
+	 * changes. A tile splits one level per update, so this brings the
+	 * landscape to full resolution for the camera when the tiles are already
+	 * loaded.
+	 * 
+	 * @param camera
+	 * @param maxPasses
+	 *            the largest number of updates
+	 * @return true if the landscape changed
+	 */
+	public boolean updateFully(BasicCamera camera, int maxPasses) {
+		boolean changed = false;
+		for (int i = 0; i < maxPasses; ++i) {
+			if (!update(camera))
+				break;
+			changed = true;
+		}
+		return(changed);
+	}
+
 	/**
 	 * Show the image and derivative layers
 	 * 
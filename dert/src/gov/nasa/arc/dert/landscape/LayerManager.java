@@ -260,6 +260,10 @@ public class LayerManager {
 			lInfo = new LayerInfo("Distance Map", "derivative", DerivativeLayer.defaultColorMapName,
 					0, 1, false);
 			availableLayers.add(lInfo);
+			lInfo = new LayerInfo("Illumination Map", "derivative", DerivativeLayer.defaultColorMapName, 0, 1, false);
+			availableLayers.add(lInfo);
+			lInfo = new LayerInfo("Insolation Map", "derivative", DerivativeLayer.defaultColorMapName, 0, 1, false);
+			availableLayers.add(lInfo);
 		}
 		// otherwise check available layers against reality
 		else {
@@ -524,6 +528,10 @@ public class LayerManager {
 					return (new DerivativeLayer(DerivativeType.Aspect, layerInfo, baseLayer));
 				} else if (layerInfo.name.contains("Distance")) {
 					return (new DerivativeLayer(DerivativeType.Distance, layerInfo, baseLayer));
+				} else if (layerInfo.name.contains("Illumination")) {
+					return (new DerivativeLayer(DerivativeType.Illumination, layerInfo, baseLayer));
+				} else if (layerInfo.name.contains("Insolation")) {
+					return (new DerivativeLayer(DerivativeType.Insolation, layerInfo, baseLayer));
 				} else {
 					return (null);
 				}
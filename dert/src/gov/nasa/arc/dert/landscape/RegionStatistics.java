@@ -0,0 +1,377 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.landscape;
+
+import gov.nasa.arc.dert.util.MathUtil;
+import gov.nasa.arc.dert.util.ScanlinePolygon;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.ardor3d.math.Vector3;
+import com.ardor3d.math.type.ReadOnlyVector3;
+
+/**
+ * Statistics of the landscape inside a polygon, computed in a single pass. The
+ * polygon is rasterized into spans for each row of samples, and the rows are
+ * divided among the threads of a fork/join pool. Each task keeps its own sums
+ * which are added together as the tasks are joined.
+ *
+ * Elevation, slope and volume are sampled at pixel corners as in
+ * Landscape.getSampledMeanElevationOfRegion, surface area at pixel centers as
+ * in Landscape.getSampledSurfaceAreaOfRegion. Sample coordinates are doubles
+ * for every statistic, the single sample slope, volume and surface area
+ * methods rounded them to float.
+ *
+ */
+public class RegionStatistics {
+
+	// Number of threads computing statistics, 0 means use the number of
+	// available processors
+	public static int THREADS = 0;
+
+	// Pool shared by all computations
+	private static ForkJoinPool pool;
+
+	// Results
+	public double meanElevation, meanSlope, surfaceArea;
+
+	// Volume above and below the given elevation, NaN if no elevation was
+	// given
+	public double volumeAbove, volumeBelow;
+
+	// Number of elevation samples
+	public int count;
+
+	// Sums for this part of the region
+	protected double elevationSum, normalX, normalY, normalZ;
+	protected int normalCount;
+
+	/**
+	 * Compute the statistics of a region of the landscape.
+	 * 
+	 * @param landscape
+	 * @param vertex
+	 *            the polygon vertices, with the first vertex repeated at the
+	 *            end
+	 * @param lowerBound
+	 *            , upperBound the bounds of the polygon
+	 * @param volElev
+	 *            the base elevation for volume, NaN for none
+	 * @return the statistics or null if the calling thread was interrupted
+	 */
+	public static RegionStatistics compute(Landscape landscape, Vector3[] vertex, ReadOnlyVector3 lowerBound,
+		ReadOnlyVector3 upperBound, double volElev) {
+		Region region = new Region(landscape, vertex, lowerBound, upperBound, volElev);
+		RegionStatistics stats = getPool().invoke(new RowTask(region, 0, region.rows));
+		if (region.cancelled) {
+			return (null);
+		}
+		stats.meanElevation = stats.elevationSum / stats.count;
+		Vector3 normal = new Vector3(stats.normalX, stats.normalY, stats.normalZ);
+		normal.multiplyLocal(1.0 / stats.normalCount);
+		stats.meanSlope = MathUtil.getSlopeFromNormal(normal);
+		if (Double.isNaN(volElev)) {
+			stats.volumeAbove = Double.NaN;
+			stats.volumeBelow = Double.NaN;
+		} else {
+			stats.volumeAbove *= region.pixelWidth * region.pixelLength;
+			stats.volumeBelow *= region.pixelWidth * region.pixelLength;
+		}
+		return (stats);
+	}
+
+	/**
+	 * Get the number of threads used to compute statistics.
+	 * 
+	 * @return the thread count
+	 */
+	public static int getThreadCount() {
+		if (THREADS > 0)
+			return (THREADS);
+		return (Math.max(1, Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Stop the pool threads. The pool is started again when it is next
+	 * needed.
+	 */
+	public static synchronized void dispose() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	private static synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(getThreadCount());
+		}
+		return (pool);
+	}
+
+	/**
+	 * Add the sums of another part of the region.
+	 * 
+	 * @param that
+	 */
+	protected void add(RegionStatistics that) {
+		elevationSum += that.elevationSum;
+		count += that.count;
+		normalX += that.normalX;
+		normalY += that.normalY;
+		normalZ += that.normalZ;
+		normalCount += that.normalCount;
+		surfaceArea += that.surfaceArea;
+		volumeAbove += that.volumeAbove;
+		volumeBelow += that.volumeBelow;
+	}
+
+	/**
+	 * The region being sampled, shared by all tasks.
+	 */
+	protected static class Region {
+
+		protected Landscape landscape;
+		protected ScanlinePolygon scanline;
+		protected double x0, y0;
+		protected double pixelWidth, pixelLength;
+		protected int columns, rows;
+		protected int rowsPerTask;
+		protected double volElev;
+
+		// the thread waiting for the result, tasks stop if it is interrupted
+		protected Thread caller;
+		protected volatile boolean cancelled;
+
+		protected Region(Landscape landscape, Vector3[] vertex, ReadOnlyVector3 lowerBound,
+			ReadOnlyVector3 upperBound, double volElev) {
+			this.landscape = landscape;
+			this.volElev = volElev;
+			scanline = new ScanlinePolygon(vertex);
+			pixelWidth = landscape.getPixelWidth();
+			pixelLength = landscape.getPixelLength();
+			x0 = lowerBound.getX();
+			y0 = lowerBound.getY();
+			columns = (int) ((upperBound.getX() - lowerBound.getX()) / pixelWidth);
+			rows = (int) ((upperBound.getY() - lowerBound.getY()) / pixelLength);
+			// keep each task within a sample batch, but give every thread
+			// several tasks
+			int batchRows = Math.max(1, Landscape.SAMPLE_BATCH_SIZE / (columns * 2 + 1) / 2);
+			rowsPerTask = Math.max(1, Math.min(batchRows, rows / (getThreadCount() * 4)));
+			caller = Thread.currentThread();
+		}
+
+		protected boolean isCancelled() {
+			if (caller.isInterrupted()) {
+				cancelled = true;
+			}
+			return (cancelled);
+		}
+	}
+
+	/**
+	 * Task to compute the statistics for a range of rows.
+	 */
+	protected static class RowTask extends RecursiveTask<RegionStatistics> {
+
+		private static final long serialVersionUID = 1L;
+
+		private Region region;
+		private int row, rowEnd;
+
+		protected RowTask(Region region, int row, int rowEnd) {
+			this.region = region;
+			this.row = row;
+			this.rowEnd = rowEnd;
+		}
+
+		@Override
+		protected RegionStatistics compute() {
+			if (rowEnd - row <= region.rowsPerTask) {
+				return (computeRows());
+			}
+			int mid = (row + rowEnd) / 2;
+			RowTask task = new RowTask(region, row, mid);
+			task.fork();
+			RegionStatistics stats = new RowTask(region, mid, rowEnd).compute();
+			stats.add(task.join());
+			return (stats);
+		}
+
+		private RegionStatistics computeRows() {
+			RegionStatistics stats = new RegionStatistics();
+			if (region.isCancelled()) {
+				return (stats);
+			}
+			double xd = region.pixelWidth / 2;
+			double yd = region.pixelLength / 2;
+
+			// elevations at the pixel corners and centers
+			int columns = region.columns * 2 + 1;
+			int rows = (rowEnd - row) * 2 + 1;
+			double[] xy = new double[columns * rows * 2];
+			int n = 0;
+			for (int i = 0; i < rows; ++i) {
+				for (int j = 0; j < columns; ++j) {
+					xy[n * 2] = region.x0 + j * xd;
+					xy[n * 2 + 1] = region.y0 + (row * 2 + i) * yd;
+					n++;
+				}
+			}
+			float[] z = new float[n];
+			region.landscape.getElevationsAtHighestLevel(xy, n, z);
+
+			int[] span = new int[region.scanline.getMaximumSpans() * 2];
+			double[] cornerXY = new double[region.columns * (rowEnd - row) * 2];
+			int numCorners = 0;
+			for (int i = row; i < rowEnd; ++i) {
+				if (region.isCancelled()) {
+					return (stats);
+				}
+				// elevation and volume at the corners inside the polygon
+				double y = region.y0 + i * region.pixelLength;
+				int numSpans = region.scanline.getSpans(y, region.x0, region.pixelWidth, region.columns, span);
+				int k = (i - row) * 2 * columns;
+				for (int s = 0; s < numSpans; ++s) {
+					for (int j = span[s * 2]; j < span[s * 2 + 1]; ++j) {
+						cornerXY[numCorners * 2] = region.x0 + j * region.pixelWidth;
+						cornerXY[numCorners * 2 + 1] = y;
+						numCorners++;
+						float el = z[k + j * 2];
+						if (Float.isNaN(el)) {
+							continue;
+						}
+						stats.elevationSum += el;
+						stats.count++;
+						if (el < region.volElev) {
+							stats.volumeBelow += (region.volElev - el);
+						} else if (el >= region.volElev) {
+							stats.volumeAbove += (el - region.volElev);
+						}
+					}
+				}
+				// surface area at the centers inside the polygon
+				numSpans = region.scanline.getSpans(y + yd, region.x0 + xd, region.pixelWidth, region.columns, span);
+				k += columns + 1;
+				for (int s = 0; s < numSpans; ++s) {
+					for (int j = span[s * 2]; j < span[s * 2 + 1]; ++j) {
+						stats.surfaceArea += Landscape.getSurfaceArea(z, k + j * 2, columns, xd, yd);
+					}
+				}
+			}
+
+			// slope from the normals at the corners
+			float[] normal = new float[numCorners * 3];
+			region.landscape.getNormalsAtHighestLevel(cornerXY, numCorners, normal);
+			for (int i = 0; i < numCorners; ++i) {
+				if (!Float.isNaN(normal[i * 3])) {
+					stats.normalX += normal[i * 3];
+					stats.normalY += normal[i * 3 + 1];
+					stats.normalZ += normal[i * 3 + 2];
+					stats.normalCount++;
+				}
+			}
+			return (stats);
+		}
+	}
+}
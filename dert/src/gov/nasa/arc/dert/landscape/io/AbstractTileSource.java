@@ -104,6 +104,7 @@ package gov.nasa.arc.dert.landscape.io;
 import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Interface to source of landscape tiles.
@@ -112,8 +113,9 @@ import java.util.ArrayList;
 public abstract class AbstractTileSource
 	implements TileSource {
 
-	// Quad tree structure of existing tile keys
-	protected DepthTree depthTree;
+	// Quad tree structure of existing tile keys, loaded on first use
+	private volatile DepthIndex depthIndex;
+	private volatile boolean depthIndexLoaded;
 
 	/**
 	 * Given an X,Y coordinate, find the highest level tile key that contains
@@ -125,8 +127,8 @@ public abstract class AbstractTileSource
 	 *            , worldHeight the physical dimensions of the source
 	 * @return the key string
 	 */
-	public synchronized QuadKey getKey(double x, double y, double worldWidth, double worldLength) {
-		return (getKey(depthTree, x, y, new ArrayList<Byte>(), worldWidth / 2, worldLength / 2, -1));
+	public QuadKey getKey(double x, double y, double worldWidth, double worldLength) {
+		return (getKey(x, y, worldWidth, worldLength, -1));
 	}
 
 	/**
@@ -139,40 +141,196 @@ public abstract class AbstractTileSource
 	 *            , worldHeight the physical dimensions of the source
 	 * @return the key string
 	 */
-	public synchronized QuadKey getKey(double x, double y, double worldWidth, double worldLength, int lvl) {
-		return (getKey(depthTree, x, y, new ArrayList<Byte>(), worldWidth / 2, worldLength / 2, lvl));
+	public QuadKey getKey(double x, double y, double worldWidth, double worldLength, int lvl) {
+		long key = getPackedKey(x, y, worldWidth, worldLength, lvl);
+		if (key == -1) {
+			return (null);
+		}
+		return (new QuadKey(key));
 	}
 
-	private QuadKey getKey(DepthTree depthTree, double x, double y, ArrayList<Byte> qList, double width, double length, int lvl) {
-		if (depthTree.child == null)
-			return (new QuadKey(qList));
-		if (lvl == 0)
-			return(new QuadKey(qList));	
-		double w = width / 2;
-		double l = length / 2;
-		if (x < 0) {
-			if (y >= 0) {
-				depthTree = depthTree.child[0];
-				qList.add(new Byte((byte)1));
-				return (getKey(depthTree, x + w, y - l, qList, w, l, lvl-1));
+	/**
+	 * Given an X,Y coordinate and level, find the packed key (see
+	 * QuadKey.toLong) of the tile that contains that coordinate. Returns next
+	 * best level if doesn't reach requested level. Nothing is allocated and no
+	 * lock is taken once the depth index is loaded, so this may be called
+	 * from many threads at once.
+	 * 
+	 * @param x
+	 *            , y the coordinate
+	 * @param worldWidth
+	 *            , worldHeight the physical dimensions of the source
+	 * @param lvl
+	 *            the level, or -1 for the highest level
+	 * @return the packed key or -1 if there are no tiles
+	 */
+	public long getPackedKey(double x, double y, double worldWidth, double worldLength, int lvl) {
+		DepthIndex index = getDepthIndex();
+		if (index == null) {
+			return (-1);
+		}
+		double w = worldWidth / 2;
+		double l = worldLength / 2;
+		int node = 0;
+		long key = 0;
+		int level = 0;
+		while ((level != lvl) && index.hasChildren(node) && (level < QuadKey.MAX_PACKED_LEVEL)) {
+			w /= 2;
+			l /= 2;
+			int q;
+			if (x < 0) {
+				x += w;
+				q = (y >= 0) ? 1 : 3;
 			} else {
-				depthTree = depthTree.child[2];
-				qList.add(new Byte((byte)3));
-				return (getKey(depthTree, x + w, y + l, qList, w, l, lvl-1));
+				x -= w;
+				q = (y >= 0) ? 2 : 4;
 			}
-		} else {
 			if (y >= 0) {
-				depthTree = depthTree.child[1];
-				qList.add(new Byte((byte)2));
-				return (getKey(depthTree, x - w, y - l, qList, w, l, lvl-1));
+				y -= l;
 			} else {
-				depthTree = depthTree.child[3];
-				qList.add(new Byte((byte)4));
-				return (getKey(depthTree, x - w, y + l, qList, w, l, lvl-1));
+				y += l;
 			}
+			node = index.getChild(node, q);
+			key |= (long) (q - 1) << (6 + 2 * level);
+			level++;
+		}
+		return (key | level);
+	}
+
+	/**
+	 * Determine if a tile exists.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	public boolean tileExists(QuadKey key) {
+		DepthIndex index = getDepthIndex();
+		if (index == null) {
+			return (tileExists(key.toString()));
 		}
+		return (index.contains(key));
 	}
 	
-	protected abstract DepthTree getDepthTree();
+	/**
+	 * Given a set of X,Y coordinates, group them by the highest level tile key
+	 * that contains them. The depth tree is walked once for the whole set
+	 * rather than once for each coordinate. No groups are returned if the
+	 * source has no depth index.
+	 * 
+	 * @param xy
+	 *            the x,y coordinate pairs
+	 * @param n
+	 *            the number of coordinates
+	 * @param worldWidth
+	 *            , worldHeight the physical dimensions of the source
+	 * @param order
+	 *            returns the coordinate indices ordered by group
+	 * @param keyList
+	 *            returns the key of each group
+	 * @param endList
+	 *            returns the end of each group in order
+	 */
+	public void groupByKey(double[] xy, int n, double worldWidth, double worldLength, int[] order,
+		ArrayList<QuadKey> keyList, ArrayList<Integer> endList) {
+		// coordinates relative to the center of the current tile, as in getKey
+		double[] rel = Arrays.copyOf(xy, n * 2);
+		for (int i = 0; i < n; ++i)
+			order[i] = i;
+		DepthIndex index = getDepthIndex();
+		if (index == null) {
+			return;
+		}
+		groupByKey(index, 0, rel, order, 0, n, 0l, worldWidth / 2, worldLength / 2, keyList, endList);
+	}
+
+	private void groupByKey(DepthIndex index, int node, double[] rel, int[] order, int start, int end, long path,
+		double width, double length, ArrayList<QuadKey> keyList, ArrayList<Integer> endList) {
+		if (start == end)
+			return;
+		if (!index.hasChildren(node) || ((path & 63) == QuadKey.MAX_PACKED_LEVEL)) {
+			keyList.add(new QuadKey(path));
+			endList.add(end);
+			return;
+		}
+		double w = width / 2;
+		double l = length / 2;
+		// put the coordinates in quadrant order, top before bottom and left
+		// before right
+		int bottom = partition(rel, order, start, end, 1);
+		int topRight = partition(rel, order, start, bottom, 0);
+		int bottomRight = partition(rel, order, bottom, end, 0);
+		groupChild(index, index.getChild(node, 1), rel, order, start, topRight, path, 1, w, -l, keyList, endList);
+		groupChild(index, index.getChild(node, 2), rel, order, topRight, bottom, path, 2, -w, -l, keyList, endList);
+		groupChild(index, index.getChild(node, 3), rel, order, bottom, bottomRight, path, 3, w, l, keyList, endList);
+		groupChild(index, index.getChild(node, 4), rel, order, bottomRight, end, path, 4, -w, l, keyList, endList);
+	}
+
+	private void groupChild(DepthIndex index, int node, double[] rel, int[] order, int start, int end, long path,
+		int quadrant, double xOffset, double yOffset, ArrayList<QuadKey> keyList, ArrayList<Integer> endList) {
+		if (start == end)
+			return;
+		for (int i = start; i < end; ++i) {
+			int k = order[i] * 2;
+			rel[k] += xOffset;
+			rel[k + 1] += yOffset;
+		}
+		groupByKey(index, node, rel, order, start, end, QuadKey.createChild(path, quadrant), Math.abs(xOffset), Math.abs(yOffset), keyList,
+			endList);
+	}
+
+	/**
+	 * Partition indices so that those with x < 0 (axis 0) or y >= 0 (axis 1)
+	 * come first. Returns the start of the second partition.
+	 */
+	private int partition(double[] rel, int[] order, int start, int end, int axis) {
+		int i = start;
+		int j = end - 1;
+		while (i <= j) {
+			double v = rel[order[i] * 2 + axis];
+			if ((axis == 0) ? (v < 0) : (v >= 0))
+				i++;
+			else {
+				int tmp = order[i];
+				order[i] = order[j];
+				order[j] = tmp;
+				j--;
+			}
+		}
+		return (i);
+	}
+
+	/**
+	 * Get the depth index, loading it the first time it is needed. The index
+	 * is read only so once it is loaded no lock is needed.
+	 * 
+	 * @return the index or null if the landscape has no elevation tiles
+	 */
+	protected DepthIndex getDepthIndex() {
+		if (depthIndexLoaded) {
+			return (depthIndex);
+		}
+		synchronized (this) {
+			if (!depthIndexLoaded) {
+				depthIndex = loadDepthIndex();
+				depthIndexLoaded = true;
+			}
+			return (depthIndex);
+		}
+	}
+
+	/**
+	 * Discard the depth index so it is loaded again when next needed.
+	 */
+	protected synchronized void resetDepthIndex() {
+		depthIndexLoaded = false;
+		depthIndex = null;
+	}
+
+	/**
+	 * Load the depth index for this source.
+	 * 
+	 * @return
+	 */
+	protected abstract DepthIndex loadDepthIndex();
 
 }
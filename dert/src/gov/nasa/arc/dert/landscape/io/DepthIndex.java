@@ -0,0 +1,497 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.landscape.io;
+
+import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Provides a compact, read-only index of the tiles in a landscape quad tree.
+ * The tree is stored as one bit per node in breadth-first order, set if the
+ * node has children. Since a tile has either no children or all four, the
+ * children of the node with rank r (the number of set bits before it) are
+ * nodes 1+4r to 4+4r. A rank directory with one entry per 64 bit word makes
+ * each step down the tree constant time.
+ * 
+ * The file (dert/depthindex.bin) is a 16 byte header (magic, version, node
+ * count, depth) followed by the bit words, big endian, lowest bit first.
+ *
+ */
+public class DepthIndex {
+
+	// Identifies a depth index file ("DRTD")
+	public static final int MAGIC = 0x44525444;
+
+	// Index version
+	public static final int VERSION = 1;
+
+	// Name of the index file in the landscape dert directory
+	public static final String FILE_NAME = "depthindex.bin";
+
+	// Sizes in bytes
+	public static final int HEADER_SIZE = 16;
+
+	// The bits, one per node
+	private LongBuffer bits;
+
+	// Number of set bits before each word
+	private int[] rank;
+
+	// Number of nodes
+	private int nodeCount;
+
+	// Number of levels
+	private int depth;
+
+	private DepthIndex(LongBuffer bits, int nodeCount, int depth) {
+		this.bits = bits;
+		this.nodeCount = nodeCount;
+		this.depth = depth;
+		int n = bits.limit();
+		rank = new int[n];
+		int count = 0;
+		for (int i = 0; i < n; ++i) {
+			rank[i] = count;
+			count += Long.bitCount(bits.get(i));
+		}
+		if (count * 4 + 1 != nodeCount) {
+			throw new IllegalStateException("Depth index is inconsistent, " + count + " parents for " + nodeCount
+				+ " nodes.");
+		}
+	}
+
+	/**
+	 * Load an index file. The file is memory mapped.
+	 * 
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static DepthIndex load(File file) throws IOException {
+		RandomAccessFile raFile = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raFile.getChannel();
+			return (load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())));
+		} finally {
+			// the mapping remains valid after the file is closed
+			raFile.close();
+		}
+	}
+
+	/**
+	 * Load an index from a stream.
+	 * 
+	 * @param inputStream
+	 * @return
+	 * @throws IOException
+	 */
+	public static DepthIndex load(InputStream inputStream) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[8192];
+		int n = inputStream.read(buf);
+		while (n >= 0) {
+			out.write(buf, 0, n);
+			n = inputStream.read(buf);
+		}
+		return (load(ByteBuffer.wrap(out.toByteArray())));
+	}
+
+	/**
+	 * Load an index from the contents of an index file.
+	 * 
+	 * @param bBuf
+	 * @return
+	 * @throws IOException
+	 */
+	public static DepthIndex load(ByteBuffer bBuf) throws IOException {
+		if ((bBuf.remaining() < HEADER_SIZE) || (bBuf.getInt(0) != MAGIC)) {
+			throw new IOException("Data is not a depth index.");
+		}
+		int version = bBuf.getInt(4);
+		if (version > VERSION) {
+			throw new IOException("Depth index version " + version + " is not supported.");
+		}
+		int nodeCount = bBuf.getInt(8);
+		int depth = bBuf.getInt(12);
+		int words = (int) (((long) nodeCount + 63) / 64);
+		if ((nodeCount < 1) || (bBuf.remaining() < HEADER_SIZE + words * 8l)) {
+			throw new IOException("Depth index is truncated.");
+		}
+		bBuf.position(HEADER_SIZE);
+		LongBuffer lBuf = bBuf.slice().asLongBuffer();
+		lBuf.limit(words);
+		try {
+			return (new DepthIndex(lBuf, nodeCount, depth));
+		} catch (IllegalStateException e) {
+			throw new IOException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Create an index from a depth tree.
+	 * 
+	 * @param depthTree
+	 * @return
+	 */
+	public static DepthIndex create(DepthTree depthTree) {
+		BitList list = new BitList();
+		ArrayDeque<DepthTree> queue = new ArrayDeque<DepthTree>();
+		ArrayDeque<Integer> levelQueue = new ArrayDeque<Integer>();
+		queue.add(depthTree);
+		levelQueue.add(1);
+		int depth = 0;
+		while (!queue.isEmpty()) {
+			DepthTree dTree = queue.poll();
+			int level = levelQueue.poll();
+			depth = Math.max(depth, level);
+			// a missing child is an empty tile with no children
+			boolean parent = (dTree != null) && (dTree.child != null);
+			list.add(parent);
+			if (parent) {
+				for (int i = 0; i < 4; ++i) {
+					queue.add(dTree.child[i]);
+					levelQueue.add(level + 1);
+				}
+			}
+		}
+		return (list.toIndex(depth));
+	}
+
+	/**
+	 * Create an index from the packed keys (see QuadKey.toLong) of the tiles
+	 * in a layer. If one child of a tile is present they all are.
+	 * 
+	 * @param key
+	 *            the packed keys, in any order
+	 * @return the index or null if the root tile is not present
+	 */
+	public static DepthIndex create(long[] key) {
+		long[] sorted = Arrays.copyOf(key, key.length);
+		Arrays.sort(sorted);
+		if (Arrays.binarySearch(sorted, 0l) < 0) {
+			return (null);
+		}
+		// add each parent when its first child is found
+		BitList list = new BitList();
+		ArrayDeque<Long> queue = new ArrayDeque<Long>();
+		queue.add(0l);
+		int depth = 0;
+		while (!queue.isEmpty()) {
+			long k = queue.poll();
+			int level = (int) (k & 63);
+			depth = Math.max(depth, level + 1);
+			boolean parent = false;
+			if (level < QuadKey.MAX_PACKED_LEVEL) {
+				long base = (k & ~63l) | (level + 1);
+				int shift = 6 + 2 * level;
+				for (int q = 0; (q < 4) && !parent; ++q) {
+					parent = Arrays.binarySearch(sorted, base | ((long) q << shift)) >= 0;
+				}
+				if (parent) {
+					for (int q = 0; q < 4; ++q) {
+						queue.add(base | ((long) q << shift));
+					}
+				}
+			}
+			list.add(parent);
+		}
+		return (list.toIndex(depth));
+	}
+
+	/**
+	 * Create an index for a complete pyramid, where every tile above the last
+	 * level has four children.
+	 * 
+	 * @param depth
+	 *            the number of levels
+	 * @return
+	 */
+	public static DepthIndex createComplete(int depth) {
+		long parents = 0;
+		long nodes = 1;
+		for (int i = 1; i < depth; ++i) {
+			parents += nodes;
+			nodes *= 4;
+		}
+		long nodeCount = parents * 4 + 1;
+		if (nodeCount > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many levels for a depth index: " + depth);
+		}
+		long[] word = new long[(int) ((nodeCount + 63) / 64)];
+		// parents come first in breadth-first order
+		for (int i = 0; i < parents / 64; ++i) {
+			word[i] = -1l;
+		}
+		if (parents % 64 != 0) {
+			word[(int) (parents / 64)] = (1l << (parents % 64)) - 1;
+		}
+		return (new DepthIndex(LongBuffer.wrap(word), (int) nodeCount, depth));
+	}
+
+	/**
+	 * Write the index to a file.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public void store(File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(nodeCount);
+			out.writeInt(depth);
+			for (int i = 0; i < rank.length; ++i) {
+				out.writeLong(bits.get(i));
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Get the number of nodes (tiles) in the index.
+	 * 
+	 * @return
+	 */
+	public int getNodeCount() {
+		return (nodeCount);
+	}
+
+	/**
+	 * Get the number of levels in the index.
+	 * 
+	 * @return
+	 */
+	public int getDepth() {
+		return (depth);
+	}
+
+	/**
+	 * Get the root node.
+	 * 
+	 * @return
+	 */
+	public int getRoot() {
+		return (0);
+	}
+
+	/**
+	 * Determine if a node has children.
+	 * 
+	 * @param node
+	 * @return
+	 */
+	public final boolean hasChildren(int node) {
+		return ((bits.get(node >>> 6) & (1l << node)) != 0);
+	}
+
+	/**
+	 * Get a child of a node that has children.
+	 * 
+	 * @param node
+	 * @param quadrant
+	 *            1 to 4
+	 * @return
+	 */
+	public final int getChild(int node, int quadrant) {
+		int w = node >>> 6;
+		int r = rank[w] + Long.bitCount(bits.get(w) & ((1l << node) - 1));
+		return (4 * r + quadrant);
+	}
+
+	/**
+	 * Find the node for a key.
+	 * 
+	 * @param key
+	 * @return the node or -1 if the tile does not exist
+	 */
+	public int find(QuadKey key) {
+		int node = 0;
+		int level = key.getLevel();
+		for (int i = 0; i < level; ++i) {
+			if (!hasChildren(node)) {
+				return (-1);
+			}
+			node = getChild(node, key.getPath(i));
+		}
+		return (node);
+	}
+
+	/**
+	 * Determine if a tile exists.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	public boolean contains(QuadKey key) {
+		return (find(key) >= 0);
+	}
+
+	/**
+	 * Determine if a tile exists.
+	 * 
+	 * @param key
+	 *            the key string (/1/2/3)
+	 * @return
+	 */
+	public boolean contains(String key) {
+		int node = 0;
+		int n = key.length();
+		for (int i = 0; i < n; ++i) {
+			int q = key.charAt(i) - '0';
+			if ((q < 1) || (q > 4)) {
+				if (key.charAt(i) == '/') {
+					continue;
+				}
+				return (false);
+			}
+			if (!hasChildren(node)) {
+				return (false);
+			}
+			node = getChild(node, q);
+		}
+		return (true);
+	}
+
+	@Override
+	public String toString() {
+		return ("DepthIndex[" + nodeCount + " nodes, " + depth + " levels]");
+	}
+
+	/**
+	 * Growable list of bits used while creating an index.
+	 */
+	private static class BitList {
+
+		private long[] word = new long[16];
+		private int size;
+
+		public void add(boolean bit) {
+			if ((size >>> 6) == word.length) {
+				word = Arrays.copyOf(word, word.length * 2);
+			}
+			if (bit) {
+				word[size >>> 6] |= 1l << size;
+			}
+			size++;
+		}
+
+		public DepthIndex toIndex(int depth) {
+			return (new DepthIndex(LongBuffer.wrap(Arrays.copyOf(word, (size + 63) / 64)), size, depth));
+		}
+	}
+
+}
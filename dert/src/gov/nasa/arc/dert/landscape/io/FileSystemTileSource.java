@@ -102,6 +102,7 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 package gov.nasa.arc.dert.landscape.io;
 
 import gov.nasa.arc.dert.landscape.io.QuadTreeTile.DataType;
+import gov.nasa.arc.dert.landscape.io.QuadTreeTile.TileFormat;
 import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
 import gov.nasa.arc.dert.util.ImageUtil;
 import gov.nasa.arc.dert.view.Console;
@@ -119,6 +120,8 @@ import java.util.Properties;
 import javax.imageio.ImageIO;
 
 import com.ardor3d.image.Image;
+import com.ardor3d.image.ImageDataFormat;
+import com.ardor3d.image.PixelDataType;
 
 /**
  * Provides an implementation of the TileSource interface for landscapes that
@@ -128,15 +131,15 @@ import com.ardor3d.image.Image;
 public class FileSystemTileSource
 	extends AbstractTileSource {
 
-	// Quad tree structure of existing tile keys
-	private DepthTree depthTree;
-
 	// Landscape directory
 	private String dirName;
 
 	// Map of properties from layer.properties files throughout the landscape
 	private HashMap<String, Properties> propertiesMap;
 
+	// Map of tile formats for each layer
+	private HashMap<String, TileFormat> formatMap;
+
 	/**
 	 * Constructor
 	 * 
@@ -167,6 +170,7 @@ public class FileSystemTileSource
 	@Override
 	public String[][] getLayerInfo() {
 		propertiesMap = new HashMap<String, Properties>();
+		formatMap = new HashMap<String, TileFormat>();
 		File dir = new File(dirName);
 		if (!dir.isDirectory()) {
 			throw new IllegalArgumentException("TerrainModel location " + dirName + " is not a directory.");
@@ -198,11 +202,10 @@ public class FileSystemTileSource
 					continue;
 				}
 				propertiesMap.put(filename, prop);
+				formatMap.put(filename, TileCodec.getTileFormat(prop));
 				String type = prop.getProperty("LayerType");
 				if (type != null) {
 					layers.add(new String[] { filename, type, null });
-					if (type.equals("elevation"))
-						getDepthTree();
 				}
 			}
 		}
@@ -242,10 +245,23 @@ public class FileSystemTileSource
 	}
 
 	private boolean tileExists(String layerName, String key) {
-		if (depthTree != null) {
-			return (tileExists(key, depthTree));
+		DepthIndex index = getDepthIndex();
+		if (index != null) {
+			return (index.contains(key));
 		}
-		String fileName = layerPath(layerName) + key + "/0.png";
+		return (tileFileExists(layerName, key));
+	}
+
+	/**
+	 * Determine if a tile is present in the layer without consulting the depth
+	 * index.
+	 * 
+	 * @param layerName
+	 * @param key
+	 * @return
+	 */
+	protected boolean tileFileExists(String layerName, String key) {
+		String fileName = layerPath(layerName) + key + "/0" + TileCodec.getExtension(getTileFormat(layerName));
 		File file = new File(fileName);
 		try {
 			if (file.getCanonicalFile().exists()) {
@@ -265,35 +281,37 @@ public class FileSystemTileSource
 	 */
 	@Override
 	public boolean tileExists(String key) {
-		return (tileExists(key, depthTree));
-	}
-
-	private boolean tileExists(String key, DepthTree dTree) {
-		if (key.equals(dTree.key)) {
-			return (true);
-		}
-		if (!key.startsWith(dTree.key)) {
-			return (false);
-		}
-		if (dTree.child == null) {
-			return (false);
-		}
-		for (int i = 0; i < dTree.child.length; ++i) {
-			if (tileExists(key, dTree.child[i])) {
-				return (true);
-			}
-		}
-		return (false);
+		return (tileExists("elevation", key));
 	}
 
 	@Override
 	public QuadTreeTile getTile(String layerName, QuadKey qKey, DataType dataType) {
 		if (tileExists(layerName, qKey.toString())) {
-			return (getTilePng(layerName, qKey, dataType));
+			if (getTileFormat(layerName) == TileFormat.PNG) {
+				return (getTilePng(layerName, qKey, dataType));
+			}
+			return (getTileRaw(layerName, qKey, dataType));
 		}
 		return (null);
 	}
 
+	/**
+	 * Get the tile format for a layer.
+	 * 
+	 * @param layerName
+	 * @return
+	 */
+	public TileFormat getTileFormat(String layerName) {
+		TileFormat format = null;
+		if (formatMap != null) {
+			format = formatMap.get(layerName);
+		}
+		if (format == null) {
+			return (TileFormat.PNG);
+		}
+		return (format);
+	}
+
 	/**
 	 * Given a layer and an id, load the contents of the tile.
 	 */
@@ -303,25 +321,57 @@ public class FileSystemTileSource
 			File file = new File(fileName).getCanonicalFile();
 			BufferedImage bImage = ImageIO.read(file);
 			if (bImage != null) {
-				// System.err.println("FileSystemTileSource.getTilePng "+layerName+" "+dataType+" "+bImage.getWidth()+" "+bImage.getHeight());
-				int numBands = bImage.getData().getNumBands();
-				if (dataType == DataType.Float) {
-					DataBufferByte dBuf = (DataBufferByte) bImage.getData().getDataBuffer();
-					byte[] bytes = dBuf.getData();
-					ByteBuffer bBuf = ByteBuffer.wrap(bytes);
-					QuadTreeTile tile = new QuadTreeTile(bBuf, qKey, bImage.getWidth(), bImage.getHeight(), dataType,
-						numBands);
-					return (tile);
-				}
-				// Spurious gray tile in the midst of a color landscape.
-				if ((dataType == DataType.UnsignedInteger) && (numBands < 4)) {
-					dataType = DataType.UnsignedByte;
-				} else if ((dataType == DataType.UnsignedByte) && (numBands > 1)) {
-					dataType = DataType.UnsignedInteger;
-				}
-				Image image = ImageUtil.convertToArdor3DImage(bImage, false);
-				QuadTreeTile tile = new QuadTreeTile(image, qKey, dataType);
-				return (tile);
+				return (createTile(bImage, qKey, dataType));
+			}
+		} catch (Exception e) {
+			System.out.println("Unable to read tile " + qKey + " for layer "+layerName+", see log.");
+			e.printStackTrace();
+		}
+		return (null);
+	}
+
+	/**
+	 * Create a tile from a decoded PNG image.
+	 * 
+	 * @param bImage
+	 * @param qKey
+	 * @param dataType
+	 * @return
+	 */
+	protected static QuadTreeTile createTile(BufferedImage bImage, QuadKey qKey, DataType dataType) {
+		int numBands = bImage.getData().getNumBands();
+		if (dataType == DataType.Float) {
+			DataBufferByte dBuf = (DataBufferByte) bImage.getData().getDataBuffer();
+			byte[] bytes = dBuf.getData();
+			ByteBuffer bBuf = ByteBuffer.wrap(bytes);
+			QuadTreeTile tile = new QuadTreeTile(bBuf, qKey, bImage.getWidth(), bImage.getHeight(), dataType,
+				numBands);
+			return (tile);
+		}
+		// Spurious gray tile in the midst of a color landscape.
+		if ((dataType == DataType.UnsignedInteger) && (numBands < 4)) {
+			dataType = DataType.UnsignedByte;
+		} else if ((dataType == DataType.UnsignedByte) && (numBands > 1)) {
+			dataType = DataType.UnsignedInteger;
+		}
+		Image image = ImageUtil.convertToArdor3DImage(bImage, false);
+		QuadTreeTile tile = new QuadTreeTile(image, qKey, dataType);
+		return (tile);
+	}
+
+	/**
+	 * Given a layer and an id, load the contents of a RAW or LZ tile. The data
+	 * is read straight into a direct ByteBuffer in the layout used by
+	 * QuadTreeTile, so no image decoding or byte swapping is needed.
+	 */
+	public QuadTreeTile getTileRaw(String layerName, QuadKey qKey, DataType dataType) {
+		try {
+			String fileName = layerPath(layerName) + qKey + "/0" + TileCodec.getExtension(getTileFormat(layerName));
+			File file = new File(fileName).getCanonicalFile();
+			int[] dimensions = new int[3];
+			ByteBuffer bBuf = TileCodec.read(file, dimensions);
+			if (bBuf != null) {
+				return (createTile(bBuf, dimensions, qKey, dataType));
 			}
 		} catch (Exception e) {
 			System.out.println("Unable to read tile " + qKey + " for layer "+layerName+", see log.");
@@ -330,9 +380,39 @@ public class FileSystemTileSource
 		return (null);
 	}
 
+	/**
+	 * Create a tile from decoded RAW or LZ tile data.
+	 * 
+	 * @param bBuf
+	 * @param dimensions
+	 *            the width, height, and bytes per pixel
+	 * @param qKey
+	 * @param dataType
+	 * @return
+	 */
+	protected static QuadTreeTile createTile(ByteBuffer bBuf, int[] dimensions, QuadKey qKey, DataType dataType) {
+		int bytesPerPixel = dimensions[2];
+		if (dataType == DataType.Float) {
+			QuadTreeTile tile = new QuadTreeTile(bBuf, qKey, dimensions[0], dimensions[1], dataType, bytesPerPixel);
+			return (tile);
+		}
+		// Spurious gray tile in the midst of a color landscape.
+		if ((dataType == DataType.UnsignedInteger) && (bytesPerPixel < 4)) {
+			dataType = DataType.UnsignedByte;
+		} else if ((dataType == DataType.UnsignedByte) && (bytesPerPixel > 1)) {
+			dataType = DataType.UnsignedInteger;
+		}
+		ImageDataFormat format = (bytesPerPixel == 4) ? ImageDataFormat.BGRA : ImageDataFormat.Luminance;
+		ArrayList<ByteBuffer> list = new ArrayList<ByteBuffer>(1);
+		list.add(bBuf);
+		Image image = new Image(format, PixelDataType.UnsignedByte, dimensions[0], dimensions[1], list, null);
+		QuadTreeTile tile = new QuadTreeTile(image, qKey, dataType);
+		return (tile);
+	}
+
 	protected synchronized void fillDepthTree(DepthTree dTree, String path, String layerName) {
 		String key = path + "/";
-		if (tileExists(layerName, key + "1")) {
+		if (tileFileExists(layerName, key + "1")) {
 			// if one child exists they should all exist
 			dTree.child = new DepthTree[] { new DepthTree(), new DepthTree(), new DepthTree(), new DepthTree() };
 			for (int i = 0; i < dTree.child.length; ++i) {
@@ -346,13 +426,25 @@ public class FileSystemTileSource
 		return (dirName + "/" + layerName);
 	}
 
-	protected DepthTree getDepthTree() {
-		if (depthTree != null) {
-			return (depthTree);
+	/**
+	 * Load the depth index from dert/depthindex.bin. Older landscapes may only
+	 * have dert/depthtree.txt, or nothing, in which case the tree is found by
+	 * looking for elevation tiles and the index is written for next time.
+	 */
+	@Override
+	protected DepthIndex loadDepthIndex() {
+		File indexFile = new File(dirName + "/dert/" + DepthIndex.FILE_NAME);
+		if (indexFile.exists()) {
+			try {
+				return (DepthIndex.load(indexFile));
+			} catch (Exception e) {
+				e.printStackTrace();
+				System.out.println("Error reading depth index file.");
+			}
 		}
-		final String depthFileName = dirName + "/dert/depthtree.txt";
-		File depthFile = new File(depthFileName);
-		if (depthFile.exists()) {
+		DepthTree depthTree = null;
+		String depthFileName = dirName + "/dert/depthtree.txt";
+		if (new File(depthFileName).exists()) {
 			try {
 				depthTree = DepthTree.load(depthFileName);
 			} catch (Exception e) {
@@ -361,32 +453,34 @@ public class FileSystemTileSource
 				depthTree = null;
 			}
 		}
+		if ((depthTree == null) && tileFileExists("elevation", "")) {
+			Console.print("Filling depth tree. This may take a bit for large landscapes . . .");
+			depthTree = new DepthTree();
+			depthTree.key = "";
+			fillDepthTree(depthTree, "", "elevation");
+			Console.println(" complete.");
+		}
 		if (depthTree == null) {
-			// assign after filling so tileExists method will work
-			if (tileExists("elevation", "")) {
-				Console.print("Filling depth tree. This may take a bit for large landscapes . . .");
-				DepthTree dTree = new DepthTree();
-				dTree.key = "";
-				fillDepthTree(dTree, "", "elevation");
-				depthTree = dTree;
-				Console.println(" complete.");
-				Thread thread = new Thread(new Runnable() {
-					@Override
-					public void run() {
-						Thread.yield();
-						try {
-							DepthTree.store(depthTree, depthFileName);
-						} catch (Exception e) {
-							e.printStackTrace();
-							Console.println("Error writing depth tree file.");
-							depthTree = null;
-						}
-					}
-				});
-				thread.start();
-			}
+			return (null);
 		}
-		return (depthTree);
+		final DepthIndex index = DepthIndex.create(depthTree);
+		final File file = indexFile;
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				Thread.yield();
+				try {
+					file.getParentFile().mkdirs();
+					index.store(file);
+				} catch (Exception e) {
+					e.printStackTrace();
+					Console.println("Error writing depth index file.");
+					file.delete();
+				}
+			}
+		});
+		thread.start();
+		return (index);
 	}
 
 }
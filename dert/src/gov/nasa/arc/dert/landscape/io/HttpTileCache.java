@@ -0,0 +1,427 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.landscape.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A persistent least-recently-used cache of files fetched by HttpTileSource.
+ * 
+ * Each entry is stored under the cache directory at its path relative to the
+ * landscape URL, with a ".hdr" file beside it holding the ETag, the
+ * Last-Modified value, and the time the entry was last validated with the
+ * server. The modification time of the data file records the last use, so the
+ * LRU order survives restarts. When the total size passes the limit the least
+ * recently used entries are deleted.
+ *
+ */
+public class HttpTileCache {
+
+	// Suffix of the header files
+	public static final String HEADER_SUFFIX = ".hdr";
+
+	// Don't update the last use time more often than this
+	private static final long TOUCH_INTERVAL = 60000;
+
+	/**
+	 * A cached file.
+	 */
+	public static class Entry {
+
+		// the contents
+		public byte[] data;
+
+		// validators from the server, may be null
+		public String eTag, lastModified;
+
+		// time of the last validation
+		public long validated;
+	}
+
+	// Cache directory
+	private File dir;
+
+	// Size limit in bytes
+	private long maxSize;
+
+	// Current size in bytes
+	private long size;
+
+	// Entry sizes in LRU order, least recently used first
+	private LinkedHashMap<String, Long> lruMap;
+
+	/**
+	 * Constructor. Existing entries are indexed by their last use time.
+	 * 
+	 * @param dir
+	 *            the cache directory, created if it doesn't exist
+	 * @param maxSize
+	 *            the size limit in bytes
+	 */
+	public HttpTileCache(File dir, long maxSize) {
+		this.dir = dir;
+		this.maxSize = maxSize;
+		lruMap = new LinkedHashMap<String, Long>(1024, 0.75f, true);
+		dir.mkdirs();
+		final ArrayList<File> fileList = new ArrayList<File>();
+		listFiles(dir, fileList);
+		Collections.sort(fileList, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				long t1 = f1.lastModified();
+				long t2 = f2.lastModified();
+				return ((t1 < t2) ? -1 : ((t1 == t2) ? 0 : 1));
+			}
+		});
+		int n = dir.getPath().length() + 1;
+		for (int i = 0; i < fileList.size(); ++i) {
+			File file = fileList.get(i);
+			long len = file.length();
+			lruMap.put(file.getPath().substring(n).replace(File.separatorChar, '/'), len);
+			size += len;
+		}
+		evict();
+	}
+
+	private void listFiles(File file, ArrayList<File> fileList) {
+		File[] list = file.listFiles();
+		if (list == null) {
+			return;
+		}
+		for (int i = 0; i < list.length; ++i) {
+			if (list[i].isDirectory()) {
+				listFiles(list[i], fileList);
+			} else if (list[i].getName().endsWith(".tmp")) {
+				// left by an interrupted write
+				list[i].delete();
+			} else if (!list[i].getName().endsWith(HEADER_SUFFIX)) {
+				fileList.add(list[i]);
+			}
+		}
+	}
+
+	/**
+	 * Get a cached file.
+	 * 
+	 * @param path
+	 *            the path relative to the landscape URL
+	 * @return the entry or null if the file is not cached
+	 */
+	public Entry get(String path) {
+		synchronized (this) {
+			if (lruMap.get(path) == null) {
+				return (null);
+			}
+		}
+		File file = new File(dir, path);
+		Entry entry = new Entry();
+		try {
+			entry.data = readFile(file);
+			readHeader(new File(dir, path + HEADER_SUFFIX), entry);
+		} catch (Exception e) {
+			// removed by another thread or damaged
+			remove(path);
+			return (null);
+		}
+		long now = System.currentTimeMillis();
+		if (now - file.lastModified() > TOUCH_INTERVAL) {
+			file.setLastModified(now);
+		}
+		return (entry);
+	}
+
+	/**
+	 * Determine if a file is cached.
+	 * 
+	 * @param path
+	 * @return
+	 */
+	public synchronized boolean contains(String path) {
+		return (lruMap.containsKey(path));
+	}
+
+	/**
+	 * Add a file to the cache, replacing any existing entry.
+	 * 
+	 * @param path
+	 * @param entry
+	 */
+	public void put(String path, Entry entry) {
+		File file = new File(dir, path);
+		file.getParentFile().mkdirs();
+		// write to a temporary file so readers never see a partial file
+		File tmpFile = new File(file.getPath() + "." + Thread.currentThread().getId() + ".tmp");
+		try {
+			FileOutputStream out = new FileOutputStream(tmpFile);
+			try {
+				out.write(entry.data);
+			} finally {
+				out.close();
+			}
+			file.delete();
+			if (!tmpFile.renameTo(file)) {
+				throw new IOException("Unable to rename " + tmpFile + ".");
+			}
+			// the header follows the data, so a reader may pair the new data with
+			// the old validators (the next request then fetches the tile again)
+			// but never the new validators with the old data
+			writeHeader(new File(dir, path + HEADER_SUFFIX), entry);
+		} catch (Exception e) {
+			System.out.println("Unable to cache " + path + ", see log.");
+			e.printStackTrace();
+			tmpFile.delete();
+			return;
+		}
+		synchronized (this) {
+			Long oldSize = lruMap.put(path, (long) entry.data.length);
+			if (oldSize != null) {
+				size -= oldSize;
+			}
+			size += entry.data.length;
+		}
+		evict();
+	}
+
+	/**
+	 * Record that a cached file was validated with the server.
+	 * 
+	 * @param path
+	 * @param entry
+	 *            the entry with its new validation time
+	 */
+	public void setValidated(String path, Entry entry) {
+		try {
+			writeHeader(new File(dir, path + HEADER_SUFFIX), entry);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Remove a file from the cache.
+	 * 
+	 * @param path
+	 */
+	public void remove(String path) {
+		synchronized (this) {
+			Long oldSize = lruMap.remove(path);
+			if (oldSize != null) {
+				size -= oldSize;
+			}
+		}
+		new File(dir, path).delete();
+		new File(dir, path + HEADER_SUFFIX).delete();
+	}
+
+	/**
+	 * Get the total size of the cached files.
+	 * 
+	 * @return the size in bytes
+	 */
+	public synchronized long getSize() {
+		return (size);
+	}
+
+	/**
+	 * Get the number of cached files.
+	 * 
+	 * @return
+	 */
+	public synchronized int getCount() {
+		return (lruMap.size());
+	}
+
+	/**
+	 * Delete least recently used files until the cache is within its limit.
+	 */
+	private void evict() {
+		ArrayList<String> evicted = new ArrayList<String>();
+		synchronized (this) {
+			Iterator<Map.Entry<String, Long>> iterator = lruMap.entrySet().iterator();
+			while ((size > maxSize) && iterator.hasNext()) {
+				Map.Entry<String, Long> entry = iterator.next();
+				size -= entry.getValue();
+				evicted.add(entry.getKey());
+				iterator.remove();
+			}
+		}
+		for (int i = 0; i < evicted.size(); ++i) {
+			new File(dir, evicted.get(i)).delete();
+			new File(dir, evicted.get(i) + HEADER_SUFFIX).delete();
+		}
+	}
+
+	private byte[] readFile(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			byte[] data = new byte[(int) file.length()];
+			int n = 0;
+			while (n < data.length) {
+				int count = in.read(data, n, data.length - n);
+				if (count < 0) {
+					throw new IOException("Unexpected end of " + file + ".");
+				}
+				n += count;
+			}
+			return (data);
+		} finally {
+			in.close();
+		}
+	}
+
+	private void readHeader(File file, Entry entry) throws IOException {
+		if (!file.exists()) {
+			return;
+		}
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			entry.eTag = emptyToNull(reader.readLine());
+			entry.lastModified = emptyToNull(reader.readLine());
+			String str = reader.readLine();
+			entry.validated = (str == null) ? 0 : Long.parseLong(str.trim());
+		} finally {
+			reader.close();
+		}
+	}
+
+	private void writeHeader(File file, Entry entry) throws IOException {
+		// write to a temporary file so readers never see a partial header
+		File tmpFile = new File(file.getPath() + "." + Thread.currentThread().getId() + ".tmp");
+		try {
+			Writer writer = new OutputStreamWriter(new FileOutputStream(tmpFile), "UTF-8");
+			try {
+				writer.write((entry.eTag == null ? "" : entry.eTag) + "\n");
+				writer.write((entry.lastModified == null ? "" : entry.lastModified) + "\n");
+				writer.write(entry.validated + "\n");
+			} finally {
+				writer.close();
+			}
+			file.delete();
+			if (!tmpFile.renameTo(file)) {
+				throw new IOException("Unable to rename " + tmpFile + ".");
+			}
+		} finally {
+			tmpFile.delete();
+		}
+	}
+
+	private String emptyToNull(String str) {
+		if ((str == null) || str.isEmpty()) {
+			return (null);
+		}
+		return (str);
+	}
+
+}
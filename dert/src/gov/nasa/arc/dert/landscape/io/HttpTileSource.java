@@ -0,0 +1,733 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.landscape.io;
+
+import gov.nasa.arc.dert.landscape.io.QuadTreeTile.DataType;
+import gov.nasa.arc.dert.landscape.io.QuadTreeTile.TileFormat;
+import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
+import gov.nasa.arc.dert.view.Console;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Provides an implementation of the TileSource interface for landscapes on a
+ * web server. The landscape directory is served as is, with tiles at
+ * layer/key/0.ext.
+ * 
+ * The layers are listed in dert/layers.txt (one layer directory per line) or,
+ * if that is missing, found in the server's directory listing. The depth index
+ * is read from dert/depthindex.bin, written by the layer factory, or
+ * dert/depthtree.txt. A landscape without either is not opened, the server is
+ * never probed tile by tile. Packed tile archives are not read over HTTP.
+ * 
+ * Everything fetched is kept in an HttpTileCache. Cached files are used
+ * without contacting the server until they are older than REVALIDATE_SECONDS,
+ * then they are revalidated with a conditional request. If the server can't
+ * be reached the cached copy is used.
+ * 
+ * Tile loads come from several loader threads at once. At most MAX_CONNECTIONS
+ * requests are in progress, concurrent requests for the same file share one
+ * fetch, and response bodies are always read to the end so the JDK keeps the
+ * connections alive for reuse.
+ *
+ */
+public class HttpTileSource
+	extends AbstractTileSource {
+
+	// Maximum number of requests in progress at once
+	public static int MAX_CONNECTIONS = 8;
+
+	// Size limit of the tile cache in megabytes
+	public static int CACHE_SIZE_MB = 1024;
+
+	// Cached files older than this are revalidated with the server, files
+	// found missing are asked for again after this time
+	public static int REVALIDATE_SECONDS = 3600;
+
+	// Maximum number of missing files remembered
+	public static int MAX_MISSING = 10000;
+
+	// Connect and read timeout
+	public static int TIMEOUT_MILLIS = 30000;
+
+	// Directory holding the tile caches, one subdirectory per landscape
+	public static String CACHE_PATH = System.getProperty("java.io.tmpdir") + "/derttilecache";
+
+	// Pattern for subdirectories in a directory listing
+	private static final Pattern HREF_PATTERN = Pattern.compile("href=\"([^\"/?#:]+)/\"", Pattern.CASE_INSENSITIVE);
+
+	// Landscape URL without the trailing slash
+	private String baseUrl;
+
+	// Basic authorization, sent after the server asks for it
+	private String authorization;
+	private volatile boolean sendAuthorization;
+
+	// Limits the number of requests in progress
+	private Semaphore connections;
+
+	// Local copies
+	private HttpTileCache cache;
+
+	// Files the server doesn't have and when that was found
+	private ConcurrentHashMap<String, Long> missing;
+
+	// Fetches in progress
+	private ConcurrentHashMap<String, FutureTask<byte[]>> fetching;
+
+	// Map of properties from layer.properties files
+	private HashMap<String, Properties> propertiesMap;
+
+	// Map of tile formats for each layer
+	private HashMap<String, TileFormat> formatMap;
+
+	// Statistics
+	private AtomicLong requestCount, notModifiedCount, cacheHitCount, bytesFetched;
+
+	/**
+	 * Constructor
+	 */
+	public HttpTileSource() {
+		requestCount = new AtomicLong();
+		notModifiedCount = new AtomicLong();
+		cacheHitCount = new AtomicLong();
+		bytesFetched = new AtomicLong();
+	}
+
+	/**
+	 * Open the cache for the landscape URL and see if the server has the
+	 * elevation layer.
+	 */
+	@Override
+	public boolean connect(String location, String userName, String password) {
+		baseUrl = location;
+		while (baseUrl.endsWith("/")) {
+			baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
+		}
+		if ((userName != null) && (password != null)) {
+			try {
+				authorization = "Basic " + Base64.getEncoder().encodeToString((userName + ":" + password).getBytes("UTF-8"));
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		// size of the JDK keep-alive cache for each server
+		if (System.getProperty("http.maxConnections") == null) {
+			System.setProperty("http.maxConnections", Integer.toString(Math.max(1, MAX_CONNECTIONS)));
+		}
+		connections = new Semaphore(Math.max(1, MAX_CONNECTIONS));
+		missing = new ConcurrentHashMap<String, Long>();
+		fetching = new ConcurrentHashMap<String, FutureTask<byte[]>>();
+		cache = new HttpTileCache(new File(CACHE_PATH, getCacheName(baseUrl)), CACHE_SIZE_MB * 1048576L);
+		try {
+			return (fetch("elevation/layer.properties") != null);
+		} catch (Exception e) {
+			Console.println("Unable to connect to " + baseUrl + ", see log.");
+			e.printStackTrace();
+			return (false);
+		}
+	}
+
+	/**
+	 * Get information about each layer.
+	 */
+	@Override
+	public String[][] getLayerInfo() {
+		propertiesMap = new HashMap<String, Properties>();
+		formatMap = new HashMap<String, TileFormat>();
+		String[] name = getLayerNames();
+		// Alphabetical order
+		Arrays.sort(name);
+
+		ArrayList<String[]> layers = new ArrayList<String[]>();
+		for (int i = 0; i < name.length; ++i) {
+			Properties prop = null;
+			try {
+				prop = loadProperties(name[i]);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			if (prop == null) {
+				Console.println("No properties found for layer " + name[i] + ", skipping.");
+				continue;
+			}
+			propertiesMap.put(name[i], prop);
+			formatMap.put(name[i], TileCodec.getTileFormat(prop));
+			String type = prop.getProperty("LayerType");
+			if (type != null) {
+				layers.add(new String[] { name[i], type, null });
+			}
+		}
+		String[][] layerInfo = new String[layers.size()][];
+		layers.toArray(layerInfo);
+		return (layerInfo);
+	}
+
+	/**
+	 * Get the layer directory names from dert/layers.txt or the directory
+	 * listing.
+	 */
+	private String[] getLayerNames() {
+		ArrayList<String> list = new ArrayList<String>();
+		try {
+			byte[] bytes = fetch("dert/layers.txt");
+			if (bytes != null) {
+				String[] line = new String(bytes, "UTF-8").split("\\r?\\n");
+				for (int i = 0; i < line.length; ++i) {
+					String str = line[i].trim();
+					if (!str.isEmpty() && !str.startsWith("#")) {
+						list.add(str);
+					}
+				}
+			} else {
+				bytes = fetchUncached("");
+				if (bytes != null) {
+					Matcher matcher = HREF_PATTERN.matcher(new String(bytes, "UTF-8"));
+					while (matcher.find()) {
+						String str = matcher.group(1);
+						if (str.startsWith(".") || str.equalsIgnoreCase("subpyramid") || str.equalsIgnoreCase("dert")
+							|| list.contains(str)) {
+							continue;
+						}
+						list.add(str);
+					}
+				}
+			}
+		} catch (Exception e) {
+			Console.println("Unable to list layers at " + baseUrl + ", see log.");
+			e.printStackTrace();
+		}
+		if (list.isEmpty()) {
+			list.add("elevation");
+		}
+		return (list.toArray(new String[list.size()]));
+	}
+
+	private Properties loadProperties(String layerName) throws IOException {
+		byte[] bytes = fetch(layerName + "/layer.properties");
+		if (bytes == null) {
+			return (null);
+		}
+		Properties prop = new Properties();
+		prop.load(new ByteArrayInputStream(bytes));
+		return (prop);
+	}
+
+	/**
+	 * Get the contents of a layer.properties file.
+	 */
+	@Override
+	public Properties getProperties(String layerName) {
+		return (propertiesMap.get(layerName));
+	}
+
+	/**
+	 * Get the landscape URL
+	 */
+	@Override
+	public String getLandscapePath() {
+		return (baseUrl);
+	}
+
+	/**
+	 * Get the tile format for a layer.
+	 * 
+	 * @param layerName
+	 * @return
+	 */
+	public TileFormat getTileFormat(String layerName) {
+		TileFormat format = null;
+		if (formatMap != null) {
+			format = formatMap.get(layerName);
+		}
+		if (format == null) {
+			return (TileFormat.PNG);
+		}
+		return (format);
+	}
+
+	private String tilePath(String layerName, String key) {
+		return (layerName + key + "/0" + TileCodec.getExtension(getTileFormat(layerName)));
+	}
+
+	/**
+	 * Determine if a tile exists.
+	 * 
+	 * @param key
+	 *            the tile id
+	 */
+	@Override
+	public boolean tileExists(String key) {
+		DepthIndex index = getDepthIndex();
+		if (index == null) {
+			return (false);
+		}
+		return (index.contains(key));
+	}
+
+	@Override
+	public QuadTreeTile getTile(String layerName, QuadKey qKey, DataType dataType) {
+		DepthIndex index = getDepthIndex();
+		if ((index != null) && !index.contains(qKey)) {
+			return (null);
+		}
+		String path = tilePath(layerName, qKey.toString());
+		try {
+			byte[] bytes = fetch(path);
+			if ((bytes == null) || (bytes.length == 0)) {
+				return (null);
+			}
+			if (getTileFormat(layerName) == TileFormat.PNG) {
+				BufferedImage bImage = ImageIO.read(new ByteArrayInputStream(bytes));
+				if (bImage == null) {
+					return (null);
+				}
+				return (FileSystemTileSource.createTile(bImage, qKey, dataType));
+			}
+			int[] dimensions = new int[3];
+			ByteBuffer bBuf = TileCodec.decode(ByteBuffer.wrap(bytes), dimensions);
+			if (bBuf == null) {
+				return (null);
+			}
+			return (FileSystemTileSource.createTile(bBuf, dimensions, qKey, dataType));
+		} catch (Exception e) {
+			System.out.println("Unable to read tile " + qKey + " for layer " + layerName + " from " + baseUrl
+				+ ", see log.");
+			e.printStackTrace();
+		}
+		return (null);
+	}
+
+	/**
+	 * Get the depth index from the server, falling back to the depth tree.
+	 */
+	@Override
+	protected DepthIndex loadDepthIndex() {
+		try {
+			byte[] bytes = fetch("dert/" + DepthIndex.FILE_NAME);
+			if (bytes != null) {
+				return (DepthIndex.load(ByteBuffer.wrap(bytes)));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.out.println("Error reading depth index file.");
+		}
+		DepthTree depthTree = null;
+		try {
+			byte[] bytes = fetch("dert/depthtree.txt");
+			if (bytes != null) {
+				depthTree = DepthTree.load(new ByteArrayInputStream(bytes));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.out.println("Error reading depth tree file.");
+			depthTree = null;
+		}
+		if (depthTree == null) {
+			Console.println("No depth index at " + baseUrl + ", rebuild the landscape with the layer factory.");
+			return (null);
+		}
+		return (DepthIndex.create(depthTree));
+	}
+
+	/**
+	 * Get a file from the cache or the server.
+	 * 
+	 * @param path
+	 *            the path relative to the landscape URL
+	 * @return the contents or null if the server doesn't have the file
+	 * @throws IOException
+	 */
+	public byte[] fetch(final String path) throws IOException {
+		if (isMissing(path)) {
+			return (null);
+		}
+		HttpTileCache.Entry entry = cache.get(path);
+		if ((entry != null) && (System.currentTimeMillis() - entry.validated < REVALIDATE_SECONDS * 1000L)) {
+			cacheHitCount.incrementAndGet();
+			return (entry.data);
+		}
+		// share the fetch with any other thread that wants this file
+		FutureTask<byte[]> task = new FutureTask<byte[]>(new Callable<byte[]>() {
+			@Override
+			public byte[] call() throws IOException {
+				return (fetchAndCache(path));
+			}
+		});
+		FutureTask<byte[]> current = fetching.putIfAbsent(path, task);
+		if (current == null) {
+			current = task;
+			try {
+				task.run();
+			} finally {
+				fetching.remove(path, task);
+			}
+		}
+		try {
+			return (current.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while fetching " + path + ".");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private byte[] fetchAndCache(String path) throws IOException {
+		HttpTileCache.Entry entry = cache.get(path);
+		HttpTileCache.Entry response = null;
+		try {
+			response = request(path, entry);
+		} catch (IOException e) {
+			if (entry != null) {
+				// server unreachable, use what we have
+				return (entry.data);
+			}
+			throw e;
+		}
+		if (response == null) {
+			setMissing(path);
+			if (entry != null) {
+				cache.remove(path);
+			}
+			return (null);
+		}
+		response.validated = System.currentTimeMillis();
+		if (response.data == null) {
+			// not modified
+			entry.validated = response.validated;
+			cache.setValidated(path, entry);
+			return (entry.data);
+		}
+		cache.put(path, response);
+		return (response.data);
+	}
+
+	/**
+	 * Get a file from the server without caching it.
+	 */
+	private byte[] fetchUncached(String path) throws IOException {
+		HttpTileCache.Entry response = request(path, null);
+		if (response == null) {
+			return (null);
+		}
+		return (response.data);
+	}
+
+	/**
+	 * Make a GET request to the server.
+	 * 
+	 * @param path
+	 *            the path relative to the landscape URL
+	 * @param cached
+	 *            the cached copy to revalidate, or null
+	 * @return null if the file was not found, an entry with null data if the
+	 *         cached copy is still valid, otherwise an entry with the contents
+	 * @throws IOException
+	 */
+	protected HttpTileCache.Entry request(String path, HttpTileCache.Entry cached) throws IOException {
+		try {
+			connections.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting to fetch " + path + ".");
+		}
+		try {
+			HttpURLConnection conn = openConnection(path, cached);
+			int code = conn.getResponseCode();
+			if ((code == HttpURLConnection.HTTP_UNAUTHORIZED) && (authorization != null) && !sendAuthorization) {
+				drain(conn);
+				sendAuthorization = true;
+				conn = openConnection(path, cached);
+				code = conn.getResponseCode();
+			}
+			requestCount.incrementAndGet();
+			if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				drain(conn);
+				notModifiedCount.incrementAndGet();
+				return (new HttpTileCache.Entry());
+			}
+			if (code == HttpURLConnection.HTTP_NOT_FOUND) {
+				drain(conn);
+				return (null);
+			}
+			if (code != HttpURLConnection.HTTP_OK) {
+				drain(conn);
+				throw new IOException("Server returned " + code + " for " + path + ".");
+			}
+			HttpTileCache.Entry entry = new HttpTileCache.Entry();
+			entry.eTag = conn.getHeaderField("ETag");
+			entry.lastModified = conn.getHeaderField("Last-Modified");
+			entry.data = readFully(conn.getInputStream(), conn.getContentLength());
+			bytesFetched.addAndGet(entry.data.length);
+			return (entry);
+		} finally {
+			connections.release();
+		}
+	}
+
+	private HttpURLConnection openConnection(String path, HttpTileCache.Entry cached) throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + "/" + path).openConnection();
+		conn.setRequestMethod("GET");
+		conn.setConnectTimeout(TIMEOUT_MILLIS);
+		conn.setReadTimeout(TIMEOUT_MILLIS);
+		conn.setUseCaches(false);
+		conn.setRequestProperty("Connection", "keep-alive");
+		if (sendAuthorization) {
+			conn.setRequestProperty("Authorization", authorization);
+		}
+		if (cached != null) {
+			if (cached.eTag != null) {
+				conn.setRequestProperty("If-None-Match", cached.eTag);
+			}
+			if (cached.lastModified != null) {
+				conn.setRequestProperty("If-Modified-Since", cached.lastModified);
+			}
+		}
+		return (conn);
+	}
+
+	private byte[] readFully(InputStream in, int length) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream((length > 0) ? length : 65536);
+			byte[] buf = new byte[65536];
+			int n = 0;
+			while ((n = in.read(buf)) >= 0) {
+				out.write(buf, 0, n);
+			}
+			return (out.toByteArray());
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Read and close the response body so the connection can be reused.
+	 */
+	private void drain(HttpURLConnection conn) {
+		try {
+			InputStream in = conn.getErrorStream();
+			if (in == null) {
+				in = conn.getInputStream();
+			}
+			if (in != null) {
+				readFully(in, 0);
+			}
+		} catch (IOException e) {
+			// nothing to reuse
+		}
+	}
+
+	// A missing file is asked for again once REVALIDATE_SECONDS have passed
+	private boolean isMissing(String path) {
+		Long time = missing.get(path);
+		if (time == null) {
+			return (false);
+		}
+		if (System.currentTimeMillis() - time < REVALIDATE_SECONDS * 1000L) {
+			return (true);
+		}
+		missing.remove(path, time);
+		return (false);
+	}
+
+	private void setMissing(String path) {
+		long now = System.currentTimeMillis();
+		if (missing.size() >= MAX_MISSING) {
+			// drop the expired entries, or all of them if that is not enough
+			Iterator<Long> iterator = missing.values().iterator();
+			while (iterator.hasNext()) {
+				if (now - iterator.next() >= REVALIDATE_SECONDS * 1000L) {
+					iterator.remove();
+				}
+			}
+			if (missing.size() >= MAX_MISSING) {
+				missing.clear();
+			}
+		}
+		missing.put(path, now);
+	}
+
+	/**
+	 * Get a name for the cache directory of a landscape URL.
+	 */
+	private static String getCacheName(String url) {
+		String name = url.replaceFirst("^[a-zA-Z]+://", "").replaceAll("[^a-zA-Z0-9._-]", "_");
+		if (name.length() > 64) {
+			name = name.substring(name.length() - 64);
+		}
+		return (name + "_" + Integer.toHexString(url.hashCode()));
+	}
+
+	/**
+	 * Get the tile cache.
+	 * 
+	 * @return
+	 */
+	public HttpTileCache getCache() {
+		return (cache);
+	}
+
+	/**
+	 * Get the number of requests made to the server.
+	 * 
+	 * @return
+	 */
+	public long getRequestCount() {
+		return (requestCount.get());
+	}
+
+	/**
+	 * Get the number of revalidations that found the cached copy unchanged.
+	 * 
+	 * @return
+	 */
+	public long getNotModifiedCount() {
+		return (notModifiedCount.get());
+	}
+
+	/**
+	 * Get the number of files served from the cache without a request.
+	 * 
+	 * @return
+	 */
+	public long getCacheHitCount() {
+		return (cacheHitCount.get());
+	}
+
+	/**
+	 * Get the number of bytes downloaded.
+	 * 
+	 * @return
+	 */
+	public long getBytesFetched() {
+		return (bytesFetched.get());
+	}
+
+}
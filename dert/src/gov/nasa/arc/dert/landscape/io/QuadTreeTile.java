@@ -121,6 +121,16 @@ public class QuadTreeTile {
 		Byte, UnsignedByte, Integer, UnsignedInteger, Short, UnsignedShort, Float, Double, Long, Unknown
 	}
 
+	/**
+	 * Designation of the on-disk format for a layer's tiles (TileFormat in
+	 * layer.properties). RAW and LZ tiles are read by TileCodec. The ordinal
+	 * is stored in tile archives, add new formats at the end.
+	 *
+	 */
+	public static enum TileFormat {
+		PNG, RAW, LZ
+	}
+
 	// The raster data
 	public ByteBuffer raster;
 
@@ -0,0 +1,441 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.landscape.io;
+
+import gov.nasa.arc.dert.landscape.io.QuadTreeTile.TileFormat;
+import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Provides a single file archive of all the tiles in a layer.
+ * 
+ * The archive is a 32 byte header, an index of tile entries sorted by packed
+ * QuadKey, and the tile files themselves, copied as they are from the layer
+ * directory. The header holds (all big-endian) an identifier, the archive
+ * version, the TileFormat ordinal, the number of tiles, and the offset to the
+ * tile data. Each index entry is the packed key (8 bytes), the tile offset (8
+ * bytes), and the tile length (4 bytes). Empty tiles have a length of 0.
+ * 
+ * The file is memory mapped in segments of up to SEGMENT_SIZE bytes and no
+ * tile crosses a segment boundary, so every tile can be handed out as a slice
+ * of a mapped segment.
+ *
+ */
+public class TileArchive {
+
+	// Archive identifier ("DRTA")
+	public static final int MAGIC = 0x44525441;
+
+	// Archive version
+	public static final int VERSION = 1;
+
+	// Name of the archive file in a layer directory
+	public static final String FILE_NAME = "tiles.dta";
+
+	// Sizes in bytes
+	public static final int HEADER_SIZE = 32;
+	public static final int INDEX_ENTRY_SIZE = 20;
+	public static final long SEGMENT_SIZE = 1l << 30;
+
+	// The archive file
+	private File file;
+	private RandomAccessFile raFile;
+	private FileChannel channel;
+	private long fileSize;
+
+	// Header fields
+	private TileFormat tileFormat;
+	private int tileCount;
+
+	// The mapped index
+	private MappedByteBuffer index;
+
+	// The mapped tile data segments, mapped on first use
+	private MappedByteBuffer[] segment;
+
+	/**
+	 * Constructor, opens the archive and maps the index.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public TileArchive(File file) throws IOException {
+		this.file = file;
+		raFile = new RandomAccessFile(file, "r");
+		try {
+			channel = raFile.getChannel();
+			fileSize = channel.size();
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC) {
+				throw new IOException("File " + file + " is not a tile archive.");
+			}
+			int version = header.getInt();
+			if (version > VERSION) {
+				throw new IOException("Tile archive " + file + " version " + version + " is not supported.");
+			}
+			int format = header.getInt();
+			if ((format < 0) || (format >= TileFormat.values().length)) {
+				throw new IOException("Tile archive " + file + " has unknown tile format " + format + ".");
+			}
+			tileFormat = TileFormat.values()[format];
+			tileCount = header.getInt();
+			index = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) tileCount * INDEX_ENTRY_SIZE);
+			segment = new MappedByteBuffer[(int) ((fileSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+		} catch (IOException e) {
+			raFile.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Get the format of the tiles in this archive.
+	 * 
+	 * @return
+	 */
+	public TileFormat getTileFormat() {
+		return (tileFormat);
+	}
+
+	/**
+	 * Get the number of tiles in this archive.
+	 * 
+	 * @return
+	 */
+	public int getTileCount() {
+		return (tileCount);
+	}
+
+	/**
+	 * Determine if a tile is in the archive.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	public boolean contains(QuadKey key) {
+		return (find(key.toLong()) >= 0);
+	}
+
+	/**
+	 * Get the contents of a tile file without copying.
+	 * 
+	 * @param key
+	 * @return a read-only slice of the archive, empty for an empty tile, or
+	 *         null if the tile is not in the archive
+	 * @throws IOException
+	 */
+	public ByteBuffer getTile(QuadKey key) throws IOException {
+		int i = find(key.toLong());
+		if (i < 0) {
+			return (null);
+		}
+		int p = i * INDEX_ENTRY_SIZE;
+		long offset = index.getLong(p + 8);
+		int length = index.getInt(p + 16);
+		if (length == 0) {
+			return (ByteBuffer.allocate(0));
+		}
+		ByteBuffer bBuf = getSegment((int) (offset / SEGMENT_SIZE)).duplicate();
+		int start = (int) (offset % SEGMENT_SIZE);
+		bBuf.limit(start + length);
+		bBuf.position(start);
+		return (bBuf.slice());
+	}
+
+	/**
+	 * Create the depth index for this layer from the archive index.
+	 * 
+	 * @return the depth index or null if the archive has no root tile
+	 */
+	public DepthIndex createDepthIndex() {
+		long[] key = new long[tileCount];
+		for (int i = 0; i < tileCount; ++i) {
+			key[i] = index.getLong(i * INDEX_ENTRY_SIZE);
+		}
+		return (DepthIndex.create(key));
+	}
+
+	/**
+	 * Close the archive. Tiles already handed out remain valid until they are
+	 * garbage collected.
+	 */
+	public void close() {
+		try {
+			raFile.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return (file.toString());
+	}
+
+	private int find(long key) {
+		int lo = 0;
+		int hi = tileCount - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			long k = index.getLong(mid * INDEX_ENTRY_SIZE);
+			if (k < key) {
+				lo = mid + 1;
+			} else if (k > key) {
+				hi = mid - 1;
+			} else {
+				return (mid);
+			}
+		}
+		return (-1);
+	}
+
+	private synchronized MappedByteBuffer getSegment(int i) throws IOException {
+		if (segment[i] == null) {
+			long start = i * SEGMENT_SIZE;
+			segment[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, fileSize - start));
+		}
+		return (segment[i]);
+	}
+
+	/**
+	 * Pack the tiles in a layer directory into an archive. The tile files are
+	 * copied as they are, so the archive has the same tile format as the layer.
+	 * 
+	 * @param layerDir
+	 *            the layer directory
+	 * @param tileFormat
+	 *            the format of the tiles in the layer directory
+	 * @param archiveFile
+	 *            the archive to create
+	 * @return the number of tiles written
+	 * @throws IOException
+	 *             if the layer directory has no root tile, in which case an
+	 *             existing archive is left as it is
+	 */
+	public static int write(File layerDir, TileFormat tileFormat, File archiveFile) throws IOException {
+		// collect the tile files
+		String tileName = "0" + TileCodec.getExtension(tileFormat);
+		final ArrayList<long[]> entry = new ArrayList<long[]>();
+		final ArrayList<File> tileFile = new ArrayList<File>();
+		collectTiles(layerDir, new QuadKey(), tileName, entry, tileFile);
+		if (entry.isEmpty()) {
+			throw new IOException("No tiles found in " + layerDir + ", the root tile " + tileName + " is missing.");
+		}
+		Integer[] order = new Integer[entry.size()];
+		for (int i = 0; i < order.length; ++i) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				long k1 = entry.get(i1)[0];
+				long k2 = entry.get(i2)[0];
+				return ((k1 < k2) ? -1 : ((k1 == k2) ? 0 : 1));
+			}
+		});
+
+		// lay out the tiles so none crosses a segment boundary
+		long offset = HEADER_SIZE + (long) order.length * INDEX_ENTRY_SIZE;
+		for (int i = 0; i < order.length; ++i) {
+			long[] e = entry.get(order[i]);
+			if ((e[2] > 0) && ((offset / SEGMENT_SIZE) != ((offset + e[2] - 1) / SEGMENT_SIZE))) {
+				offset = (offset / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+			}
+			e[1] = offset;
+			offset += e[2];
+		}
+
+		// write to a temporary file and replace the archive when complete
+		File tmpFile = new File(archiveFile.getPath() + ".tmp");
+		try {
+			writeArchive(tmpFile, tileFormat, order, entry, tileFile);
+			if (archiveFile.exists() && !archiveFile.delete()) {
+				throw new IOException("Unable to replace tile archive " + archiveFile + ".");
+			}
+			if (!tmpFile.renameTo(archiveFile)) {
+				throw new IOException("Unable to rename " + tmpFile + " to " + archiveFile + ".");
+			}
+		} finally {
+			// left only if something failed
+			tmpFile.delete();
+		}
+		return (order.length);
+	}
+
+	private static void writeArchive(File tmpFile, TileFormat tileFormat, Integer[] order, ArrayList<long[]> entry,
+		ArrayList<File> tileFile) throws IOException {
+		DataOutputStream oStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 65536));
+		try {
+			oStream.writeInt(MAGIC);
+			oStream.writeInt(VERSION);
+			oStream.writeInt(tileFormat.ordinal());
+			oStream.writeInt(order.length);
+			oStream.writeLong(HEADER_SIZE + (long) order.length * INDEX_ENTRY_SIZE);
+			oStream.writeLong(0);
+			for (int i = 0; i < order.length; ++i) {
+				long[] e = entry.get(order[i]);
+				oStream.writeLong(e[0]);
+				oStream.writeLong(e[1]);
+				oStream.writeInt((int) e[2]);
+			}
+			long position = HEADER_SIZE + (long) order.length * INDEX_ENTRY_SIZE;
+			byte[] buffer = new byte[65536];
+			for (int i = 0; i < order.length; ++i) {
+				long[] e = entry.get(order[i]);
+				for (; position < e[1]; ++position) {
+					oStream.write(0);
+				}
+				FileInputStream iStream = new FileInputStream(tileFile.get(order[i]));
+				try {
+					long count = 0;
+					int n = iStream.read(buffer);
+					while ((n > 0) && (count < e[2])) {
+						n = (int) Math.min(n, e[2] - count);
+						oStream.write(buffer, 0, n);
+						count += n;
+						n = iStream.read(buffer);
+					}
+					if (count != e[2]) {
+						throw new IOException("Tile file " + tileFile.get(order[i]) + " changed while packing.");
+					}
+				} finally {
+					iStream.close();
+				}
+				position += e[2];
+			}
+		} finally {
+			oStream.close();
+		}
+	}
+
+	private static void collectTiles(File dir, QuadKey key, String tileName, ArrayList<long[]> entry,
+		ArrayList<File> tileFile) throws IOException {
+		File file = new File(dir, tileName);
+		if (!file.exists()) {
+			return;
+		}
+		if (file.length() > Integer.MAX_VALUE) {
+			throw new IOException("Tile file " + file + " is too large.");
+		}
+		entry.add(new long[] { key.toLong(), 0, file.length() });
+		tileFile.add(file);
+		for (int i = 1; i <= 4; ++i) {
+			File child = new File(dir, Integer.toString(i));
+			if (child.isDirectory()) {
+				collectTiles(child, key.createChild(i), tileName, entry, tileFile);
+			}
+		}
+	}
+
+}
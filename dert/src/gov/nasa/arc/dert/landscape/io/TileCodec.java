@@ -0,0 +1,549 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.landscape.io;
+
+import gov.nasa.arc.dert.landscape.io.QuadTreeTile.TileFormat;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Reads and writes tiles in the binary RAW and LZ tile formats.
+ * 
+ * A tile file is a 24 byte header followed by the payload. The header holds
+ * (all big-endian) an identifier, the codec, the bytes per pixel, the tile
+ * width and height, the uncompressed length, and the payload length. The
+ * uncompressed data is exactly what is handed to QuadTreeTile: big-endian
+ * floats for elevation and field layers, BGRA bytes for color images, and
+ * luminance bytes for gray images. An empty tile is a zero length file.
+ * 
+ * The LZ codec is a byte oriented LZ77 block codec using the LZ4 block
+ * layout. Multi-byte pixels are split into byte planes before compression so
+ * that the slowly varying exponent and color bytes form long runs.
+ *
+ */
+public class TileCodec {
+
+	// Tile file identifier ("DRT1")
+	public static final int MAGIC = 0x44525431;
+
+	// Size of the tile file header in bytes
+	public static final int HEADER_SIZE = 24;
+
+	// Payload codecs
+	public static final byte CODEC_NONE = 0;
+	public static final byte CODEC_LZ = 1;
+
+	// LZ parameters
+	private static final int HASH_BITS = 14;
+	private static final int MIN_MATCH = 4;
+	private static final int MAX_OFFSET = 65535;
+	private static final int LAST_LITERALS = 5;
+	private static final int MATCH_LIMIT = 12;
+
+	/**
+	 * Get the tile format from the contents of a layer.properties file.
+	 * 
+	 * @param properties
+	 * @return the format, PNG if missing or unknown
+	 */
+	public static TileFormat getTileFormat(Properties properties) {
+		if (properties == null) {
+			return (TileFormat.PNG);
+		}
+		return (getTileFormat(properties.getProperty("TileFormat", "PNG")));
+	}
+
+	/**
+	 * Get the tile format from its name.
+	 * 
+	 * @param str
+	 * @return the format, PNG if unknown
+	 */
+	public static TileFormat getTileFormat(String str) {
+		str = str.trim().toUpperCase();
+		try {
+			return (TileFormat.valueOf(str));
+		} catch (Exception e) {
+			System.out.println("Unknown tile format " + str + ", using PNG.");
+			return (TileFormat.PNG);
+		}
+	}
+
+	/**
+	 * Get the tile file name extension for a format.
+	 * 
+	 * @param format
+	 * @return
+	 */
+	public static String getExtension(TileFormat format) {
+		if (format == TileFormat.PNG) {
+			return (".png");
+		}
+		return (".raw");
+	}
+
+	/**
+	 * Write a tile file.
+	 * 
+	 * @param file
+	 *            the destination file
+	 * @param data
+	 *            the uncompressed tile data, may be empty
+	 * @param width
+	 *            tile width in pixels
+	 * @param height
+	 *            tile height in pixels
+	 * @param bytesPerPixel
+	 * @param compress
+	 *            apply the LZ codec
+	 * @throws IOException
+	 */
+	public static void write(File file, byte[] data, int width, int height, int bytesPerPixel, boolean compress)
+		throws IOException {
+		file.getParentFile().mkdirs();
+		DataOutputStream oStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			// Empty tile
+			if (data.length == 0) {
+				return;
+			}
+			byte codec = CODEC_NONE;
+			byte[] payload = data;
+			int payloadLength = data.length;
+			if (compress) {
+				byte[] src = data;
+				if (bytesPerPixel > 1) {
+					src = new byte[data.length];
+					shuffle(data, src, bytesPerPixel);
+				}
+				byte[] dst = new byte[maxCompressedLength(data.length)];
+				int n = compress(src, data.length, dst);
+				// keep incompressible tiles uncompressed
+				if (n < data.length) {
+					codec = CODEC_LZ;
+					payload = dst;
+					payloadLength = n;
+				}
+			}
+			oStream.writeInt(MAGIC);
+			oStream.writeByte(codec);
+			oStream.writeByte(bytesPerPixel);
+			oStream.writeShort(0);
+			oStream.writeInt(width);
+			oStream.writeInt(height);
+			oStream.writeInt(data.length);
+			oStream.writeInt(payloadLength);
+			oStream.write(payload, 0, payloadLength);
+		} finally {
+			oStream.close();
+		}
+	}
+
+	/**
+	 * Read a tile file into a direct ByteBuffer.
+	 * 
+	 * @param file
+	 *            the tile file
+	 * @param dimensions
+	 *            returns the width, height, and bytes per pixel
+	 * @return the tile data, or null if the tile is empty
+	 * @throws IOException
+	 */
+	public static ByteBuffer read(File file, int[] dimensions) throws IOException {
+		FileInputStream iStream = new FileInputStream(file);
+		try {
+			FileChannel channel = iStream.getChannel();
+			if (channel.size() == 0) {
+				return (null);
+			}
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(channel, header);
+			header.flip();
+			int[] sizes = new int[2];
+			byte codec = readHeader(header, file.toString(), dimensions, sizes);
+
+			ByteBuffer bBuf = null;
+			if (codec == CODEC_NONE) {
+				bBuf = ByteBuffer.allocateDirect(sizes[0]);
+				readFully(channel, bBuf);
+			} else {
+				byte[] payload = new byte[sizes[1]];
+				readFully(channel, ByteBuffer.wrap(payload));
+				bBuf = ByteBuffer.allocateDirect(sizes[0]);
+				bBuf.put(decompress(payload, sizes[0], dimensions[2]));
+			}
+			bBuf.rewind();
+			return (bBuf);
+		} finally {
+			iStream.close();
+		}
+	}
+
+	/**
+	 * Decode a tile held in a buffer, such as a slice of a tile archive. An
+	 * uncompressed tile is returned as a slice of the buffer without copying.
+	 * 
+	 * @param tile
+	 *            the tile file contents from position to limit
+	 * @param dimensions
+	 *            returns the width, height, and bytes per pixel
+	 * @return the tile data, or null if the tile is empty
+	 * @throws IOException
+	 */
+	public static ByteBuffer decode(ByteBuffer tile, int[] dimensions) throws IOException {
+		if (tile.remaining() == 0) {
+			return (null);
+		}
+		ByteBuffer bBuf = tile.duplicate();
+		bBuf.order(ByteOrder.BIG_ENDIAN);
+		int[] sizes = new int[2];
+		byte codec = readHeader(bBuf, "buffer", dimensions, sizes);
+		if (codec == CODEC_NONE) {
+			bBuf.limit(bBuf.position() + sizes[0]);
+			return (bBuf.slice());
+		}
+		byte[] payload = new byte[sizes[1]];
+		bBuf.get(payload);
+		bBuf = ByteBuffer.allocateDirect(sizes[0]);
+		bBuf.put(decompress(payload, sizes[0], dimensions[2]));
+		bBuf.rewind();
+		return (bBuf);
+	}
+
+	private static byte readHeader(ByteBuffer header, String name, int[] dimensions, int[] sizes)
+		throws IOException {
+		if (header.getInt() != MAGIC) {
+			throw new IOException("Tile " + name + " is not in a tile file format.");
+		}
+		byte codec = header.get();
+		int bytesPerPixel = header.get();
+		header.getShort();
+		dimensions[0] = header.getInt();
+		dimensions[1] = header.getInt();
+		dimensions[2] = bytesPerPixel;
+		// uncompressed and payload lengths
+		sizes[0] = header.getInt();
+		sizes[1] = header.getInt();
+		if ((codec != CODEC_NONE) && (codec != CODEC_LZ)) {
+			throw new IOException("Unknown codec " + codec + " in tile " + name + ".");
+		}
+		return (codec);
+	}
+
+	private static byte[] decompress(byte[] payload, int length, int bytesPerPixel) {
+		byte[] data = new byte[length];
+		decompress(payload, payload.length, data);
+		if (bytesPerPixel > 1) {
+			byte[] tmp = new byte[length];
+			unshuffle(data, tmp, bytesPerPixel);
+			data = tmp;
+		}
+		return (data);
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer bBuf) throws IOException {
+		while (bBuf.hasRemaining()) {
+			if (channel.read(bBuf) < 0) {
+				throw new EOFException("Tile file is truncated.");
+			}
+		}
+	}
+
+	/**
+	 * Split pixels into byte planes.
+	 * 
+	 * @param src
+	 * @param dst
+	 * @param stride
+	 *            bytes per pixel
+	 */
+	public static void shuffle(byte[] src, byte[] dst, int stride) {
+		int n = src.length / stride;
+		int k = 0;
+		for (int b = 0; b < stride; ++b) {
+			for (int i = b; i < n * stride; i += stride) {
+				dst[k++] = src[i];
+			}
+		}
+		// trailing bytes that do not make a whole pixel
+		for (int i = n * stride; i < src.length; ++i) {
+			dst[k++] = src[i];
+		}
+	}
+
+	/**
+	 * Reassemble pixels from byte planes.
+	 * 
+	 * @param src
+	 * @param dst
+	 * @param stride
+	 *            bytes per pixel
+	 */
+	public static void unshuffle(byte[] src, byte[] dst, int stride) {
+		int n = src.length / stride;
+		int k = 0;
+		for (int b = 0; b < stride; ++b) {
+			for (int i = b; i < n * stride; i += stride) {
+				dst[i] = src[k++];
+			}
+		}
+		for (int i = n * stride; i < src.length; ++i) {
+			dst[i] = src[k++];
+		}
+	}
+
+	/**
+	 * Get the largest possible compressed size for a given input length.
+	 * 
+	 * @param length
+	 * @return
+	 */
+	public static int maxCompressedLength(int length) {
+		return (length + length / 255 + 16);
+	}
+
+	/**
+	 * Compress a byte array.
+	 * 
+	 * @param src
+	 *            the input
+	 * @param length
+	 *            the number of input bytes
+	 * @param dst
+	 *            the output, at least maxCompressedLength(length) long
+	 * @return the compressed length
+	 */
+	public static int compress(byte[] src, int length, byte[] dst) {
+		int[] table = new int[1 << HASH_BITS];
+		Arrays.fill(table, -1);
+		int anchor = 0;
+		int ip = 0;
+		int op = 0;
+		int limit = length - MATCH_LIMIT;
+		int matchLimit = length - LAST_LITERALS;
+		while (ip < limit) {
+			int seq = readInt(src, ip);
+			int h = (seq * -1640531535) >>> (32 - HASH_BITS);
+			int ref = table[h];
+			table[h] = ip;
+			if ((ref < 0) || (ip - ref > MAX_OFFSET) || (readInt(src, ref) != seq)) {
+				// skip faster through data that does not compress
+				ip += 1 + ((ip - anchor) >> 6);
+				continue;
+			}
+			// extend the match backward over pending literals
+			while ((ip > anchor) && (ref > 0) && (src[ip - 1] == src[ref - 1])) {
+				ip--;
+				ref--;
+			}
+			// and forward
+			int end = ip + MIN_MATCH;
+			int r = ref + MIN_MATCH;
+			while ((end < matchLimit) && (src[end] == src[r])) {
+				end++;
+				r++;
+			}
+			op = writeLiterals(dst, op, src, anchor, ip - anchor, end - ip - MIN_MATCH);
+			int offset = ip - ref;
+			dst[op++] = (byte) offset;
+			dst[op++] = (byte) (offset >>> 8);
+			op = writeLength(dst, op, end - ip - MIN_MATCH);
+			ip = end;
+			anchor = ip;
+		}
+		// last literals
+		op = writeLiterals(dst, op, src, anchor, length - anchor, 0);
+		return (op);
+	}
+
+	private static int writeLiterals(byte[] dst, int op, byte[] src, int start, int count, int matchLength) {
+		int token = (Math.min(count, 15) << 4) | Math.min(matchLength, 15);
+		dst[op++] = (byte) token;
+		op = writeLength(dst, op, count);
+		System.arraycopy(src, start, dst, op, count);
+		return (op + count);
+	}
+
+	private static int writeLength(byte[] dst, int op, int length) {
+		if (length < 15) {
+			return (op);
+		}
+		length -= 15;
+		while (length >= 255) {
+			dst[op++] = (byte) 255;
+			length -= 255;
+		}
+		dst[op++] = (byte) length;
+		return (op);
+	}
+
+	/**
+	 * Decompress a byte array.
+	 * 
+	 * @param src
+	 *            the compressed input
+	 * @param length
+	 *            the number of compressed bytes
+	 * @param dst
+	 *            the output, exactly the uncompressed length
+	 */
+	public static void decompress(byte[] src, int length, byte[] dst) {
+		int ip = 0;
+		int op = 0;
+		while (ip < length) {
+			int token = src[ip++] & 0xff;
+			int count = token >>> 4;
+			if (count == 15) {
+				int b;
+				do {
+					b = src[ip++] & 0xff;
+					count += b;
+				} while (b == 255);
+			}
+			System.arraycopy(src, ip, dst, op, count);
+			ip += count;
+			op += count;
+			if (ip >= length) {
+				break;
+			}
+			int offset = (src[ip++] & 0xff) | ((src[ip++] & 0xff) << 8);
+			count = token & 0x0f;
+			if (count == 15) {
+				int b;
+				do {
+					b = src[ip++] & 0xff;
+					count += b;
+				} while (b == 255);
+			}
+			count += MIN_MATCH;
+			int ref = op - offset;
+			if (offset >= count) {
+				System.arraycopy(dst, ref, dst, op, count);
+				op += count;
+			} else {
+				// overlapping copy repeats the last offset bytes
+				for (int i = 0; i < count; ++i) {
+					dst[op++] = dst[ref++];
+				}
+			}
+		}
+		if (op != dst.length) {
+			throw new IllegalStateException("Corrupt tile data, expected " + dst.length + " bytes, got " + op + ".");
+		}
+	}
+
+	private static int readInt(byte[] b, int i) {
+		return ((b[i] & 0xff) | ((b[i + 1] & 0xff) << 8) | ((b[i + 2] & 0xff) << 16) | ((b[i + 3] & 0xff) << 24));
+	}
+
+}
@@ -104,6 +104,7 @@ package gov.nasa.arc.dert.landscape.io;
 import gov.nasa.arc.dert.landscape.io.QuadTreeTile.DataType;
 import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
 
+import java.util.ArrayList;
 import java.util.Properties;
 
 /**
@@ -139,6 +140,14 @@ public interface TileSource {
 	 */
 	public boolean tileExists(String key);
 
+	/**
+	 * Given the tile key, return if it exists.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	public boolean tileExists(QuadKey key);
+
 	/**
 	 * Get a tile.
 	 * 
@@ -178,6 +187,40 @@ public interface TileSource {
 	 */
 	public QuadKey getKey(double x, double y, double worldWidth, double worldLength, int lvl);
 
+	/**
+	 * Given a coordinate and level, get the packed id (see QuadKey.toLong) of
+	 * the tile at that level without allocating a QuadKey
+	 * 
+	 * @param x
+	 *            , y the coordinate
+	 * @param worldWidth
+	 *            , worldLength the physical dimensions of the raster
+	 * @param lvl
+	 *            the level, or -1 for the highest level
+	 * @return the packed id or -1 if there are no tiles
+	 */
+	public long getPackedKey(double x, double y, double worldWidth, double worldLength, int lvl);
+
+	/**
+	 * Given a set of coordinates, group them by the id of the tile at the
+	 * highest level
+	 * 
+	 * @param xy
+	 *            the x,y coordinate pairs
+	 * @param n
+	 *            the number of coordinates
+	 * @param worldWidth
+	 *            , worldLength the physical dimensions of the raster
+	 * @param order
+	 *            returns the coordinate indices ordered by group
+	 * @param keyList
+	 *            returns the tile id of each group
+	 * @param endList
+	 *            returns the end of each group in order
+	 */
+	public void groupByKey(double[] xy, int n, double worldWidth, double worldLength, int[] order,
+		ArrayList<QuadKey> keyList, ArrayList<Integer> endList);
+
 	/**
 	 * Get the landscape path
 	 * 
@@ -101,15 +101,20 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 
 package gov.nasa.arc.dert.landscape.layer;
 
+import gov.nasa.arc.dert.landscape.HorizonMap;
 import gov.nasa.arc.dert.landscape.Landscape;
 import gov.nasa.arc.dert.landscape.io.QuadTreeTile;
 import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
 import gov.nasa.arc.dert.landscape.quadtree.QuadTreeMesh;
+import gov.nasa.arc.dert.lighting.Lighting;
+import gov.nasa.arc.dert.scene.World;
 import gov.nasa.arc.dert.util.ColorMap;
 import gov.nasa.arc.dert.util.ColorMapListener;
 import gov.nasa.arc.dert.util.MathUtil;
+import gov.nasa.arc.dert.view.Console;
 
 import java.nio.FloatBuffer;
+import java.util.Date;
 import java.util.Properties;
 
 import com.ardor3d.image.Texture;
@@ -122,7 +127,9 @@ import com.ardor3d.util.geom.BufferUtils;
 
 /**
  * A layer that provides derivatives of the height map as color maps.
- * Derivatives include elevation contour map, slope map, and aspect map. Colors
+ * Derivatives include elevation contour map, slope map, and aspect map.
+ * Illumination and insolation maps are computed from a HorizonMap for the sol
+ * containing the current time (or the lamp direction in lamp mode). Colors
  * are applied via a texture map color map. Texture coordinates determine which
  * part of the color map texture is applied at a given vertex in the landscape
  * mesh.
@@ -133,7 +140,7 @@ public class DerivativeLayer extends Layer implements ColorMapListener {
 	public static String defaultColorMapName;
 
 	public static enum DerivativeType {
-		Elevation, Slope, Aspect, Distance
+		Elevation, Slope, Aspect, Distance, Illumination, Insolation
 	}
 
 	// Type of derivative
@@ -155,6 +162,12 @@ public class DerivativeLayer extends Layer implements ColorMapListener {
 	private double maxDist;
 	private double terrainWidth, terrainLength;
 
+	// Illumination values (for illumination and insolation maps) and the
+	// light they were computed for
+	private HorizonMap horizonMap;
+	private volatile float[] illumination;
+	private String illuminationState;
+
 	/**
 	 * Constructor
 	 * 
@@ -210,6 +223,10 @@ public class DerivativeLayer extends Layer implements ColorMapListener {
 			initColormap();
 		}
 		
+		if (((type == DerivativeType.Illumination) || (type == DerivativeType.Insolation)) && !initIllumination()) {
+			return (null);
+		}
+		
 		Vector3 center = key.getTileCenter(terrainWidth, terrainLength);
 		createColorMapTextureCoords(mesh, layerInfo.layerNumber, center);
 		return (colorMapTexture);
@@ -236,7 +253,7 @@ public class DerivativeLayer extends Layer implements ColorMapListener {
 		return (type);
 	}
 
-	private void initColormap() {
+	private synchronized void initColormap() {
 		if (colorMap == null) {
 			switch (type) {
 			case Elevation:
@@ -259,6 +276,12 @@ public class DerivativeLayer extends Layer implements ColorMapListener {
 						layerInfo.gradient);
 				colorMap.addListener(this);
 				break;
+			case Illumination:
+			case Insolation:
+				colorMap = new ColorMap(layerInfo.colorMapName, layerName, 0, 1, layerInfo.minimum, layerInfo.maximum,
+					layerInfo.gradient);
+				colorMap.addListener(this);
+				break;
 			}
 			if (colorMap == null) {
 				throw new IllegalStateException("Error loading color map " + layerInfo.colorMapName + ".");
@@ -268,6 +291,86 @@ public class DerivativeLayer extends Layer implements ColorMapListener {
 		colorMapTexture = colorMap.getTexture();
 	}
 
+	private synchronized boolean initIllumination() {
+		if (illumination != null) {
+			return (true);
+		}
+		return (computeIllumination());
+	}
+
+	/**
+	 * Recompute the illumination if the light has moved since it was
+	 * computed, to another sol or to another lamp direction. Called off the
+	 * event thread by Landscape.illuminationChanged.
+	 * 
+	 * @return true if the values changed and loaded tiles need new texture
+	 *         coordinates
+	 */
+	public synchronized boolean updateIllumination() {
+		if ((illumination == null) || getIlluminationState().equals(illuminationState)) {
+			return (false);
+		}
+		return (computeIllumination());
+	}
+
+	/**
+	 * Recompute the texture coordinates of a loaded tile.
+	 * 
+	 * @param key
+	 * @param mesh
+	 */
+	public void updateTextureCoords(QuadKey key, QuadTreeMesh mesh) {
+		createColorMapTextureCoords(mesh, layerInfo.layerNumber, key.getTileCenter(terrainWidth, terrainLength));
+		mesh.markDirty(DirtyType.RenderState);
+	}
+
+	// Describe the light that the illumination depends on
+	private String getIlluminationState() {
+		Lighting lighting = World.getInstance().getLighting();
+		if (lighting.isLampMode()) {
+			return ("Lamp " + lighting.getLightDirection());
+		}
+		int[] lmst = lighting.dateToLMST(new Date(World.getInstance().getTime()));
+		return ("Sol " + lmst[0] + " " + lighting.getRefLoc());
+	}
+
+	/**
+	 * Compute the fraction of time lit, or the mean insolation, for each point
+	 * of the horizon map over the sol containing the current time. In lamp
+	 * mode the lamp direction is used, giving a shadow map.
+	 */
+	private boolean computeIllumination() {
+		illuminationState = getIlluminationState();
+		horizonMap = HorizonMap.getInstance(dataSource);
+		if (horizonMap == null) {
+			Console.println("Unable to compute horizons for " + layerName + ".");
+			return (false);
+		}
+		Lighting lighting = World.getInstance().getLighting();
+		double[] sunDir = null;
+		if (!lighting.isLampMode()) {
+			int[] lmst = lighting.dateToLMST(new Date(World.getInstance().getTime()));
+			long start = lighting.lmstToDate(lmst[0], 0, 0, 0).getTime();
+			long end = lighting.lmstToDate(lmst[0] + 1, 0, 0, 0).getTime();
+			sunDir = HorizonMap.getSunDirections(Landscape.getInstance().getGlobeName(), lighting.getRefLoc(), start,
+				end, HorizonMap.TIME_STEP_SECONDS * 1000L);
+			if (sunDir == null) {
+				Console.println("Unable to compute Sun positions for " + layerName + ", using the current light direction.");
+			}
+		}
+		if (sunDir == null) {
+			ReadOnlyVector3 dir = lighting.getLightDirection();
+			sunDir = new double[] { dir.getX(), dir.getY(), dir.getZ() };
+		}
+		HorizonMap.Illumination result = horizonMap.illuminate(sunDir, null);
+		if (type == DerivativeType.Illumination) {
+			illumination = result.litFraction;
+		} else {
+			illumination = result.insolation;
+		}
+		return (true);
+	}
+
 	/**
 	 * The color map changed.
 	 */
@@ -303,6 +406,7 @@ public class DerivativeLayer extends Layer implements ColorMapListener {
 		Vector3 vec = new Vector3();
 		int k = 0;
 		float pixelScale = Landscape.getInstance().getPixelScale();
+		float[] values = illumination;
 		for (int i = 0; i < dataSize; ++i) {
 			k = i * 2;
 			float alpha = colors.get(i * 4 + 3);
@@ -333,6 +437,16 @@ public class DerivativeLayer extends Layer implements ColorMapListener {
 					colorMap.getTextureCoordinate(z/pixelScale, coord);
 					texCoords.put(k, coord.getXf()).put(k + 1, coord.getYf());
 					break;
+				case Illumination:
+				case Insolation:
+					z = horizonMap.getValue(values, vertex.get(i * 3) + center.getX(), vertex.get(i * 3 + 1) + center.getY());
+					if (Float.isNaN(z)) {
+						texCoords.put(k, 0).put(k + 1, -1);
+					} else {
+						colorMap.getTextureCoordinate(z, coord);
+						texCoords.put(k, coord.getXf()).put(k + 1, coord.getYf());
+					}
+					break;
 				}
 			} else {
 				texCoords.put(k, 0).put(k + 1, -1);
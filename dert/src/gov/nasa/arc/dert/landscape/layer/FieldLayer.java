@@ -202,7 +202,7 @@ public class FieldLayer extends Layer implements ColorMapListener {
 		return (colorMap);
 	}
 
-	private void initColormap() {
+	private synchronized void initColormap() {
 		if (colorMap == null) {
 			colorMap = new ColorMap(layerInfo.colorMapName, layerName, dataSource.getMinimumValue()[0],
 				dataSource.getMaximumValue()[0], layerInfo.minimum, layerInfo.maximum, layerInfo.gradient);
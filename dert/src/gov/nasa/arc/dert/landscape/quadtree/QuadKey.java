@@ -101,14 +101,22 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 
 package gov.nasa.arc.dert.landscape.quadtree;
 
-import java.util.ArrayList;
-
 import com.ardor3d.math.Vector3;
 
-
+/**
+ * Key for a tile in the landscape quad tree. The key is packed into a long,
+ * the lowest 6 bits hold the level and each following pair of bits holds a
+ * quadrant (1-4 stored as 0-3), top level first. The string form (/1/2/3) is
+ * only needed for tile file paths.
+ *
+ */
 public class QuadKey {
 	
-	protected byte[] path;
+	// Maximum level that fits in a packed key (6 bits of level, 2 bits per quadrant)
+	public static final int MAX_PACKED_LEVEL = 29;
+	
+	// The packed key
+	protected final long packed;
 	
 	// Quadrants
 	//
@@ -120,78 +128,113 @@ public class QuadKey {
 	//
 	
 	public QuadKey() {
-		path = new byte[0];
+		packed = 0;
+	}
+	
+	public QuadKey(long packed) {
+		this.packed = packed;
 	}
 	
 	public QuadKey(byte[] path) {
-		this.path = path;
+		checkLevel(path.length);
+		long p = path.length;
+		for (int i=0; i<path.length; ++i)
+			p |= ((long)(path[i]-1)) << (6+2*i);
+		packed = p;
 	}
 	
 	public QuadKey(String str) {
-		String[] token = str.split("/");
-		if (token.length <= 1) {
-			path = new byte[0];
+		long p = 0;
+		int level = 0;
+		for (int i=0; i<str.length(); ++i) {
+			char c = str.charAt(i);
+			if (c == '/')
+				continue;
+			if ((c < '1') || (c > '4'))
+				throw new IllegalArgumentException("Invalid QuadKey "+str+".");
+			checkLevel(level+1);
+			p |= ((long)(c-'1')) << (6+2*level);
+			level ++;
 		}
-		else
-			path = new byte[token.length-1];
-		for (int i=1; i<token.length; ++i)
-			path[i-1] = (byte)Integer.parseInt(token[i]);
+		packed = p | level;
 	}
 	
-	public QuadKey(ArrayList<Byte> qList) {
-		path = new byte[qList.size()];
-		for (int i=0; i<path.length; ++i)
-			path[i] = qList.get(i);
+	private static void checkLevel(int level) {
+		if (level > MAX_PACKED_LEVEL)
+			throw new IllegalArgumentException("QuadKey level "+level+" exceeds maximum level of "+MAX_PACKED_LEVEL+".");
+	}
+	
+	/**
+	 * Get the packed key of a child.
+	 * 
+	 * @param packed
+	 * @param quadrant
+	 * @return
+	 */
+	public static long createChild(long packed, int quadrant) {
+		int level = (int)(packed & 63);
+		checkLevel(level+1);
+		return(((packed & ~63l) | ((long)(quadrant-1) << (6+2*level))) | (level+1));
 	}
 	
 	public QuadKey createChild(int quadrant) {
-		byte[] childPath = new byte[path.length+1];
-		System.arraycopy(path, 0, childPath, 0, path.length);
-		childPath[path.length] = (byte)quadrant;
-		return(new QuadKey(childPath));
+		return(new QuadKey(createChild(packed, quadrant)));
 	}
 	
 	@Override
 	public String toString() {
-		String str = "";
-		for (int i=0; i<path.length; ++i)
-			str += "/"+path[i];
-		return(str);
+		int level = getLevel();
+		StringBuilder str = new StringBuilder(level*2);
+		for (int i=0; i<level; ++i)
+			str.append('/').append(getPath(i));
+		return(str.toString());
 	}
 
-	public final int getLevel() {
-		return(path.length);
+	/**
+	 * Get this key packed into a long.
+	 * 
+	 * @return the packed key
+	 */
+	public final long toLong() {
+		return(packed);
 	}
-	
-	public final byte[] getPath() {
-		return(path);
+
+	public final int getLevel() {
+		return((int)(packed & 63));
 	}
 	
 	public final byte getPath(int i) {
-		return(path[i]);
+		return((byte)(((packed >>> (6+2*i)) & 3) + 1));
 	}
 	
 	public final int getQuadrant() {
-		if (path.length == 0)
+		int level = getLevel();
+		if (level == 0)
 			return(0);
-		return(path[path.length-1]);
+		return(getPath(level-1));
 	}
 	
 	public boolean equals(QuadKey that) {
-		if (this.path.length != that.path.length)
-			return(false);
-		int n = Math.min(path.length, that.path.length);
-		for (int i=0; i<n; ++i)
-			if (this.path[i] != that.path[i])
-				return(false);
-		return(true);
+		return((that != null) && (this.packed == that.packed));
+	}
+	
+	@Override
+	public boolean equals(Object that) {
+		return((that instanceof QuadKey) && (this.packed == ((QuadKey)that).packed));
+	}
+	
+	@Override
+	public int hashCode() {
+		return((int)(packed ^ (packed >>> 32)));
 	}
 	
 	public boolean startsWith(QuadKey that) {
-		for (int i=0; i<that.path.length; ++i)
-			if (this.path[i] != that.path[i])
-				return(false);
-		return(true);
+		int level = that.getLevel();
+		if (level > getLevel())
+			return(false);
+		// at the maximum level the quadrants fill the long and the shift would wrap
+		long mask = (level == MAX_PACKED_LEVEL) ? -1l : (1l << (6+2*level)) - 1;
+		return(((this.packed ^ that.packed) & mask & ~63l) == 0);
 	}
 	
 	public int findXAtLevel(int x, int level, int tileWidth) {
@@ -202,7 +245,8 @@ public class QuadKey {
 			return(-1);
 		for (int i=l-1; i>=level; i--) {
 			x /= 2;
-			if ((path[i] == 2) || (path[i] == 4))
+			int q = getPath(i);
+			if ((q == 2) || (q == 4))
 				x += tileWidth/2;
 		}
 		return(x);
@@ -216,7 +260,8 @@ public class QuadKey {
 			return(-1);
 		for (int i=l-1; i>=level; i--) {
 			y /= 2;
-			if ((path[i] == 3) || (path[i] == 4))
+			int q = getPath(i);
+			if ((q == 3) || (q == 4))
 				y += tileLength/2;
 		}
 		return(y);
@@ -230,14 +275,15 @@ public class QuadKey {
 	 */
 	public Vector3 getTileCenter(double terrainWidth, double terrainLength) {
 		Vector3 p = new Vector3();
-		if (path.length < 1)
+		int level = getLevel();
+		if (level < 1)
 			return (p);
 		double wid = terrainWidth/2;
 		double len = terrainLength/2;
-		for (int i=0; i<path.length; ++i) {
+		for (int i=0; i<level; ++i) {
 			wid /= 2;
 			len /= 2;
-			switch (path[i]) {
+			switch (getPath(i)) {
 			case 1:
 				p.set(p.getX() - wid, p.getY() + len, 0);
 				break;
@@ -0,0 +1,436 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.landscape.quadtree;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import com.ardor3d.math.Vector3;
+
+/**
+ * Provides a spatial index of scene elements aligned with the landscape
+ * QuadTree. Each element is kept in the cell of the deepest QuadKey whose tile
+ * contains its X,Y bounds, so the elements overlapping a QuadTree are found by
+ * following the QuadTree's key from the root and taking everything below it.
+ *
+ */
+public class QuadKeyIndex<T> {
+
+	// Deepest level of the index
+	public static int MAX_LEVEL = 12;
+
+	// Totals for all indices
+	private static long totalQueryCount, totalElementCount, totalResultCount;
+
+	// A cell of the index, one per QuadKey
+	private static class Cell<T> {
+		public ArrayList<Entry<T>> entryList;
+		public ArrayList<Cell<T>> child;
+		public int count;
+	}
+
+	// An element and its bounds
+	private static class Entry<T> {
+		public T element;
+		public double xMin, yMin, xMax, yMax;
+		public Cell<T> cell;
+	}
+
+	// Bounds of the root cell
+	private double xMin, yMin, xMax, yMax;
+
+	// The root cell
+	private Cell<T> root;
+
+	// Entry for each element
+	private IdentityHashMap<T, Entry<T>> entryMap;
+
+	// Counts
+	private long queryCount, resultCount;
+	private int lastResultCount;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param xMin
+	 * @param yMin
+	 * @param xMax
+	 * @param yMax
+	 *            the bounds of the landscape
+	 */
+	public QuadKeyIndex(double xMin, double yMin, double xMax, double yMax) {
+		this.xMin = xMin;
+		this.yMin = yMin;
+		this.xMax = xMax;
+		this.yMax = yMax;
+		root = new Cell<T>();
+		entryMap = new IdentityHashMap<T, Entry<T>>();
+	}
+
+	/**
+	 * Add an element or update its bounds.
+	 * 
+	 * @param element
+	 * @param x0
+	 * @param y0
+	 * @param x1
+	 * @param y1
+	 *            the X,Y bounds of the element
+	 */
+	public synchronized void put(T element, double x0, double y0, double x1, double y1) {
+		Entry<T> entry = entryMap.get(element);
+		if (entry == null) {
+			entry = new Entry<T>();
+			entry.element = element;
+			entryMap.put(element, entry);
+		} else {
+			removeEntry(entry);
+		}
+		entry.xMin = x0;
+		entry.yMin = y0;
+		entry.xMax = x1;
+		entry.yMax = y1;
+
+		// descend while the bounds are inside one quadrant
+		Cell<T> cell = root;
+		cell.count++;
+		double cx = (xMin + xMax) / 2;
+		double cy = (yMin + yMax) / 2;
+		double hw = (xMax - xMin) / 4;
+		double hl = (yMax - yMin) / 4;
+		for (int level = 0; level < MAX_LEVEL; ++level) {
+			int quadrant = 0;
+			if (y0 > cy) {
+				if (x1 < cx)
+					quadrant = 1;
+				else if (x0 > cx)
+					quadrant = 2;
+			} else if (y1 < cy) {
+				if (x1 < cx)
+					quadrant = 3;
+				else if (x0 > cx)
+					quadrant = 4;
+			}
+			if (quadrant == 0)
+				break;
+			cx += ((quadrant == 1) || (quadrant == 3)) ? -hw : hw;
+			cy += (quadrant <= 2) ? hl : -hl;
+			hw /= 2;
+			hl /= 2;
+			if (cell.child == null)
+				cell.child = newCells();
+			if (cell.child.get(quadrant - 1) == null)
+				cell.child.set(quadrant - 1, new Cell<T>());
+			cell = cell.child.get(quadrant - 1);
+			cell.count++;
+		}
+		if (cell.entryList == null)
+			cell.entryList = new ArrayList<Entry<T>>(4);
+		cell.entryList.add(entry);
+		entry.cell = cell;
+	}
+
+	/**
+	 * Add a point element or update its location.
+	 * 
+	 * @param element
+	 * @param x
+	 * @param y
+	 */
+	public void put(T element, double x, double y) {
+		put(element, x, y, x, y);
+	}
+
+	/**
+	 * Remove an element.
+	 * 
+	 * @param element
+	 */
+	public synchronized void remove(T element) {
+		Entry<T> entry = entryMap.remove(element);
+		if (entry != null)
+			removeEntry(entry);
+	}
+
+	/**
+	 * Remove all elements.
+	 */
+	public synchronized void clear() {
+		root = new Cell<T>();
+		entryMap.clear();
+	}
+
+	/**
+	 * Get the number of elements.
+	 * 
+	 * @return
+	 */
+	public synchronized int size() {
+		return (entryMap.size());
+	}
+
+	/**
+	 * Find the elements whose bounds overlap a QuadTree.
+	 * 
+	 * @param quadTree
+	 * @param list
+	 *            elements are added to this list
+	 * @return the number of elements found
+	 */
+	public int getElements(QuadTree quadTree, List<T> list) {
+		Vector3[] corner = quadTree.getCornerPoints();
+		return (getElements(quadTree.getKey(), corner[0].getX(), corner[0].getY(), corner[2].getX(), corner[2].getY(),
+			list));
+	}
+
+	/**
+	 * Find the elements whose bounds overlap a tile.
+	 * 
+	 * @param key
+	 *            the tile key
+	 * @param x0
+	 * @param y0
+	 * @param x1
+	 * @param y1
+	 *            the tile bounds
+	 * @param list
+	 *            elements are added to this list
+	 * @return the number of elements found
+	 */
+	public synchronized int getElements(QuadKey key, double x0, double y0, double x1, double y1, List<T> list) {
+		int n = list.size();
+		Cell<T> cell = root;
+		int level = key.getLevel();
+		for (int i = 0; (i < level) && (cell != null); ++i) {
+			// elements in the cells above the tile may overlap it
+			addOverlapping(cell.entryList, x0, y0, x1, y1, list);
+			if (cell.child == null)
+				cell = null;
+			else
+				cell = cell.child.get(key.getPath(i) - 1);
+		}
+		// elements in the cells below the tile are inside it
+		if (cell != null)
+			addAll(cell, x0, y0, x1, y1, list);
+		n = list.size() - n;
+		queryCount++;
+		resultCount += n;
+		lastResultCount = n;
+		synchronized (QuadKeyIndex.class) {
+			totalQueryCount++;
+			totalElementCount += entryMap.size();
+			totalResultCount += n;
+		}
+		return (n);
+	}
+
+	/**
+	 * Get the number of queries of this index.
+	 * 
+	 * @return
+	 */
+	public synchronized long getQueryCount() {
+		return (queryCount);
+	}
+
+	/**
+	 * Get the number of elements returned by all queries of this index.
+	 * 
+	 * @return
+	 */
+	public synchronized long getResultCount() {
+		return (resultCount);
+	}
+
+	/**
+	 * Get the number of elements returned by the last query of this index.
+	 * 
+	 * @return
+	 */
+	public synchronized int getLastResultCount() {
+		return (lastResultCount);
+	}
+
+	/**
+	 * Get the number of queries of all indices.
+	 * 
+	 * @return
+	 */
+	public static synchronized long getTotalQueryCount() {
+		return (totalQueryCount);
+	}
+
+	/**
+	 * Get the number of elements that were in the indices that were queried,
+	 * summed over all queries. This is the number of elements that would have
+	 * been visited without an index.
+	 * 
+	 * @return
+	 */
+	public static synchronized long getTotalElementCount() {
+		return (totalElementCount);
+	}
+
+	/**
+	 * Get the number of elements returned by all queries of all indices.
+	 * 
+	 * @return
+	 */
+	public static synchronized long getTotalResultCount() {
+		return (totalResultCount);
+	}
+
+	private void addOverlapping(ArrayList<Entry<T>> entryList, double x0, double y0, double x1, double y1, List<T> list) {
+		if (entryList == null)
+			return;
+		for (int i = 0; i < entryList.size(); ++i) {
+			Entry<T> entry = entryList.get(i);
+			if ((entry.xMax >= x0) && (entry.xMin <= x1) && (entry.yMax >= y0) && (entry.yMin <= y1))
+				list.add(entry.element);
+		}
+	}
+
+	private void addAll(Cell<T> cell, double x0, double y0, double x1, double y1, List<T> list) {
+		addOverlapping(cell.entryList, x0, y0, x1, y1, list);
+		if (cell.child != null) {
+			for (int i = 0; i < cell.child.size(); ++i) {
+				if (cell.child.get(i) != null)
+					addAll(cell.child.get(i), x0, y0, x1, y1, list);
+			}
+		}
+	}
+
+	private void removeEntry(Entry<T> entry) {
+		entry.cell.entryList.remove(entry);
+		// update the counts along the path and prune empty cells
+		Cell<T> cell = root;
+		cell.count--;
+		double cx = (xMin + xMax) / 2;
+		double cy = (yMin + yMax) / 2;
+		double hw = (xMax - xMin) / 4;
+		double hl = (yMax - yMin) / 4;
+		while (cell != entry.cell) {
+			int quadrant = (entry.yMin > cy) ? ((entry.xMax < cx) ? 1 : 2) : ((entry.xMax < cx) ? 3 : 4);
+			cx += ((quadrant == 1) || (quadrant == 3)) ? -hw : hw;
+			cy += (quadrant <= 2) ? hl : -hl;
+			hw /= 2;
+			hl /= 2;
+			Cell<T> next = cell.child.get(quadrant - 1);
+			next.count--;
+			if (next.count == 0) {
+				cell.child.set(quadrant - 1, null);
+				break;
+			}
+			cell = next;
+		}
+		entry.cell = null;
+	}
+
+	private ArrayList<Cell<T>> newCells() {
+		ArrayList<Cell<T>> cells = new ArrayList<Cell<T>>(4);
+		for (int i = 0; i < 4; ++i)
+			cells.add(null);
+		return (cells);
+	}
+
+}
@@ -118,8 +118,9 @@ import com.ardor3d.scenegraph.Node;
  * contains a mesh that is displayed in the landscape, and a pointer to 4
  * child QuadTrees. When the QuadTree is split, the mesh is detached and the
  * children are attached. When the QuadTree is merged, the children are detached
- * and the mesh is re-attached. Each time a change occurs the meshes are stitched
- * together with their neighbors using a set of stored edge vertices and normals.
+ * and the mesh is re-attached. Each time a change occurs the meshes next to the
+ * change are stitched together with their neighbors using a set of stored edge
+ * vertices and normals.
  * A set of corner points is maintained to aid in splitting and merging.
  *
  */
@@ -140,21 +141,22 @@ public class QuadTree
 	// This quad tree is in use
 	public boolean inUse;
 
-	// Last time this quad tree was pulled from the cache
-	protected long timestamp;
-
 	// The mesh that will be rendered
-	protected QuadTreeMesh mesh;
+	protected volatile QuadTreeMesh mesh;
 
 	// This quad tree is at the highest resolution
 	protected boolean highestLevel;
 
-	// The next level of quad trees
-	protected QuadTree[] child;
+	// The next level of quad trees, replaced as a whole on the render thread
+	// and read once per call by the elevation lookups on other threads
+	protected volatile QuadTree[] child;
 
 	// Sides of the quad tree that need stitching
 	private boolean[] dirty = new boolean[Side.values().length];
 
+	// This quad tree is in the factory's stitch list
+	boolean stitchPending;
+
 	// The quad tree's neighbors
 	private QuadTree left, top, right, bottom;
 
@@ -178,6 +180,18 @@ public class QuadTree
 	// List to hold neighbors during stitching
 	protected ArrayList<QuadTree> neighborList = new ArrayList<QuadTree>();
 	
+	// Load request state, guarded by the TileLoader
+	double loadPriority;
+	long loadFrame;
+	boolean loadPending;
+	int loadIndex = -1;
+	
+	// Held while the contents are loaded so only one thread loads them
+	final Object loadLock = new Object();
+	
+	// Evicted from the cache, a mesh loaded after this is dropped
+	private boolean disposed;
+	
 
 	/**
 	 * Constructor
@@ -230,8 +244,12 @@ public class QuadTree
 	 * Set the mesh for this QuadTree
 	 * 
 	 * @param mesh
+	 * @return false if the QuadTree was already loaded or has been disposed
 	 */
-	public synchronized void setMesh(QuadTreeMesh mesh, double minZ) {
+	public synchronized boolean setMesh(QuadTreeMesh mesh, double minZ) {
+		// already loaded by another thread or evicted while loading
+		if ((this.mesh != null) || disposed)
+			return(false);
 		attachChild(mesh);
 		updateGeometricState(0);
 		int tileWidth = mesh.getTileWidth();
@@ -257,6 +275,7 @@ public class QuadTree
 			centerPoint.setZ(vertexBuffer.get((tWidth * tileLength / 2 + tileWidth / 2) * 3 + 2) - minZ);
 		}
 		this.mesh = mesh;
+		return(true);
 	}
 
 	/**
@@ -264,7 +283,7 @@ public class QuadTree
 	 * 
 	 * @return
 	 */
-	public synchronized QuadTreeMesh getMesh() {
+	public QuadTreeMesh getMesh() {
 		return (mesh);
 	}
 	
@@ -317,26 +336,30 @@ public class QuadTree
 		setDirty(Side.Top, (top != null));
 	}
 	
-	private void stitch(Side side, QuadTree neighbor) {
+	private int stitch(Side side, QuadTree neighbor) {
 		if (getMesh().isEmpty()) {
 			Arrays.fill(dirty, false);
-			return;
+			return(0);
 		}
 		if (neighbor.getMesh().isEmpty()) {
 			Arrays.fill(neighbor.dirty, false);
 			setDirty(side, false);
-			return;
+			return(0);
 		}
+		int count = 0;
 		neighborList.clear();
 		getNeighbors(side, neighbor, quadKey, neighborList);
 		for (int i=0; i<neighborList.size(); ++i) {
 			neighbor = neighborList.get(i);
 			if (neighbor.getMesh().isEmpty())
 				Arrays.fill(neighbor.dirty, false);
-			else
+			else {
 				doStitch(side, neighbor);
+				count ++;
+			}
 		}
 		setDirty(side, false);
+		return(count);
 	}
 
 	/**
@@ -441,6 +464,15 @@ public class QuadTree
 	
 	private void setDirty(Side side, boolean val) {
 		dirty[side.ordinal()] = val;
+		// only QuadTrees next to a split or merge get dirty, list them so the
+		// rest of the tree is not visited when stitching
+		if (val && !stitchPending) {
+			QuadTreeFactory factory = QuadTreeFactory.getInstance();
+			if (factory != null) {
+				stitchPending = true;
+				factory.addToStitchList(this);
+			}
+		}
 	}
 	
 	private boolean isDirty(Side side) {
@@ -450,14 +482,15 @@ public class QuadTree
 	/**
 	 * Splitting method.  If not at the highest level already, get the children of this QuadTree
 	 * from the cache. They are only returned if they are ready. If they are set them. 
+	 * @param priority the importance of loading the children if they are not ready
 	 * @return true if children are set
 	 */
-	private boolean split() {
+	private boolean split(double priority) {
 		if (!highestLevel) {
 			QuadTreeFactory factory = QuadTreeFactory.getInstance();
 			highestLevel = !factory.childrenExist(quadKey);
 			if (!highestLevel) {
-				QuadTree[] child = factory.getQuadTreeChildren(quadKey, this, false);
+				QuadTree[] child = factory.getQuadTreeChildren(quadKey, this, false, priority);
 				if (child != null) {
 					setChildren(child);
 					return(true);
@@ -493,9 +526,12 @@ public class QuadTree
 	 * return true if children are detached
 	 */
 	private boolean clearChildren() {
+		QuadTree[] child = this.child;
 		if (child == null) {
 			return(false);
 		}
+		// detach the array before taking it apart, lookups that already have it keep whole children
+		this.child = null;
 		
 		for (int i = 0; i < child.length; ++i) {
 			child[i].clearChildren();
@@ -503,9 +539,12 @@ public class QuadTree
 			detachChild(child[i]);
 			child[i].inUse = false;
 			Arrays.fill(child[i].dirty, false);
-			child[i] = null;
+			// a detached QuadTree is not stitched
+			if (child[i].stitchPending) {
+				child[i].stitchPending = false;
+				QuadTreeFactory.getInstance().removeFromStitchList(child[i]);
+			}
 		}
-		child = null;
 		attachChild(mesh);
 		setDirty(Side.Left, (left != null));
 		setDirty(Side.Right, (right != null));
@@ -515,22 +554,24 @@ public class QuadTree
 	}
 
 	/**
-	 * Traverse the quad tree recursively to stitch all dirty sides.
+	 * Stitch the dirty sides of this QuadTree to its neighbors. Called by
+	 * QuadTreeFactory.stitch for the QuadTrees in the stitch list.
+	 * 
+	 * @return the number of edges stitched
 	 */
-	public void stitch() {
+	int stitch() {
 		if (child != null)
-			for (int i=0; i<child.length; ++i)
-				child[i].stitch();
-		else {
-			if (isDirty(Side.Left) && (left != null))
-				stitch(Side.Left, left);
-			if (isDirty(Side.Right) && (right != null))
-				stitch(Side.Right, right);
-			if (isDirty(Side.Bottom) && (bottom != null))
-				stitch(Side.Bottom, bottom);
-			if (isDirty(Side.Top) && (top != null))
-				stitch(Side.Top, top);
-		}
+			return(0);
+		int count = 0;
+		if (isDirty(Side.Left) && (left != null))
+			count += stitch(Side.Left, left);
+		if (isDirty(Side.Right) && (right != null))
+			count += stitch(Side.Right, right);
+		if (isDirty(Side.Bottom) && (bottom != null))
+			count += stitch(Side.Bottom, bottom);
+		if (isDirty(Side.Top) && (top != null))
+			count += stitch(Side.Top, top);
+		return(count);
 	}
 
 	/**
@@ -609,7 +650,9 @@ public class QuadTree
 		else if (pixSize <= pixelWidth / 2) {
 			// only split if we haven't already
 			if (child == null) {
-				changed = split();
+				// priority is the screen space error, how much coarser this tile is than needed,
+				// reduced with distance from the camera
+				changed = split(TileLoader.getPriority(pixelWidth / pixSize, minDist, camLoc.distance(lookAt)));
 //				System.err.println("QuadTree.update split "+getName()+" "+changed);
 			} else {
 				for (int i = 0; i < child.length; ++i) {
@@ -684,7 +727,8 @@ public class QuadTree
 	/**
 	 * Dispose of any resources
 	 */
-	public void dispose() {
+	public synchronized void dispose() {
+		disposed = true;
 		inUse = false;
 		if (mesh != null)
 			mesh.dispose();
@@ -717,6 +761,7 @@ public class QuadTree
 	 * @return NaN if outside this QuadTree
 	 */
 	public float getElevation(double x, double y) {
+		QuadTree[] child = this.child;
 		if (child != null) {
 			for (int i = 0; i < child.length; ++i) {
 				if (child[i].contains(x, y)) {
@@ -724,11 +769,62 @@ public class QuadTree
 				}
 			}
 		} else {
-			return (getMesh().getElevationBilinear(x - cornerPoint[0].getX(), y - cornerPoint[0].getY()));
+			// the mesh is gone if this QuadTree was disposed during the lookup
+			QuadTreeMesh mesh = this.mesh;
+			if (mesh != null)
+				return (mesh.getElevationBilinear(x - cornerPoint[0].getX(), y - cornerPoint[0].getY()));
 		}
 		return (Float.NaN);
 	}
 
+	/**
+	 * Get the elevations at a set of coordinates using bilinear interpolation.
+	 * The coordinates are divided among the children so each leaf is visited
+	 * once for all of the coordinates that fall in it.
+	 * 
+	 * @param xy
+	 *            x,y coordinate pairs
+	 * @param index
+	 *            the coordinates to look up, reordered by child
+	 * @param start
+	 *            first entry in index
+	 * @param end
+	 *            last entry in index (exclusive)
+	 * @param elev
+	 *            returns the elevation for each coordinate, NaN if outside
+	 *            this QuadTree
+	 */
+	public void getElevations(double[] xy, int[] index, int start, int end, double[] elev) {
+		QuadTree[] child = this.child;
+		if (child != null) {
+			for (int i = 0; i < child.length; ++i) {
+				// move the coordinates in this child to the front
+				int mid = start;
+				for (int j = start; j < end; ++j) {
+					int p = index[j];
+					if (child[i].contains(xy[p * 2], xy[p * 2 + 1])) {
+						index[j] = index[mid];
+						index[mid++] = p;
+					}
+				}
+				if (mid > start)
+					child[i].getElevations(xy, index, start, mid, elev);
+				start = mid;
+			}
+			for (int j = start; j < end; ++j) {
+				elev[index[j]] = Float.NaN;
+			}
+		} else {
+			QuadTreeMesh mesh = this.mesh;
+			double x0 = cornerPoint[0].getX();
+			double y0 = cornerPoint[0].getY();
+			for (int j = start; j < end; ++j) {
+				int p = index[j];
+				elev[p] = (mesh == null) ? Float.NaN : mesh.getElevationBilinear(xy[p * 2] - x0, xy[p * 2 + 1] - y0);
+			}
+		}
+	}
+
 	/**
 	 * Get the elevation using nearest neighbor interpolation.
 	 * 
@@ -737,6 +833,7 @@ public class QuadTree
 	 * @return NaN, if outside this QuadTree
 	 */
 	public float getElevationNearestNeighbor(double x, double y) {
+		QuadTree[] child = this.child;
 		if (child != null) {
 			for (int i = 0; i < child.length; ++i) {
 				if (child[i].contains(x, y)) {
@@ -744,7 +841,9 @@ public class QuadTree
 				}
 			}
 		} else {
-			return (mesh.getElevationNearestNeighbor(x - cornerPoint[0].getX(), y - cornerPoint[0].getY()));
+			QuadTreeMesh mesh = this.mesh;
+			if (mesh != null)
+				return (mesh.getElevationNearestNeighbor(x - cornerPoint[0].getX(), y - cornerPoint[0].getY()));
 		}
 		return (Float.NaN);
 	}
@@ -758,6 +857,7 @@ public class QuadTree
 	 * @return
 	 */
 	public boolean getNormal(double x, double y, Vector3 store) {
+		QuadTree[] child = this.child;
 		if (child != null) {
 			for (int i = 0; i < child.length; ++i) {
 				if (child[i].contains(x, y)) {
@@ -765,8 +865,10 @@ public class QuadTree
 				}
 			}
 		} else {
-			return (getMesh().getNormal((int) Math.floor((x - cornerPoint[0].getX()) / pixelWidth),
-					getMesh().getTileLength()-(int)Math.floor((y - cornerPoint[0].getY()) / pixelLength), store));
+			QuadTreeMesh mesh = this.mesh;
+			if (mesh != null)
+				return (mesh.getNormal((int) Math.floor((x - cornerPoint[0].getX()) / pixelWidth),
+					mesh.getTileLength()-(int)Math.floor((y - cornerPoint[0].getY()) / pixelLength), store));
 		}
 		return (false);
 	}
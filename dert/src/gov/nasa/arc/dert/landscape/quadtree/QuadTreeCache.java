@@ -101,125 +101,355 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 
 package gov.nasa.arc.dert.landscape.quadtree;
 
-import java.util.HashMap;
+import gov.nasa.arc.dert.landscape.layer.DerivativeLayer;
 
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cache of QuadTree tiles. Tiles are keyed by the packed form of their QuadKey
+ * and kept in a hash table with an access ordered list running through the entries.
+ * The least recently used tile that is not in use is evicted when the cache is full.
+ * <p>
+ * Lookups do not take the lock. The hash chains are never modified once published
+ * and a hit only stamps the entry with the current clock. Stamped entries are moved
+ * to the end of the access ordered list when they come up for eviction, so the
+ * eviction order is approximately least recently used.
+ *
+ */
 public class QuadTreeCache {
 
 	// The maximum amount of memory for the cache (in bytes)
 	public static long MAX_CACHE_MEMORY = 400000000l;
 	public static int MAX_CLEANUP_COUNT = 1000;
+	
+	// Initial number of hash table buckets (must be a power of 2)
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * Notified with the cache locked each time a QuadTree is evicted, before it
+	 * is disposed.
+	 *
+	 */
+	public static interface EvictionListener {
+		public void quadTreeEvicted(QuadTree quadTree);
+	}
+
+	/**
+	 * Hash chain node. Nodes are immutable so a chain may be walked without locking.
+	 */
+	private static class Node {
+		final long key;
+		final Entry entry;
+		final Node next;
+		
+		Node(long key, Entry entry, Node next) {
+			this.key = key;
+			this.entry = entry;
+			this.next = next;
+		}
+	}
+
+	/**
+	 * Cache entry. Entries are linked in access order.
+	 */
+	private static class Entry {
+		final long key;
+		final QuadTree quadTree;
+		// clock when last looked up
+		volatile long accessed;
+		// clock when placed at the end of the list
+		long linked;
+		Entry before, after;
+		
+		Entry(long key, QuadTree quadTree) {
+			this.key = key;
+			this.quadTree = quadTree;
+		}
+	}
 
-	// A hash map to keep track of QuadTree tiles
-	protected HashMap<String, QuadTree> quadTreeMap;
+	// Hash table of entries, replaced as a whole when resized
+	protected volatile AtomicReferenceArray<Node> table;
+	
+	// Number of entries in the table
+	protected int count;
+	
+	// Access ordered list, head is least recently used
+	protected Entry head, tail;
+	
+	// Advanced each time an entry is placed at the end of the list
+	protected volatile long clock;
 
 	// The number of cache cleanups since the last garbage collection
 	protected int cleanupCount;
 
 	// The maximum cache size (in bytes)
 	protected long cacheSize;
+	
+	// Statistics
+	protected final AtomicLong hitCount, missCount;
+	protected long evictionCount;
+	
+	// Listeners for evictions
+	private CopyOnWriteArrayList<EvictionListener> listeners = new CopyOnWriteArrayList<EvictionListener>();
 
 	/**
 	 * Constructor
 	 * 
 	 */
 	public QuadTreeCache() {
-		quadTreeMap = new HashMap<String, QuadTree>();
+		table = new AtomicReferenceArray<Node>(INITIAL_CAPACITY);
+		hitCount = new AtomicLong();
+		missCount = new AtomicLong();
 	}
 
 	/**
-	 * Given a key, return the associated QuadTree and update its timestamp.
+	 * Given a key, return the associated QuadTree and mark it as most recently used.
 	 * 
 	 * @param key
 	 * @return the QuadTree
 	 */
-	public synchronized QuadTree getQuadTree(String key) {
-		QuadTree quadTree = quadTreeMap.get(key);
-		if (quadTree != null)
-			quadTree.timestamp = System.currentTimeMillis();
-		return(quadTree);
+	public QuadTree getQuadTree(QuadKey key) {
+		return (getQuadTree(key.toLong()));
+	}
+
+	/**
+	 * Given a packed key (see QuadKey.toLong), return the associated QuadTree
+	 * and mark it as most recently used. Does not lock, so a QuadTree added
+	 * by another thread at the same moment may be missed.
+	 * 
+	 * @param key
+	 * @return the QuadTree
+	 */
+	public QuadTree getQuadTree(long key) {
+		Entry entry = find(key);
+		if (entry == null) {
+			missCount.incrementAndGet();
+			return(null);
+		}
+		hitCount.incrementAndGet();
+		touch(entry);
+		return(entry.quadTree);
+	}
+
+	/**
+	 * Given a key, return the associated QuadTree and mark it as most recently
+	 * used without counting a hit or miss. Used by prefetching.
+	 * 
+	 * @param key
+	 * @return the QuadTree or null if not in the cache
+	 */
+	public QuadTree peekQuadTree(QuadKey key) {
+		Entry entry = find(key.toLong());
+		if (entry == null)
+			return (null);
+		touch(entry);
+		return (entry.quadTree);
+	}
+
+	/**
+	 * Indicate if this QuadTree is the one in the cache for its key. Does not
+	 * lock or mark the QuadTree as used.
+	 * 
+	 * @param quadTree
+	 * @return false if the QuadTree has been evicted
+	 */
+	public boolean containsQuadTree(QuadTree quadTree) {
+		Entry entry = find(quadTree.getKey().toLong());
+		return ((entry != null) && (entry.quadTree == quadTree));
+	}
+
+	/**
+	 * Add a listener to be notified when QuadTrees are evicted.
+	 * 
+	 * @param listener
+	 */
+	public void addEvictionListener(EvictionListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Remove an eviction listener.
+	 * 
+	 * @param listener
+	 */
+	public void removeEvictionListener(EvictionListener listener) {
+		listeners.remove(listener);
 	}
 
 	/**
-	 * Place a QuadTree in the cache. and set its timestamp
+	 * Place a QuadTree in the cache as the most recently used. If another
+	 * thread has already placed a QuadTree with the same key, that one is kept.
+	 * The QuadTree placed is never the one evicted to make room for it.
 	 * 
 	 * @param key
 	 * @param quadTree
+	 * @return the QuadTree in the cache
 	 */
-	public synchronized void putQuadTree(String key, QuadTree quadTree) {
-		quadTree.timestamp = System.currentTimeMillis();
-		quadTreeMap.put(key, quadTree);
+	public synchronized QuadTree putQuadTree(QuadKey key, QuadTree quadTree) {
+		long packed = key.toLong();
+		Entry entry = find(packed);
+		if (entry != null) {
+			moveToTail(entry);
+			return(entry.quadTree);
+		}
+		entry = new Entry(packed, quadTree);
+		AtomicReferenceArray<Node> tab = table;
+		int index = indexFor(packed, tab.length());
+		tab.set(index, new Node(packed, entry, tab.get(index)));
+		linkLast(entry);
+		count ++;
+		if (count > tab.length()*3/4)
+			resize();
 		cacheSize += quadTree.getSize();
-		cleanUpCache();
+		cleanUpCache(entry);
+		return(quadTree);
 	}
 	
 	/**
-	 * Clear the entire cache.
+	 * Clear the entire cache and its statistics.
 	 */
 	public synchronized void clear() {
-		quadTreeMap.clear();
+		table = new AtomicReferenceArray<Node>(INITIAL_CAPACITY);
+		head = null;
+		tail = null;
+		count = 0;
 		System.gc();
 		cacheSize = 0;
 		cleanupCount = 0;		
+		hitCount.set(0);
+		missCount.set(0);
+		evictionCount = 0;
 	}
 	
-	/**
-	 * Clear those QuadTrees from the cache that have names that start with a string.
-	 * @param label the string
-	 */
-	public synchronized void clear(String label) {
-		Object[] key = new Object[quadTreeMap.size()];
-		key = quadTreeMap.keySet().toArray(key);
-		for (int i=0; i<key.length; ++i) {
-			if (((String)key[i]).startsWith(label)) {
-				QuadTree qt = quadTreeMap.remove(key[i]);
-				cacheSize -= qt.getSize();
+	protected void cleanUpCache(Entry pinned) {
+		// Remove least recently used QuadTrees until the cache is no longer full.
+		// QuadTrees that are in use get a second chance by moving them to the end of the list,
+		// as do those looked up since they were last moved there.
+		// The pinned entry was just placed in the cache and is never evicted.
+		// A run of skipped entries as long as the list means nothing else can be evicted.
+		int skipped = 0;
+		int refreshes = count;
+		while ((cacheSize >= MAX_CACHE_MEMORY) && (head != null)) {
+			if (skipped >= count)
+				throw new IllegalStateException("Unable to clean up quad tree cache.  All tiles are in use. Increase maximum cache size.");
+			Entry entry = head;
+			if ((entry == pinned) || entry.quadTree.inUse) {
+				moveToTail(entry);
+				skipped ++;
+				continue;
+			}
+			if ((refreshes > 0) && (entry.accessed > entry.linked)) {
+				moveToTail(entry);
+				refreshes --;
+				skipped = 0;
+				continue;
+			}
+			remove(entry);
+			skipped = 0;
+			QuadTree qt = entry.quadTree;
+//			System.err.println("QuadTreeCache.cleanUpCache "+cleanupCount+" "+qt+" "+cacheSize+" "+MAX_CACHE_MEMORY+" "+qt.getSize());
+			for (EvictionListener listener : listeners)
+				listener.quadTreeEvicted(qt);
+			qt.dispose();
+			evictionCount ++;
+			cleanupCount ++;
+			if (cleanupCount == MAX_CLEANUP_COUNT) {
+				System.gc();
+				cleanupCount = 0;
 			}
 		}
 	}
-
-	protected void cleanUpCache() {
-		// not full yet
-		if (cacheSize < MAX_CACHE_MEMORY) {
-			return;
+	
+	private Entry find(long key) {
+		AtomicReferenceArray<Node> tab = table;
+		Node node = tab.get(indexFor(key, tab.length()));
+		while (node != null) {
+			if (node.key == key)
+				return(node.entry);
+			node = node.next;
 		}
-		// get the oldest QuadTree not in use
-		Object[] key = new Object[quadTreeMap.size()];
-		key = quadTreeMap.keySet().toArray(key);
-		Object oldestKey = null;
-		QuadTree oldestItem = null;
-		int k = 1;
-		for (int i=0; i<key.length; ++i) {
-			oldestKey = key[i];
-			oldestItem = quadTreeMap.get(oldestKey);
-			if (!oldestItem.inUse) {
-				k = i+1;
-				break;
-			}
+		return(null);
+	}
+	
+	private void touch(Entry entry) {
+		// only write when the clock has moved to keep readers from contending for the entry
+		long now = clock;
+		if (entry.accessed != now)
+			entry.accessed = now;
+	}
+	
+	private void remove(Entry entry) {
+		AtomicReferenceArray<Node> tab = table;
+		int index = indexFor(entry.key, tab.length());
+		Node first = tab.get(index);
+		Node node = first;
+		while ((node != null) && (node.entry != entry))
+			node = node.next;
+		if (node != null) {
+			// copy the nodes ahead of the removed one, readers may be walking the old chain
+			Node chain = node.next;
+			for (Node n = first; n != node; n = n.next)
+				chain = new Node(n.key, n.entry, chain);
+			tab.set(index, chain);
 		}
-		if (oldestItem == null)
-			throw new IllegalStateException("Unable to clean up quad tree cache.  All tiles are in use. Increase maximum cache size.");
-		for (int i = k; i < key.length; ++i) {
-			QuadTree item = quadTreeMap.get(key[i]);
-			if (!item.inUse) {
-				if (item.timestamp < oldestItem.timestamp) {
-					oldestKey = key[i];
-					oldestItem = item;
-				}
+		unlink(entry);
+		count --;
+		cacheSize -= entry.quadTree.getSize();
+	}
+	
+	private void resize() {
+		AtomicReferenceArray<Node> tab = table;
+		AtomicReferenceArray<Node> newTable = new AtomicReferenceArray<Node>(tab.length()*2);
+		for (int i=0; i<tab.length(); ++i) {
+			Node node = tab.get(i);
+			while (node != null) {
+				int index = indexFor(node.key, newTable.length());
+				newTable.set(index, new Node(node.key, node.entry, newTable.get(index)));
+				node = node.next;
 			}
 		}
-		if (oldestItem.inUse)
-			throw new IllegalStateException("Unable to clean up quad tree cache.  All tiles are in use. Increase maximum cache size.");
-		// remove the oldest item if not in use
-		QuadTree qt = quadTreeMap.remove(oldestKey);
-		cacheSize -= qt.getSize();
-//		System.err.println("QuadTreeCache.cleanUpCache "+cleanupCount+" "+qt+" "+cacheSize+" "+MAX_CACHE_MEMORY+" "+qt.getSize());
-		qt.dispose();
-		qt = null;
-		cleanupCount ++;
-		if (cleanupCount == MAX_CLEANUP_COUNT) {
-			System.gc();
-			cleanupCount = 0;
-		}
+		table = newTable;
+	}
+	
+	private static int indexFor(long key, int length) {
+		long h = key*0x9E3779B97F4A7C15L;
+		return((int)(h ^ (h >>> 32)) & (length-1));
+	}
+	
+	private void linkLast(Entry entry) {
+		entry.before = tail;
+		entry.after = null;
+		if (tail == null)
+			head = entry;
+		else
+			tail.after = entry;
+		tail = entry;
+		// a lookup from here on stamps a later time
+		entry.linked = clock;
+		entry.accessed = entry.linked;
+		clock = entry.linked+1;
+	}
+	
+	private void unlink(Entry entry) {
+		if (entry.before == null)
+			head = entry.after;
+		else
+			entry.before.after = entry.after;
+		if (entry.after == null)
+			tail = entry.before;
+		else
+			entry.after.before = entry.before;
+		entry.before = null;
+		entry.after = null;
+	}
+	
+	private void moveToTail(Entry entry) {
+		if (entry == tail)
+			return;
+		unlink(entry);
+		linkLast(entry);
 	}
 
 	/**
@@ -232,13 +462,76 @@ public class QuadTreeCache {
 	/**
 	 * Update the surface color for all elements in the cache
 	 * 
-	 * @param label identifier
 	 * @param rgba color
 	 */
 	public synchronized void updateSurfaceColor(float[] rgba) {
-		QuadTree[] entry = new QuadTree[quadTreeMap.size()];
-		quadTreeMap.entrySet().toArray(entry);
-		for (int i = 0; i < entry.length; ++i)
-			entry[i].getMesh().updateSurfaceColor(rgba);
+		Entry entry = head;
+		while (entry != null) {
+			QuadTreeMesh mesh = entry.quadTree.getMesh();
+			if (mesh != null)
+				mesh.updateSurfaceColor(rgba);
+			entry = entry.after;
+		}
+	}
+	
+	/**
+	 * Update the texture coordinates of a derivative layer for all elements
+	 * in the cache
+	 * 
+	 * @param layer
+	 */
+	public synchronized void updateTextureCoords(DerivativeLayer layer) {
+		Entry entry = head;
+		while (entry != null) {
+			QuadTreeMesh mesh = entry.quadTree.getMesh();
+			if (mesh != null)
+				layer.updateTextureCoords(entry.quadTree.getKey(), mesh);
+			entry = entry.after;
+		}
+	}
+	
+	/**
+	 * Get the number of QuadTrees in the cache.
+	 * 
+	 * @return
+	 */
+	public synchronized int getCount() {
+		return(count);
+	}
+	
+	/**
+	 * Get the current cache size in bytes.
+	 * 
+	 * @return
+	 */
+	public synchronized long getCacheSize() {
+		return(cacheSize);
+	}
+	
+	/**
+	 * Get the number of lookups that found a QuadTree.
+	 * 
+	 * @return
+	 */
+	public long getHitCount() {
+		return(hitCount.get());
+	}
+	
+	/**
+	 * Get the number of lookups that did not find a QuadTree.
+	 * 
+	 * @return
+	 */
+	public long getMissCount() {
+		return(missCount.get());
+	}
+	
+	/**
+	 * Get the number of QuadTrees evicted to stay under the maximum cache size.
+	 * 
+	 * @return
+	 */
+	public synchronized long getEvictionCount() {
+		return(evictionCount);
 	}
 }
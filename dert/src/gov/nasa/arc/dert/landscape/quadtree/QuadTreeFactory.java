@@ -112,8 +112,6 @@ import java.awt.Color;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import com.ardor3d.bounding.BoundingBox;
 import com.ardor3d.image.Image;
@@ -137,6 +135,9 @@ import com.ardor3d.util.geom.BufferUtils;
  */
 public class QuadTreeFactory {
 	
+	// Number of threads loading tiles, 0 means use the number of available processors
+	public static int LOADER_THREADS = 0;
+	
 	private static QuadTreeFactory instance;
 
 	// Fields used for missing vertices
@@ -149,8 +150,8 @@ public class QuadTreeFactory {
 	// The base layer
 	private RasterLayer baseLayer;
 
-	// Threading service
-	private ExecutorService executor;
+	// Tile loading service
+	private TileLoader loader;
 
 	// The surface color
 	private float[] surfaceColor;
@@ -178,6 +179,9 @@ public class QuadTreeFactory {
 	
 	private QuadTreeCache cache;
 	
+	// QuadTrees with dirty sides, used on the render thread only
+	private ArrayList<QuadTree> stitchList = new ArrayList<QuadTree>();
+	
 	public static QuadTreeFactory createInstance(TileSource source, RasterLayer baseLayer, Layer[] layerList, double pixelScale) {
 		if (instance != null)
 			throw new IllegalStateException("QuadTreeFactory already exists!");
@@ -227,17 +231,114 @@ public class QuadTreeFactory {
 		
 		cache = new QuadTreeCache();
 
-		executor = Executors.newFixedThreadPool(5);
+		loader = new TileLoader(this, getLoaderThreadCount());
+		
+		// an evicted placeholder must not be loaded later
+		cache.addEvictionListener(new QuadTreeCache.EvictionListener() {
+			@Override
+			public void quadTreeEvicted(QuadTree quadTree) {
+				loader.cancel(quadTree);
+			}
+		});
+	}
+	
+	/**
+	 * Get the number of threads used to load tiles.
+	 * 
+	 * @return the thread count
+	 */
+	public static int getLoaderThreadCount() {
+		if (LOADER_THREADS > 0)
+			return(LOADER_THREADS);
+		return(Math.max(1, Runtime.getRuntime().availableProcessors()));
 	}
 
 	/**
 	 * Dispose of resources
 	 */
 	public void dispose() {
-		executor.shutdown();
+		loader.dispose();
 		cache.clear();
 	}
 
+	/**
+	 * Get the QuadTree cache
+	 * 
+	 * @return the cache
+	 */
+	public QuadTreeCache getCache() {
+		return(cache);
+	}
+	
+	/**
+	 * Get the tile loader
+	 * 
+	 * @return the loader
+	 */
+	public TileLoader getLoader() {
+		return(loader);
+	}
+	
+	/**
+	 * Start a landscape update. Tile requests not renewed before endUpdate are dropped.
+	 */
+	public void beginUpdate() {
+		loader.beginUpdate();
+	}
+	
+	/**
+	 * Finish a landscape update.
+	 */
+	public void endUpdate() {
+		loader.endUpdate();
+	}
+	
+	/**
+	 * Add a QuadTree with dirty sides to the stitch list.
+	 * 
+	 * @param quadTree
+	 */
+	void addToStitchList(QuadTree quadTree) {
+		stitchList.add(quadTree);
+	}
+	
+	/**
+	 * Remove a QuadTree that is no longer displayed from the stitch list.
+	 * 
+	 * @param quadTree
+	 */
+	void removeFromStitchList(QuadTree quadTree) {
+		stitchList.remove(quadTree);
+	}
+
+	/**
+	 * Get the number of QuadTrees waiting to be stitched.
+	 * 
+	 * @return
+	 */
+	public int getStitchListSize() {
+		return(stitchList.size());
+	}
+	
+	/**
+	 * Stitch the QuadTrees that were split or merged, or are next to one that
+	 * was, since the last call.
+	 * 
+	 * @return the number of edges stitched
+	 */
+	public int stitch() {
+		int count = 0;
+		for (int i = 0; i < stitchList.size(); ++i) {
+			QuadTree quadTree = stitchList.get(i);
+			quadTree.stitchPending = false;
+			// skip QuadTrees disposed since they were listed
+			if (quadTree.inUse)
+				count += quadTree.stitch();
+		}
+		stitchList.clear();
+		return(count);
+	}
+
 	/**
 	 * Get a QuadTree
 	 * 
@@ -246,12 +347,15 @@ public class QuadTreeFactory {
 	 * @param pixelWidth
 	 * @param pixelLength
 	 * @param wait	wait for tile source to load the data
+	 * @param priority	importance of the load request if not waiting (larger is sooner)
 	 * @return
 	 */
-	public QuadTree getQuadTree(QuadKey key, double pixelWidth, double pixelLength, boolean wait) {
-		QuadTree quadTree = cache.getQuadTree(key.toString());
+	public QuadTree getQuadTree(QuadKey key, double pixelWidth, double pixelLength, boolean wait, double priority) {
+		QuadTree quadTree = cache.getQuadTree(key);
 		if (quadTree == null)
-			quadTree = createQuadTree(key, pixelWidth, pixelLength, wait);
+			quadTree = createQuadTree(key, pixelWidth, pixelLength, wait, priority);
+		else if (!wait && (quadTree.getMesh() == null))
+			loader.request(quadTree, priority);
 		if (quadTree.getMesh() != null)
 			return (quadTree);
 		return(null);
@@ -264,18 +368,73 @@ public class QuadTreeFactory {
 	 * @return
 	 */
 	public QuadTree getQuadTree(QuadKey key) {
-		QuadTree quadTree = cache.getQuadTree(key.toString());
+		return (getQuadTree(key.toLong()));
+	}
+
+	/**
+	 * Given the packed key (see QuadKey.toLong), get a QuadTree. A QuadKey is
+	 * only created if the QuadTree is not in the cache.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	public QuadTree getQuadTree(long key) {
+		QuadTree quadTree = cache.getQuadTree(key);
 		if (quadTree == null) {
-			double s = Math.pow(2, key.getLevel());
+			QuadKey qKey = new QuadKey(key);
+			double s = Math.pow(2, qKey.getLevel());
 			double pixelWidth = (terrainWidth / tileWidth) / s;
 			double pixelLength = (terrainLength / tileLength) / s;
-			quadTree = createQuadTree(key, pixelWidth, pixelLength, true);
+			quadTree = createQuadTree(qKey, pixelWidth, pixelLength, true, 0);
 		}
-		else if (quadTree.getMesh() == null)
+		else if (quadTree.getMesh() == null) {
+			loader.cancel(quadTree);
 			loadQuadTreeContents(quadTree);
+		}
 		return (quadTree);
 	}
 	
+	/**
+	 * Start loading a QuadTree in the background if it is not already loaded.
+	 * The request is kept until the QuadTree is loaded.
+	 * 
+	 * @param key
+	 * @param priority
+	 *            importance of the load request (larger is sooner)
+	 * @return true if the QuadTree is already loaded
+	 */
+	public boolean prefetchQuadTree(QuadKey key, double priority) {
+		QuadTree quadTree = cache.peekQuadTree(key);
+		if (quadTree == null) {
+			double s = Math.pow(2, key.getLevel());
+			quadTree = newQuadTree(key, (terrainWidth / tileWidth) / s, (terrainLength / tileLength) / s);
+		}
+		if (quadTree.getMesh() != null)
+			return (true);
+		loader.prefetch(quadTree, priority);
+		return (false);
+	}
+
+	/**
+	 * Indicate if a QuadTree is in the cache and loaded.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	public boolean isQuadTreeLoaded(QuadKey key) {
+		QuadTree quadTree = cache.peekQuadTree(key);
+		return ((quadTree != null) && (quadTree.getMesh() != null));
+	}
+
+	/**
+	 * Get the number of columns in a tile.
+	 * 
+	 * @return
+	 */
+	public int getTileWidth() {
+		return (tileWidth);
+	}
+
 	/**
 	 * Indicate if a QuadTree with the given key has children.
 	 * 
@@ -283,7 +442,7 @@ public class QuadTreeFactory {
 	 * @return have children
 	 */
 	public boolean childrenExist(QuadKey quadKey) {
-		return(source.tileExists(quadKey.createChild(1).toString()));
+		return(source.tileExists(quadKey.createChild(1)));
 	}
 
 	/**
@@ -293,25 +452,26 @@ public class QuadTreeFactory {
 	 * @param qp
 	 * @param parent
 	 * @param wait
+	 * @param priority	importance of the load requests if not waiting (larger is sooner)
 	 * @return the QuadTrees or null if not all are present in the cache
 	 */
-	public QuadTree[] getQuadTreeChildren(QuadKey qp, QuadTree parent, boolean wait) {
+	public QuadTree[] getQuadTreeChildren(QuadKey qp, QuadTree parent, boolean wait, double priority) {
 
 		// load the quadtrees
 		double pixelWidth = parent.pixelWidth / 2;
 		double pixelLength = parent.pixelLength / 2;
 		int count = 0;
 		QuadTree[] qt = new QuadTree[4];
-		qt[0] = getQuadTree(qp.createChild(1), pixelWidth, pixelLength, wait);
+		qt[0] = getQuadTree(qp.createChild(1), pixelWidth, pixelLength, wait, priority);
 		if (qt[0] != null)
 			count ++;
-		qt[1] = getQuadTree(qp.createChild(2), pixelWidth, pixelLength, wait);
+		qt[1] = getQuadTree(qp.createChild(2), pixelWidth, pixelLength, wait, priority);
 		if (qt[1] != null)
 			count ++;
-		qt[2] = getQuadTree(qp.createChild(3), pixelWidth, pixelLength, wait);
+		qt[2] = getQuadTree(qp.createChild(3), pixelWidth, pixelLength, wait, priority);
 		if (qt[2] != null)
 			count ++;
-		qt[3] = getQuadTree(qp.createChild(4), pixelWidth, pixelLength, wait);
+		qt[3] = getQuadTree(qp.createChild(4), pixelWidth, pixelLength, wait, priority);
 		if (qt[3] != null)
 			count ++;
 		if (count == 4)
@@ -343,37 +503,55 @@ public class QuadTreeFactory {
 		return(p);
 	}
 
-	private QuadTree createQuadTree(QuadKey key, double pixelWidth, double pixelLength, boolean wait) {
+	private QuadTree createQuadTree(QuadKey key, double pixelWidth, double pixelLength, boolean wait, double priority) {
 
 		// create the quad tree tile and put it in the cache as a place holder
 		// while we load the contents
 		// this keeps us from starting another load operation for this tile
-		ReadOnlyVector3 p = quadrantToOffset(key.getQuadrant(), pixelWidth, pixelLength);
-		final QuadTree qt = new QuadTree(key, p, pixelWidth, pixelLength, bytesPerTile);
-		qt.createCornerPoints(key.getTileCenter(terrainWidth,  terrainLength), tileWidth, tileLength);
-		cache.putQuadTree(key.toString(), qt);
+		// another thread may have placed it first, in which case it may already be loaded
+		QuadTree qt = newQuadTree(key, pixelWidth, pixelLength);
+		if (qt.getMesh() != null)
+			return(qt);
 
 		// load the quad tree mesh contents
 		if (wait) {
 			loadQuadTreeContents(qt);
 		} else {
-			Runnable runnable = new Runnable() {
-				@Override
-				public void run() {
-					Thread.yield();
-					loadQuadTreeContents(qt);
-				}
-			};
-			executor.execute(runnable);
+			loader.request(qt, priority);
 		}
 		return(qt);
 	}
 
-	private void loadQuadTreeContents(QuadTree qt) {
+	private QuadTree newQuadTree(QuadKey key, double pixelWidth, double pixelLength) {
+		ReadOnlyVector3 p = quadrantToOffset(key.getQuadrant(), pixelWidth, pixelLength);
+		QuadTree qt = new QuadTree(key, p, pixelWidth, pixelLength, bytesPerTile);
+		qt.createCornerPoints(key.getTileCenter(terrainWidth,  terrainLength), tileWidth, tileLength);
+		return(cache.putQuadTree(key, qt));
+	}
+
+	/**
+	 * Load the mesh and textures for a QuadTree. This may run on any number of
+	 * loader threads at once. Nothing is shared until the mesh is handed to the
+	 * QuadTree, which is synchronized with the render thread. Only one thread
+	 * loads a given QuadTree, another thread asking for it waits and then finds
+	 * it loaded. A QuadTree that has been evicted from the cache is not loaded.
+	 * 
+	 * @param qt
+	 * @return true if this call loaded the QuadTree
+	 */
+	boolean loadQuadTreeContents(QuadTree qt) {
+		synchronized (qt.loadLock) {
+			if ((qt.getMesh() != null) || !cache.containsQuadTree(qt))
+				return (false);
+			return (loadContents(qt));
+		}
+	}
+
+	private boolean loadContents(QuadTree qt) {
 		// load the mesh
 		QuadTreeMesh mesh = createMesh(qt.getKey(), qt.pixelWidth, qt.pixelLength);
 		if (mesh == null) {
-			return;
+			return (false);
 		}
 
 		// load the image layers as textures
@@ -395,10 +573,11 @@ public class QuadTreeFactory {
 		}
 		textureState.setEnabled(layersEnabled);
 		mesh.setRenderState(textureState);
-		qt.setMesh(mesh, minZ);
+		// the QuadTree may have been evicted while loading
+		return (qt.setMesh(mesh, minZ));
 	}
 
-	private Texture getEmptyTexture() {
+	private synchronized Texture getEmptyTexture() {
 		if (emptyTexture == null) {
 			ByteBuffer byteBuffer = ByteBuffer.allocateDirect(16);
 			for (int i = 0; i < 16; ++i) {
@@ -441,7 +620,7 @@ public class QuadTreeFactory {
 		return (texture);
 	}
 
-	private synchronized QuadTreeMesh createMesh(QuadKey key, double pixelWidth, double pixelLength) {
+	private QuadTreeMesh createMesh(QuadKey key, double pixelWidth, double pixelLength) {
 
 		// Get the base layer tile data
 		QuadTreeTile tile = baseLayer.getTile(key);
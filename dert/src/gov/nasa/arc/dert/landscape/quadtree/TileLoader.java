@@ -0,0 +1,500 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.landscape.quadtree;
+
+import java.util.ArrayList;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Schedules QuadTree tile loads on a pool of worker threads. Requests are
+ * ordered by priority (larger is more important) rather than arrival, and their
+ * priority is refreshed each time they are requested again. A request that is not
+ * renewed during a landscape update is no longer wanted and is dropped.
+ * Pending requests are kept in a binary heap, each QuadTree holds its own
+ * position in the heap so its priority can be changed in place.
+ * <p>
+ * View requests have a priority above zero. Prefetch priorities are mapped
+ * below zero so a prefetch never delays a tile that is in view.
+ *
+ */
+public class TileLoader {
+
+	// Weight of the camera distance in the load priority
+	public static double DISTANCE_WEIGHT = 1;
+
+	/**
+	 * Notified on a loader thread each time a worker finishes loading a tile.
+	 *
+	 */
+	public static interface LoadListener {
+		public void quadTreeLoaded(QuadTree quadTree);
+	}
+
+	// The factory that does the loading
+	private QuadTreeFactory factory;
+
+	// QuadTrees waiting to be loaded, a heap with the largest priority first
+	private ArrayList<QuadTree> pending;
+
+	// Worker threads
+	private Thread[] worker;
+
+	// Current update (frame) number
+	private long frame;
+
+	// Workers are running
+	private boolean running;
+
+	// Listeners for finished loads
+	private CopyOnWriteArrayList<LoadListener> listeners = new CopyOnWriteArrayList<LoadListener>();
+
+	// Statistics
+	private long requestCount, loadCount, cancelCount, prefetchCount;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param factory
+	 * @param threadCount
+	 */
+	public TileLoader(QuadTreeFactory factory, int threadCount) {
+		this.factory = factory;
+		pending = new ArrayList<QuadTree>();
+		running = true;
+		worker = new Thread[threadCount];
+		for (int i = 0; i < worker.length; ++i) {
+			worker[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					doWork();
+				}
+			}, "QuadTreeLoader-" + (i + 1));
+			worker[i].setDaemon(true);
+			worker[i].setPriority(Thread.NORM_PRIORITY - 1);
+			worker[i].start();
+		}
+	}
+
+	/**
+	 * Compute the load priority of a tile. The screen-space error is reduced
+	 * for tiles farther from the camera than the point it looks at, so of two
+	 * equally coarse tiles the nearer one loads first.
+	 * 
+	 * @param screenError
+	 *            how much coarser the tile is than needed
+	 * @param distance
+	 *            distance from the camera to the closest point of the tile
+	 * @param lookAtDistance
+	 *            distance from the camera to its look at point
+	 * @return the priority
+	 */
+	public static double getPriority(double screenError, double distance, double lookAtDistance) {
+		if (lookAtDistance <= 0)
+			return (screenError);
+		return (screenError / (1 + DISTANCE_WEIGHT * distance / lookAtDistance));
+	}
+
+	/**
+	 * Request that a QuadTree be loaded, or renew an existing request with a new priority.
+	 * 
+	 * @param quadTree
+	 * @param priority
+	 */
+	public synchronized void request(QuadTree quadTree, double priority) {
+		if (quadTree.loadPending) {
+			// a prefetch is kept even when the view stops asking for it
+			if (quadTree.loadFrame == Long.MAX_VALUE) {
+				setPriority(quadTree, Math.max(quadTree.loadPriority, priority));
+				return;
+			}
+			quadTree.loadFrame = frame;
+			setPriority(quadTree, priority);
+			return;
+		}
+		quadTree.loadFrame = frame;
+		quadTree.loadPriority = priority;
+		if (quadTree.getMesh() != null)
+			return;
+		quadTree.loadPending = true;
+		add(quadTree);
+		requestCount++;
+		notify();
+	}
+
+	/**
+	 * Request that a QuadTree be loaded ahead of need. Unlike request, the
+	 * request is kept until the QuadTree is loaded even if it is not renewed.
+	 * Prefetches are ordered among themselves by priority and always follow
+	 * view requests.
+	 * 
+	 * @param quadTree
+	 * @param priority
+	 *            zero or more, larger is sooner
+	 */
+	public synchronized void prefetch(QuadTree quadTree, double priority) {
+		if (quadTree.getMesh() != null)
+			return;
+		priority = -1 / (1 + Math.max(priority, 0));
+		quadTree.loadFrame = Long.MAX_VALUE;
+		if (quadTree.loadPending) {
+			setPriority(quadTree, Math.max(quadTree.loadPriority, priority));
+			return;
+		}
+		quadTree.loadPriority = priority;
+		quadTree.loadPending = true;
+		add(quadTree);
+		requestCount++;
+		prefetchCount++;
+		notify();
+	}
+
+	/**
+	 * Remove a QuadTree from the queue if it has not been started.
+	 * 
+	 * @param quadTree
+	 */
+	public synchronized void cancel(QuadTree quadTree) {
+		if (quadTree.loadIndex >= 0) {
+			remove(quadTree.loadIndex);
+			quadTree.loadPending = false;
+			cancelCount++;
+		}
+	}
+
+	/**
+	 * Drop the prefetch requests that have not been started.
+	 */
+	public synchronized void cancelPrefetches() {
+		removeRequests(true);
+	}
+
+	/**
+	 * Add a listener to be notified when tiles are loaded.
+	 * 
+	 * @param listener
+	 */
+	public void addLoadListener(LoadListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Remove a load listener.
+	 * 
+	 * @param listener
+	 */
+	public void removeLoadListener(LoadListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Start a landscape update. Requests must be renewed during the update to be kept.
+	 */
+	public synchronized void beginUpdate() {
+		frame++;
+	}
+
+	/**
+	 * Finish a landscape update. Drop the requests that were not renewed.
+	 */
+	public synchronized void endUpdate() {
+		removeRequests(false);
+	}
+
+	/**
+	 * Get the most important request without removing it.
+	 * 
+	 * @return the QuadTree or null if there are no requests
+	 */
+	public synchronized QuadTree peek() {
+		if (pending.isEmpty())
+			return (null);
+		return (pending.get(0));
+	}
+
+	// The QuadTree stays pending while it loads so it is not queued again
+	private synchronized QuadTree take() throws InterruptedException {
+		while (running && pending.isEmpty())
+			wait();
+		if (!running)
+			return (null);
+		return (remove(0));
+	}
+
+	private synchronized void loaded(QuadTree qt, boolean success) {
+		qt.loadPending = false;
+		if (success)
+			loadCount++;
+	}
+
+	// Drop the prefetches, or the requests not renewed in this update, and
+	// rebuild the heap
+	private void removeRequests(boolean prefetches) {
+		int n = 0;
+		for (int i = 0; i < pending.size(); ++i) {
+			QuadTree qt = pending.get(i);
+			if (prefetches ? (qt.loadFrame == Long.MAX_VALUE) : (qt.loadFrame < frame)) {
+				qt.loadIndex = -1;
+				qt.loadPending = false;
+				cancelCount++;
+			} else {
+				pending.set(n, qt);
+				qt.loadIndex = n;
+				n++;
+			}
+		}
+		if (n == pending.size())
+			return;
+		pending.subList(n, pending.size()).clear();
+		for (int i = n / 2 - 1; i >= 0; --i)
+			siftDown(i);
+	}
+
+	private void add(QuadTree qt) {
+		qt.loadIndex = pending.size();
+		pending.add(qt);
+		siftUp(qt.loadIndex);
+	}
+
+	private QuadTree remove(int index) {
+		QuadTree qt = pending.get(index);
+		QuadTree last = pending.remove(pending.size() - 1);
+		if (last != qt) {
+			pending.set(index, last);
+			last.loadIndex = index;
+			siftDown(index);
+			siftUp(last.loadIndex);
+		}
+		qt.loadIndex = -1;
+		return (qt);
+	}
+
+	private void setPriority(QuadTree qt, double priority) {
+		double old = qt.loadPriority;
+		qt.loadPriority = priority;
+		// the QuadTree may be loading rather than waiting
+		if (qt.loadIndex < 0)
+			return;
+		if (priority > old)
+			siftUp(qt.loadIndex);
+		else if (priority < old)
+			siftDown(qt.loadIndex);
+	}
+
+	private void siftUp(int index) {
+		QuadTree qt = pending.get(index);
+		while (index > 0) {
+			int parent = (index - 1) / 2;
+			QuadTree pqt = pending.get(parent);
+			if (pqt.loadPriority >= qt.loadPriority)
+				break;
+			pending.set(index, pqt);
+			pqt.loadIndex = index;
+			index = parent;
+		}
+		pending.set(index, qt);
+		qt.loadIndex = index;
+	}
+
+	private void siftDown(int index) {
+		QuadTree qt = pending.get(index);
+		int n = pending.size();
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= n)
+				break;
+			if ((child + 1 < n) && (pending.get(child + 1).loadPriority > pending.get(child).loadPriority))
+				child++;
+			QuadTree cqt = pending.get(child);
+			if (qt.loadPriority >= cqt.loadPriority)
+				break;
+			pending.set(index, cqt);
+			cqt.loadIndex = index;
+			index = child;
+		}
+		pending.set(index, qt);
+		qt.loadIndex = index;
+	}
+
+	private void doWork() {
+		while (true) {
+			QuadTree qt = null;
+			try {
+				qt = take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (qt == null)
+				return;
+			boolean success = false;
+			try {
+				success = factory.loadQuadTreeContents(qt);
+			} catch (Exception e) {
+				System.out.println("Unable to load tile " + qt + ", see log.");
+				e.printStackTrace();
+			}
+			loaded(qt, success);
+			if (success) {
+				for (LoadListener listener : listeners)
+					listener.quadTreeLoaded(qt);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of requests waiting to be loaded.
+	 * 
+	 * @return
+	 */
+	public synchronized int getPendingCount() {
+		return (pending.size());
+	}
+
+	/**
+	 * Get the number of requests queued since this loader was created.
+	 * 
+	 * @return
+	 */
+	public synchronized long getRequestCount() {
+		return (requestCount);
+	}
+
+	/**
+	 * Get the number of tiles loaded by the workers.
+	 * 
+	 * @return
+	 */
+	public synchronized long getLoadCount() {
+		return (loadCount);
+	}
+
+	/**
+	 * Get the number of requests dropped before they were loaded.
+	 * 
+	 * @return
+	 */
+	public synchronized long getCancelCount() {
+		return (cancelCount);
+	}
+
+	/**
+	 * Get the number of prefetch requests queued since this loader was
+	 * created.
+	 * 
+	 * @return
+	 */
+	public synchronized long getPrefetchCount() {
+		return (prefetchCount);
+	}
+
+	/**
+	 * Stop the workers and drop all requests.
+	 */
+	public synchronized void dispose() {
+		running = false;
+		for (int i = 0; i < pending.size(); ++i) {
+			pending.get(i).loadPending = false;
+			pending.get(i).loadIndex = -1;
+		}
+		pending.clear();
+		notifyAll();
+	}
+}
@@ -130,12 +130,13 @@ public class Projection {
 	// The actual dimensions in the projected units of the raster
 	private double physicalWidth, physicalLength;
 
-	// Proj4 fields
+	// Proj4 fields, Proj4 serializes the native calls so they may be shared by threads
 	private Proj4 pjProjected, pjUnprojected;
 	private String proj4String;
 
-	// Conversion field
-	private double[] coord = new double[3];
+	// Maximum number of coordinates passed to Proj4 in one call by the bulk
+	// conversions
+	public static int BATCH_SIZE = 16384;
 
 	/**
 	 * Constructor
@@ -312,17 +313,9 @@ public class Projection {
 	 * @param vec
 	 */
 	public void worldToSpherical(Vector3 vec) {
-		if (pjUnprojected == null) {
-			String projStr = "+proj=longlat +a=" + projInfo.getSemiMajorAxis() + " +b=" + projInfo.getSemiMinorAxis()
-				+ " +no_defs";
-			pjUnprojected = Proj4.newInstance(projStr);
-			System.err.println("Unprojection: "+projStr);
-		}
-		if (pjProjected == null) {
-			pjProjected = Proj4.newInstance(proj4String);
-		}
+		createProj4();
 		try {
-			vec.toArray(coord);
+			double[] coord = vec.toArray(null);
 			pjProjected.transform(pjUnprojected, coord);
 			vec.setX(Math.toDegrees(coord[0]));
 			vec.setY(Math.toDegrees(coord[1]));
@@ -338,7 +331,7 @@ public class Projection {
 	 * @param vec
 	 */
 	public void sphericalToWorld(Vector3 vec) {
-		vec.toArray(coord);
+		double[] coord = vec.toArray(null);
 		sphericalToWorld(coord);
 		vec.setX(coord[0]);
 		vec.setY(coord[1]);
@@ -350,6 +343,104 @@ public class Projection {
 	 * @param coord is a double array of 3 elements
 	 */
 	public void sphericalToWorld(double[] coord) {
+		createProj4();
+		coord[0] = Math.toRadians(coord[0]);
+		coord[1] = Math.toRadians(coord[1]);
+		pjUnprojected.transform(pjProjected, coord);
+	}
+
+	/**
+	 * Convert an array of lon/lat (degree) coordinates to virtual world
+	 * coordinates in place. Coordinates are passed to Proj4 BATCH_SIZE at a
+	 * time. A coordinate that cannot be converted is set to NaN.
+	 * 
+	 * @param coord
+	 *            x, y, z for each coordinate
+	 * @param n
+	 *            the number of coordinates
+	 */
+	public void sphericalToWorld(double[] coord, int n) {
+		createProj4();
+		transform(pjUnprojected, pjProjected, coord, n, true);
+	}
+
+	/**
+	 * Convert an array of virtual world coordinates to lon/lat in place.
+	 * Results are in degrees. Coordinates are passed to Proj4 BATCH_SIZE at a
+	 * time. A coordinate that cannot be converted is set to NaN.
+	 * 
+	 * @param coord
+	 *            x, y, z for each coordinate
+	 * @param n
+	 *            the number of coordinates
+	 */
+	public void worldToSpherical(double[] coord, int n) {
+		createProj4();
+		transform(pjProjected, pjUnprojected, coord, n, false);
+	}
+
+	private void transform(Proj4 src, Proj4 dest, double[] coord, int n, boolean fromSpherical) {
+		// scratch arrays are per call, only the Proj4 calls are serialized
+		int size = Math.min(n, BATCH_SIZE);
+		double[] xBatch = new double[size];
+		double[] yBatch = new double[size];
+		double[] zBatch = new double[size];
+		for (int i = 0; i < n; i += size) {
+			int count = Math.min(size, n - i);
+			for (int j = 0, k = i * 3; j < count; ++j, k += 3) {
+				if (fromSpherical) {
+					xBatch[j] = Math.toRadians(coord[k]);
+					yBatch[j] = Math.toRadians(coord[k + 1]);
+				} else {
+					xBatch[j] = coord[k];
+					yBatch[j] = coord[k + 1];
+				}
+				zBatch[j] = coord[k + 2];
+			}
+			try {
+				src.transform(dest, count, 1, xBatch, yBatch, zBatch);
+			} catch (IllegalStateException e) {
+				// Proj4 fails the whole call for some errors, retry one at a time
+				for (int j = 0, k = i * 3; j < count; ++j, k += 3) {
+					transform(src, dest, coord, k, fromSpherical, xBatch, yBatch, zBatch, j);
+				}
+			}
+			for (int j = 0, k = i * 3; j < count; ++j, k += 3) {
+				// Proj4 marks failed points with HUGE_VAL
+				if (Double.isInfinite(xBatch[j]) || Double.isInfinite(yBatch[j])) {
+					coord[k] = Double.NaN;
+					coord[k + 1] = Double.NaN;
+					coord[k + 2] = Double.NaN;
+				} else if (fromSpherical) {
+					coord[k] = xBatch[j];
+					coord[k + 1] = yBatch[j];
+					coord[k + 2] = zBatch[j];
+				} else {
+					coord[k] = Math.toDegrees(xBatch[j]);
+					coord[k + 1] = Math.toDegrees(yBatch[j]);
+				}
+			}
+		}
+	}
+
+	private void transform(Proj4 src, Proj4 dest, double[] coord, int k, boolean fromSpherical, double[] xBatch,
+		double[] yBatch, double[] zBatch, int j) {
+		double[] point = new double[3];
+		try {
+			point[0] = fromSpherical ? Math.toRadians(coord[k]) : coord[k];
+			point[1] = fromSpherical ? Math.toRadians(coord[k + 1]) : coord[k + 1];
+			point[2] = coord[k + 2];
+			src.transform(dest, point);
+			xBatch[j] = point[0];
+			yBatch[j] = point[1];
+			zBatch[j] = point[2];
+		} catch (Exception e) {
+			xBatch[j] = Double.POSITIVE_INFINITY;
+			yBatch[j] = Double.POSITIVE_INFINITY;
+		}
+	}
+
+	private synchronized void createProj4() {
 		if (pjUnprojected == null) {
 			String projStr = "+proj=longlat +a=" + projInfo.getSemiMajorAxis() + " +b=" + projInfo.getSemiMinorAxis()
 				+ " +no_defs";
@@ -358,9 +449,6 @@ public class Projection {
 		if (pjProjected == null) {
 			pjProjected = Proj4.newInstance(proj4String);
 		}
-		coord[0] = Math.toRadians(coord[0]);
-		coord[1] = Math.toRadians(coord[1]);
-		pjUnprojected.transform(pjProjected, coord);
 	}
 
 	/**
@@ -0,0 +1,465 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.layerfactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Records the tiles written for a layer so that an interrupted build can be
+ * resumed and a rebuild only rewrites the tiles whose data changed.
+ * 
+ * The manifest is a text file in the layer directory. The first line holds the
+ * build parameters and the second a fingerprint of the source (path, length
+ * and modification time). Each following line has the tile path relative to
+ * the layer directory, a hash of the tile pixels (the source window after
+ * padding and averaging), and the length, modification time and CRC32
+ * checksum of the tile file, or -1 if no file was written. Lines are appended
+ * as tiles are written and the file is compacted when the build ends. If the
+ * parameters change, the old entries are discarded.
+ * 
+ * A tile on a coarser level is averaged from the tiles below it, so its hash
+ * changes when any of them change and dirtiness propagates up the levels.
+ * 
+ * If the source fingerprint is the same as the last completed build, a tile
+ * whose file still has the recorded length and modification time is current
+ * without reading the source pixels or the tile file.
+ *
+ */
+public class BuildManifest {
+
+	// Manifest file name in the layer directory
+	public static final String FILE_NAME = "build.manifest";
+
+	// Layer directory
+	protected File dir;
+
+	// Build parameters
+	protected String parameters;
+
+	// Source fingerprint for this build and the one the entries were checked against
+	protected String source, entrySource;
+
+	// Tile entries, keyed by relative path
+	protected HashMap<String, String[]> entryMap;
+
+	// Journal of new entries
+	protected BufferedWriter writer;
+
+	// Number of tiles written and kept
+	protected int written, kept;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param dir
+	 *            the layer directory
+	 * @param parameters
+	 *            the build parameters
+	 * @param source
+	 *            fingerprint of the source and any options that change the
+	 *            tile pixels
+	 * @param rebuild
+	 *            ignore any existing entries
+	 * @throws IOException
+	 */
+	public BuildManifest(File dir, String parameters, String source, boolean rebuild) throws IOException {
+		this.dir = dir;
+		this.parameters = parameters;
+		this.source = source;
+		entryMap = new HashMap<String, String[]>();
+		File file = new File(dir, FILE_NAME);
+		if (!rebuild && file.exists()) {
+			load(file);
+		}
+		// the journal keeps the fingerprint of the entries it was started with
+		// until a completed build has checked all of them
+		if (entryMap.isEmpty()) {
+			entrySource = source;
+		}
+		writer = new BufferedWriter(new FileWriter(file, !entryMap.isEmpty()));
+		if (entryMap.isEmpty()) {
+			writer.write("# " + parameters);
+			writer.newLine();
+			writer.write("# Source=" + source);
+			writer.newLine();
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Determine if a tile file is up to date without looking at the source
+	 * pixels. This is only the case if the source has the same fingerprint as
+	 * the last completed build and the file still has the recorded length and
+	 * modification time.
+	 * 
+	 * @param tileFile
+	 * @return true if the tile need not be written
+	 */
+	public boolean isCurrent(File tileFile) {
+		String[] entry = null;
+		synchronized (this) {
+			if (!source.equals(entrySource)) {
+				return (false);
+			}
+			entry = entryMap.get(getKey(tileFile));
+		}
+		if ((entry == null) || !matches(entry, tileFile)) {
+			return (false);
+		}
+		synchronized (this) {
+			kept++;
+		}
+		return (true);
+	}
+
+	/**
+	 * Determine if a tile file is already up to date given its pixels. The
+	 * hash must match and the file must exist with the recorded length and
+	 * checksum.
+	 * 
+	 * @param tileFile
+	 * @param hash
+	 *            the hash of the tile pixels
+	 * @return true if the tile need not be written
+	 */
+	public boolean isCurrent(File tileFile, String hash) {
+		String[] entry = null;
+		synchronized (this) {
+			entry = entryMap.get(getKey(tileFile));
+		}
+		if ((entry == null) || !entry[1].equals(hash)) {
+			return (false);
+		}
+		try {
+			if (entry[2].equals("-1")) {
+				if (tileFile.exists()) {
+					return (false);
+				}
+			} else if ((tileFile.length() != Long.parseLong(entry[2])) || !entry[4].equals(checksum(tileFile))) {
+				return (false);
+			}
+		} catch (Exception e) {
+			return (false);
+		}
+		synchronized (this) {
+			kept++;
+		}
+		return (true);
+	}
+
+	/**
+	 * Determine if every tile of the layer is up to date without looking at
+	 * the source, in which case the source need not be read at all.
+	 * 
+	 * @param numTiles
+	 *            the total number of tiles in the layer
+	 * @return true if nothing needs to be written
+	 */
+	public synchronized boolean isComplete(int numTiles) {
+		if (!source.equals(entrySource) || (entryMap.size() != numTiles)) {
+			return (false);
+		}
+		for (String[] entry : entryMap.values()) {
+			if (!matches(entry, new File(dir, entry[0]))) {
+				return (false);
+			}
+		}
+		kept = numTiles;
+		return (true);
+	}
+
+	/**
+	 * Record a tile that was just written.
+	 * 
+	 * @param tileFile
+	 * @param hash
+	 *            the hash of the tile pixels
+	 * @throws IOException
+	 */
+	public void put(File tileFile, String hash) throws IOException {
+		String[] entry = null;
+		if (tileFile.exists()) {
+			entry = new String[] { getKey(tileFile), hash, Long.toString(tileFile.length()),
+				Long.toString(tileFile.lastModified()), checksum(tileFile) };
+		} else {
+			entry = new String[] { getKey(tileFile), hash, "-1", "-1", "-1" };
+		}
+		synchronized (this) {
+			entryMap.put(entry[0], entry);
+			writer.write(toLine(entry));
+			writer.newLine();
+			// keep the journal current in case the build is killed
+			writer.flush();
+			written++;
+		}
+	}
+
+	/**
+	 * Close the manifest, rewriting it with one line per tile.
+	 * 
+	 * @param complete
+	 *            every tile was checked against this source, so the stat
+	 *            check may be used for them next time
+	 * @throws IOException
+	 */
+	public synchronized void close(boolean complete) throws IOException {
+		writer.close();
+		if (complete) {
+			entrySource = source;
+		}
+		ArrayList<String> key = new ArrayList<String>(entryMap.keySet());
+		Collections.sort(key);
+		File file = new File(dir, FILE_NAME);
+		File tmpFile = new File(dir, FILE_NAME + ".tmp");
+		BufferedWriter bw = new BufferedWriter(new FileWriter(tmpFile));
+		bw.write("# " + parameters);
+		bw.newLine();
+		bw.write("# Source=" + entrySource);
+		bw.newLine();
+		for (int i = 0; i < key.size(); ++i) {
+			bw.write(toLine(entryMap.get(key.get(i))));
+			bw.newLine();
+		}
+		bw.close();
+		file.delete();
+		if (!tmpFile.renameTo(file)) {
+			throw new IOException("Unable to rename " + tmpFile + " to " + file + ".");
+		}
+	}
+
+	/**
+	 * Get the number of tiles written
+	 * 
+	 * @return
+	 */
+	public synchronized int getWrittenCount() {
+		return (written);
+	}
+
+	/**
+	 * Get the number of tiles that were up to date
+	 * 
+	 * @return
+	 */
+	public synchronized int getKeptCount() {
+		return (kept);
+	}
+
+	/**
+	 * Get the fingerprint of a build input.
+	 * 
+	 * @param file
+	 * @return the absolute path, length and modification time
+	 */
+	public static String fingerprint(File file) {
+		return (file.getAbsolutePath() + ",Length=" + file.length() + ",Modified=" + file.lastModified());
+	}
+
+	/**
+	 * Compute the hash of tile pixels.
+	 * 
+	 * @param bbArray
+	 * @return the hash as a hexadecimal string
+	 */
+	public static String hash(byte[] bbArray) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			byte[] md5 = digest.digest(bbArray);
+			StringBuilder sb = new StringBuilder(2 * md5.length);
+			for (int i = 0; i < md5.length; ++i) {
+				sb.append(Character.forDigit((md5[i] >> 4) & 0xf, 16));
+				sb.append(Character.forDigit(md5[i] & 0xf, 16));
+			}
+			return (sb.toString());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Compute the CRC32 checksum of a file.
+	 * 
+	 * @param file
+	 * @return the checksum as a hexadecimal string
+	 * @throws IOException
+	 */
+	public static String checksum(File file) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] bArray = new byte[65536];
+		InputStream iStream = new FileInputStream(file);
+		try {
+			int n = iStream.read(bArray);
+			while (n > 0) {
+				crc.update(bArray, 0, n);
+				n = iStream.read(bArray);
+			}
+		} finally {
+			iStream.close();
+		}
+		return (Long.toHexString(crc.getValue()));
+	}
+
+	// Compare the length and modification time of an entry with the tile file on disk
+	private static boolean matches(String[] entry, File tileFile) {
+		try {
+			if (entry[2].equals("-1")) {
+				return (!tileFile.exists());
+			}
+			return ((tileFile.length() == Long.parseLong(entry[2]))
+				&& (tileFile.lastModified() == Long.parseLong(entry[3])));
+		} catch (NumberFormatException e) {
+			return (false);
+		}
+	}
+
+	// Read the entries if the parameters match, the last entry for a tile wins
+	private void load(File file) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line = reader.readLine();
+			if ((line == null) || !line.equals("# " + parameters)) {
+				return;
+			}
+			line = reader.readLine();
+			if ((line == null) || !line.startsWith("# Source=")) {
+				return;
+			}
+			entrySource = line.substring(9);
+			line = reader.readLine();
+			while (line != null) {
+				String[] entry = line.split(",");
+				// a partial last line is left by a killed build
+				if ((entry.length == 5) && (entry[4].length() > 0)) {
+					entryMap.put(entry[0], entry);
+				}
+				line = reader.readLine();
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	// Format an entry as a line of the manifest
+	private static String toLine(String[] entry) {
+		return (entry[0] + "," + entry[1] + "," + entry[2] + "," + entry[3] + "," + entry[4]);
+	}
+
+	// Get the path of a tile relative to the layer directory
+	private String getKey(File tileFile) {
+		String path = tileFile.getAbsolutePath().substring(dir.getAbsolutePath().length() + 1);
+		return (path.replace(File.separatorChar, '/'));
+	}
+
+}
@@ -102,6 +102,7 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 package gov.nasa.arc.dert.layerfactory;
 
 import gov.nasa.arc.dert.action.file.AboutBox;
+import gov.nasa.arc.dert.landscape.io.TileCodec;
 import gov.nasa.arc.dert.landscape.layer.LayerInfo.LayerType;
 import gov.nasa.arc.dert.raster.RasterFile;
 import gov.nasa.arc.dert.raster.geotiff.GTIF;
@@ -195,7 +196,8 @@ public class LayerFactory {
 			if (args[0].equals("-usage")) {
 				System.out.println("layerfactory -landscape=landscapePath -file=inputFilePath -tilesize=tileSize -type=layerType "+
 						"[-globe=globename] [-missing=missingValue] [-name=layerName] [-leftmargin=numPixels] [-rightmargin=numPixels]"+
-						" [-bottommargin=numPixels] [-topmargin=numPixels] [-color=R,G,B,A] [-elevattrname=elevation attribute name]");
+						" [-bottommargin=numPixels] [-topmargin=numPixels] [-color=R,G,B,A] [-elevattrname=elevation attribute name]"+
+						" [-format=PNG|RAW|LZ] [-stream] [-rebuild]");
 				System.exit(0);
 			}
 		}
@@ -229,6 +231,10 @@ public class LayerFactory {
 			dertProperties.load(new FileInputStream(file));
 			version = dertProperties.getProperty("Dert.Version", "");
 			setGlobes(dertProperties);
+			PyramidLayerFactory.defaultTileFormat = TileCodec.getTileFormat(dertProperties);
+			RasterPyramidLayerFactory.BUILD_THREADS = StringUtil.getIntegerValue(dertProperties, "LayerFactory.BuildThreads", true, 0, false);
+			RasterPyramidLayerFactory.STREAMING = StringUtil.getBooleanValue(dertProperties, "LayerFactory.Streaming", false, false);
+			PyramidLayerFactory.INCREMENTAL = StringUtil.getBooleanValue(dertProperties, "LayerFactory.Incremental", true, false);
 		} catch (Exception e) {
 			e.printStackTrace();
 			System.exit(-1);
@@ -440,6 +446,12 @@ public class LayerFactory {
 				margin[3] = Integer.parseInt(str, 0);
 			} else if (args[i].startsWith("-elevattrname=")) {
 				elevAttrName = args[i].substring(14);
+			} else if (args[i].startsWith("-format=")) {
+				PyramidLayerFactory.defaultTileFormat = TileCodec.getTileFormat(args[i].substring(8));
+			} else if (args[i].equals("-stream")) {
+				RasterPyramidLayerFactory.STREAMING = true;
+			} else if (args[i].equals("-rebuild")) {
+				PyramidLayerFactory.REBUILD = true;
 			}
 		}
 		if ((landscapePath == null) || (filePath == null)) {
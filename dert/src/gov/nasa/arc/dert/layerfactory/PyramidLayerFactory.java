@@ -101,6 +101,9 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 
 package gov.nasa.arc.dert.layerfactory;
 
+import gov.nasa.arc.dert.landscape.io.QuadTreeTile.TileFormat;
+import gov.nasa.arc.dert.landscape.io.TileArchive;
+import gov.nasa.arc.dert.landscape.io.TileCodec;
 import gov.nasa.arc.dert.landscape.layer.LayerInfo.LayerType;
 import gov.nasa.arc.dert.landscape.srs.ProjectionInfo;
 
@@ -141,6 +144,16 @@ public abstract class PyramidLayerFactory {
 	
 	public static String defaultGlobe;
 
+	// Tile format to use when none is specified
+	public static TileFormat defaultTileFormat = TileFormat.PNG;
+
+	// Keep a build manifest so a build can resume and unchanged tiles are
+	// not rewritten
+	public static boolean INCREMENTAL = true;
+
+	// Ignore an existing build manifest and write every tile
+	public static boolean REBUILD = false;
+
 	// Projection information from source file or destination landscape
 	protected ProjectionInfo projInfo;
 
@@ -156,8 +169,14 @@ public abstract class PyramidLayerFactory {
 	// Value to use to fill to the edge of mesh.
 	protected float edgeFillValue;
 
-	// flag for cancellation
-	protected boolean doIt;
+	// flag for cancellation, cleared by another thread
+	protected volatile boolean doIt;
+
+	// On-disk format of the tiles
+	protected TileFormat tileFormat;
+
+	// Tiles written by this and earlier builds, null if not incremental
+	protected BuildManifest manifest;
 
 	/**
 	 * Constructor
@@ -166,6 +185,25 @@ public abstract class PyramidLayerFactory {
 	 */
 	public PyramidLayerFactory(String sourceFilePath) {
 		this.sourceFilePath = sourceFilePath;
+		tileFormat = defaultTileFormat;
+	}
+
+	/**
+	 * Set the on-disk format of the tiles
+	 * 
+	 * @param tileFormat
+	 */
+	public void setTileFormat(TileFormat tileFormat) {
+		this.tileFormat = tileFormat;
+	}
+
+	/**
+	 * Get the on-disk format of the tiles
+	 * 
+	 * @return
+	 */
+	public TileFormat getTileFormat() {
+		return (tileFormat);
 	}
 
 	protected void writeProperties(String path, int numLevels, int tileWidth, int tileLength, int numTiles)
@@ -179,7 +217,7 @@ public abstract class PyramidLayerFactory {
 		properties.setProperty("Source", sourceFilePath);
 		properties.setProperty("MinimumValue", Double.toString(minimumSampleValue[0]));
 		properties.setProperty("MaximumValue", Double.toString(maximumSampleValue[0]));
-		properties.setProperty("TileFormat", "PNG");
+		properties.setProperty("TileFormat", tileFormat.toString());
 		projInfo.saveToProperties(properties, defaultGlobe);
 		if (layerType == LayerType.elevation) {
 			properties.setProperty("EdgeFillValue", Float.toString(edgeFillValue));
@@ -188,6 +226,92 @@ public abstract class PyramidLayerFactory {
 		properties.store(new FileOutputStream(path), LayerFactory.VERSION);
 	}
 
+	/**
+	 * Open the build manifest for a layer if builds are incremental. Entries
+	 * from an earlier build are used only if it had the same parameters. The
+	 * tiles need not be read from the source if it also had the same inputs.
+	 * 
+	 * @param dirPath
+	 *            the layer directory
+	 * @param source
+	 *            fingerprint of the source and any options that change the
+	 *            tile pixels
+	 * @param numLevels
+	 * @param tileWidth
+	 * @param tileLength
+	 * @param numTiles
+	 * @throws IOException
+	 */
+	protected void openManifest(String dirPath, String source, int numLevels, int tileWidth, int tileLength,
+		int numTiles) throws IOException {
+		manifest = null;
+		if (!INCREMENTAL) {
+			return;
+		}
+		String parameters = LayerFactory.VERSION + ",LayerType=" + layerType + ",TileFormat=" + tileFormat
+			+ ",NumberOfLevels=" + numLevels + ",NumberOfTiles=" + numTiles + ",TileWidth=" + tileWidth
+			+ ",TileLength=" + tileLength;
+		manifest = new BuildManifest(new File(dirPath), parameters, source, REBUILD);
+	}
+
+	/**
+	 * Save and close the build manifest.
+	 * 
+	 * @param complete
+	 *            every tile of the layer was checked or written
+	 */
+	protected void closeManifest(boolean complete) {
+		if (manifest == null) {
+			return;
+		}
+		try {
+			manifest.close(complete);
+			System.out.println("Wrote " + manifest.getWrittenCount() + " tiles, kept " + manifest.getKeptCount()
+				+ " unchanged tiles.");
+		} catch (Exception e) {
+			System.out.println("Unable to save build manifest, see log.");
+			e.printStackTrace();
+		}
+		manifest = null;
+	}
+
+	/**
+	 * Remove the tile archive of a layer before its tiles are written, so the
+	 * archive is never read in place of the new tiles.
+	 * 
+	 * @param dirPath
+	 *            the layer directory
+	 * @return true if the layer had an archive
+	 */
+	protected boolean removeArchive(String dirPath) {
+		File archiveFile = new File(dirPath, TileArchive.FILE_NAME);
+		if (!archiveFile.exists()) {
+			return (false);
+		}
+		if (!archiveFile.delete()) {
+			throw new IllegalStateException("Unable to remove tile archive " + archiveFile + ".");
+		}
+		System.out.println("Removed tile archive " + archiveFile + ", it will be packed again from the new tiles.");
+		return (true);
+	}
+
+	/**
+	 * Pack the tiles of a layer into a new archive.
+	 * 
+	 * @param dirPath
+	 *            the layer directory
+	 */
+	protected void writeArchive(String dirPath) {
+		File archiveFile = new File(dirPath, TileArchive.FILE_NAME);
+		try {
+			int n = TileArchive.write(new File(dirPath), tileFormat, archiveFile);
+			System.out.println("Packed " + n + " tiles in " + archiveFile + ".");
+		} catch (Exception e) {
+			System.out.println("Unable to pack tile archive " + archiveFile + ", see log.");
+			e.printStackTrace();
+		}
+	}
+
 	/**
 	 * Determine if a tile is empty
 	 * 
@@ -293,6 +417,21 @@ public abstract class PyramidLayerFactory {
 		doIt = false;
 	}
 
+	/**
+	 * Determine if a tile written by an earlier build is still current from
+	 * the same source. This is checked before the tile pixels are read.
+	 * 
+	 * @param filePath
+	 *            the tile path without extension
+	 * @return true if the tile need not be written
+	 */
+	protected boolean isTileCurrent(String filePath) {
+		if (manifest == null) {
+			return (false);
+		}
+		return (manifest.isCurrent(new File(filePath + TileCodec.getExtension(tileFormat))));
+	}
+
 	/**
 	 * Write a tile out to the pyramid
 	 * 
@@ -307,6 +446,39 @@ public abstract class PyramidLayerFactory {
 	protected void writeTile(String filePath, byte[] bbArray, int width, int height, LayerType layerType)
 		throws FileNotFoundException, IOException {
 
+		// skip tiles that are the same as the last build
+		File tileFile = null;
+		String hash = null;
+		if (manifest != null) {
+			tileFile = new File(filePath + TileCodec.getExtension(tileFormat));
+			hash = BuildManifest.hash(bbArray);
+			if (manifest.isCurrent(tileFile, hash)) {
+				return;
+			}
+		}
+		if (tileFormat != TileFormat.PNG) {
+			writeRawTile(filePath, bbArray, width, height, layerType);
+		} else {
+			writePngTile(filePath, bbArray, width, height, layerType);
+		}
+		if (manifest != null) {
+			manifest.put(tileFile, hash);
+		}
+	}
+
+	/**
+	 * Write a tile out to the pyramid in the PNG format.
+	 * 
+	 * @param filePath
+	 * @param bbArray
+	 * @param width
+	 * @param height
+	 * @param layerType
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+	protected void writePngTile(String filePath, byte[] bbArray, int width, int height, LayerType layerType)
+		throws FileNotFoundException, IOException {
 		if (bbArray.length != 0) {
 			BufferedImage bImage = null;
 			switch (layerType) {
@@ -353,4 +525,33 @@ public abstract class PyramidLayerFactory {
 		}
 	}
 
+	/**
+	 * Write a tile out to the pyramid in the RAW or LZ format. Color tiles are
+	 * reordered from ABGR to BGRA here so they can be used as they are read.
+	 * 
+	 * @param filePath
+	 * @param bbArray
+	 * @param width
+	 * @param height
+	 * @param layerType
+	 * @throws IOException
+	 */
+	protected void writeRawTile(String filePath, byte[] bbArray, int width, int height, LayerType layerType)
+		throws IOException {
+		int bytesPerPixel = 4;
+		if (layerType == LayerType.grayimage) {
+			bytesPerPixel = 1;
+		} else if (layerType == LayerType.colorimage) {
+			for (int i = 0; i < bbArray.length; i += 4) {
+				byte b = bbArray[i];
+				bbArray[i] = bbArray[i + 1];
+				bbArray[i + 1] = bbArray[i + 2];
+				bbArray[i + 2] = bbArray[i + 3];
+				bbArray[i + 3] = b;
+			}
+		}
+		File file = new File(filePath + TileCodec.getExtension(tileFormat));
+		TileCodec.write(file, bbArray, width, height, bytesPerPixel, tileFormat == TileFormat.LZ);
+	}
+
 }
@@ -101,10 +101,13 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 
 package gov.nasa.arc.dert.layerfactory;
 
+import gov.nasa.arc.dert.landscape.io.DepthIndex;
 import gov.nasa.arc.dert.landscape.io.QuadTreeTile.DataType;
 import gov.nasa.arc.dert.landscape.layer.LayerInfo.LayerType;
 import gov.nasa.arc.dert.raster.Raster;
 import gov.nasa.arc.dert.raster.RasterFile;
+import gov.nasa.arc.dert.raster.RasterRowListener;
+import gov.nasa.arc.dert.raster.StripRaster;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -115,15 +118,23 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.JTextField;
 
 /**
  * Convert a raster layer file such as a DEM or ortho-image to a
  * multi-resolution tiled pyramid. Pixels for new levels are subsampled through
- * averaging. The raster is padded first to extend its size to a power of 2 on
- * each side.
+ * averaging 2x2 blocks of the level above. The raster is padded first to
+ * extend its size to a power of 2 on each side. In streaming mode the padded
+ * raster is assembled a row at a time as the file is read and the levels are
+ * written from a few rows of tiles each, without temporary files.
  *
  */
 public class RasterPyramidLayerFactory extends PyramidLayerFactory {
@@ -154,6 +165,16 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 	// Location of temporary files
 	protected String tmpPath;
 
+	// Number of threads used to build the pyramid, 0 for one per processor
+	public static int BUILD_THREADS = 0;
+
+	// Build the pyramid while reading the raster file instead of from a
+	// temporary padded raster
+	public static boolean STREAMING = false;
+
+	// Temporary file and memory use
+	protected long tempBytes, peakTempBytes, peakHeapBytes, peakBufferBytes;
+
 	/**
 	 * Constructor
 	 * 
@@ -242,92 +263,90 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 		// Get the number of tiles at highest resolution and maximum level
 		int numTiles = numberOfTiles;
 		int maxLevel = (int) (Math.log(numTiles) / Math.log(2) + 0.5);
+		int nt = 0;
+		int n = 1;
+		for (int i = 0; i <= maxLevel; ++i) {
+			nt += n;
+			n *= 4;
+		}
 
 		// Build the pyramid
 		try {
 
-			// First save the raster file in a quad with a size that is a power
-			// of 2
-			// Pad and center the raster
-			if (messageText != null) {
-				messageText.setText("Writing temporary "+paddedWidth+" x "+paddedLength+" file ");
-				Thread.yield();
-			}
-			else
-				System.out.println("Writing temporary "+paddedWidth+" x "+paddedLength+" file ");
-			Raster raster = createPaddedRaster(path, samplesPerPixel, missing);
-			rasterFile.close();
-			System.gc();
-
 			// Create a sub-directory for the layer
 			File dirFile = new File(path, layerName);
 			dirFile.mkdirs();
 			String dirPath = dirFile.getAbsolutePath();
-
-			// Write tiles for each level starting at highest resolution
-			int columnStep = tileWidth;
-			int rowStep = tileLength;
-			for (int level = maxLevel; level >= 0; level--) {
-				if (!doIt) {
-					break;
-				}
-				int kernelSize = (int) Math.pow(2, (maxLevel - level));
-				int rcnt = 0;
-				if (messageText == null)
-					System.out.println("Writing "+numTiles+" rows for level "+(level+1)+" of "+(maxLevel+1));
-				for (int r = 0; r < numTiles; ++r) {
-					if (messageText == null) {
-						if (rcnt%10 == 0)
-							System.out.print(rcnt);
-						else 
-							System.out.print(".");
-						rcnt ++;
-					}
-					for (int c = 0; c < numTiles; ++c) {
-						if (!doIt) {
-							break;
-						}
-						if (messageText != null) {
-							messageText.setText("Writing " + layerName + " level " + (level + 1) + " of "
-								+ (maxLevel + 1) + ", tile row " + (r + 1) + " of " + numTiles + " . . .");
-							Thread.yield();
-						}
-						String filePath = getTileFilePath(c, r, numTiles, level, dirPath);
-						writeTile(raster, c * columnStep, r * rowStep, kernelSize, filePath, layerType);
-					}
+			boolean packed = removeArchive(dirPath);
+
+			// Resume or update an earlier build of the layer
+			String source = BuildManifest.fingerprint(new File(rasterFile.getFilePath())) + ",Missing=" + missing
+				+ ",Margin=" + Arrays.toString(margin) + ",Globe=" + globe;
+			openManifest(dirPath, source, maxLevel + 1, tileWidth, tileLength, numberOfTiles);
+
+			// The projection and sample range come from reading the source, so the layer
+			// properties and depth index of the last build must be kept if it is not read.
+			File propertiesFile = new File(dirPath, "layer.properties");
+			File depthIndexFile = new File(new File(path, "dert"), DepthIndex.FILE_NAME);
+			boolean upToDate = (manifest != null) && propertiesFile.exists()
+				&& ((layerType != LayerType.elevation) || depthIndexFile.exists()) && manifest.isComplete(nt);
+
+			if (upToDate) {
+				// Same inputs as the last build and every tile is in place
+				System.out.println("Tiles for " + layerName + " are up to date.");
+				rasterFile.close();
+			} else if (STREAMING) {
+				// Write tiles for all levels while reading the raster file
+				streamLevels(missing, maxLevel, dirPath, layerName, messageText);
+				rasterFile.close();
+			} else {
+				// First save the raster file in a quad with a size that is a power
+				// of 2
+				// Pad and center the raster
+				if (messageText != null) {
+					messageText.setText("Writing temporary "+paddedWidth+" x "+paddedLength+" file ");
+					Thread.yield();
 				}
-				if (messageText == null)
-					System.out.println();
-				numTiles /= 2;
-				columnStep *= 2;
-				rowStep *= 2;
+				else
+					System.out.println("Writing temporary "+paddedWidth+" x "+paddedLength+" file ");
+				Raster raster = createPaddedRaster(path, samplesPerPixel, missing);
+				rasterFile.close();
+				System.gc();
+	
+				// Write tiles for each level starting at highest resolution
+				writeLevels(raster, maxLevel, dirPath, layerName, messageText);
+				raster = null;
+				System.gc();
 			}
-			raster = null;
-			System.gc();
+			closeManifest(doIt);
 
 			System.out.println();
-			System.out.println("Writing projection info for " + layerName);
-			projInfo.rasterWidth = tileWidth * numberOfTiles;
-			projInfo.rasterLength = tileLength * numberOfTiles;
-			projInfo.tiePoint[0] -= (leftMargin - leftInset) * projInfo.scale[0];
-			projInfo.tiePoint[1] += (topMargin - topInset) * projInfo.scale[1];
-			if (globe != null) {
-				projInfo.globe = globe;
-			}
-			System.out.println(projInfo);
+			if (upToDate) {
+				System.out.println("Kept projection info for " + layerName + " from the last build.");
+			} else {
+				System.out.println("Writing projection info for " + layerName);
+				projInfo.rasterWidth = tileWidth * numberOfTiles;
+				projInfo.rasterLength = tileLength * numberOfTiles;
+				projInfo.tiePoint[0] -= (leftMargin - leftInset) * projInfo.scale[0];
+				projInfo.tiePoint[1] += (topMargin - topInset) * projInfo.scale[1];
+				if (globe != null) {
+					projInfo.globe = globe;
+				}
+				System.out.println(projInfo);
 
-			if (doIt) {
-				writeProperties(new File(dirPath, "layer.properties").getAbsolutePath(), maxLevel + 1, tileWidth,
-					tileLength, numberOfTiles);
+				if (doIt) {
+					writeProperties(propertiesFile.getAbsolutePath(), maxLevel + 1, tileWidth, tileLength,
+						numberOfTiles);
+					if (layerType == LayerType.elevation) {
+						writeDepthIndex(path, maxLevel + 1);
+					}
+				}
+			}
+			if (packed && doIt) {
+				writeArchive(dirPath);
 			}
 			System.out.println("Number of levels for " + layerName + " = " + (maxLevel + 1) + " with " + numberOfTiles
 				+ " tiles per side at the highest resolution level.");
-			int nt = 0;
-			int n = 1;
-			for (int i = 0; i <= maxLevel; ++i) {
-				nt += n;
-				n *= 4;
-			}
 
 			// add landscape identifier
 			Properties landscapeProperties = new Properties();
@@ -343,8 +362,35 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 				+ ((double)nt*tileWidth*tileLength*bytesPerPixel / 1073741824.0) + " GB.");
 			System.out.println("Total time for building " + layerName + " = "
 				+ (float) ((System.currentTimeMillis() - t) / 60000.0) + " minutes.");
+			System.out.println("Peak temporary file use for " + layerName + " = " + toMB(peakTempBytes)
+				+ " MB, peak heap use = " + toMB(peakHeapBytes) + " MB"
+				+ (STREAMING ? " (" + toMB(peakBufferBytes) + " MB in row buffers)." : "."));
 		} catch (Exception e) {
 			e.printStackTrace();
+		} finally {
+			// keep the tiles written so far for the next build
+			closeManifest(false);
+		}
+	}
+
+	/**
+	 * Write the depth index for the landscape. Every level of the pyramid is
+	 * complete so the index does not need to look at the tiles.
+	 * 
+	 * @param path
+	 *            the landscape directory
+	 * @param numLevels
+	 */
+	protected void writeDepthIndex(String path, int numLevels) {
+		File file = new File(new File(path, "dert"), DepthIndex.FILE_NAME);
+		try {
+			file.getParentFile().mkdirs();
+			DepthIndex.createComplete(numLevels).store(file);
+			System.out.println("Wrote depth index " + file);
+		} catch (Exception e) {
+			System.out.println("Unable to write depth index " + file + ", see log.");
+			e.printStackTrace();
+			file.delete();
 		}
 	}
 
@@ -416,13 +462,7 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 		}
 
 		projInfo = rasterFile.getProjectionInfo();
-		float missingValue = Float.NaN;
-		if (missing == null) {
-			missingValue = rasterFile.getMissingValue();
-		} else {
-			missingValue = new Float(missing);
-			rasterFile.setMissingValue(missingValue);
-		}
+		float missingValue = getMissingValue(missing);
 
 		// Get the entire raster file contents
 		dataType = rasterFile.getDataType();
@@ -433,6 +473,7 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 		maximumSampleValue = rasterFile.getMaximumSampleValue();
 
 		Raster padded = new Raster(paddedWidth, paddedLength, bytesPerPixel, dataType, tmpPath);
+		addTempBytes(padded);
 		byte[] bbArray = new byte[rasterWidth * bytesPerPixel];
 
 		// add in the raster data
@@ -471,10 +512,28 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 			edgeFillValue = (float)minimumSampleValue[0];
 		}
 
+		removeTempBytes(raster);
 		raster.dispose();
 		return (padded);
 	}
 
+	/**
+	 * Get the missing value, the one from the commandline/UI replaces the one
+	 * in the raster file.
+	 * 
+	 * @param missing
+	 *            the missing value argument, may be null
+	 * @return the missing value
+	 */
+	protected float getMissingValue(String missing) {
+		if (missing == null) {
+			return (rasterFile.getMissingValue());
+		}
+		float missingValue = new Float(missing);
+		rasterFile.setMissingValue(missingValue);
+		return (missingValue);
+	}
+
 	/**
 	 * Load a raster file converting to the data type appropriate for the layer.
 	 * 
@@ -485,6 +544,23 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 	 */
 	protected Raster loadRasterFile(String path) throws IOException {
 		Raster raster = new Raster(rasterWidth, rasterLength, bytesPerPixel, dataType, path);
+		addTempBytes(raster);
+		if (loadRaster(raster)) {
+			return (raster);
+		}
+		raster.flush();
+		return (null);
+	}
+
+	/**
+	 * Load the raster file into a raster converting to the data type
+	 * appropriate for the layer.
+	 * 
+	 * @param raster
+	 * @return false if the layer type has no raster
+	 * @throws IOException
+	 */
+	protected boolean loadRaster(Raster raster) throws IOException {
 		switch (layerType) {
 		case none:
 		case footprint:
@@ -494,60 +570,248 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 		case elevation:
 			rasterFile.loadHeightMap(raster);
 			this.dataType = DataType.Float;
-			return (raster);
+			return (true);
 		case colorimage:
 			rasterFile.loadRGBA(raster);
 			this.dataType = DataType.Integer;
-			return (raster);
+			return (true);
 		case field:
 			rasterFile.load(raster);
 			this.dataType = DataType.Float;
-			return (raster);
+			return (true);
 		case grayimage:
 			rasterFile.loadGray(raster);
 			this.dataType = DataType.UnsignedByte;
-			return (raster);
+			return (true);
+		}
+		return (false);
+	}
+
+	/**
+	 * Write the tiles for each level starting at the highest resolution. Each
+	 * level is reduced 2x2 to a temporary raster for the next level, so the
+	 * full resolution raster is only read once for tiles and once for the
+	 * reduction. Rows of tiles are written by a pool of threads.
+	 * 
+	 * @param padded
+	 *            the padded raster, disposed when no longer needed
+	 * @param maxLevel
+	 * @param dirPath
+	 *            the layer directory
+	 * @param layerName
+	 * @param messageText
+	 *            UI text field for messages (null if headless)
+	 * @throws Exception
+	 */
+	protected void writeLevels(Raster padded, int maxLevel, String dirPath, String layerName, JTextField messageText)
+		throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(getBuildThreadCount());
+		Raster raster = padded;
+		try {
+			int left = leftInset;
+			int top = topInset;
+			int numTiles = numberOfTiles;
+			for (int level = maxLevel; level >= 0; level--) {
+				if (!doIt) {
+					break;
+				}
+				long t = System.currentTimeMillis();
+				writeLevel(executor, raster, left, top, numTiles, level, maxLevel, dirPath, layerName, messageText);
+				if ((level > 0) && doIt) {
+					Raster reduced = reduceLevel(executor, raster, left, top, numTiles);
+					removeTempBytes(raster);
+					raster.dispose();
+					raster = reduced;
+					left = 0;
+					top = 0;
+				}
+				if (messageText == null)
+					System.out.println("Level " + (level + 1) + " took " + (System.currentTimeMillis() - t) + " ms.");
+				numTiles /= 2;
+			}
+		} finally {
+			executor.shutdownNow();
+			removeTempBytes(raster);
+			raster.dispose();
 		}
-		raster.flush();
-		return (null);
 	}
 
 	/**
-	 * Write out a tile.
+	 * Write all of the tiles for a level.
+	 */
+	protected void writeLevel(ExecutorService executor, final Raster raster, final int left, final int top,
+		final int numTiles, final int level, int maxLevel, final String dirPath, String layerName,
+		JTextField messageText) throws Exception {
+		ArrayList<Future<Object>> rowList = new ArrayList<Future<Object>>(numTiles);
+		for (int r = 0; r < numTiles; ++r) {
+			final int row = r;
+			rowList.add(executor.submit(new Callable<Object>() {
+				@Override
+				public Object call() throws IOException {
+					writeTileRow(raster, left, top, row, numTiles, level, dirPath);
+					return (null);
+				}
+			}));
+		}
+		if (messageText == null)
+			System.out.println("Writing "+numTiles+" rows for level "+(level+1)+" of "+(maxLevel+1));
+		for (int r = 0; r < numTiles; ++r) {
+			// wait for the rows in order, rethrowing any failure
+			rowList.get(r).get();
+			updatePeakMemory();
+			if (messageText != null) {
+				messageText.setText("Writing " + layerName + " level " + (level + 1) + " of "
+					+ (maxLevel + 1) + ", tile row " + (r + 1) + " of " + numTiles + " . . .");
+				Thread.yield();
+			} else {
+				if (r%10 == 0)
+					System.out.print(r);
+				else 
+					System.out.print(".");
+			}
+		}
+		if (messageText == null)
+			System.out.println();
+	}
+
+	/**
+	 * Write a row of tiles from a level raster.
 	 * 
 	 * @param raster
-	 *            the raster array from which the tile comes
-	 * @param column
-	 *            the column start in the array
+	 *            the level raster
+	 * @param left
+	 *            the column of the first tile in the raster
+	 * @param top
+	 *            the row of the first tile in the raster
 	 * @param row
-	 *            the row start in the array
-	 * @param size
-	 *            the tile size (width and height)
-	 * @param filePath
-	 *            the path for the file
-	 * @param layerType
-	 *            the type of layer
+	 *            the tile row
+	 * @param numTiles
+	 *            the number of tiles on a side for this level
+	 * @param level
+	 * @param dirPath
+	 *            the layer directory
 	 * @throws IOException
 	 */
-	protected void writeTile(Raster raster, int column, int row, int kernelSize, String filePath, LayerType layerType)
+	protected void writeTileRow(Raster raster, int left, int top, int row, int numTiles, int level, String dirPath)
 		throws IOException {
-
 		int tWidth = tileWidth + 1;
 		int tLength = tileLength + 1;
-		int tSize = tLength * tWidth * bytesPerPixel;
-		int tileTop = 0;
-		int tileLeft = 0;
+		int rowBytes = tWidth * bytesPerPixel;
+		int rasterTop = top + row * tileLength;
+		for (int c = 0; c < numTiles; ++c) {
+			if (!doIt) {
+				return;
+			}
+			String filePath = getTileFilePath(c, row, numTiles, level, dirPath);
+			if (isTileCurrent(filePath)) {
+				continue;
+			}
+			// allocate buffer for writing the file
+			byte[] bbArray = new byte[rowBytes * tLength];
+			int rasterLeft = left + c * tileWidth;
+			for (int i = 0; i < tLength; ++i) {
+				raster.read(rasterTop + i, rasterLeft, tWidth, bbArray, i * rowBytes);
+			}
+			toTileOrder(bbArray);
+			writeTile(filePath, bbArray, tWidth, tLength, layerType);
+		}
+	}
 
-		int rasterLeft = leftInset + column;
-		int rasterTop = topInset + row;
-		int rasterTWidth = tWidth * kernelSize;
-		int rasterTLength = tLength * kernelSize;
+	/**
+	 * Color tiles hold RGBA as native order integers, reorder the raster
+	 * bytes if needed.
+	 * 
+	 * @param bbArray
+	 */
+	protected final void toTileOrder(byte[] bbArray) {
+		if ((layerType == LayerType.colorimage) && (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN)) {
+			for (int i = 0; i < bbArray.length; i += 4) {
+				byte b = bbArray[i];
+				bbArray[i] = bbArray[i + 3];
+				bbArray[i + 3] = b;
+				b = bbArray[i + 1];
+				bbArray[i + 1] = bbArray[i + 2];
+				bbArray[i + 2] = b;
+			}
+		}
+	}
 
-		// allocate buffer for writing the file
-		byte[] bbArray = new byte[tSize];
-		ByteBuffer bbuf = ByteBuffer.wrap(bbArray);
+	/**
+	 * Create the raster for the next lower resolution level by averaging each
+	 * 2x2 block of pixels. The level raster is numTiles * (tileWidth + 1)
+	 * pixels wide so that the extra edge pixel of each tile is available at
+	 * every level.
+	 * 
+	 * @param executor
+	 * @param raster
+	 *            the current level raster
+	 * @param left
+	 *            the column of the first tile in the raster
+	 * @param top
+	 *            the row of the first tile in the raster
+	 * @param numTiles
+	 *            the number of tiles on a side for the current level
+	 * @return the reduced raster
+	 * @throws Exception
+	 */
+	protected Raster reduceLevel(ExecutorService executor, final Raster raster, final int left, final int top,
+		int numTiles) throws Exception {
+		final int width = numTiles * (tileWidth + 1) / 2;
+		int length = numTiles * (tileLength + 1) / 2;
+		final Raster reduced = new Raster(width, length, bytesPerPixel, dataType, tmpPath);
+		addTempBytes(reduced);
+		int band = Math.max(1, length / (4 * getBuildThreadCount()));
+		ArrayList<Future<Object>> bandList = new ArrayList<Future<Object>>();
+		for (int r = 0; r < length; r += band) {
+			final int start = r;
+			final int end = Math.min(length, r + band);
+			bandList.add(executor.submit(new Callable<Object>() {
+				@Override
+				public Object call() {
+					reduceRows(raster, left, top, reduced, width, start, end);
+					return (null);
+				}
+			}));
+		}
+		for (int i = 0; i < bandList.size(); ++i) {
+			bandList.get(i).get();
+		}
+		return (reduced);
+	}
 
-		// fill the tile
+	/**
+	 * Average 2x2 blocks of pixels into a range of rows of the reduced raster.
+	 * The averages match those Raster computes for a kernel.
+	 */
+	protected void reduceRows(Raster raster, int left, int top, Raster reduced, int width, int start, int end) {
+		byte[] row0 = new byte[2 * width * bytesPerPixel];
+		byte[] row1 = new byte[2 * width * bytesPerPixel];
+		byte[] out = new byte[width * bytesPerPixel];
+		for (int r = start; r < end; ++r) {
+			if (!doIt) {
+				return;
+			}
+			raster.read(top + 2 * r, left, 2 * width, row0, 0);
+			raster.read(top + 2 * r + 1, left, 2 * width, row1, 0);
+			reducePixels(row0, row1, 0, out, width);
+			reduced.write(r, width, out);
+		}
+	}
+
+	/**
+	 * Average 2x2 blocks of pixels from two rows.
+	 * 
+	 * @param row0
+	 * @param row1
+	 * @param start
+	 *            the first pixel of the rows to use
+	 * @param out
+	 *            the averages
+	 * @param width
+	 *            the number of averages
+	 */
+	protected final void reducePixels(byte[] row0, byte[] row1, int start, byte[] out, int width) {
+		int offset = start * bytesPerPixel;
 		switch (layerType) {
 		case none:
 		case footprint:
@@ -556,25 +820,374 @@ public class RasterPyramidLayerFactory extends PyramidLayerFactory {
 			break;
 		case elevation:
 		case field:
-		case grayimage:
-			raster.get(rasterTop, rasterLeft, rasterTWidth, rasterTLength, bbuf, tileTop, tileLeft, tWidth, kernelSize);
+			ByteBuffer bBuf0 = ByteBuffer.wrap(row0);
+			ByteBuffer bBuf1 = ByteBuffer.wrap(row1);
+			ByteBuffer outBuf = ByteBuffer.wrap(out);
+			// any NaN makes the average NaN
+			for (int c = 0; c < width; ++c) {
+				int i = offset + c * 8;
+				double sum = (double) bBuf0.getFloat(i) + bBuf0.getFloat(i + 4) + bBuf1.getFloat(i)
+					+ bBuf1.getFloat(i + 4);
+				outBuf.putFloat(c * 4, (float) (sum / 4));
+			}
 			break;
+		// image averages are rounded to nearest, halves up
 		case colorimage:
-			bbuf.order(ByteOrder.nativeOrder());
-			bbuf.rewind();
-			raster.getRGBA(rasterTop, rasterLeft, rasterTWidth, rasterTLength, bbuf, tileTop, tileLeft, tWidth,
-				kernelSize);
+			for (int c = 0; c < width * 4; ++c) {
+				int i = offset + (c / 4) * 8 + (c % 4);
+				int sum = (row0[i] & 0xff) + (row0[i + 4] & 0xff) + (row1[i] & 0xff) + (row1[i + 4] & 0xff);
+				out[c] = (byte) ((sum + 2) / 4);
+			}
+			break;
+		case grayimage:
+			for (int c = 0; c < width; ++c) {
+				int i = offset + c * 2;
+				int sum = (row0[i] & 0xff) + (row0[i + 1] & 0xff) + (row1[i] & 0xff) + (row1[i + 1] & 0xff);
+				out[c] = (byte) ((sum + 2) / 4);
+			}
 			break;
 		}
+	}
+
+	/**
+	 * Get the number of threads used to build the pyramid.
+	 * 
+	 * @return
+	 */
+	public static int getBuildThreadCount() {
+		if (BUILD_THREADS > 0) {
+			return (BUILD_THREADS);
+		}
+		return (Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Write the tiles for all levels while the raster file is loaded. Rows of
+	 * the padded raster are assembled as the file is read and passed to the
+	 * highest resolution level. Each level writes a row of tiles as soon as
+	 * it has the rows for it and passes 2x2 averages on to the next level, so
+	 * only a couple of tile rows are held per level.
+	 * 
+	 * @param missing
+	 *            the missing value argument from the commandline/UI
+	 * @param maxLevel
+	 * @param dirPath
+	 *            the layer directory
+	 * @param layerName
+	 * @param messageText
+	 *            UI text field for messages (null if headless)
+	 * @throws Exception
+	 */
+	protected void streamLevels(String missing, int maxLevel, String dirPath, String layerName,
+		JTextField messageText) throws Exception {
+		projInfo = rasterFile.getProjectionInfo();
+		final float missingValue = getMissingValue(missing);
+		dataType = rasterFile.getDataType();
+		final boolean isFloat = (layerType == LayerType.elevation) || (layerType == LayerType.field);
+
+		// padding value
+		final byte[] fill = new byte[paddedWidth * bytesPerPixel];
+		if (isFloat) {
+			ByteBuffer bBuf = ByteBuffer.wrap(fill);
+			while (bBuf.hasRemaining()) {
+				bBuf.putFloat(Float.NaN);
+			}
+		}
+		final byte[] paddedRow = new byte[fill.length];
+
+		if (messageText == null)
+			System.out.println("Writing " + numberOfTiles + " rows for level " + (maxLevel + 1) + " of "
+				+ (maxLevel + 1) + " while reading " + rasterFile.getFileName());
+		ExecutorService executor = Executors.newFixedThreadPool(getBuildThreadCount());
+		try {
+			final LevelStream levelStream = new LevelStream(executor, maxLevel, maxLevel, numberOfTiles, topInset,
+				leftInset, paddedWidth, dirPath, layerName, messageText);
+			for (int y = 0; y < topMargin; ++y) {
+				levelStream.addRow(y, fill);
+			}
+			StripRaster raster = new StripRaster(rasterWidth, rasterLength, bytesPerPixel, dataType,
+				new RasterRowListener() {
+					private double[] min, max;
+
+					@Override
+					public void rowLoaded(int row, byte[] bArray) {
+						int y = topMargin + row;
+						if (!doIt || (y < 0) || (y >= paddedLength)) {
+							return;
+						}
+						if (isFloat) {
+							// the extrema are known once loading starts
+							if (min == null) {
+								min = rasterFile.getMinimumSampleValue();
+								max = rasterFile.getMaximumSampleValue();
+							}
+							setMissingValuesToNaN(bArray, missingValue, min, max);
+						}
+						System.arraycopy(fill, 0, paddedRow, 0, fill.length);
+						int c0 = Math.max(0, -leftMargin);
+						int c1 = Math.min(rasterWidth, paddedWidth - leftMargin);
+						if (c1 > c0) {
+							System.arraycopy(bArray, c0 * bytesPerPixel, paddedRow, (leftMargin + c0) * bytesPerPixel,
+								(c1 - c0) * bytesPerPixel);
+						}
+						levelStream.addRow(y, paddedRow);
+					}
+				});
+			loadRaster(raster);
+			raster.finish();
+			minimumSampleValue = rasterFile.getMinimumSampleValue();
+			maximumSampleValue = rasterFile.getMaximumSampleValue();
+			for (int y = Math.max(0, topMargin + rasterLength); y < paddedLength; ++y) {
+				levelStream.addRow(y, fill);
+			}
+			levelStream.finish();
+			peakBufferBytes = raster.getPeakBytes() + levelStream.getBufferBytes() + 2 * fill.length;
+			raster.dispose();
+			if (messageText == null)
+				System.out.println();
+		} finally {
+			executor.shutdownNow();
+		}
+
+		if (layerType == LayerType.elevation) {
+			// see createPaddedRaster
+			edgeFillValue = (float) minimumSampleValue[0];
+		}
+	}
+
+	/**
+	 * Set missing and out of range values in a row of floats to NaN.
+	 */
+	protected final void setMissingValuesToNaN(byte[] bArray, float missing, double[] minimum, double[] maximum) {
+		ByteBuffer bBuf = ByteBuffer.wrap(bArray);
+		for (int i = 0; i < bArray.length; i += 4) {
+			float val = bBuf.getFloat(i);
+			if (!Float.isNaN(missing) && (val == missing)) {
+				bBuf.putFloat(i, Float.NaN);
+			} else if ((minimum != null) && (val < minimum[0])) {
+				bBuf.putFloat(i, Float.NaN);
+			} else if ((maximum != null) && (val > maximum[0])) {
+				bBuf.putFloat(i, Float.NaN);
+			}
+		}
+	}
+
+	/**
+	 * Writes the tiles for a level from its rows as they arrive and passes
+	 * 2x2 averages of the rows to the next level. Rows must be added in
+	 * order.
+	 */
+	protected class LevelStream {
+
+		// Tile writers
+		protected ExecutorService executor;
+
+		// Level and number of tiles on a side
+		protected int level, maxLevel, numTiles;
+
+		// Position of the first tile in the rows and row width in pixels
+		protected int top, left, width;
+
+		// Rows for the tile row being filled and the one being written
+		protected byte[] band, writeBand;
+		protected ArrayList<Future<Object>> writing;
+
+		// Rows to average for the next level
+		protected byte[] pairRow, reducedRow;
+		protected int reducedLength;
+		protected LevelStream next;
+
+		// Layer location and progress messages
+		protected String dirPath, layerName;
+		protected JTextField messageText;
+
+		public LevelStream(ExecutorService executor, int level, int maxLevel, int numTiles, int top, int left,
+			int width, String dirPath, String layerName, JTextField messageText) {
+			this.executor = executor;
+			this.level = level;
+			this.maxLevel = maxLevel;
+			this.numTiles = numTiles;
+			this.top = top;
+			this.left = left;
+			this.width = width;
+			this.dirPath = dirPath;
+			this.layerName = layerName;
+			this.messageText = messageText;
+			band = new byte[(tileLength + 1) * width * bytesPerPixel];
+			writeBand = new byte[band.length];
+			writing = new ArrayList<Future<Object>>(numTiles);
+			if (level > 0) {
+				int reducedWidth = numTiles * (tileWidth + 1) / 2;
+				reducedLength = numTiles * (tileLength + 1) / 2;
+				pairRow = new byte[width * bytesPerPixel];
+				reducedRow = new byte[reducedWidth * bytesPerPixel];
+				next = new LevelStream(executor, level - 1, maxLevel, numTiles / 2, 0, 0, reducedWidth, dirPath,
+					layerName, messageText);
+			}
+		}
+
+		/**
+		 * Add the next row of the level.
+		 * 
+		 * @param y
+		 *            the row
+		 * @param bArray
+		 *            the row pixels, not kept
+		 */
+		public void addRow(int y, byte[] bArray) {
+			int rel = y - top;
+			if (rel < 0) {
+				return;
+			}
+			int rowBytes = width * bytesPerPixel;
+			if (rel <= numTiles * tileLength) {
+				int b = rel / tileLength;
+				int i = rel % tileLength;
+				// the last row of a tile row is the first of the next one
+				if ((i == 0) && (b > 0)) {
+					System.arraycopy(bArray, 0, band, tileLength * rowBytes, rowBytes);
+					writeBand(b - 1);
+				}
+				if (b < numTiles) {
+					System.arraycopy(bArray, 0, band, i * rowBytes, rowBytes);
+				}
+			}
+			if ((next != null) && (rel < 2 * reducedLength)) {
+				if ((rel % 2) == 0) {
+					System.arraycopy(bArray, 0, pairRow, 0, rowBytes);
+				} else {
+					reducePixels(pairRow, bArray, left, reducedRow, reducedRow.length / bytesPerPixel);
+					next.addRow(rel / 2, reducedRow);
+				}
+			}
+		}
+
+		/**
+		 * Wait for all of the tiles of this level and those below.
+		 */
+		public void finish() {
+			waitForTiles();
+			if (next != null) {
+				next.finish();
+			}
+		}
+
+		/**
+		 * Get the memory used for rows by this level and those below.
+		 * 
+		 * @return bytes
+		 */
+		public long getBufferBytes() {
+			long n = band.length + writeBand.length;
+			if (next != null) {
+				n += pairRow.length + reducedRow.length + next.getBufferBytes();
+			}
+			return (n);
+		}
+
+		protected void writeBand(final int row) {
+			// the other band is filled next so its tiles must be done
+			waitForTiles();
+			final byte[] rows = band;
+			band = writeBand;
+			writeBand = rows;
+			for (int c = 0; c < numTiles; ++c) {
+				final int column = c;
+				writing.add(executor.submit(new Callable<Object>() {
+					@Override
+					public Object call() throws IOException {
+						writeBandTile(rows, width, left, column, row, numTiles, level, dirPath);
+						return (null);
+					}
+				}));
+			}
+			updatePeakMemory();
+			if (level == maxLevel) {
+				if (messageText != null) {
+					messageText.setText("Writing " + layerName + " tile row " + (row + 1) + " of " + numTiles
+						+ " . . .");
+					Thread.yield();
+				} else {
+					if (row % 10 == 0)
+						System.out.print(row);
+					else
+						System.out.print(".");
+				}
+			}
+		}
 
-		// zero the file if it is only missing values
-		if (isEmpty(bbuf)) {
-			bbuf.limit(0);
+		protected void waitForTiles() {
+			try {
+				for (int i = 0; i < writing.size(); ++i) {
+					writing.get(i).get();
+				}
+			} catch (Exception e) {
+				throw new IllegalStateException("Unable to write tiles for level " + (level + 1) + ".", e);
+			}
+			writing.clear();
 		}
+	}
 
+	/**
+	 * Write a tile from a row of tiles.
+	 * 
+	 * @param rows
+	 *            the rows of the tile row
+	 * @param width
+	 *            the row width in pixels
+	 * @param left
+	 *            the column of the first tile in the rows
+	 * @param column
+	 *            the tile column
+	 * @param row
+	 *            the tile row
+	 * @param numTiles
+	 *            the number of tiles on a side for this level
+	 * @param level
+	 * @param dirPath
+	 *            the layer directory
+	 * @throws IOException
+	 */
+	protected void writeBandTile(byte[] rows, int width, int left, int column, int row, int numTiles, int level,
+		String dirPath) throws IOException {
+		if (!doIt) {
+			return;
+		}
+		String filePath = getTileFilePath(column, row, numTiles, level, dirPath);
+		if (isTileCurrent(filePath)) {
+			return;
+		}
+		int tWidth = tileWidth + 1;
+		int tLength = tileLength + 1;
+		int rowBytes = tWidth * bytesPerPixel;
+		int start = (left + column * tileWidth) * bytesPerPixel;
+		byte[] bbArray = new byte[rowBytes * tLength];
+		for (int i = 0; i < tLength; ++i) {
+			System.arraycopy(rows, i * width * bytesPerPixel + start, bbArray, i * rowBytes, rowBytes);
+		}
+		toTileOrder(bbArray);
 		writeTile(filePath, bbArray, tWidth, tLength, layerType);
 	}
 
+	protected void addTempBytes(Raster raster) {
+		tempBytes += (long) raster.getWidth() * raster.getLength() * raster.getBytesPerSample();
+		peakTempBytes = Math.max(peakTempBytes, tempBytes);
+		updatePeakMemory();
+	}
+
+	protected void removeTempBytes(Raster raster) {
+		tempBytes -= (long) raster.getWidth() * raster.getLength() * raster.getBytesPerSample();
+	}
+
+	protected void updatePeakMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		peakHeapBytes = Math.max(peakHeapBytes, runtime.totalMemory() - runtime.freeMemory());
+	}
+
+	private static long toMB(long bytes) {
+		return ((bytes + 1048575) / 1048576);
+	}
+
 	/**
 	 * Read the padded raster file.
 	 * 
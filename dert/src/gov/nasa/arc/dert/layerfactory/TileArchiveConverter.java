@@ -0,0 +1,218 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.layerfactory;
+
+import gov.nasa.arc.dert.landscape.io.QuadTreeTile.TileFormat;
+import gov.nasa.arc.dert.landscape.io.TileArchive;
+import gov.nasa.arc.dert.landscape.io.TileCodec;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Properties;
+
+/**
+ * Packs the tile directories of a landscape into one TileArchive per layer.
+ * The tile directories are left in place unless -delete is given.
+ *
+ */
+public class TileArchiveConverter {
+
+	/**
+	 * Main
+	 * 
+	 * @param args
+	 *            command line arguments
+	 */
+	public static void main(String[] args) {
+		String landscapePath = null;
+		String layerName = null;
+		boolean delete = false;
+		for (int i = 0; i < args.length; ++i) {
+			if (args[i].startsWith("-landscape=")) {
+				landscapePath = args[i].substring(11);
+			} else if (args[i].startsWith("-layer=")) {
+				layerName = args[i].substring(7);
+			} else if (args[i].equals("-delete")) {
+				delete = true;
+			}
+		}
+		if ((landscapePath == null) || landscapePath.isEmpty()) {
+			System.out.println("tilearchiveconverter -landscape=landscapePath [-layer=layerName] [-delete]");
+			System.exit(0);
+		}
+		TileArchiveConverter converter = new TileArchiveConverter();
+		if (!converter.convert(new File(landscapePath), layerName, delete)) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Pack the layers of a landscape.
+	 * 
+	 * @param landscapeDir
+	 * @param layerName
+	 *            the layer to pack, null for all layers
+	 * @param delete
+	 *            remove the tile directories after packing
+	 * @return true if all layers were packed
+	 */
+	public boolean convert(File landscapeDir, String layerName, boolean delete) {
+		File[] file = landscapeDir.listFiles();
+		if (file == null) {
+			System.out.println("Landscape " + landscapeDir + " is not a directory.");
+			return (false);
+		}
+		boolean success = true;
+		for (int i = 0; i < file.length; ++i) {
+			if ((layerName != null) && !file[i].getName().equals(layerName)) {
+				continue;
+			}
+			File propFile = new File(file[i], "layer.properties");
+			if (!propFile.exists()) {
+				continue;
+			}
+			try {
+				Properties properties = new Properties();
+				FileInputStream iStream = new FileInputStream(propFile);
+				properties.load(iStream);
+				iStream.close();
+				TileFormat tileFormat = TileCodec.getTileFormat(properties);
+				String tileName = "0" + TileCodec.getExtension(tileFormat);
+				if (!new File(file[i], tileName).exists()) {
+					// the tile directories were removed by an earlier -delete
+					if (new File(file[i], TileArchive.FILE_NAME).exists()) {
+						System.out.println("Layer " + file[i].getName() + " is already packed.");
+					} else {
+						System.out.println("Layer " + file[i].getName() + " has no tiles to pack.");
+						success = false;
+					}
+					continue;
+				}
+				long t = System.currentTimeMillis();
+				int n = TileArchive.write(file[i], tileFormat, new File(file[i], TileArchive.FILE_NAME));
+				System.out.println("Packed " + n + " tiles of layer " + file[i].getName() + " in "
+					+ (System.currentTimeMillis() - t) + " ms.");
+				if (delete) {
+					deleteTiles(file[i], tileName);
+				}
+			} catch (Exception e) {
+				System.out.println("Unable to pack layer " + file[i].getName() + ", see log.");
+				e.printStackTrace();
+				success = false;
+			}
+		}
+		return (success);
+	}
+
+	// Remove the tile files and quadrant directories below a directory
+	private void deleteTiles(File dir, String tileName) {
+		new File(dir, tileName).delete();
+		for (int i = 1; i <= 4; ++i) {
+			File child = new File(dir, Integer.toString(i));
+			if (child.isDirectory()) {
+				deleteTiles(child, tileName);
+				child.delete();
+			}
+		}
+	}
+
+}
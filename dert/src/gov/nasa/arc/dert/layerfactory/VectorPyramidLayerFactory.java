@@ -229,6 +229,7 @@ public class VectorPyramidLayerFactory extends PyramidLayerFactory {
 
 		// Create a sub-directory for the layer
 		String dirPath = new File(landPath, layerName).getAbsolutePath();
+		boolean packed = removeArchive(dirPath);
 
 		// Write tiles for each level starting at highest resolution
 		int numTiles = numberOfTiles;
@@ -279,6 +280,9 @@ public class VectorPyramidLayerFactory extends PyramidLayerFactory {
 		if (doIt) {
 			writeProperties(new File(dirPath, "layer.properties").getAbsolutePath(), maxLevel + 1, tileWidth,
 				tileLength, numberOfTiles);
+			if (packed) {
+				writeArchive(dirPath);
+			}
 		}
 		System.out.println("Number of levels for " + layerName + " = " + (maxLevel + 1) + " with " + numberOfTiles
 			+ " tiles per side at the highest resolution level.");
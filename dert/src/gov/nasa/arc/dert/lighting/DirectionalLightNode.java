@@ -368,8 +368,7 @@ public class DirectionalLightNode extends Node {
 	 * @param refLocLon
 	 */
 	public void setTime(long time, String planet, String source, ReadOnlyVector3 refLoc) {
-		String timeStr = Ephemeris.getInstance().time2UtcStr(time);
-		double[] val = Ephemeris.getTargetVector(planet, source, timeStr, refLoc.getX(), refLoc.getY(), refLoc.getZ());
+		double[] val = Ephemeris.getTargetVector(planet, source, time, refLoc.getX(), refLoc.getY(), refLoc.getZ());
 		if (val != null) {
 			dirVector.set((float) val[0], (float) val[1], (float) val[2]);
 			azimuth = (float) val[4];
@@ -291,6 +291,7 @@ public class Lighting {
 			World.getInstance().setTime(World.getInstance().getTime());
 		} else {
 			light.setPositionFromAzEl();
+			lightMoved();
 		}
 	}
 
@@ -371,6 +372,7 @@ public class Lighting {
 //			CelestialBody.update(timeUTC);
 		}
 		World.getInstance().getMarble().setSolarDirection(getLightDirection());
+		lightMoved();
 	}
 
 	/**
@@ -422,6 +424,7 @@ public class Lighting {
 		light.setPositionFromAzEl();
 		setBackgroundSaturation(el);
 		World.getInstance().getMarble().setSolarDirection(getLightDirection());
+		lightMoved();
 	}
 
 	/**
@@ -585,6 +588,14 @@ public class Lighting {
 	public void overhead() {
 		light.setAzEl(0f, Math.PI / 2);
 		light.setPositionFromAzEl();
+		lightMoved();
+	}
+
+	// Let the layers that depend on the light direction update
+	private void lightMoved() {
+		Landscape landscape = Landscape.getInstance();
+		if (landscape != null)
+			landscape.illuminationChanged();
 	}
 
 	/**
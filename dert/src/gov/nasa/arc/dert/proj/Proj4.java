@@ -150,13 +150,17 @@ public class Proj4 {
 		}
 	}
 
+	// The native instances share the Proj4 default context, which is not thread
+	// safe, so all native calls hold this lock
+	private static final Object LOCK = new Object();
+
 	// Proj4 native instance
 	private final long handle;
 
 	// The Proj4 definition for this instance
 	private String projDef;
 
-	// arrays for passing arguments to the native code
+	// arrays for passing arguments to the native code, used under the lock
 	private double[] xCoord = new double[1];
 	private double[] yCoord = new double[1];
 	private double[] zCoord = new double[1];
@@ -213,7 +217,9 @@ public class Proj4 {
 	 * @param projDef
 	 */
 	protected Proj4(String projDef) {
-		handle = createProj4(projDef);
+		synchronized (LOCK) {
+			handle = createProj4(projDef);
+		}
 		if (handle == 0) {
 			throw new IllegalArgumentException(projDef);
 		}
@@ -225,7 +231,9 @@ public class Proj4 {
 	 */
 	@Override
 	public void finalize() {
-		destroyProj4(handle);
+		synchronized (LOCK) {
+			destroyProj4(handle);
+		}
 	}
 
 	/**
@@ -256,7 +264,10 @@ public class Proj4 {
 			throw new IllegalArgumentException("Invalid Z coordinate array");
 		}
 
-		String errStr = transform(handle, dest.handle, pointCnt, offset, x, y, z);
+		String errStr = null;
+		synchronized (LOCK) {
+			errStr = transform(handle, dest.handle, pointCnt, offset, x, y, z);
+		}
 		if (errStr != null) {
 			throw new IllegalStateException(errStr);
 		}
@@ -275,15 +286,19 @@ public class Proj4 {
 		if ((coords == null) || (coords.length < 3)) {
 			throw new IllegalArgumentException("Null or too few elements for coordinates.");
 		}
-		xCoord[0] = coords[0];
-		yCoord[0] = coords[1];
-		zCoord[0] = coords[2];
-		String errStr = transform(handle, dest.handle, 1, 0, xCoord, yCoord, zCoord);
-		if (errStr == null) {
-			coords[0] = xCoord[0];
-			coords[1] = yCoord[0];
-			coords[2] = zCoord[0];
-		} else {
+		String errStr = null;
+		synchronized (LOCK) {
+			xCoord[0] = coords[0];
+			yCoord[0] = coords[1];
+			zCoord[0] = coords[2];
+			errStr = transform(handle, dest.handle, 1, 0, xCoord, yCoord, zCoord);
+			if (errStr == null) {
+				coords[0] = xCoord[0];
+				coords[1] = yCoord[0];
+				coords[2] = zCoord[0];
+			}
+		}
+		if (errStr != null) {
 			throw new IllegalStateException(errStr);
 		}
 	}
@@ -178,7 +178,8 @@ public class MultiMappedByteBuffer {
 
 		file = new File(path);
 		file.mkdirs();
-		file = new File(file, "tmp_" + System.currentTimeMillis());
+		// unique name, several buffers may be created in the same millisecond
+		file = File.createTempFile("tmp_", "", file);
 		file.deleteOnExit();
 		raf = new RandomAccessFile(file, "rw");
 		fileChannel = raf.getChannel();
@@ -231,6 +232,43 @@ public class MultiMappedByteBuffer {
 		mbBuf[index].get(bArray, 0, wid);
 	}
 
+	/**
+	 * Fill a byte array at a given position starting at a given file row and
+	 * column with wid bytes. Unlike get, this may be called from several
+	 * threads at once.
+	 * 
+	 * @param row
+	 * @param column
+	 * @param wid
+	 * @param bArray
+	 * @param pos
+	 */
+	public void read(int row, int column, int wid, byte[] bArray, int pos) {
+		int index = row / numRows;
+		row = row % numRows;
+		ByteBuffer bBuf = mbBuf[index].duplicate();
+		bBuf.position(row * width + column);
+		bBuf.get(bArray, pos, wid);
+	}
+
+	/**
+	 * Write wid bytes from a byte array to a given file row and column. Unlike
+	 * set, this may be called from several threads at once as long as they
+	 * write to different locations.
+	 * 
+	 * @param row
+	 * @param column
+	 * @param wid
+	 * @param bArray
+	 */
+	public void write(int row, int column, int wid, byte[] bArray) {
+		int index = row / numRows;
+		row = row % numRows;
+		ByteBuffer bBuf = mbBuf[index].duplicate();
+		bBuf.position(row * width + column);
+		bBuf.put(bArray, 0, wid);
+	}
+
 	/**
 	 * Set all values in this MultiMappedByteBuffer to a single integer value.
 	 * 
@@ -151,6 +151,23 @@ public class Raster {
 		meanBuf.rewind();
 	}
 
+	/**
+	 * Constructor for a subclass that keeps its own pixels instead of a
+	 * memory mapped file.
+	 *
+	 * @param width
+	 * @param length
+	 * @param numBytes
+	 * @param dataType
+	 */
+	protected Raster(int width, int length, int numBytes, DataType dataType) {
+		this.width = width;
+		this.length = length;
+		this.numBytes = numBytes;
+		this.dataType = dataType;
+		size = (long) width * length * numBytes;
+	}
+
 	/**
 	 * Dispose of resources
 	 */
@@ -1003,6 +1020,36 @@ public class Raster {
 		mmbBuf.get(row, bArray);
 	}
 
+	/**
+	 * Fill a byte array with a portion of a row of the raster. May be called
+	 * from several threads at once.
+	 * 
+	 * @param row
+	 * @param column
+	 *            the first pixel
+	 * @param wid
+	 *            the number of pixels
+	 * @param bArray
+	 * @param pos
+	 *            the starting position in the array
+	 */
+	public final void read(int row, int column, int wid, byte[] bArray, int pos) {
+		mmbBuf.read(row, column * numBytes, wid * numBytes, bArray, pos);
+	}
+
+	/**
+	 * Set the start of a row of the raster from a byte array. May be called
+	 * from several threads at once for different rows.
+	 * 
+	 * @param row
+	 * @param wid
+	 *            the number of pixels
+	 * @param bArray
+	 */
+	public final void write(int row, int wid, byte[] bArray) {
+		mmbBuf.write(row, 0, wid * numBytes, bArray);
+	}
+
 	/**
 	 * Compute the mean of an area in a raster array.
 	 * 
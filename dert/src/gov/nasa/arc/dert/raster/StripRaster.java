@@ -0,0 +1,280 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.raster;
+
+import gov.nasa.arc.dert.landscape.io.QuadTreeTile.DataType;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A raster that only holds the rows still being loaded. A RasterFile fills it
+ * strip by strip or tile by tile and each row is handed to a listener as soon
+ * as it and all of the rows above it are complete. Only the set methods used
+ * by the RasterFile load methods are supported.
+ *
+ */
+public class StripRaster extends Raster {
+
+	// Receives the completed rows
+	protected RasterRowListener listener;
+
+	// Rows being loaded, null if not started or already passed on
+	protected byte[][] rows;
+
+	// Number of pixels written in each row
+	protected int[] count;
+
+	// Next row for the listener
+	protected int nextRow;
+
+	// Initial value for new rows
+	protected byte[] fill;
+
+	// Rows available for reuse
+	protected ArrayList<byte[]> freeRows;
+
+	// Memory held by rows
+	protected long heldBytes, peakBytes;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param width
+	 * @param length
+	 * @param numBytes
+	 * @param dataType
+	 * @param listener
+	 */
+	public StripRaster(int width, int length, int numBytes, DataType dataType, RasterRowListener listener) {
+		super(width, length, numBytes, dataType);
+		this.listener = listener;
+		rows = new byte[length][];
+		count = new int[length];
+		freeRows = new ArrayList<byte[]>();
+	}
+
+	/**
+	 * Dispose of resources
+	 */
+	@Override
+	public void dispose() {
+		rows = null;
+		freeRows.clear();
+	}
+
+	/**
+	 * Nothing to flush
+	 */
+	@Override
+	public void flush() {
+	}
+
+	/**
+	 * Fill a portion of the raster with a byte array
+	 * 
+	 * @param row
+	 * @param hgt
+	 * @param bArray
+	 */
+	@Override
+	public void set(int row, int hgt, byte[] bArray) {
+		set(row, 0, width, hgt, bArray);
+	}
+
+	/**
+	 * Fill a portion of the raster with a buffer
+	 * 
+	 * @param row
+	 * @param column
+	 * @param wid
+	 * @param hgt
+	 * @param bArray
+	 */
+	@Override
+	public void set(int row, int column, int wid, int hgt, byte[] bArray) {
+		int b = 0;
+		for (int r = row; r < (row + hgt); ++r) {
+			System.arraycopy(bArray, b * wid * numBytes, getRow(r), column * numBytes, wid * numBytes);
+			count[r] += wid;
+			b++;
+		}
+		passRows(false);
+	}
+
+	/**
+	 * Set the initial value of rows to an integer value
+	 * 
+	 * @param val
+	 */
+	@Override
+	public void set(int val) {
+		fill = new byte[width * numBytes];
+		ByteBuffer bBuf = ByteBuffer.wrap(fill);
+		while (bBuf.remaining() >= 4) {
+			bBuf.putInt(val);
+		}
+	}
+
+	/**
+	 * Set the initial value of rows to a float value
+	 * 
+	 * @param val
+	 */
+	@Override
+	public void set(float val) {
+		set(Float.floatToRawIntBits(val));
+	}
+
+	/**
+	 * Pass any remaining rows to the listener, whether they are complete or
+	 * not. Called after the raster file is loaded.
+	 */
+	public void finish() {
+		passRows(true);
+	}
+
+	/**
+	 * Get the most memory held by loading rows
+	 * 
+	 * @return bytes
+	 */
+	public long getPeakBytes() {
+		return (peakBytes);
+	}
+
+	protected byte[] getRow(int r) {
+		if (r < nextRow) {
+			throw new IllegalStateException("Row " + r + " of strip raster was already passed on.");
+		}
+		byte[] row = rows[r];
+		if (row == null) {
+			if (freeRows.isEmpty()) {
+				row = new byte[width * numBytes];
+			} else {
+				row = freeRows.remove(freeRows.size() - 1);
+			}
+			if (fill == null) {
+				Arrays.fill(row, (byte) 0);
+			} else {
+				System.arraycopy(fill, 0, row, 0, row.length);
+			}
+			rows[r] = row;
+			heldBytes += row.length;
+			peakBytes = Math.max(peakBytes, heldBytes);
+		}
+		return (row);
+	}
+
+	protected void passRows(boolean all) {
+		while ((nextRow < length) && (all || (count[nextRow] >= width))) {
+			byte[] row = getRow(nextRow);
+			listener.rowLoaded(nextRow, row);
+			rows[nextRow] = null;
+			heldBytes -= row.length;
+			freeRows.add(row);
+			nextRow++;
+		}
+	}
+
+}
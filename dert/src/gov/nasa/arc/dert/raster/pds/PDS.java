@@ -827,37 +827,28 @@ public class PDS extends RasterFileImpl {
 				throw new IllegalArgumentException("Cannot load PDS file with strip size > " + Integer.MAX_VALUE + ".");
 			}
 
-			// Allocate memory directly
+			// Allocate memory
 			byte[] bbArray = new byte[stripSize];
-			ByteBuffer bbuf = ByteBuffer.allocate(4 * rasterWidth * stripHeight);
+			byte[] bArray = new byte[4 * rasterWidth * stripHeight];
 			iStream.seek(imageStart);
 
 			// Read each strip and place it in the full size raster.
 			int r = 0; // row pixel of upper left corner of strip
 			for (int i = 0; i < numStrips; ++i) {
 				// determine the height of each strip in case it is short
-				int h = Math.min(rasterLength - stripHeight * i, stripHeight); // compute
-																				// the
-																				// height
-																				// of
-																				// the
-																				// strip
-				int len = h * stripWidth;
-				len = iStream.read(bbArray, 0, len);
-				for (int j = 0; j < h; ++j) {
-					for (int k = 0; k < stripWidth; k += samplesPerPixel) {
-						for (int l = 0; l < samplesPerPixel; ++l) {
-							bbuf.put(bbArray[k + l]);
-						}
-						if (samplesPerPixel == 3) {
-							bbuf.put((byte) 255);
-						}
+				int h = Math.min(rasterLength - stripHeight * i, stripHeight);
+				iStream.read(bbArray, 0, h * stripWidth);
+				int numSamples = Math.min(samplesPerPixel, 4);
+				for (int c = 0; c < h * rasterWidth; ++c) {
+					for (int l = 0; l < numSamples; ++l) {
+						bArray[c * 4 + l] = bbArray[c * samplesPerPixel + l];
+					}
+					if (samplesPerPixel == 3) {
+						bArray[c * 4 + 3] = (byte) 255;
 					}
-					r++;
 				}
-				bbuf.rewind();
-				// raster.set(r, rasterWidth, h, bbuf);
-				raster.set(r, h, bbArray);
+				raster.set(r, h, bArray);
+				r += h;
 			}
 		}
 		// samples are separated into bands
@@ -870,35 +861,34 @@ public class PDS extends RasterFileImpl {
 				throw new IllegalArgumentException("Cannot load PDS file with strip size > " + Integer.MAX_VALUE + ".");
 			}
 
-			raster.set(255);
-			byte[] bArray = new byte[4 * rasterWidth * stripHeight];
-
 			// Allocate memory
 			byte[] bbArray = new byte[stripSize];
-			iStream.seek(imageStart);
+			byte[] bArray = new byte[4 * stripSize];
+			long bandSize = (long) rasterWidth * rasterLength;
+			int numBands = Math.min(samplesPerPixel, 4);
 
-			for (int k = 0; k < samplesPerPixel; ++k) {
-				// Read each strip and place it in the full size raster.
-				int r = 0; // row pixel of upper left corner of strip
-				for (int i = 0; i < numStrips; ++i) {
-					// determine the height of each strip in case it is short
-					int h = Math.min(rasterLength - stripHeight * i, stripHeight); // compute
-																					// the
-																					// height
-																					// of
-																					// the
-																					// strip
-					int len = h * rasterWidth;
-					len = iStream.read(bbArray, 0, len);
-					for (int j = 0; j < h; ++j) {
-						raster.get(r, bArray);
-						for (int c = 0; c < rasterWidth; ++c) {
-							bArray[c * 4 + k] = bbArray[c];
-						}
-						raster.set(r, 1, bArray);
-						r++;
+			// Read the strip from each band so the raster is filled in one pass
+			int r = 0; // row pixel of upper left corner of strip
+			for (int i = 0; i < numStrips; ++i) {
+				// determine the height of each strip in case it is short
+				int h = Math.min(rasterLength - stripHeight * i, stripHeight);
+				int len = h * rasterWidth;
+				// opaque unless there is an alpha band
+				for (int c = 0; c < len; ++c) {
+					bArray[c * 4] = 0;
+					bArray[c * 4 + 1] = 0;
+					bArray[c * 4 + 2] = 0;
+					bArray[c * 4 + 3] = (byte) 255;
+				}
+				for (int k = 0; k < numBands; ++k) {
+					iStream.seek(imageStart + k * bandSize + (long) r * rasterWidth);
+					iStream.read(bbArray, 0, len);
+					for (int c = 0; c < len; ++c) {
+						bArray[c * 4 + k] = bbArray[c];
 					}
 				}
+				raster.set(r, h, bArray);
+				r += h;
 			}
 		}
 		if (minimum == null) {
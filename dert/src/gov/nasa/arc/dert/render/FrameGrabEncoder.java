@@ -0,0 +1,501 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.render;
+
+import gov.nasa.arc.dert.Dert;
+import gov.nasa.arc.dert.util.ImageUtil;
+import gov.nasa.arc.dert.view.Console;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.text.DecimalFormat;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Writes grabbed frames of an image sequence on a pool of encoder threads.
+ * The render thread reads the frame into one of a ring of reusable direct
+ * buffers and hands it off. When all buffers are waiting to be written the
+ * render thread blocks until one is free.
+ *
+ */
+public class FrameGrabEncoder {
+
+	/**
+	 * Output format for the image sequence.
+	 *
+	 */
+	public static enum Format {
+		PNG, FastPNG, Raw
+	}
+
+	// Number of encoder threads, 0 means one per available processor
+	public static int THREADS = 0;
+
+	// Number of frame buffers per encoder thread
+	public static int BUFFERS_PER_THREAD = 2;
+
+	// PNG signature
+	private static final byte[] PNG_SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+
+	// Output directory
+	private File dir;
+
+	// Output format
+	private Format format;
+
+	// Frame dimensions and bytes per pixel (3 or 4)
+	private int width, height, bytesPerPixel;
+
+	// Pool of encoder threads
+	private ExecutorService executor;
+
+	// Ring of frame buffers not in use
+	private ArrayBlockingQueue<ByteBuffer> freeBuffers;
+
+	// Statistics
+	private int frameCount;
+	private long startTime, waitNanos;
+	private AtomicLong bytesWritten, framesWritten;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param dirPath
+	 *            the directory for the image sequence
+	 * @param format
+	 * @param width
+	 * @param height
+	 * @param bytesPerPixel
+	 * @param bufferSize
+	 *            the size needed by the renderer to read one frame
+	 */
+	public FrameGrabEncoder(String dirPath, Format format, int width, int height, int bytesPerPixel, int bufferSize) {
+		this.format = (format == null) ? Format.PNG : format;
+		this.width = width;
+		this.height = height;
+		this.bytesPerPixel = bytesPerPixel;
+		dir = new File(dirPath);
+		if (!dir.exists())
+			dir.mkdirs();
+		int threads = THREADS;
+		if (threads <= 0)
+			threads = Runtime.getRuntime().availableProcessors();
+		int n = threads * Math.max(1, BUFFERS_PER_THREAD);
+		freeBuffers = new ArrayBlockingQueue<ByteBuffer>(n);
+		for (int i = 0; i < n; ++i) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+			buffer.limit(bufferSize);
+			freeBuffers.add(buffer);
+		}
+		executor = Executors.newFixedThreadPool(threads);
+		bytesWritten = new AtomicLong();
+		framesWritten = new AtomicLong();
+		if (this.format == Format.Raw)
+			writeRawDescription();
+		startTime = System.nanoTime();
+	}
+
+	/**
+	 * Get a free buffer to read the next frame into. Blocks while all buffers
+	 * are waiting to be written.
+	 * 
+	 * @return the buffer, or null if interrupted
+	 */
+	public ByteBuffer getBuffer() {
+		long t = System.nanoTime();
+		try {
+			ByteBuffer buffer = freeBuffers.take();
+			waitNanos += System.nanoTime() - t;
+			buffer.clear();
+			return (buffer);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return (null);
+		}
+	}
+
+	/**
+	 * Hand off a buffer containing a frame as read from the frame buffer
+	 * (bottom row first).
+	 * 
+	 * @param buffer
+	 */
+	public void submit(ByteBuffer buffer) {
+		executor.execute(new EncodeTask(buffer, frameCount));
+		frameCount++;
+	}
+
+	/**
+	 * Return a buffer that will not be submitted.
+	 * 
+	 * @param buffer
+	 */
+	public void release(ByteBuffer buffer) {
+		freeBuffers.add(buffer);
+	}
+
+	/**
+	 * Get the number of frames submitted.
+	 * 
+	 * @return
+	 */
+	public int getFrameCount() {
+		return (frameCount);
+	}
+
+	/**
+	 * Wait for all frames to be written and report the capture throughput.
+	 * 
+	 * @return the report
+	 */
+	public String finish() {
+		executor.shutdown();
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.SECONDS))
+				;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		double seconds = (System.nanoTime() - startTime) / 1000000000.0;
+		if (seconds <= 0)
+			seconds = 1;
+		DecimalFormat formatter = new DecimalFormat("0.00");
+		long frames = framesWritten.get();
+		String report = "Wrote " + frames + " " + format + " frames to " + dir.getAbsolutePath() + " in "
+			+ formatter.format(seconds) + " seconds (" + formatter.format(frames / seconds) + " frames/second, "
+			+ formatter.format(bytesWritten.get() / seconds / 1048576) + " MB/second), render thread waited "
+			+ formatter.format(waitNanos / 1000000000.0) + " seconds for buffers.";
+		Console.println(report);
+		freeBuffers.clear();
+		return (report);
+	}
+
+	private class EncodeTask implements Runnable {
+
+		private ByteBuffer buffer;
+		private int index;
+
+		public EncodeTask(ByteBuffer buffer, int index) {
+			this.buffer = buffer;
+			this.index = index;
+		}
+
+		@Override
+		public void run() {
+			try {
+				BufferedImage bImage = toImage(buffer);
+				freeBuffers.add(buffer);
+				buffer = null;
+				File file = new File(dir, "frame" + String.format("%07d", index) + (format == Format.Raw ? ".raw" : ".png"));
+				switch (format) {
+				case PNG:
+					ImageOutputStream oStream = new FileImageOutputStream(file);
+					ImageIO.write(bImage, "PNG", oStream);
+					oStream.flush();
+					oStream.close();
+					break;
+				case FastPNG:
+					writeFastPNG(bImage, file);
+					break;
+				case Raw:
+					writeRaw(bImage, file);
+					break;
+				}
+				bytesWritten.addAndGet(file.length());
+				framesWritten.incrementAndGet();
+			} catch (Exception e) {
+				Console.println("Unable to write frame " + index + ", see log.");
+				e.printStackTrace();
+			} finally {
+				if (buffer != null)
+					freeBuffers.add(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Convert a frame as read from the frame buffer to a BufferedImage.
+	 */
+	private BufferedImage toImage(ByteBuffer store) {
+		BufferedImage bImage = null;
+		store.rewind();
+		if (bytesPerPixel == 4) {
+			if (Dert.isMac)
+				ImageUtil.doSwap(store);
+			ImageUtil.doFlip(store, width * 4, height);
+			bImage = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
+		} else {
+			if (Dert.isMac)
+				ImageUtil.swapRGBBytes(store);
+			ImageUtil.doFlip(store, width * 3, height);
+			bImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		}
+		byte[] iData = ((DataBufferByte) bImage.getRaster().getDataBuffer()).getData();
+		store.get(iData, 0, iData.length);
+		return (bImage);
+	}
+
+	/**
+	 * Get a row of the image as RGB or RGBA bytes. The BufferedImage stores
+	 * the bands in reverse order.
+	 */
+	private void getRow(byte[] iData, int row, byte[] line) {
+		int offset = row * line.length;
+		for (int i = 0; i < line.length; i += bytesPerPixel) {
+			for (int j = 0; j < bytesPerPixel; ++j)
+				line[i + j] = iData[offset + i + bytesPerPixel - 1 - j];
+		}
+	}
+
+	/**
+	 * Write a PNG with the fastest deflate level and no row filtering.
+	 */
+	private void writeFastPNG(BufferedImage bImage, File file) throws IOException {
+		byte[] iData = ((DataBufferByte) bImage.getRaster().getDataBuffer()).getData();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+		try {
+			out.write(PNG_SIGNATURE);
+			ByteBuffer ihdr = ByteBuffer.allocate(13);
+			ihdr.putInt(width);
+			ihdr.putInt(height);
+			ihdr.put((byte) 8);
+			ihdr.put((byte) (bytesPerPixel == 4 ? 6 : 2));
+			ihdr.put((byte) 0);
+			ihdr.put((byte) 0);
+			ihdr.put((byte) 0);
+			writeChunk(out, "IHDR", ihdr.array(), ihdr.position());
+
+			ChunkOutputStream idat = new ChunkOutputStream(out, "IDAT", 65536);
+			Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+			DeflaterOutputStream dOut = new DeflaterOutputStream(idat, deflater, 65536);
+			byte[] line = new byte[width * bytesPerPixel];
+			for (int r = 0; r < height; ++r) {
+				// filter type none
+				dOut.write(0);
+				getRow(iData, r, line);
+				dOut.write(line);
+			}
+			dOut.finish();
+			deflater.end();
+			idat.flush();
+
+			writeChunk(out, "IEND", new byte[0], 0);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Write the pixels, top row first, as interleaved 8 bit RGB or RGBA.
+	 */
+	private void writeRaw(BufferedImage bImage, File file) throws IOException {
+		byte[] iData = ((DataBufferByte) bImage.getRaster().getDataBuffer()).getData();
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 65536);
+		try {
+			byte[] line = new byte[width * bytesPerPixel];
+			for (int r = 0; r < height; ++r) {
+				getRow(iData, r, line);
+				out.write(line);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Describe the raw frames so they can be converted later.
+	 */
+	private void writeRawDescription() {
+		try {
+			PrintWriter writer = new PrintWriter(new File(dir, "frames.properties"));
+			writer.println("# Raw image sequence, 8 bit interleaved pixels, top row first");
+			writer.println("Width=" + width);
+			writer.println("Height=" + height);
+			writer.println("Bands=" + (bytesPerPixel == 4 ? "RGBA" : "RGB"));
+			writer.close();
+		} catch (Exception e) {
+			Console.println("Unable to write image sequence description, see log.");
+			e.printStackTrace();
+		}
+	}
+
+	private static void writeChunk(DataOutputStream out, String type, byte[] data, int length) throws IOException {
+		byte[] typeBytes = type.getBytes("US-ASCII");
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+		out.writeInt(length);
+		out.write(typeBytes);
+		out.write(data, 0, length);
+		out.writeInt((int) crc.getValue());
+	}
+
+	/**
+	 * Output stream that writes its contents as a series of PNG chunks.
+	 */
+	private static class ChunkOutputStream extends OutputStream {
+
+		private DataOutputStream out;
+		private String type;
+		private byte[] data;
+		private int count;
+
+		public ChunkOutputStream(DataOutputStream out, String type, int size) {
+			this.out = out;
+			this.type = type;
+			data = new byte[size];
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (count == data.length)
+				flush();
+			data[count++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (count == data.length)
+					flush();
+				int n = Math.min(len, data.length - count);
+				System.arraycopy(b, off, data, count, n);
+				count += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (count > 0) {
+				writeChunk(out, type, data, count);
+				count = 0;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+
+}
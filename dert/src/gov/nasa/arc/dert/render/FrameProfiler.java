@@ -0,0 +1,447 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.render;
+
+import gov.nasa.arc.dert.ephemeris.Ephemeris;
+import gov.nasa.arc.dert.landscape.Landscape;
+import gov.nasa.arc.dert.landscape.quadtree.QuadKeyIndex;
+import gov.nasa.arc.dert.landscape.quadtree.QuadTreeCache;
+import gov.nasa.arc.dert.landscape.quadtree.QuadTreeFactory;
+import gov.nasa.arc.dert.scene.World;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Records where the time goes in each frame. Phases of the WorldView frame
+ * are timed with System.nanoTime and the tile loader queue, QuadTree cache
+ * and heap are sampled at the end of the frame. The most recent frames are
+ * kept in a ring buffer that can be exported as a CSV or JSON trace.
+ * 
+ * All methods are called on the AWT event thread, where frames are run.
+ * Nothing is recorded until the profiler is enabled.
+ *
+ */
+public class FrameProfiler {
+
+	/**
+	 * Timed phases of a WorldView frame.
+	 *
+	 */
+	public static enum Phase {
+		Landscape, SceneUpdate, GeometricState, Shadows, Layers, Draw
+	}
+
+	// Number of frames kept in the trace
+	public static int TRACE_FRAMES = 2000;
+
+	// Number of frames averaged for the overlay
+	public static int AVERAGE_FRAMES = 30;
+
+	// Names of the phases in the trace
+	private static final String[] PHASE_COLUMN = { "landscape_ms", "scene_update_ms", "geometric_state_ms", "shadows_ms",
+		"layers_ms", "draw_ms" };
+
+	private static final int PHASES = Phase.values().length;
+
+	private static FrameProfiler instance = new FrameProfiler();
+
+	// Profiling is turned on
+	private volatile boolean enabled;
+
+	// A frame is being recorded
+	private boolean recording;
+
+	// Start of the current frame and its phases
+	private long frameStart;
+	private long[] phaseStart;
+	private long[] phaseTime;
+
+	// Time profiling was enabled
+	private long startTime;
+
+	// Counter values at the end of the last frame
+	private long lastHits, lastMisses, lastStitched;
+
+	// Ring buffer of frame records
+	private int head, size;
+	private long frameCount;
+	private long[] traceFrame, traceStart, traceTime;
+	private long[][] tracePhase;
+	private int[] tracePending;
+	private long[] traceHits, traceMisses, traceStitched;
+	private long[] traceCache, traceHeap;
+
+	/**
+	 * Get the profiler singleton
+	 * 
+	 * @return
+	 */
+	public static FrameProfiler getInstance() {
+		return (instance);
+	}
+
+	/**
+	 * Constructor
+	 */
+	protected FrameProfiler() {
+		phaseStart = new long[PHASES];
+		phaseTime = new long[PHASES];
+	}
+
+	/**
+	 * Turn profiling on or off. Turning it on clears the trace.
+	 * 
+	 * @param enable
+	 */
+	public void setEnabled(boolean enable) {
+		if (enable == enabled)
+			return;
+		if (enable) {
+			int n = Math.max(AVERAGE_FRAMES, TRACE_FRAMES);
+			if ((traceFrame == null) || (traceFrame.length != n)) {
+				traceFrame = new long[n];
+				traceStart = new long[n];
+				traceTime = new long[n];
+				tracePhase = new long[n][PHASES];
+				tracePending = new int[n];
+				traceHits = new long[n];
+				traceMisses = new long[n];
+				traceStitched = new long[n];
+				traceCache = new long[n];
+				traceHeap = new long[n];
+			}
+			head = 0;
+			size = 0;
+			frameCount = 0;
+			startTime = System.nanoTime();
+			sampleCounters(-1);
+		}
+		recording = false;
+		enabled = enable;
+	}
+
+	/**
+	 * Determine if profiling is on
+	 * 
+	 * @return
+	 */
+	public boolean isEnabled() {
+		return (enabled);
+	}
+
+	/**
+	 * Start a frame
+	 */
+	public void beginFrame() {
+		recording = enabled;
+		if (!recording)
+			return;
+		for (int i = 0; i < PHASES; ++i)
+			phaseTime[i] = 0;
+		frameStart = System.nanoTime();
+	}
+
+	/**
+	 * Start timing a phase
+	 * 
+	 * @param phase
+	 */
+	public void begin(Phase phase) {
+		if (recording)
+			phaseStart[phase.ordinal()] = System.nanoTime();
+	}
+
+	/**
+	 * Stop timing a phase. A phase run more than once in a frame is summed.
+	 * 
+	 * @param phase
+	 */
+	public void end(Phase phase) {
+		if (recording)
+			phaseTime[phase.ordinal()] += System.nanoTime() - phaseStart[phase.ordinal()];
+	}
+
+	/**
+	 * Finish a frame and add it to the trace
+	 */
+	public void endFrame() {
+		if (!recording)
+			return;
+		recording = false;
+		long now = System.nanoTime();
+		int i = head;
+		traceFrame[i] = frameCount++;
+		traceStart[i] = frameStart - startTime;
+		traceTime[i] = now - frameStart;
+		System.arraycopy(phaseTime, 0, tracePhase[i], 0, PHASES);
+		sampleCounters(i);
+		head = (head + 1) % traceFrame.length;
+		if (size < traceFrame.length)
+			size++;
+	}
+
+	// Sample the loader, cache, and memory counters into a trace slot.
+	// Hits, misses, and stitched edges are stored as the change since the
+	// last frame. A negative slot only resets the last values.
+	private void sampleCounters(int i) {
+		int pending = 0;
+		long hits = 0, misses = 0, cacheSize = 0, stitched = 0;
+		QuadTreeFactory factory = QuadTreeFactory.getInstance();
+		if (factory != null) {
+			pending = factory.getLoader().getPendingCount();
+			QuadTreeCache cache = factory.getCache();
+			hits = cache.getHitCount();
+			misses = cache.getMissCount();
+			cacheSize = cache.getCacheSize();
+		}
+		Landscape landscape = Landscape.getInstance();
+		if (landscape != null)
+			stitched = landscape.getStitchedEdgeCount();
+		if (i >= 0) {
+			Runtime runtime = Runtime.getRuntime();
+			tracePending[i] = pending;
+			traceHits[i] = Math.max(0, hits - lastHits);
+			traceMisses[i] = Math.max(0, misses - lastMisses);
+			traceStitched[i] = Math.max(0, stitched - lastStitched);
+			traceCache[i] = cacheSize;
+			traceHeap[i] = runtime.totalMemory() - runtime.freeMemory();
+		}
+		lastHits = hits;
+		lastMisses = misses;
+		lastStitched = stitched;
+	}
+
+	/**
+	 * Get the number of frames in the trace
+	 * 
+	 * @return
+	 */
+	public int getFrameCount() {
+		return (size);
+	}
+
+	/**
+	 * Get a summary of the most recent frames for display
+	 * 
+	 * @return an array of lines, empty if there are no frames
+	 */
+	public String[] getSummary() {
+		int n = Math.min(size, AVERAGE_FRAMES);
+		if (n == 0)
+			return (new String[0]);
+		long total = 0, max = 0, hits = 0, misses = 0, stitched = 0;
+		long[] phase = new long[PHASES];
+		for (int k = 0; k < n; ++k) {
+			int i = (head - 1 - k + traceFrame.length) % traceFrame.length;
+			total += traceTime[i];
+			max = Math.max(max, traceTime[i]);
+			for (int p = 0; p < PHASES; ++p)
+				phase[p] += tracePhase[i][p];
+			hits += traceHits[i];
+			misses += traceMisses[i];
+			stitched += traceStitched[i];
+		}
+		long other = total;
+		for (int p = 0; p < PHASES; ++p)
+			other -= phase[p];
+		int last = (head - 1 + traceFrame.length) % traceFrame.length;
+		String hitRate = (hits + misses == 0) ? "-" : String.format("%.1f%%", 100.0 * hits / (hits + misses));
+		String[] line = new String[7];
+		line[0] = String.format("Frame: %.2f ms avg, %.2f ms max, %d frames", ms(total) / n, ms(max), n);
+		line[1] = String.format("Landscape: %.2f  Scene Update: %.2f  Geometric State: %.2f ms",
+			ms(phase[Phase.Landscape.ordinal()]) / n, ms(phase[Phase.SceneUpdate.ordinal()]) / n,
+			ms(phase[Phase.GeometricState.ordinal()]) / n);
+		line[2] = String.format("Shadows: %.2f  Layers: %.2f  Draw: %.2f  Other: %.2f ms",
+			ms(phase[Phase.Shadows.ordinal()]) / n, ms(phase[Phase.Layers.ordinal()]) / n,
+			ms(phase[Phase.Draw.ordinal()]) / n, ms(Math.max(0, other)) / n);
+		line[3] = String.format("Tile Queue: %d  Cache Hit Rate: %s  Cache: %d MB  Edges Stitched: %d",
+			tracePending[last], hitRate, mb(traceCache[last]), stitched);
+		line[4] = String.format("Heap: %d of %d MB", mb(traceHeap[last]), mb(Runtime.getRuntime().maxMemory()));
+		Ephemeris ephemeris = Ephemeris.getInstance();
+		line[5] = (ephemeris == null) ? "" : String.format("Sun Vectors: %d from table, %d from SPICE",
+			ephemeris.getTableCount(), ephemeris.getSpiceCount());
+		World world = World.getInstance();
+		line[6] = (world == null) ? "" : String.format(
+			"Draping: %d FeatureSet updates, %d Features, %d Landmarks  Index: %d of %d elements in %d queries",
+			world.getFeatureSets().getUpdateCount(), world.getFeatureSets().getRedrapeCount(),
+			world.getLandmarks().getRedrapeCount(), QuadKeyIndex.getTotalResultCount(),
+			QuadKeyIndex.getTotalElementCount(), QuadKeyIndex.getTotalQueryCount());
+		return (line);
+	}
+
+	/**
+	 * Write the trace to a CSV file, one row per frame
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public void exportCsv(File file) throws IOException {
+		PrintWriter writer = new PrintWriter(file, "UTF-8");
+		try {
+			writer.print("frame,start_ms,frame_ms");
+			for (int p = 0; p < PHASES; ++p)
+				writer.print("," + PHASE_COLUMN[p]);
+			writer.println(",tiles_pending,cache_hits,cache_misses,cache_mb,heap_mb,edges_stitched");
+			for (int k = 0; k < size; ++k) {
+				int i = (head - size + k + traceFrame.length) % traceFrame.length;
+				writer.print(traceFrame[i] + "," + format(traceStart[i]) + "," + format(traceTime[i]));
+				for (int p = 0; p < PHASES; ++p)
+					writer.print("," + format(tracePhase[i][p]));
+				writer.println("," + tracePending[i] + "," + traceHits[i] + "," + traceMisses[i] + "," + mb(traceCache[i])
+					+ "," + mb(traceHeap[i]) + "," + traceStitched[i]);
+			}
+		} finally {
+			writer.close();
+		}
+		if (writer.checkError())
+			throw new IOException("Error writing " + file);
+	}
+
+	/**
+	 * Write the trace to a JSON file as an array of frame objects
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public void exportJson(File file) throws IOException {
+		PrintWriter writer = new PrintWriter(file, "UTF-8");
+		try {
+			writer.println("{");
+			writer.println("  \"millisBetweenFrames\": " + SceneFramework.millisBetweenFrames + ",");
+			writer.println("  \"maxHeapMB\": " + mb(Runtime.getRuntime().maxMemory()) + ",");
+			writer.println("  \"frames\": [");
+			for (int k = 0; k < size; ++k) {
+				int i = (head - size + k + traceFrame.length) % traceFrame.length;
+				writer.print("    {\"frame\": " + traceFrame[i] + ", \"start_ms\": " + format(traceStart[i])
+					+ ", \"frame_ms\": " + format(traceTime[i]));
+				for (int p = 0; p < PHASES; ++p)
+					writer.print(", \"" + PHASE_COLUMN[p] + "\": " + format(tracePhase[i][p]));
+				writer.print(", \"tiles_pending\": " + tracePending[i] + ", \"cache_hits\": " + traceHits[i]
+					+ ", \"cache_misses\": " + traceMisses[i] + ", \"cache_mb\": " + mb(traceCache[i]) + ", \"heap_mb\": "
+					+ mb(traceHeap[i]) + ", \"edges_stitched\": " + traceStitched[i] + "}");
+				writer.println((k < size - 1) ? "," : "");
+			}
+			writer.println("  ]");
+			writer.println("}");
+		} finally {
+			writer.close();
+		}
+		if (writer.checkError())
+			throw new IOException("Error writing " + file);
+	}
+
+	private static double ms(long nanos) {
+		return (nanos / 1000000.0);
+	}
+
+	private static long mb(long bytes) {
+		return (bytes / (1024 * 1024));
+	}
+
+	// Milliseconds with a decimal point regardless of the default locale.
+	private static String format(long nanos) {
+		return (String.format(Locale.US, "%.3f", ms(nanos)));
+	}
+}
@@ -101,20 +101,11 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 
 package gov.nasa.arc.dert.render;
 
-import gov.nasa.arc.dert.Dert;
-import gov.nasa.arc.dert.util.ImageUtil;
 import gov.nasa.arc.dert.view.Console;
 
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
-import java.io.File;
 import java.nio.ByteBuffer;
 import java.util.logging.Logger;
 
-import javax.imageio.ImageIO;
-import javax.imageio.stream.FileImageOutputStream;
-import javax.imageio.stream.ImageOutputStream;
-
 import com.ardor3d.annotation.MainThread;
 import com.ardor3d.framework.DisplaySettings;
 import com.ardor3d.framework.Scene;
@@ -137,11 +128,11 @@ public class JoglCanvasRendererDouble extends JoglCanvasRenderer {
     private static final Logger LOGGER = Logger.getLogger(JoglCanvasRendererDouble.class.getName());
 	
 	// Fields for frame grab
-	private ByteBuffer store;
-	private int frameCount;
+	private FrameGrabEncoder encoder;
 	private boolean frameGrab;
 	private int grabX, grabY, grabWidth, grabHeight;
 	private String grabFilePath;
+	private FrameGrabEncoder.Format grabFormat;
 	
 	// Fields that are not accessible in super class.
 	private boolean _contextDropAndReclaimOnDrawEnabled;
@@ -236,104 +227,67 @@ public class JoglCanvasRendererDouble extends JoglCanvasRenderer {
      * Enable frame grab after swap buffers.
      * 
      * @param grabFilePath
+     * @param grabFormat
      * @param grabX
      * @param grabY
      * @param grabWidth
      * @param grabHeight
      */
-	public void enableFrameGrab(String grabFilePath, int grabX, int grabY, int grabWidth, int grabHeight) {
+	public void enableFrameGrab(String grabFilePath, FrameGrabEncoder.Format grabFormat, int grabX, int grabY, int grabWidth, int grabHeight) {
 		this.grabFilePath = grabFilePath;
+		this.grabFormat = grabFormat;
 		this.frameGrab = (grabFilePath != null);
 		this.grabX = grabX;
 		this.grabY = grabY;
 		this.grabWidth = grabWidth;
 		this.grabHeight = grabHeight;
 		if (!frameGrab) {
-			if (store != null) {
-				Console.println(frameCount+" frames");
-				store = null;
+			if (encoder != null) {
+				// wait for the remaining frames to be written
+				encoder.finish();
+				encoder = null;
 				System.gc();
 			}
 		}
 	}
 	
 	/**
-	 * Grab the current frame to a PNG file.
+	 * Grab the current frame as RGBA to the image sequence.
 	 */
 	public void grabRGBAFrame() {
-		makeCurrentContext();
-		if (store == null) {
-			Console.println("Rendering image sequence to "+grabFilePath);
-			frameCount = 0;
-			int n = _renderer.getExpectedBufferSizeToGrabScreenContents(ImageDataFormat.RGBA, PixelDataType.Byte, grabWidth, grabHeight);
-			store = ByteBuffer.allocateDirect(n);
-			store.limit(n);
-		}
-		
-		try {
-			store.position(0);
-			_renderer.finishGraphics();
-			_renderer.grabScreenContents(store, ImageDataFormat.RGBA, PixelDataType.UnsignedByte, grabX, grabY, grabWidth, grabHeight);
-			if (Dert.isMac) {
-				ImageUtil.doSwap(store);
-			}
-			ImageUtil.doFlip(store, grabWidth * 4, grabHeight);
-			BufferedImage bImage = new BufferedImage(grabWidth, grabHeight, BufferedImage.TYPE_4BYTE_ABGR);
-			byte[] iData = ((DataBufferByte) bImage.getRaster().getDataBuffer()).getData();
-			store.get(iData, 0, iData.length);
-			String filePath = "frame"+String.format("%07d", frameCount)+".png";
-			File file = new File(grabFilePath);
-			if (!file.exists())
-				file.mkdirs();
-			file = new File(file, filePath);
-			ImageOutputStream oStream = new FileImageOutputStream(file);
-			ImageIO.write(bImage, "PNG", oStream);
-			oStream.flush();
-			oStream.close();
-			frameCount ++;
-		}
-		catch (Exception e) {
-			e.printStackTrace();
-		}
-		releaseCurrentContext();
+		grabFrame(ImageDataFormat.RGBA, 4);
 	}
 	
 	/**
-	 * Grab the current frame to a PNG file.
+	 * Grab the current frame as RGB to the image sequence.
 	 */
 	public void grabRGBFrame() {
+		grabFrame(ImageDataFormat.RGB, 3);
+	}
+	
+	/**
+	 * Read the frame into a buffer and hand it off to the encoder threads.
+	 */
+	private void grabFrame(ImageDataFormat format, int bytesPerPixel) {
 		makeCurrentContext();
-		if (store == null) {
+		if (encoder == null) {
 			Console.println("Rendering image sequence to "+grabFilePath);
-			frameCount = 0;
-			int n = _renderer.getExpectedBufferSizeToGrabScreenContents(ImageDataFormat.RGB, PixelDataType.Byte, grabWidth, grabHeight);
-			store = ByteBuffer.allocateDirect(n);
-			store.limit(n);
+			int n = _renderer.getExpectedBufferSizeToGrabScreenContents(format, PixelDataType.Byte, grabWidth, grabHeight);
+			encoder = new FrameGrabEncoder(grabFilePath, grabFormat, grabWidth, grabHeight, bytesPerPixel, n);
 		}
 		
-		try {
-			store.position(0);
-			_renderer.finishGraphics();
-			_renderer.grabScreenContents(store, ImageDataFormat.RGB, PixelDataType.UnsignedByte, grabX, grabY, grabWidth, grabHeight);
-			if (Dert.isMac)
-				ImageUtil.swapRGBBytes(store);
-			ImageUtil.doFlip(store, grabWidth * 3, grabHeight);
-			BufferedImage bImage = new BufferedImage(grabWidth, grabHeight, BufferedImage.TYPE_3BYTE_BGR);
-			byte[] iData = ((DataBufferByte) bImage.getRaster().getDataBuffer()).getData();
-			store.get(iData, 0, iData.length);
-			String filePath = "frame"+String.format("%07d", frameCount)+".png";
-			File file = new File(grabFilePath);
-			if (!file.exists())
-				file.mkdirs();
-			file = new File(file, filePath);
-			ImageOutputStream oStream = new FileImageOutputStream(file);
-			ImageIO.write(bImage, "PNG", oStream);
-			oStream.flush();
-			oStream.close();
-			frameCount ++;
-		}
-		catch (Exception e) {
-			e.printStackTrace();
+		// blocks while all buffers are waiting to be written
+		ByteBuffer store = encoder.getBuffer();
+		if (store != null) {
+			try {
+				_renderer.finishGraphics();
+				_renderer.grabScreenContents(store, format, PixelDataType.UnsignedByte, grabX, grabY, grabWidth, grabHeight);
+				encoder.submit(store);
+			}
+			catch (Exception e) {
+				encoder.release(store);
+				e.printStackTrace();
+			}
 		}
 		releaseCurrentContext();
 	}
@@ -107,6 +107,8 @@ import java.nio.ByteBuffer;
 
 import com.ardor3d.framework.DisplaySettings;
 import com.ardor3d.framework.jogl.CapsUtil;
+import com.ardor3d.image.ImageDataFormat;
+import com.ardor3d.image.PixelDataType;
 import com.ardor3d.math.ColorRGBA;
 import com.ardor3d.math.Vector3;
 import com.ardor3d.math.type.ReadOnlyColorRGBA;
@@ -244,6 +246,44 @@ public class OffscreenRenderer {
 		}
 	}
 
+	/**
+	 * Render a scene with its own camera and read the frame into a buffer,
+	 * bottom row first.
+	 * 
+	 * @param scene
+	 * @param store
+	 * @param format
+	 * @return true if the frame was read
+	 */
+	public boolean render(final BasicScene scene, final ByteBuffer store, final ImageDataFormat format) {
+		try {
+			if (offscreenDrawable == null) {
+				initPbuffer();
+			}
+
+			context.makeCurrent();
+			ContextManager.switchContext(context);
+
+			final Camera sceneCamera = scene.getCamera();
+			sceneCamera.update();
+			sceneCamera.apply(renderer);
+
+			scene.preRender(renderer);
+			renderer.clearBuffers(Renderer.BUFFER_COLOR_AND_DEPTH);
+			scene.renderUnto(renderer);
+
+			renderer.flushFrame(false);
+			renderer.finishGraphics();
+
+			store.clear();
+			renderer.grabScreenContents(store, format, PixelDataType.UnsignedByte, 0, 0, width, height);
+			return (true);
+		} catch (final Exception e) {
+			e.printStackTrace();
+			return (false);
+		}
+	}
+
 	protected void saveRGBABuffer() {
 		final GL gl = GLContext.getCurrentGL();
 		if (rgbaBuffer == null) {
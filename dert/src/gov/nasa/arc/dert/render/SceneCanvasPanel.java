@@ -239,8 +239,8 @@ public class SceneCanvasPanel extends Panel implements Updater {
 		this.state = state;
 	}
 	
-	public void enableFrameGrab(String grabFilePath) {
-		canvasRenderer.enableFrameGrab(grabFilePath, 0, 0, scene.getWidth(), scene.getHeight());
+	public void enableFrameGrab(String grabFilePath, FrameGrabEncoder.Format grabFormat) {
+		canvasRenderer.enableFrameGrab(grabFilePath, grabFormat, 0, 0, scene.getWidth(), scene.getHeight());
 	}
 	
 	public void resize(int x, int y, int width, int height) {
@@ -138,7 +138,9 @@ public class SceneFramework {
 	private final Runnable runnable = new Runnable() {
 		@Override
 		public void run() {
+			FrameProfiler.getInstance().beginFrame();
 			frameHandler.updateFrame();
+			FrameProfiler.getInstance().endFrame();
 			World.markClean();
 			count--;
 		}
@@ -102,6 +102,8 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 package gov.nasa.arc.dert.render;
 
 import gov.nasa.arc.dert.landscape.quadtree.QuadTreeMesh;
+import gov.nasa.arc.dert.scene.featureset.Feature;
+import gov.nasa.arc.dert.scene.featureset.FeatureBatch;
 import gov.nasa.arc.dert.util.MathUtil;
 import gov.nasa.arc.dert.util.SpatialPickResults;
 
@@ -201,8 +203,8 @@ public class SelectionHandler {
 		}
 		ReadOnlyVector3 pos = record.getIntersectionPoint(index);
 		ReadOnlyVector3 nrml = record.getIntersectionNormal(index);
+		PrimitiveKey key = record.getIntersectionPrimitive(index);
 		if (nrml == null) {
-			PrimitiveKey key = record.getIntersectionPrimitive(index);
 			Vector3[] vertices = mesh[meshIndex].getMeshData().getPrimitiveVertices(key.getPrimitiveIndex(),
 				key.getSection(), null);
 			if (vertices.length > 2) {
@@ -213,6 +215,12 @@ public class SelectionHandler {
 		}
 		position.set(pos);
 		normal.set(nrml);
+		// the lines of a batched FeatureSet are one mesh, find the Feature from the segment
+		if ((key != null) && (mesh[meshIndex] instanceof FeatureBatch)) {
+			Feature feature = ((FeatureBatch) mesh[meshIndex]).getFeature(key.getPrimitiveIndex());
+			if (feature != null)
+				return (feature);
+		}
 		if (meshIndex >= 0) {
 //			System.err.println("SelectionHandler.doSelection "+mesh[meshIndex]);
 			return (mesh[meshIndex]);
@@ -121,6 +121,7 @@ import java.util.HashMap;
 
 import javax.swing.Icon;
 
+import com.ardor3d.bounding.BoundingBox;
 import com.ardor3d.bounding.BoundingVolume;
 import com.ardor3d.math.Vector3;
 import com.ardor3d.math.type.ReadOnlyVector3;
@@ -147,6 +148,10 @@ public class Feature
 	private boolean labelVisible;
 	
 	private FeatureState state;
+
+	// Lines of this Feature in the FeatureSet batch
+	private FeatureBatch batch;
+	private int batchLine0, batchLine1;
 	
 	public Feature(FeatureState state, HashMap<String,Object> properties) {
 		this(state.name, state.color, properties);
@@ -194,9 +199,27 @@ public class Feature
 		} else {
 			getSceneHints().setCullHint(CullHint.Always);
 		}
+		if (batch != null)
+			batch.setVisible(batchLine0, batchLine1, visible);
 		markDirty(DirtyType.RenderState);
 	}
 
+	/**
+	 * Set the range of lines of this Feature that were moved to a
+	 * FeatureBatch.
+	 * 
+	 * @param batch
+	 * @param line0
+	 *            first line
+	 * @param line1
+	 *            last line + 1
+	 */
+	public void setBatch(FeatureBatch batch, int line0, int line1) {
+		this.batch = batch;
+		batchLine0 = line0;
+		batchLine1 = line1;
+	}
+
 	/**
 	 * Pin this Feature (does nothing)
 	 */
@@ -253,6 +276,10 @@ public class Feature
 	@Override
 	public boolean updateElevation(QuadTree quadTree) {
 		boolean modified = false;
+		if ((batch != null) && (batchLine1 > batchLine0) && batch.intersects(batchLine0, batchLine1, quadTree)) {
+			batch.updateElevation(batchLine0, batchLine1);
+			modified = true;
+		}
 		for (int i = 0; i < getNumberOfChildren(); ++i) {
 			Spatial child = getChild(i);
 			if (child instanceof LineStrip) {
@@ -270,6 +297,49 @@ public class Feature
 		return (modified);
 	}
 
+	/**
+	 * Get the X,Y extent of the lines and points in local coordinates.
+	 * 
+	 * @param bounds
+	 *            filled with xMin, yMin, xMax, yMax
+	 * @return false if there are no lines or points
+	 */
+	public boolean getBounds(double[] bounds) {
+		bounds[0] = Double.MAX_VALUE;
+		bounds[1] = Double.MAX_VALUE;
+		bounds[2] = -Double.MAX_VALUE;
+		bounds[3] = -Double.MAX_VALUE;
+		boolean found = false;
+		if (batch != null)
+			found = batch.getBounds(batchLine0, batchLine1, bounds);
+		for (int i = 0; i < getNumberOfChildren(); ++i) {
+			Spatial child = getChild(i);
+			if (child instanceof LineStrip) {
+				BoundingVolume bv = ((LineStrip) child).getModelBound();
+				if (!(bv instanceof BoundingBox))
+					continue;
+				BoundingBox bbox = (BoundingBox) bv;
+				ReadOnlyVector3 center = bbox.getCenter();
+				addBounds(center.getX() - bbox.getXExtent(), center.getY() - bbox.getYExtent(), bounds);
+				addBounds(center.getX() + bbox.getXExtent(), center.getY() + bbox.getYExtent(), bounds);
+				found = true;
+			}
+			else if (child instanceof FigureMarker) {
+				ReadOnlyVector3 loc = ((FigureMarker) child).getLocation();
+				addBounds(loc.getX(), loc.getY(), bounds);
+				found = true;
+			}
+		}
+		return (found);
+	}
+
+	private void addBounds(double x, double y, double[] bounds) {
+		bounds[0] = Math.min(bounds[0], x);
+		bounds[1] = Math.min(bounds[1], y);
+		bounds[2] = Math.max(bounds[2], x);
+		bounds[3] = Math.max(bounds[3], y);
+	}
+
 	/**
 	 * Set the vertical exaggeration
 	 */
@@ -301,6 +371,9 @@ public class Feature
 	 */
 	@Override
 	public double getSeekPointAndDistance(Vector3 point) {
+		if ((batch != null) && (batchLine1 > batchLine0)) {
+			return (batch.getCenter(batchLine0, batchLine1, point));
+		}
 		Spatial child = getChild(0);
 		double distance = 1;
 		if (child instanceof Marker) {
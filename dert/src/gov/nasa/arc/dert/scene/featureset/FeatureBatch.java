@@ -0,0 +1,470 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.scene.featureset;
+
+import gov.nasa.arc.dert.landscape.Landscape;
+import gov.nasa.arc.dert.landscape.quadtree.QuadTree;
+import gov.nasa.arc.dert.scenegraph.LineStrip;
+import gov.nasa.arc.dert.util.UIUtil;
+
+import java.awt.Color;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import com.ardor3d.bounding.BoundingBox;
+import com.ardor3d.math.Vector3;
+import com.ardor3d.renderer.IndexMode;
+import com.ardor3d.scenegraph.Line;
+import com.ardor3d.scenegraph.event.DirtyType;
+import com.ardor3d.scenegraph.hint.LightCombineMode;
+import com.ardor3d.scenegraph.hint.TextureCombineMode;
+import com.ardor3d.util.geom.BufferUtils;
+
+/**
+ * Provides a single mesh holding the lines of all the Features in a
+ * FeatureSet. Lines are drawn as segments from one vertex buffer. Each Feature
+ * keeps the range of its lines so it can be draped, hidden and found from a
+ * picked segment. The index buffer is built once, a hidden line keeps its
+ * segments but each one is collapsed to a single vertex.
+ *
+ */
+public class FeatureBatch extends Line {
+
+	// Vertex range of each line
+	private int[] lineStart, lineEnd;
+
+	// Feature that owns each line
+	private Feature[] lineFeature;
+
+	// Visibility of each line
+	private boolean[] lineVisible;
+
+	// X,Y extent of each line (xMin, yMin, xMax, yMax)
+	private float[] lineBounds;
+
+	// First segment of each line
+	private int[] lineSegment;
+
+	// Number of lines
+	private int numLines;
+
+	// Vertices, used while adding lines
+	private float[] vertex;
+	private int numVertices;
+
+	// Line of each drawn segment
+	private int[] segmentLine;
+
+	// Elevations changed since the last call to commitElevation
+	private boolean elevationChanged;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param name
+	 * @param lineWidth
+	 * @param color
+	 */
+	public FeatureBatch(String name, float lineWidth, Color color) {
+		super(name);
+		lineStart = new int[16];
+		lineEnd = new int[16];
+		lineFeature = new Feature[16];
+		vertex = new float[1024];
+		getMeshData().setIndexMode(IndexMode.Lines);
+		getSceneHints().setTextureCombineMode(TextureCombineMode.Off);
+		getSceneHints().setLightCombineMode(LightCombineMode.Off);
+		setLineWidth(lineWidth);
+		setColor(color);
+	}
+
+	/**
+	 * Add the vertices of a LineStrip to this batch. Call build() after all
+	 * lines are added.
+	 * 
+	 * @param feature
+	 *            the Feature that owns the line
+	 * @param lineStrip
+	 * @return the index of the line
+	 */
+	public int addLine(Feature feature, LineStrip lineStrip) {
+		if (vertex == null)
+			throw new IllegalStateException("FeatureBatch has been built.");
+		FloatBuffer buffer = lineStrip.getMeshData().getVertexBuffer();
+		int n = buffer.limit();
+		if (numLines == lineStart.length) {
+			lineStart = Arrays.copyOf(lineStart, numLines * 2);
+			lineEnd = Arrays.copyOf(lineEnd, numLines * 2);
+			lineFeature = Arrays.copyOf(lineFeature, numLines * 2);
+		}
+		if (numVertices * 3 + n > vertex.length)
+			vertex = Arrays.copyOf(vertex, Math.max(vertex.length * 2, numVertices * 3 + n));
+		for (int i = 0; i < n; ++i)
+			vertex[numVertices * 3 + i] = buffer.get(i);
+		lineStart[numLines] = numVertices;
+		numVertices += n / 3;
+		lineEnd[numLines] = numVertices;
+		lineFeature[numLines] = feature;
+		return (numLines++);
+	}
+
+	/**
+	 * Create the vertex and index buffers.
+	 */
+	public void build() {
+		FloatBuffer buffer = BufferUtils.createFloatBuffer(numVertices * 3);
+		buffer.put(vertex, 0, numVertices * 3);
+		buffer.flip();
+		vertex = null;
+		lineStart = Arrays.copyOf(lineStart, numLines);
+		lineEnd = Arrays.copyOf(lineEnd, numLines);
+		lineFeature = Arrays.copyOf(lineFeature, numLines);
+		lineVisible = new boolean[numLines];
+		Arrays.fill(lineVisible, true);
+		lineBounds = new float[numLines * 4];
+		for (int i = 0; i < numLines; ++i) {
+			lineBounds[i * 4] = Float.MAX_VALUE;
+			lineBounds[i * 4 + 1] = Float.MAX_VALUE;
+			lineBounds[i * 4 + 2] = -Float.MAX_VALUE;
+			lineBounds[i * 4 + 3] = -Float.MAX_VALUE;
+			for (int j = lineStart[i]; j < lineEnd[i]; ++j) {
+				float x = buffer.get(j * 3);
+				float y = buffer.get(j * 3 + 1);
+				lineBounds[i * 4] = Math.min(lineBounds[i * 4], x);
+				lineBounds[i * 4 + 1] = Math.min(lineBounds[i * 4 + 1], y);
+				lineBounds[i * 4 + 2] = Math.max(lineBounds[i * 4 + 2], x);
+				lineBounds[i * 4 + 3] = Math.max(lineBounds[i * 4 + 3], y);
+			}
+		}
+		getMeshData().setVertexBuffer(buffer);
+		createIndices();
+		setModelBound(new BoundingBox());
+		updateModelBound();
+	}
+
+	/**
+	 * Get the number of lines.
+	 * 
+	 * @return
+	 */
+	public int getNumberOfLines() {
+		return (numLines);
+	}
+
+	/**
+	 * Get the number of vertices.
+	 * 
+	 * @return
+	 */
+	public int getNumberOfVertices() {
+		return (numVertices);
+	}
+
+	/**
+	 * Get the Feature that owns a drawn segment, such as the primitive index
+	 * of a pick.
+	 * 
+	 * @param segment
+	 * @return null if there is no such segment or it is hidden
+	 */
+	public synchronized Feature getFeature(int segment) {
+		if ((segment < 0) || (segment >= segmentLine.length))
+			return (null);
+		int line = segmentLine[segment];
+		if (!lineVisible[line])
+			return (null);
+		return (lineFeature[line]);
+	}
+
+	/**
+	 * Show or hide a range of lines.
+	 * 
+	 * @param line0
+	 *            first line
+	 * @param line1
+	 *            last line + 1
+	 * @param visible
+	 */
+	public synchronized void setVisible(int line0, int line1, boolean visible) {
+		if (line0 >= line1)
+			return;
+		IntBuffer index = (IntBuffer) getMeshData().getIndexBuffer();
+		for (int i = line0; i < line1; ++i) {
+			if (lineVisible[i] == visible)
+				continue;
+			lineVisible[i] = visible;
+			int k = lineSegment[i] * 2;
+			for (int j = lineStart[i]; j < lineEnd[i] - 1; ++j) {
+				index.put(k++, j);
+				index.put(k++, visible ? j + 1 : j);
+			}
+		}
+		markDirty(DirtyType.RenderState);
+	}
+
+	/**
+	 * Determine if a range of lines overlaps a QuadTree.
+	 * 
+	 * @param line0
+	 *            first line
+	 * @param line1
+	 *            last line + 1
+	 * @param quadTree
+	 * @return
+	 */
+	public boolean intersects(int line0, int line1, QuadTree quadTree) {
+		Vector3[] corner = quadTree.getCornerPoints();
+		if (corner == null)
+			return (false);
+		double xMin = Double.MAX_VALUE, yMin = Double.MAX_VALUE;
+		double xMax = -Double.MAX_VALUE, yMax = -Double.MAX_VALUE;
+		for (int i = 0; i < corner.length; ++i) {
+			xMin = Math.min(xMin, corner[i].getX());
+			yMin = Math.min(yMin, corner[i].getY());
+			xMax = Math.max(xMax, corner[i].getX());
+			yMax = Math.max(yMax, corner[i].getY());
+		}
+		for (int i = line0; i < line1; ++i) {
+			if ((lineBounds[i * 4] <= xMax) && (lineBounds[i * 4 + 2] >= xMin) && (lineBounds[i * 4 + 1] <= yMax)
+				&& (lineBounds[i * 4 + 3] >= yMin))
+				return (true);
+		}
+		return (false);
+	}
+
+	/**
+	 * Update the elevation of the vertices in a range of lines. Call
+	 * commitElevation when all ranges are updated.
+	 * 
+	 * @param line0
+	 *            first line
+	 * @param line1
+	 *            last line + 1
+	 */
+	public synchronized void updateElevation(int line0, int line1) {
+		if (line0 >= line1)
+			return;
+		FloatBuffer buffer = _meshData.getVertexBuffer();
+		int v0 = lineStart[line0];
+		int n = lineEnd[line1 - 1] - v0;
+		// look up the vertices in each tile together
+		double[] xy = new double[n * 2];
+		for (int i = 0; i < n; ++i) {
+			xy[i * 2] = buffer.get((v0 + i) * 3);
+			xy[i * 2 + 1] = buffer.get((v0 + i) * 3 + 1);
+		}
+		double[] z = new double[n];
+		Landscape.getInstance().getZ(xy, n, z);
+		for (int i = 0; i < n; ++i) {
+			if (!Double.isNaN(z[i])) {
+				buffer.put((v0 + i) * 3 + 2, (float) (z[i] + 0.1));
+			}
+		}
+		elevationChanged = true;
+	}
+
+	/**
+	 * Finish the elevation updates. The vertex buffer and bounds are updated
+	 * once for the whole batch.
+	 * 
+	 * @return true if any elevations changed
+	 */
+	public synchronized boolean commitElevation() {
+		if (!elevationChanged)
+			return (false);
+		elevationChanged = false;
+		_meshData.setVertexCoords(_meshData.getVertexCoords());
+		updateModelBound();
+		return (true);
+	}
+
+	/**
+	 * Add the X,Y extent of a range of lines to a bounds array.
+	 * 
+	 * @param line0
+	 *            first line
+	 * @param line1
+	 *            last line + 1
+	 * @param bounds
+	 *            xMin, yMin, xMax, yMax
+	 * @return false if the range is empty
+	 */
+	public synchronized boolean getBounds(int line0, int line1, double[] bounds) {
+		if (line0 >= line1)
+			return (false);
+		FloatBuffer buffer = _meshData.getVertexBuffer();
+		for (int i = lineStart[line0] * 3; i < lineEnd[line1 - 1] * 3; i += 3) {
+			bounds[0] = Math.min(bounds[0], buffer.get(i));
+			bounds[1] = Math.min(bounds[1], buffer.get(i + 1));
+			bounds[2] = Math.max(bounds[2], buffer.get(i));
+			bounds[3] = Math.max(bounds[3], buffer.get(i + 1));
+		}
+		return (true);
+	}
+
+	/**
+	 * Get the center of a range of lines in world coordinates.
+	 * 
+	 * @param line0
+	 *            first line
+	 * @param line1
+	 *            last line + 1
+	 * @param store
+	 *            the center
+	 * @return the radius
+	 */
+	public synchronized double getCenter(int line0, int line1, Vector3 store) {
+		if (line0 >= line1)
+			return (0);
+		FloatBuffer buffer = _meshData.getVertexBuffer();
+		Vector3 min = new Vector3(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
+		Vector3 max = new Vector3(-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE);
+		for (int i = lineStart[line0] * 3; i < lineEnd[line1 - 1] * 3; i += 3) {
+			min.set(Math.min(min.getX(), buffer.get(i)), Math.min(min.getY(), buffer.get(i + 1)),
+				Math.min(min.getZ(), buffer.get(i + 2)));
+			max.set(Math.max(max.getX(), buffer.get(i)), Math.max(max.getY(), buffer.get(i + 1)),
+				Math.max(max.getZ(), buffer.get(i + 2)));
+		}
+		localToWorld(min, min);
+		localToWorld(max, max);
+		store.set(min).addLocal(max).multiplyLocal(0.5);
+		return (min.distance(max) / 2);
+	}
+
+	/**
+	 * Set the line color.
+	 * 
+	 * @param color
+	 */
+	public void setColor(Color color) {
+		setDefaultColor(UIUtil.colorToColorRGBA(color));
+		markDirty(DirtyType.RenderState);
+	}
+
+	@Override
+	public String toString() {
+		return (getName());
+	}
+
+	private void createIndices() {
+		int count = 0;
+		lineSegment = new int[numLines];
+		for (int i = 0; i < numLines; ++i) {
+			lineSegment[i] = count;
+			if (lineEnd[i] - lineStart[i] > 1)
+				count += lineEnd[i] - lineStart[i] - 1;
+		}
+		IntBuffer index = BufferUtils.createIntBuffer(Math.max(count * 2, 1));
+		segmentLine = new int[count];
+		int k = 0;
+		for (int i = 0; i < numLines; ++i) {
+			for (int j = lineStart[i]; j < lineEnd[i] - 1; ++j) {
+				index.put(j).put(j + 1);
+				segmentLine[k++] = i;
+			}
+		}
+		index.flip();
+		getMeshData().setIndexBuffer(index);
+	}
+
+}
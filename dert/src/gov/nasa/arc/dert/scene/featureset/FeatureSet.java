@@ -104,29 +104,35 @@ package gov.nasa.arc.dert.scene.featureset;
 import gov.nasa.arc.dert.camera.BasicCamera;
 import gov.nasa.arc.dert.icon.Icons;
 import gov.nasa.arc.dert.io.geojson.GeojsonLoader;
-import gov.nasa.arc.dert.io.geojson.json.GeoJsonObject;
 import gov.nasa.arc.dert.landscape.Landscape;
+import gov.nasa.arc.dert.landscape.quadtree.QuadKeyIndex;
 import gov.nasa.arc.dert.landscape.quadtree.QuadTree;
 import gov.nasa.arc.dert.landscape.srs.SpatialReferenceSystem;
 import gov.nasa.arc.dert.scene.MapElement;
+import gov.nasa.arc.dert.scenegraph.ContourLine;
 import gov.nasa.arc.dert.scenegraph.GroupNode;
+import gov.nasa.arc.dert.scenegraph.LineStrip;
 import gov.nasa.arc.dert.state.FeatureSetState;
 import gov.nasa.arc.dert.state.MapElementState;
 import gov.nasa.arc.dert.state.MapElementState.Type;
 import gov.nasa.arc.dert.util.SpatialUtil;
 import gov.nasa.arc.dert.util.StringUtil;
+import gov.nasa.arc.dert.view.Console;
 import gov.nasa.arc.dert.view.world.GroundEdit;
 import gov.nasa.arc.dert.viewpoint.ViewDependent;
 
 import java.awt.Color;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.Icon;
 
 import com.ardor3d.bounding.BoundingVolume;
 import com.ardor3d.math.Vector3;
 import com.ardor3d.math.type.ReadOnlyVector3;
+import com.ardor3d.scenegraph.Node;
 import com.ardor3d.scenegraph.Spatial;
 import com.ardor3d.scenegraph.event.DirtyType;
 import com.ardor3d.scenegraph.hint.CullHint;
@@ -141,6 +147,7 @@ public class FeatureSet extends GroupNode implements MapElement, ViewDependent {
 	public static final Icon icon = Icons.getImageIcon("lineset_16.png");
 	public static Color defaultColor = Color.white;
 	public static float defaultSize = 0.75f, defaultLineWidth = 2;
+	public static boolean defaultBatched = false;
 
 	// Line color
 	private Color color;
@@ -160,6 +167,21 @@ public class FeatureSet extends GroupNode implements MapElement, ViewDependent {
 	
 	private float size, lineWidth;
 
+	// Index of the Features by tile, used to drape only the Features that
+	// overlap a changed tile
+	private QuadKeyIndex<Feature> featureIndex;
+
+	// Number of Features draped by elevation updates of this FeatureSet and
+	// of all FeatureSets
+	private AtomicLong redrapeCount = new AtomicLong();
+	private static AtomicLong totalRedrapeCount = new AtomicLong();
+
+	// Lines of all Features merged into one mesh
+	private FeatureBatch batch;
+
+	// Number of spatials before the lines were batched
+	private int unbatchedSpatialCount;
+
 	/**
 	 * Constructor
 	 * 
@@ -189,16 +211,100 @@ public class FeatureSet extends GroupNode implements MapElement, ViewDependent {
 		// Load the vector file into an Ardor3D object.
 		if (filePath != null) {
 			GeojsonLoader jsonLoader = new GeojsonLoader(srs, elevAttrName, ground, size, lineWidth);
-			GeoJsonObject gjRoot = jsonLoader.load(filePath);
-			jsonLoader.geoJsonToArdor3D(gjRoot, this, state.labelProp);
+			jsonLoader.loadFeatureSet(filePath, this, state.labelProp);
 			if (getNumberOfChildren() == 0) {
 				throw new IllegalStateException("No vectors found.");
 			}
+			if (state.batched)
+				batchLines();
+			if (ground)
+				createFeatureIndex();
 		}
 		setLabelVisible(state.labelVisible);
 		getSceneHints().setCullHint(CullHint.Dynamic);
 	}
 	
+	/**
+	 * Move the lines of all Features into one FeatureBatch so the set is drawn
+	 * and culled as a single mesh. Points and contour labels remain in their
+	 * Features.
+	 */
+	private void batchLines() {
+		unbatchedSpatialCount = getSpatialCount(this);
+		FeatureBatch fBatch = new FeatureBatch("_lines", lineWidth, color);
+		for (int i = 0; i < getNumberOfChildren(); ++i) {
+			Spatial child = getChild(i);
+			if (child instanceof Feature) {
+				Feature feature = (Feature) child;
+				int line0 = fBatch.getNumberOfLines();
+				batchLines(feature, feature, fBatch);
+				feature.setBatch(fBatch, line0, fBatch.getNumberOfLines());
+			}
+		}
+		if (fBatch.getNumberOfLines() == 0)
+			return;
+		fBatch.build();
+		attachChild(fBatch);
+		batch = fBatch;
+		Console.println("Merged " + batch.getNumberOfLines() + " lines of " + getName() + " into one mesh, spatials reduced from "
+			+ unbatchedSpatialCount + " to " + getSpatialCount(this) + ".");
+	}
+
+	private void batchLines(Feature feature, Node node, FeatureBatch fBatch) {
+		int i = 0;
+		while (i < node.getNumberOfChildren()) {
+			Spatial child = node.getChild(i);
+			if (child instanceof LineStrip) {
+				fBatch.addLine(feature, (LineStrip) child);
+				node.detachChildAt(i);
+			} else {
+				if ((child instanceof ContourLine) || (child instanceof GroupNode))
+					batchLines(feature, (Node) child, fBatch);
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Get the number of spatials in this FeatureSet.
+	 * 
+	 * @return
+	 */
+	public int getSpatialCount() {
+		return (getSpatialCount(this));
+	}
+
+	/**
+	 * Get the number of spatials in this FeatureSet before its lines were
+	 * batched. Returns the current count if the lines are not batched.
+	 * 
+	 * @return
+	 */
+	public int getUnbatchedSpatialCount() {
+		if (batch == null)
+			return (getSpatialCount(this));
+		return (unbatchedSpatialCount);
+	}
+
+	/**
+	 * Get the batch holding the lines of this FeatureSet.
+	 * 
+	 * @return null if the lines are not batched
+	 */
+	public FeatureBatch getBatch() {
+		return (batch);
+	}
+
+	private int getSpatialCount(Spatial spatial) {
+		int count = 1;
+		if (spatial instanceof Node) {
+			Node node = (Node) spatial;
+			for (int i = 0; i < node.getNumberOfChildren(); ++i)
+				count += getSpatialCount(node.getChild(i));
+		}
+		return (count);
+	}
+	
 	public Feature getFeature(int id) {
 		List<Spatial> child = getChildren();
 		for (int i=0; i<child.size(); ++i) {
@@ -273,9 +379,12 @@ public class FeatureSet extends GroupNode implements MapElement, ViewDependent {
 	public void setColor(Color color) {
 		this.color = color;
 		for (int i=0; i<getNumberOfChildren(); ++i) {
-			Feature feature = (Feature)getChild(i);
-			feature.setColor(color);
+			Spatial child = getChild(i);
+			if (child instanceof Feature)
+				((Feature)child).setColor(color);
 		}
+		if (batch != null)
+			batch.setColor(color);
 	}
 
 	/**
@@ -295,14 +404,70 @@ public class FeatureSet extends GroupNode implements MapElement, ViewDependent {
 		if (!ground)
 			return(false);
 		boolean modified = false;
+		int count = 0;
+		if (featureIndex == null) {
+			for (int i = 0; i < getNumberOfChildren(); ++i) {
+				Spatial child = getChild(i);
+				if (child instanceof Feature) {
+					Feature feature = (Feature) child;
+					modified |= feature.updateElevation(quadTree);
+					count++;
+				}
+			}
+		}
+		else {
+			ArrayList<Feature> featureList = new ArrayList<Feature>();
+			featureIndex.getElements(quadTree, featureList);
+			for (int i = 0; i < featureList.size(); ++i) {
+				Feature feature = featureList.get(i);
+				// skip Features that have been removed
+				if (feature.getParent() != this)
+					continue;
+				modified |= feature.updateElevation(quadTree);
+				count++;
+			}
+		}
+		// the batch mesh is updated once for all of its Features
+		if (batch != null)
+			batch.commitElevation();
+		// updates run concurrently, add this update's count where it is made
+		redrapeCount.addAndGet(count);
+		totalRedrapeCount.addAndGet(count);
+		return (modified);
+	}
+
+	/**
+	 * Get the number of Features draped by all elevation updates of this
+	 * FeatureSet.
+	 * 
+	 * @return
+	 */
+	public long getRedrapeCount() {
+		return (redrapeCount.get());
+	}
+
+	/**
+	 * Get the number of Features draped by all elevation updates of all
+	 * FeatureSets since startup.
+	 * 
+	 * @return
+	 */
+	public static long getTotalRedrapeCount() {
+		return (totalRedrapeCount.get());
+	}
+
+	private void createFeatureIndex() {
+		double[] bounds = Landscape.getInstance().getBounds();
+		featureIndex = new QuadKeyIndex<Feature>(bounds[0], bounds[1], bounds[3], bounds[4]);
+		double[] fBounds = new double[4];
 		for (int i = 0; i < getNumberOfChildren(); ++i) {
 			Spatial child = getChild(i);
 			if (child instanceof Feature) {
 				Feature feature = (Feature) child;
-				modified |= feature.updateElevation(quadTree);
+				if (feature.getBounds(fBounds))
+					featureIndex.put(feature, fBounds[0], fBounds[1], fBounds[2], fBounds[3]);
 			}
 		}
-		return (modified);
 	}
 
 	/**
@@ -317,6 +482,8 @@ public class FeatureSet extends GroupNode implements MapElement, ViewDependent {
 				feature.setVerticalExaggeration(vertExag, oldVertExag, minZ);
 			}
 		}
+		if (batch != null)
+			batch.setScale(1, 1, vertExag);
 	}
 
 	/**
@@ -394,6 +561,10 @@ public class FeatureSet extends GroupNode implements MapElement, ViewDependent {
 				feature.setLineWidth(lineWidth);
 			}
 		}
+		if (batch != null) {
+			batch.setLineWidth(lineWidth);
+			batch.markDirty(DirtyType.RenderState);
+		}
 	}
 	
 	/**
@@ -438,7 +609,10 @@ public class FeatureSet extends GroupNode implements MapElement, ViewDependent {
 		if (!isVisible())
 			return;
 		for (int i = 0; i < getNumberOfChildren(); ++i) {
-			Feature feature = (Feature)getChild(i);
+			Spatial child = getChild(i);
+			if (!(child instanceof Feature))
+				continue;
+			Feature feature = (Feature)child;
 			if (feature.isVisible())
 				feature.update(camera);
 		}
@@ -453,6 +627,7 @@ public class FeatureSet extends GroupNode implements MapElement, ViewDependent {
 		defaultColor = StringUtil.getColorValue(properties, "MapElement.FeatureSet.defaultColor", defaultColor, false);
 		defaultSize = (float) StringUtil.getDoubleValue(properties, "MapElement.FeatureSet.defaultSize", true, defaultSize, false);
 		defaultLineWidth = (float) StringUtil.getDoubleValue(properties, "MapElement.FeatureSet.defaultLineWidth", true, defaultLineWidth, false);
+		defaultBatched = StringUtil.getBooleanValue(properties, "MapElement.FeatureSet.defaultBatched", defaultBatched, false);
 	}
 
 	/**
@@ -464,6 +639,7 @@ public class FeatureSet extends GroupNode implements MapElement, ViewDependent {
 		properties.setProperty("MapElement.FeatureSet.defaultColor", StringUtil.colorToString(defaultColor));
 		properties.setProperty("MapElement.FeatureSet.defaultSize", Float.toString(defaultSize));
 		properties.setProperty("MapElement.FeatureSet.defaultLineWidth", Float.toString(defaultLineWidth));
+		properties.setProperty("MapElement.FeatureSet.defaultBatched", Boolean.toString(defaultBatched));
 	}
 
 }
@@ -111,6 +111,7 @@ import java.util.ArrayList;
 import java.util.Properties;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.JTextField;
 
@@ -134,6 +135,9 @@ public class FeatureSets extends GroupNode {
 	
 	private ZBufferState zBufferState;
 
+	// Count of elevation updates
+	private AtomicLong updateCount;
+
 	/**
 	 * Constructor
 	 * 
@@ -143,6 +147,7 @@ public class FeatureSets extends GroupNode {
 		super("FeatureSets");
 		this.featureSetList = featureSetList;
 		executor = Executors.newFixedThreadPool(5);
+		updateCount = new AtomicLong();
 	}
 
 	/**
@@ -177,7 +182,9 @@ public class FeatureSets extends GroupNode {
 				@Override
 				public void run() {
 					Thread.yield();
-					boolean modified = ((FeatureSet) child).updateElevation(quadTree);
+					FeatureSet featureSet = (FeatureSet) child;
+					boolean modified = featureSet.updateElevation(quadTree);
+					updateCount.incrementAndGet();
 					if (modified) {
 						EventQueue.invokeLater(new Runnable() {
 							@Override
@@ -192,6 +199,24 @@ public class FeatureSets extends GroupNode {
 		}
 	}
 
+	/**
+	 * Get the number of FeatureSet elevation updates since startup.
+	 * 
+	 * @return
+	 */
+	public long getUpdateCount() {
+		return (updateCount.get());
+	}
+
+	/**
+	 * Get the number of Features draped by all elevation updates since startup.
+	 * 
+	 * @return
+	 */
+	public long getRedrapeCount() {
+		return (FeatureSet.getTotalRedrapeCount());
+	}
+
 	/**
 	 * Add a FeatureSet to the list
 	 * 
@@ -104,10 +104,13 @@ package gov.nasa.arc.dert.scene.landmark;
 import gov.nasa.arc.dert.Dert;
 import gov.nasa.arc.dert.io.CsvWriter;
 import gov.nasa.arc.dert.landscape.Landscape;
+import gov.nasa.arc.dert.landscape.quadtree.QuadKeyIndex;
 import gov.nasa.arc.dert.landscape.quadtree.QuadTree;
 import gov.nasa.arc.dert.scene.Marble;
 import gov.nasa.arc.dert.scene.World;
 import gov.nasa.arc.dert.scenegraph.GroupNode;
+import gov.nasa.arc.dert.scenegraph.MotionListener;
+import gov.nasa.arc.dert.scenegraph.Movable;
 import gov.nasa.arc.dert.state.FigureState;
 import gov.nasa.arc.dert.state.ImageBoardState;
 import gov.nasa.arc.dert.state.LandmarkState;
@@ -118,6 +121,7 @@ import gov.nasa.arc.dert.view.Console;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.ardor3d.math.type.ReadOnlyVector3;
 import com.ardor3d.renderer.state.TextureState;
@@ -129,13 +133,19 @@ import com.ardor3d.scenegraph.event.DirtyType;
  * Group of Landmarks
  *
  */
-public class Landmarks extends GroupNode {
+public class Landmarks extends GroupNode implements MotionListener {
 
 	// Landmark state list
 	private ArrayList<LandmarkState> landmarkList;
 	
 	private ZBufferState zBufferState;
 
+	// Index of the landmarks by tile
+	private QuadKeyIndex<Landmark> landmarkIndex;
+
+	// Number of landmarks updated by all landscape changes
+	private AtomicLong redrapeCount;
+
 	/**
 	 * Constructor
 	 * 
@@ -144,6 +154,9 @@ public class Landmarks extends GroupNode {
 	public Landmarks(ArrayList<LandmarkState> landmarkList) {
 		super("Landmarks");
 		this.landmarkList = landmarkList;
+		double[] bounds = Landscape.getInstance().getBounds();
+		landmarkIndex = new QuadKeyIndex<Landmark>(bounds[0], bounds[1], bounds[3], bounds[4]);
+		redrapeCount = new AtomicLong();
 	}
 
 	/**
@@ -173,12 +186,53 @@ public class Landmarks extends GroupNode {
 	 * @param quadTree
 	 */
 	public void landscapeChanged(final QuadTree quadTree) {
-		for (int i = 0; i < getNumberOfChildren(); ++i) {
-			final Spatial child = getChild(i);
-			if (child instanceof Landmark) {
-				((Landmark) child).updateElevation(quadTree);
-			}
+		ArrayList<Landmark> list = new ArrayList<Landmark>();
+		landmarkIndex.getElements(quadTree, list);
+		int count = 0;
+		for (int i = 0; i < list.size(); ++i) {
+			Landmark landmark = list.get(i);
+			// skip landmarks being detached
+			if (((Spatial) landmark).getParent() != this)
+				continue;
+			landmark.updateElevation(quadTree);
+			count++;
 		}
+		redrapeCount.addAndGet(count);
+	}
+
+	/**
+	 * Get the number of landmarks updated by all landscape changes since
+	 * startup.
+	 * 
+	 * @return
+	 */
+	public long getRedrapeCount() {
+		return (redrapeCount.get());
+	}
+
+	/**
+	 * A landmark was removed, drop it from the index and stop listening to it.
+	 */
+	@Override
+	public Spatial detachChildAt(int index) {
+		Spatial child = super.detachChildAt(index);
+		if (child instanceof Landmark) {
+			((Movable) child).removeMotionListener(this);
+			landmarkIndex.remove((Landmark) child);
+		}
+		return (child);
+	}
+
+	/**
+	 * A landmark moved, update the index.
+	 */
+	@Override
+	public void move(Movable mo, ReadOnlyVector3 position) {
+		Landmark landmark = (Landmark) mo;
+		if (mo.getParent() == this)
+			landmarkIndex.put(landmark, position.getX(), position.getY());
+		else
+			landmarkIndex.remove(landmark);
 	}
 
 	/**
@@ -230,6 +284,10 @@ public class Landmarks extends GroupNode {
 		if (landmark != null) {
 			Spatial spatial = (Spatial) landmark;
 			attachChild(spatial);
+			Movable movable = (Movable) landmark;
+			movable.addMotionListener(this);
+			ReadOnlyVector3 loc = movable.getLocation();
+			landmarkIndex.put(landmark, loc.getX(), loc.getY());
 			if (update) {
 				// update geometric state so we know where landmark is attached
 				spatial.updateGeometricState(0, true);
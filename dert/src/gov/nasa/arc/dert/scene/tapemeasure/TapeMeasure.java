@@ -169,6 +169,7 @@ public class TapeMeasure extends Node implements ViewDependent, CoordListener {
 
 	// Temporary
 	private Vector3 tmpVec;
+	private double[] displayCoord = new double[6];
 
 	/**
 	 * Constructor
@@ -306,16 +307,21 @@ public class TapeMeasure extends Node implements ViewDependent, CoordListener {
 	public void coordDisplayChanged() {
 		if (textDialog == null)
 			return;
+		// convert the anchor and current points together
+		Landscape landscape = Landscape.getInstance();
 		tmpVec.set(anchor);
-		Landscape.getInstance().localToWorldCoordinate(tmpVec);
-		if (World.getInstance().getUseLonLat()) 
-			Landscape.getInstance().worldToSphericalCoordinate(tmpVec);
-		anchorStr = StringUtil.format(tmpVec);
-		
+		landscape.localToWorldCoordinate(tmpVec);
+		tmpVec.toArray(displayCoord);
 		tmpVec.set(current);
-		Landscape.getInstance().localToWorldCoordinate(tmpVec);
+		landscape.localToWorldCoordinate(tmpVec);
+		displayCoord[3] = tmpVec.getX();
+		displayCoord[4] = tmpVec.getY();
+		displayCoord[5] = tmpVec.getZ();
 		if (World.getInstance().getUseLonLat()) 
-			Landscape.getInstance().worldToSphericalCoordinate(tmpVec);
+			landscape.worldToSphericalCoordinates(displayCoord, 2);
+		tmpVec.set(displayCoord[0], displayCoord[1], displayCoord[2]);
+		anchorStr = StringUtil.format(tmpVec);
+		tmpVec.set(displayCoord[3], displayCoord[4], displayCoord[5]);
 		currentStr = StringUtil.format(tmpVec);
 		
 		distanceStr = StringUtil.format(current.distance(anchor));
@@ -105,6 +105,7 @@ import gov.nasa.arc.dert.camera.BasicCamera;
 import gov.nasa.arc.dert.icon.Icons;
 import gov.nasa.arc.dert.io.CsvWriter;
 import gov.nasa.arc.dert.landscape.Landscape;
+import gov.nasa.arc.dert.landscape.quadtree.QuadKeyIndex;
 import gov.nasa.arc.dert.landscape.quadtree.QuadTree;
 import gov.nasa.arc.dert.scenegraph.HiddenLine;
 import gov.nasa.arc.dert.scenegraph.MotionListener;
@@ -123,6 +124,7 @@ import gov.nasa.arc.dert.view.world.GroundEdit;
 import gov.nasa.arc.dert.viewpoint.ViewDependent;
 
 import java.awt.Color;
+import java.util.ArrayList;
 import java.util.Properties;
 
 import javax.swing.Icon;
@@ -207,6 +209,9 @@ public class Path extends Node implements MotionListener, Tool, ViewDependent {
 
 	private Vector3 lowerBound, upperBound;
 
+	// Index of the way points by tile
+	private QuadKeyIndex<Waypoint> waypointIndex;
+
 	/**
 	 * Constructor
 	 * 
@@ -228,6 +233,9 @@ public class Path extends Node implements MotionListener, Tool, ViewDependent {
 		this.color = state.color;
 		this.lineWidth = state.lineWidth;
 
+		double[] bounds = Landscape.getInstance().getBounds();
+		waypointIndex = new QuadKeyIndex<Waypoint>(bounds[0], bounds[1], bounds[3], bounds[4]);
+
 		// Create scene graph elements
 		pointSet = new PointSet("_points_"+state.name);
 		attachChild(pointSet);
@@ -248,6 +256,7 @@ public class Path extends Node implements MotionListener, Tool, ViewDependent {
 			Waypoint currentWaypoint = new Waypoint(wps);
 			pointSet.addPoint(currentWaypoint, (int)wps.id);
 			currentWaypoint.addMotionListener(this);
+			waypointIndex.put(currentWaypoint, currentWaypoint.getLocation().getX(), currentWaypoint.getLocation().getY());
 			updateLabels(currentWaypoint);
 		}
 
@@ -270,6 +279,7 @@ public class Path extends Node implements MotionListener, Tool, ViewDependent {
 	 */
 	@Override
 	public void move(Movable d, ReadOnlyVector3 pos) {
+		waypointIndex.put((Waypoint) d, pos.getX(), pos.getY());
 		if (lineIsEnabled) {
 			pointSet.updateLine(line);
 		}
@@ -396,6 +406,8 @@ public class Path extends Node implements MotionListener, Tool, ViewDependent {
 		index = pointSet.addPoint(currentWaypoint, index);
 		state.id = index;
 		currentWaypoint.addMotionListener(this);
+		ReadOnlyVector3 loc = currentWaypoint.getLocation();
+		waypointIndex.put(currentWaypoint, loc.getX(), loc.getY());
 
 		// if we didn't add it to the end, renumber the way points
 		if (index < (pointSet.getNumberOfChildren() - 1)) {
@@ -429,6 +441,7 @@ public class Path extends Node implements MotionListener, Tool, ViewDependent {
 			return (index);
 		}
 		point.removeMotionListener(this);
+		waypointIndex.remove(point);
 		pointSet.removePoint(point);
 		// if we didn't remove it from the end, renumber the way points
 		if (index < (pointSet.getNumberOfChildren())) {
@@ -700,7 +713,7 @@ public class Path extends Node implements MotionListener, Tool, ViewDependent {
 
 	/**
 	 * A quad tree has merged or split. Update the elevation of each way point
-	 * if it is inside the quad tree.
+	 * that is inside the quad tree.
 	 * 
 	 * @param quadTree
 	 *            the Quad Tree.
@@ -708,9 +721,10 @@ public class Path extends Node implements MotionListener, Tool, ViewDependent {
 	@Override
 	public boolean updateElevation(QuadTree quadTree) {
 		boolean result = false;
-		for (int i = 0; i < pointSet.getNumberOfChildren(); ++i) {
-			Waypoint wp = (Waypoint) pointSet.getChild(i);
-			result |= wp.updateElevation(quadTree);
+		ArrayList<Waypoint> list = new ArrayList<Waypoint>();
+		waypointIndex.getElements(quadTree, list);
+		for (int i = 0; i < list.size(); ++i) {
+			result |= list.get(i).updateElevation(quadTree);
 		}
 		return (result);
 	}
@@ -830,18 +844,33 @@ public class Path extends Node implements MotionListener, Tool, ViewDependent {
 			csvWriter.open();
 			String[] value = new String[column.length];
 			Landscape landscape = Landscape.getInstance();
-			Vector3 coord = new Vector3();
+
+			// convert all of the way points at once
+			double[] xy = new double[n * 2];
+			for (int i = 0; i < n; ++i) {
+				ReadOnlyVector3 trans = pointSet.getChild(i).getTranslation();
+				xy[i * 2] = trans.getX();
+				xy[i * 2 + 1] = trans.getY();
+			}
+			float[] elev = new float[n];
+			landscape.getElevationsAtHighestLevel(xy, n, elev);
+			double[] coord = new double[n * 3];
+			Vector3 vec = new Vector3();
+			for (int i = 0; i < n; ++i) {
+				vec.set(xy[i * 2], xy[i * 2 + 1], 0);
+				landscape.localToWorldCoordinate(vec);
+				coord[i * 3] = vec.getX();
+				coord[i * 3 + 1] = vec.getY();
+				coord[i * 3 + 2] = elev[i];
+			}
+
 			for (int i = 0; i < n; ++i) {
 				Waypoint wp = (Waypoint) pointSet.getChild(i);
-				coord.set(wp.getTranslation());
-				double elev = landscape.getElevationAtHighestLevel(coord.getX(), coord.getY());
-				landscape.localToWorldCoordinate(coord);
-				coord.setZ(elev);
 				value[0] = Integer.toString(i);
 				value[1] = wp.getName();
-				value[2] = Double.toString(coord.getX());
-				value[3] = Double.toString(coord.getY());
-				value[4] = Double.toString(coord.getZ());
+				value[2] = Double.toString(coord[i * 3]);
+				value[3] = Double.toString(coord[i * 3 + 1]);
+				value[4] = Double.toString(coord[i * 3 + 2]);
 				value[5] = wp.getState().getAnnotation();
 				csvWriter.writeLine(value);
 			}
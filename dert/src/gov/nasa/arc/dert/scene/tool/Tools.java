@@ -243,7 +243,9 @@ public class Tools extends GroupNode {
 				tool.update(Dert.getWorldView().getViewpoint().getCamera());
 			}
 			if ((tool instanceof FieldCamera) || (tool instanceof Profile)) {
-				state.open(true);
+				// there are no views when rendering in batch mode
+				if (Dert.getMainWindow() != null)
+					state.open(true);
 				spatial.markDirty(DirtyType.Transform);
 			}
 		}
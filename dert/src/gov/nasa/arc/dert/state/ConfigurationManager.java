@@ -373,6 +373,29 @@ public class ConfigurationManager {
 		return (config);
 	}
 
+	/**
+	 * Make a Configuration current and create its world without opening any
+	 * views. Used for batch rendering.
+	 * 
+	 * @param config
+	 * @return the world or null if it could not be created
+	 */
+	public World createWorld(Configuration config) {
+		String landscapePath = config.getLandscapePath();
+		if (!setConfigHome(landscapePath)) {
+			Console.println("Unable to set the current configuration to "+config);
+			return(null);
+		}
+		CoordAction.listenerList.clear();
+		currentConfig = config;
+		ColorMap.setConfigLocation(currentConfigHome);
+		FieldCameraInfoManager.getInstance().setConfigLocation(currentConfigHome);
+		World world = currentConfig.worldState.createWorld(landscapePath, currentConfig);
+		if (world == null)
+			Console.println("Unable to create world for " + currentConfig);
+		return(world);
+	}
+
 	/**
 	 * Set the current Configuration.
 	 * 
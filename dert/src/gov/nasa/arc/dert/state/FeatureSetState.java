@@ -121,6 +121,8 @@ public class FeatureSetState extends MapElementState {
 	public String filePath;
 	public String labelProp;
 	public boolean ground;
+	// Merge the lines into one mesh
+	public boolean batched;
 	public float lineWidth;
 	public int currentFeature;
 
@@ -138,6 +140,7 @@ public class FeatureSetState extends MapElementState {
 		this.labelProp = labelProp;
 		this.ground = ground;
 		this.lineWidth = FeatureSet.defaultLineWidth;
+		this.batched = FeatureSet.defaultBatched;
 		viewData = new ViewData(400, 350, false);
 	}
 
@@ -157,6 +160,7 @@ public class FeatureSetState extends MapElementState {
 		this.labelProp = labelProp;
 		this.ground = ground;
 		this.lineWidth = FeatureSet.defaultLineWidth;
+		this.batched = FeatureSet.defaultBatched;
 		this.annotation = notes;
 		viewData = new ViewData(-1, -1, 550, 400, false);
 	}
@@ -171,6 +175,7 @@ public class FeatureSetState extends MapElementState {
 		ground = StateUtil.getBoolean(map, "Ground", false);
 		lineWidth = (float)StateUtil.getDouble(map, "LineWidth", FeatureSet.defaultLineWidth);
 		currentFeature = StateUtil.getInteger(map, "CurrentFeature", 0);
+		batched = StateUtil.getBoolean(map, "Batched", false);
 	}
 	
 	@Override
@@ -184,6 +189,8 @@ public class FeatureSetState extends MapElementState {
 			return(false);
 		if (this.lineWidth != that.lineWidth)
 			return(false);
+		if (this.batched != that.batched)
+			return(false);
 		if (!this.filePath.equals(that.filePath)) 
 			return(false);
 		if (this.labelProp == null) {
@@ -209,6 +216,7 @@ public class FeatureSetState extends MapElementState {
 		map.put("Ground", new Boolean(ground));
 		map.put("LineWidth", new Double(lineWidth));
 		map.put("CurrentFeature", new Long(currentFeature));
+		map.put("Batched", Boolean.valueOf(batched));
 		if (labelProp != null)
 			map.put("LabelProperty", labelProp);
 		return(map);
@@ -103,7 +103,8 @@ package gov.nasa.arc.dert.state;
 
 import gov.nasa.arc.dert.landscape.Landscape;
 import gov.nasa.arc.dert.landscape.LayerManager;
-import gov.nasa.arc.dert.landscape.io.FileSystemTileSource;
+import gov.nasa.arc.dert.landscape.io.ArchiveTileSource;
+import gov.nasa.arc.dert.landscape.io.HttpTileSource;
 import gov.nasa.arc.dert.landscape.io.TileSource;
 import gov.nasa.arc.dert.lighting.Lighting;
 import gov.nasa.arc.dert.scene.World;
@@ -162,7 +163,7 @@ public class WorldState extends State {
 		viewData.setVisible(true);
 		lighting = new Lighting();
 		layerManager = new LayerManager();
-		tileSource = new FileSystemTileSource();
+		tileSource = new ArchiveTileSource();
 		username = "dert";
 		password = "dert";
 	}
@@ -177,7 +178,7 @@ public class WorldState extends State {
 		lighting = new Lighting((HashMap<String,Object>)map.get("Lighting"));
 		layerManager = new LayerManager((HashMap<String,Object>)map.get("LayerManager"));
 		hiddenDashed = StateUtil.getBoolean(map, "HiddenDashed", World.defaultHiddenDashed);
-		tileSource = new FileSystemTileSource();
+		tileSource = new ArchiveTileSource();
 		username = "dert";
 		password = "dert";
 	}
@@ -226,6 +227,10 @@ public class WorldState extends State {
 	 * @return the world
 	 */
 	public World createWorld(String landscapeName, Configuration config) {
+		// Landscape is on a server
+		if (landscapeName.toLowerCase().startsWith("http") && !(tileSource instanceof HttpTileSource)) {
+			tileSource = new HttpTileSource();
+		}
 		if (!tileSource.connect(landscapeName, username, password)) {
 			return (null);
 		}
@@ -255,6 +260,8 @@ public class WorldState extends State {
 		if (world != null)
 			world.dispose();
 		world = null;
+		if (tileSource instanceof ArchiveTileSource)
+			((ArchiveTileSource)tileSource).close();
 		tileSource = null;
 		System.gc();
 	}
@@ -320,6 +320,41 @@ public class DertTest {
 		if (!pt.testPersistence(testLoc))
 			System.exit(4);
 		
+		System.err.println("\nTile Codec Tests\n");
+		TileCodecTest tct = new TileCodecTest();
+		if (!tct.testTileCodec(testLoc))
+			System.exit(5);
+		
+		System.err.println("\nGeoJSON Tests\n");
+		GeojsonTest gjt = new GeojsonTest();
+		if (!gjt.testGeojson(testLoc))
+			System.exit(6);
+		
+		System.err.println("\nHTTP Tile Source Tests\n");
+		HttpTileSourceTest htst = new HttpTileSourceTest();
+		if (!htst.testHttpTileSource(testLoc))
+			System.exit(7);
+		
+		System.err.println("\nQuad Key Tests\n");
+		QuadKeyTest qkt = new QuadKeyTest();
+		if (!qkt.testQuadKey())
+			System.exit(8);
+		
+		System.err.println("\nEphemeris Tests\n");
+		EphemerisTest et = new EphemerisTest();
+		if (!et.testEphemeris())
+			System.exit(9);
+		
+		System.err.println("\nHorizon Map Tests\n");
+		HorizonMapTest hmt = new HorizonMapTest();
+		if (!hmt.testHorizonMap())
+			System.exit(10);
+		
+		System.err.println("\nTile Loader Tests\n");
+		TileLoaderTest tlt = new TileLoaderTest();
+		if (!tlt.testTileLoader())
+			System.exit(11);
+		
 		System.err.println("\nAll tests passed.");
 		
 		System.exit(0);
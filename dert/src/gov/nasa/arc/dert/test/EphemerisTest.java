@@ -0,0 +1,166 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+package gov.nasa.arc.dert.test;
+
+import gov.nasa.arc.dert.ephemeris.Ephemeris;
+import gov.nasa.arc.dert.ephemeris.EphemerisTable;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Provided for testing the precomputed ephemeris table against SPICE.
+ *
+ */
+public class EphemerisTest {
+	
+	// Largest angle allowed between the table and SPICE directions (degrees)
+	private static final double MAX_ANGLE = 0.001;
+	
+	public boolean testEphemeris() {
+		System.err.println("Testing ephemeris table . . .");
+		if (Ephemeris.getInstance() == null) {
+			System.err.println("Ephemeris was not initialized.");
+			return (false);
+		}
+		// six hours of one minute samples at Gale crater, 2018-01-01 UTC
+		long start = 1514764800000l;
+		double lon = 137.4, lat = -4.6, alt = 0;
+		EphemerisTable table = new EphemerisTable("Mars", "Sun", lon, lat, alt, start, start + 6 * 3600000l, 60000);
+		if (!table.build()) {
+			System.err.println("Unable to build " + table + ".");
+			return (false);
+		}
+		
+		SimpleDateFormat utcDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
+		utcDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		Random random = new Random(19);
+		double maxAngle = 0;
+		for (int i = 0; i < 200; ++i) {
+			// times between the samples are the worst case for interpolation
+			long time = table.getStartTime() + (long) (random.nextDouble() * (table.getEndTime() - table.getStartTime()));
+			double[] expected = Ephemeris.getTargetVector("Mars", "Sun", utcDateFormat.format(new Date(time)), lon, lat, alt);
+			double[] actual = table.get(time);
+			if ((expected == null) || (actual == null)) {
+				System.err.println("No vector at " + time + ".");
+				return (false);
+			}
+			double dot = expected[0] * actual[0] + expected[1] * actual[1] + expected[2] * actual[2];
+			double angle = Math.toDegrees(Math.acos(Math.min(1, dot)));
+			maxAngle = Math.max(maxAngle, angle);
+			if ((angle > MAX_ANGLE) || (Math.abs(actual[3] - expected[3]) > 1e-6 * expected[3])) {
+				System.err.println("Table vector at " + time + " differs from SPICE by " + angle + " degrees.");
+				return (false);
+			}
+		}
+		System.err.println("Largest difference from SPICE is " + maxAngle + " degrees.");
+		
+		// times outside of the table are not interpolated
+		if ((table.get(table.getStartTime() - 1) != null) || (table.get(table.getEndTime() + 1) != null)) {
+			System.err.println("Table returned a vector outside of its range.");
+			return (false);
+		}
+		return (true);
+	}
+
+}
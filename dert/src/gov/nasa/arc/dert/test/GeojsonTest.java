@@ -0,0 +1,409 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.test;
+
+import gov.nasa.arc.dert.io.geojson.json.GeoJsonFeature;
+import gov.nasa.arc.dert.io.geojson.json.GeoJsonFeatureCollection;
+import gov.nasa.arc.dert.io.geojson.json.GeoJsonStreamReader;
+import gov.nasa.arc.dert.io.geojson.json.Geometry;
+import gov.nasa.arc.dert.io.geojson.json.Json;
+import gov.nasa.arc.dert.io.geojson.json.JsonObject;
+import gov.nasa.arc.dert.io.geojson.json.JsonReader;
+import gov.nasa.arc.dert.io.geojson.json.LineString;
+import gov.nasa.arc.dert.io.geojson.json.MultiLineString;
+import gov.nasa.arc.dert.io.geojson.json.PackedGeometry;
+import gov.nasa.arc.dert.io.geojson.json.Point;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Random;
+
+import com.ardor3d.util.geom.BufferUtils;
+
+/**
+ * Provided for testing the streaming GeoJSON reader against the JsonReader.
+ * The main method runs a benchmark comparing the two on a large
+ * FeatureCollection.
+ *
+ */
+public class GeojsonTest {
+
+	// keeps positions as they are
+	private static GeoJsonStreamReader.PositionFilter identity = new GeoJsonStreamReader.PositionFilter() {
+		@Override
+		public void filter(double[] position, int n) {
+			for (int k = 2; k < n * 3; k += 3) {
+				if (Double.isNaN(position[k]))
+					position[k] = 0;
+			}
+		}
+	};
+
+	public boolean testGeojson(String testLoc) {
+		System.err.println("Testing GeoJSON reader . . .");
+		File file = new File(testLoc, "test.geojson");
+		try {
+			file.getParentFile().mkdirs();
+			writeFeatureCollection(file, 200, 50, 7);
+
+			// read with JsonReader
+			FileInputStream fis = new FileInputStream(file);
+			JsonReader jsonReader = Json.createReader(fis);
+			JsonObject root = jsonReader.readObject();
+			jsonReader.close();
+			ArrayList<GeoJsonFeature> featureList = new GeoJsonFeatureCollection(root).getFeatureList();
+
+			// read with GeoJsonStreamReader, packing as it reads and after
+			for (int m = 0; m < 2; ++m) {
+				GeoJsonStreamReader reader = new GeoJsonStreamReader(new FileInputStream(file), (m == 0) ? identity : null);
+				int count = 0;
+				while (reader.nextFeature()) {
+					GeoJsonFeature feature = featureList.get(count);
+					if (!feature.getId().equals(reader.getId())) {
+						System.err.println("Feature " + count + " has id " + reader.getId() + ".");
+						return (false);
+					}
+					if (!feature.getProperties().equals(reader.getProperties())) {
+						System.err.println("Feature " + count + " has properties " + reader.getProperties() + ".");
+						return (false);
+					}
+					PackedGeometry geometry = reader.getGeometry();
+					if (geometry.isPacked() != (m == 0)) {
+						System.err.println("Feature " + count + " is not in the expected state.");
+						return (false);
+					}
+					if (m == 1)
+						geometry.pack(identity);
+					if (!compare(feature.getGeometry(), geometry)) {
+						System.err.println("Feature " + count + " has different geometry.");
+						return (false);
+					}
+					count++;
+				}
+				reader.close();
+				if (count != featureList.size()) {
+					System.err.println("Found " + count + " features, expected " + featureList.size() + ".");
+					return (false);
+				}
+			}
+			file.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+			return (false);
+		}
+		return (true);
+	}
+
+	private boolean compare(Geometry geometry, PackedGeometry packed) {
+		if (geometry.type != packed.type)
+			return (false);
+		double[][][] line = null;
+		switch (geometry.type) {
+		case Point:
+			line = new double[][][] { { ((Point) geometry).getCoordinates() } };
+			if (packed.numPositions != 1)
+				return (false);
+			return (equals(line[0][0], packed.coordinate, 0));
+		case LineString:
+			line = new double[][][] { ((LineString) geometry).getCoordinates() };
+			break;
+		case MultiLineString:
+			line = ((MultiLineString) geometry).getCoordinates();
+			break;
+		default:
+			return (false);
+		}
+		if (line.length != packed.numLines)
+			return (false);
+		for (int i = 0; i < line.length; ++i) {
+			if ((line[i].length != packed.lineEnd[i] - packed.lineStart[i]) || (packed.lineIndex0[i] != ((line.length == 1) ? 0 : i)))
+				return (false);
+			for (int j = 0; j < line[i].length; ++j) {
+				if (!equals(line[i][j], packed.coordinate, (packed.lineStart[i] + j) * 3))
+					return (false);
+			}
+		}
+		return (true);
+	}
+
+	private boolean equals(double[] position, float[] coordinate, int k) {
+		for (int i = 0; i < 3; ++i) {
+			float value = (i < position.length) ? (float) position[i] : 0;
+			if (value != coordinate[k + i])
+				return (false);
+		}
+		return (true);
+	}
+
+	/**
+	 * Write a FeatureCollection of contour-like LineStrings with a few Points
+	 * and MultiLineStrings.
+	 */
+	private static void writeFeatureCollection(File file, int numFeatures, int numPositions, long seed)
+		throws Exception {
+		Random random = new Random(seed);
+		BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+		writer.write("{\n\"type\": \"FeatureCollection\",\n\"crs\": { \"type\": \"name\", \"properties\": { \"name\": \"urn:ogc:def:crs:EPSG::4326\" } },\n\"features\": [\n");
+		for (int f = 0; f < numFeatures; ++f) {
+			if (f > 0)
+				writer.write(",\n");
+			writer.write("{ \"type\": \"Feature\", \"id\": \"f" + f + "\", \"properties\": { \"ID\": " + f + ", \"ELEV\": "
+				+ (f * 0.5 - 20.25) + ", \"name\": \"contour \\\"" + f + "\\\" \\u00b0\", \"valid\": true, \"note\": null }, ");
+			int type = f % 10;
+			if (type == 0) {
+				writer.write("\"geometry\": { \"type\": \"Point\", \"coordinates\": [ " + coordinate(random) + ", "
+					+ coordinate(random) + ", 1.5e2 ] } }");
+			} else if (type == 1) {
+				writer.write("\"geometry\": { \"type\": \"MultiLineString\", \"coordinates\": [ ");
+				for (int l = 0; l < 3; ++l) {
+					writer.write((l > 0) ? ", " : "");
+					writePositions(writer, random, numPositions / 3 + 2);
+				}
+				writer.write(" ] } }");
+			} else {
+				// geometry before properties and type after coordinates
+				writer.write("\"geometry\": { \"coordinates\": ");
+				writePositions(writer, random, numPositions);
+				writer.write(", \"type\": \"LineString\" } }");
+			}
+		}
+		writer.write("\n]\n}\n");
+		writer.close();
+	}
+
+	private static void writePositions(BufferedWriter writer, Random random, int n) throws Exception {
+		writer.write("[ ");
+		for (int i = 0; i < n; ++i) {
+			writer.write((i > 0) ? ", [ " : "[ ");
+			writer.write(coordinate(random) + ", " + coordinate(random) + " ]");
+		}
+		writer.write(" ]");
+	}
+
+	private static String coordinate(Random random) {
+		// JsonReader reads numbers without a decimal point as Integers
+		return (Double.toString(random.nextInt(360) - 180 + random.nextDouble()));
+	}
+
+	private static long getUsedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		return (runtime.totalMemory() - runtime.freeMemory());
+	}
+
+	/**
+	 * Sample heap use while a benchmark runs.
+	 */
+	private static class HeapMonitor extends Thread {
+		private volatile boolean running = true;
+		private long peak;
+
+		@Override
+		public void run() {
+			while (running) {
+				peak = Math.max(peak, getUsedMemory());
+				try {
+					Thread.sleep(5);
+				} catch (Exception e) {
+					// ignore
+				}
+			}
+		}
+
+		public long finish() {
+			running = false;
+			try {
+				join();
+			} catch (Exception e) {
+				// ignore
+			}
+			return (Math.max(peak, getUsedMemory()));
+		}
+	}
+
+	private static int readDom(File file) throws Exception {
+		// same steps as GeojsonLoader.load and geoJsonToArdor3D
+		FileInputStream fis = new FileInputStream(file);
+		JsonReader jsonReader = Json.createReader(fis);
+		JsonObject root = jsonReader.readObject();
+		jsonReader.close();
+		ArrayList<GeoJsonFeature> featureList = new GeoJsonFeatureCollection(root).getFeatureList();
+		int count = 0;
+		for (int i = 0; i < featureList.size(); ++i) {
+			Geometry geometry = featureList.get(i).getGeometry();
+			if (geometry instanceof LineString) {
+				double[][] coord = ((LineString) geometry).getCoordinates();
+				FloatBuffer vertexBuffer = BufferUtils.createFloatBuffer(3 * coord.length);
+				for (int j = 0; j < coord.length; ++j) {
+					vertexBuffer.put((float) coord[j][0]).put((float) coord[j][1]).put(0);
+				}
+			}
+			count++;
+		}
+		return (count);
+	}
+
+	private static int readStream(File file) throws Exception {
+		// same steps as GeojsonLoader.loadFeatureSet
+		GeoJsonStreamReader reader = new GeoJsonStreamReader(new BufferedInputStream(new FileInputStream(file)),
+			identity);
+		int count = 0;
+		while (reader.nextFeature()) {
+			PackedGeometry geometry = reader.getGeometry();
+			for (int i = 0; i < geometry.numLines; ++i) {
+				int n = geometry.lineEnd[i] - geometry.lineStart[i];
+				FloatBuffer vertexBuffer = BufferUtils.createFloatBuffer(3 * n);
+				vertexBuffer.put(geometry.coordinate, geometry.lineStart[i] * 3, n * 3);
+			}
+			count++;
+		}
+		reader.close();
+		return (count);
+	}
+
+	/**
+	 * Benchmark reading a GeoJSON FeatureCollection with JsonReader and with
+	 * GeoJsonStreamReader. Run each reader in its own JVM to compare peak heap
+	 * use.
+	 * 
+	 * @param arg
+	 *            size of the file in MB (default 50), reader (dom, stream or
+	 *            both, default both), work directory
+	 */
+	public static void main(String[] arg) {
+		int mb = (arg.length > 0) ? Integer.parseInt(arg[0]) : 50;
+		String which = (arg.length > 1) ? arg[1] : "both";
+		File dir = new File((arg.length > 2) ? arg[2] : System.getProperty("java.io.tmpdir"));
+		File file = new File(dir, "benchmark_" + mb + "mb.geojson");
+		try {
+			if (!file.exists()) {
+				// about 40 bytes per position
+				writeFeatureCollection(file, mb * 1024 * 1024 / (40 * 500), 500, mb);
+			}
+			System.out.println("GeoJSON file " + file + " " + file.length() / (1024 * 1024) + " MB");
+			for (int i = 0; i < 2; ++i) {
+				if ((i == 0) && which.equals("stream"))
+					continue;
+				if ((i == 1) && which.equals("dom"))
+					continue;
+				System.gc();
+				long base = getUsedMemory();
+				HeapMonitor monitor = new HeapMonitor();
+				monitor.start();
+				long t = System.nanoTime();
+				int count = (i == 0) ? readDom(file) : readStream(file);
+				double ms = (System.nanoTime() - t) / 1000000.0;
+				long peak = monitor.finish() - base;
+				System.out.println(String.format("%-7s %8d features %10.1f ms %8.1f MB/s peak heap %8.1f MB",
+					(i == 0) ? "dom" : "stream", count, ms, file.length() / (1024.0 * 1024) * 1000 / ms,
+					peak / (1024.0 * 1024)));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+}
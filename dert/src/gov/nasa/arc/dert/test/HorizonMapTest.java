@@ -0,0 +1,170 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+package gov.nasa.arc.dert.test;
+
+import gov.nasa.arc.dert.landscape.HorizonMap;
+
+/**
+ * Provided for testing horizon and illumination maps against a cone.
+ *
+ */
+public class HorizonMapTest {
+	
+	// Largest horizon angle error allowed (degrees), the coarse grids hold
+	// block maximums so distant terrain can appear a little higher
+	private static final double MAX_ANGLE = 1.5;
+	
+	public boolean testHorizonMap() {
+		System.err.println("Testing horizon map . . .");
+		// cone of height 40 and radius 40 in the middle of a flat plain
+		int size = 257;
+		double height = 40, radius = 40;
+		float[] grid = new float[size * size];
+		for (int r = 0; r < size; ++r) {
+			for (int c = 0; c < size; ++c) {
+				double d = Math.sqrt((c - 128) * (c - 128) + (r - 128) * (r - 128));
+				grid[r * size + c] = (float) Math.max(0, height * (1 - d / radius));
+			}
+		}
+		HorizonMap map = HorizonMap.create(grid, size, size, 1, 1);
+		
+		// from the plain the apex is the horizon, angle atan(height/distance)
+		double[] distance = { 60, 80, 100 };
+		for (int i = 0; i < distance.length; ++i) {
+			double expected = Math.toDegrees(Math.atan(height / distance[i]));
+			double east = Math.toDegrees(map.getHorizonAngle(distance[i], 0, Math.PI));
+			double north = Math.toDegrees(map.getHorizonAngle(0, distance[i], -Math.PI / 2));
+			if ((Math.abs(east - expected) > MAX_ANGLE) || (Math.abs(north - expected) > MAX_ANGLE)) {
+				System.err.println("Horizon at " + distance[i] + " from the cone is " + east + " and " + north
+					+ " degrees, expected " + expected + ".");
+				return (false);
+			}
+			// looking away from the cone there is only the flat plain
+			double away = Math.toDegrees(map.getHorizonAngle(distance[i], 0, 0));
+			if (away > MAX_ANGLE) {
+				System.err.println("Horizon away from the cone at " + distance[i] + " is " + away + " degrees.");
+				return (false);
+			}
+		}
+		
+		// two Suns in the west, one above and one below the cone apex seen from x=80
+		double limit = Math.atan(height / 80);
+		double above = limit + Math.toRadians(5);
+		double below = limit - Math.toRadians(5);
+		double[] sunDir = { -Math.cos(above), 0, Math.sin(above), -Math.cos(below), 0, Math.sin(below) };
+		HorizonMap.Illumination result = map.illuminate(sunDir, null);
+		float lit = map.getValue(result.litFraction, 80, 0);
+		float insolation = map.getValue(result.insolation, 80, 0);
+		if ((Math.abs(lit - 0.5) > 1e-6) || (Math.abs(insolation - Math.sin(above) / 2) > 1e-3)) {
+			System.err.println("Illumination at 80 from the cone is " + lit + " lit, " + insolation
+				+ " insolation, expected 0.5 and " + (Math.sin(above) / 2) + ".");
+			return (false);
+		}
+		// on the far side both Suns are hidden, on the near side both are seen
+		if ((map.getValue(result.litFraction, 20, 0) != 0) || (map.getValue(result.litFraction, -80, 0) != 1)) {
+			System.err.println("Illumination on the sides of the cone is wrong.");
+			return (false);
+		}
+		HorizonMap.dispose();
+		return (true);
+	}
+
+}
@@ -0,0 +1,377 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.test;
+
+import gov.nasa.arc.dert.landscape.io.FileSystemTileSource;
+import gov.nasa.arc.dert.landscape.io.HttpTileCache;
+import gov.nasa.arc.dert.landscape.io.HttpTileSource;
+import gov.nasa.arc.dert.landscape.io.QuadTreeTile;
+import gov.nasa.arc.dert.landscape.io.QuadTreeTile.DataType;
+import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Provided for testing HttpTileSource against an embedded HTTP server that
+ * serves the test landscape directory with ETags and directory listings.
+ *
+ */
+public class HttpTileSourceTest {
+
+	private HttpServer server;
+	private AtomicInteger active = new AtomicInteger();
+	private AtomicInteger maxActive = new AtomicInteger();
+
+	public boolean testHttpTileSource(String testLoc) {
+		System.err.println("Testing HTTP tile source . . .");
+		File cacheDir = new File(testLoc, "httpcache");
+		deleteAll(cacheDir);
+		int maxConnections = HttpTileSource.MAX_CONNECTIONS;
+		String cachePath = HttpTileSource.CACHE_PATH;
+		int revalidate = HttpTileSource.REVALIDATE_SECONDS;
+		try {
+			startServer(new File(testLoc));
+			String url = "http://localhost:" + server.getAddress().getPort() + "/";
+			HttpTileSource.MAX_CONNECTIONS = 3;
+			HttpTileSource.CACHE_PATH = cacheDir.getAbsolutePath();
+			HttpTileSource.REVALIDATE_SECONDS = 3600;
+
+			FileSystemTileSource fileSource = new FileSystemTileSource();
+			fileSource.connect(testLoc, null, null);
+			fileSource.getLayerInfo();
+			final HttpTileSource httpSource = new HttpTileSource();
+			if (!httpSource.connect(url, "dert", "dert")) {
+				System.err.println("Unable to connect to " + url + ".");
+				return (false);
+			}
+			String[][] layerInfo = httpSource.getLayerInfo();
+			if ((layerInfo.length != 1) || !layerInfo[0][0].equals("elevation")) {
+				System.err.println("Incorrect layer list " + Arrays.deepToString(layerInfo) + ".");
+				return (false);
+			}
+			if (!fileSource.getProperties("elevation").equals(httpSource.getProperties("elevation"))) {
+				System.err.println("Layer properties differ.");
+				return (false);
+			}
+
+			// all tiles in the first three levels, fetched concurrently
+			final ArrayList<QuadKey> keyList = new ArrayList<QuadKey>();
+			addKeys(new QuadKey(), 2, keyList);
+			final QuadTreeTile[] tile = new QuadTreeTile[keyList.size()];
+			Thread[] thread = new Thread[8];
+			for (int t = 0; t < thread.length; ++t) {
+				final int start = t;
+				thread[t] = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						for (int i = start; i < tile.length; i += 8) {
+							tile[i] = httpSource.getTile("elevation", keyList.get(i), DataType.Float);
+						}
+					}
+				});
+				thread[t].start();
+			}
+			for (int t = 0; t < thread.length; ++t) {
+				thread[t].join();
+			}
+			if (maxActive.get() > HttpTileSource.MAX_CONNECTIONS) {
+				System.err.println("Server had " + maxActive.get() + " concurrent requests.");
+				return (false);
+			}
+			for (int i = 0; i < tile.length; ++i) {
+				QuadTreeTile fileTile = fileSource.getTile("elevation", keyList.get(i), DataType.Float);
+				if (!sameTile(fileTile, tile[i])) {
+					System.err.println("Tile " + keyList.get(i) + " differs from local copy.");
+					return (false);
+				}
+			}
+
+			// served from the cache
+			long requests = httpSource.getRequestCount();
+			httpSource.getTile("elevation", keyList.get(1), DataType.Float);
+			if (httpSource.getRequestCount() != requests) {
+				System.err.println("Cached tile was fetched again.");
+				return (false);
+			}
+
+			// a missing file is remembered
+			requests = httpSource.getRequestCount();
+			httpSource.fetch("dert/nothing.txt");
+			if ((httpSource.fetch("dert/nothing.txt") != null) || (httpSource.getRequestCount() != requests + 1)) {
+				System.err.println("Missing file was fetched again.");
+				return (false);
+			}
+
+			// a new source revalidates the persistent cache
+			HttpTileSource.REVALIDATE_SECONDS = 0;
+			HttpTileSource httpSource2 = new HttpTileSource();
+			httpSource2.connect(url, null, null);
+			httpSource2.getLayerInfo();
+			// load the depth index first, it is revalidated too
+			httpSource2.tileExists("");
+			long notModified = httpSource2.getNotModifiedCount();
+			long bytes = httpSource2.getBytesFetched();
+			QuadTreeTile t2 = httpSource2.getTile("elevation", keyList.get(1), DataType.Float);
+			if (!sameTile(tile[1], t2) || (httpSource2.getNotModifiedCount() != notModified + 1)
+				|| (httpSource2.getBytesFetched() != bytes)) {
+				System.err.println("Cached tile was not revalidated.");
+				return (false);
+			}
+			if (httpSource2.getTile("elevation", new QuadKey("/1/1/1/1/1/1/1/1/1/1"), DataType.Float) != null) {
+				System.err.println("Missing tile was found.");
+				return (false);
+			}
+
+			// until it expires
+			requests = httpSource2.getRequestCount();
+			httpSource2.fetch("dert/nothing.txt");
+			httpSource2.fetch("dert/nothing.txt");
+			if (httpSource2.getRequestCount() != requests + 2) {
+				System.err.println("Expired missing file was not fetched again.");
+				return (false);
+			}
+
+			// LRU eviction
+			HttpTileCache cache = new HttpTileCache(new File(cacheDir, "lru"), 2500);
+			HttpTileCache.Entry entry = new HttpTileCache.Entry();
+			entry.data = new byte[1000];
+			cache.put("a", entry);
+			cache.put("b", entry);
+			cache.get("a");
+			cache.put("c", entry);
+			if (!cache.contains("a") || cache.contains("b") || !cache.contains("c") || (cache.getSize() != 2000)) {
+				System.err.println("Cache did not evict the least recently used file.");
+				return (false);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return (false);
+		} finally {
+			if (server != null) {
+				server.stop(0);
+			}
+			HttpTileSource.MAX_CONNECTIONS = maxConnections;
+			HttpTileSource.CACHE_PATH = cachePath;
+			HttpTileSource.REVALIDATE_SECONDS = revalidate;
+			deleteAll(cacheDir);
+		}
+		return (true);
+	}
+
+	private void addKeys(QuadKey key, int levels, ArrayList<QuadKey> keyList) {
+		keyList.add(key);
+		if (levels == 0) {
+			return;
+		}
+		for (int i = 1; i <= 4; ++i) {
+			addKeys(key.createChild(i), levels - 1, keyList);
+		}
+	}
+
+	private boolean sameTile(QuadTreeTile t1, QuadTreeTile t2) {
+		if ((t1 == null) || (t2 == null)) {
+			return (t1 == t2);
+		}
+		if ((t1.columns != t2.columns) || (t1.rows != t2.rows)) {
+			return (false);
+		}
+		return (t1.raster.duplicate().rewind().equals(t2.raster.duplicate().rewind()));
+	}
+
+	private void startServer(final File root) throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				int n = active.incrementAndGet();
+				while (true) {
+					int max = maxActive.get();
+					if ((n <= max) || maxActive.compareAndSet(max, n)) {
+						break;
+					}
+				}
+				try {
+					// give other requests a chance to overlap
+					Thread.sleep(2);
+					serve(root, exchange);
+				} catch (InterruptedException e) {
+					// finish
+				} finally {
+					active.decrementAndGet();
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+		server.start();
+	}
+
+	private void serve(File root, HttpExchange exchange) throws IOException {
+		File file = new File(root, exchange.getRequestURI().getPath());
+		boolean head = exchange.getRequestMethod().equals("HEAD");
+		if (file.isDirectory()) {
+			StringBuilder str = new StringBuilder("<html><body>\n");
+			File[] list = file.listFiles();
+			for (int i = 0; i < list.length; ++i) {
+				String name = list[i].getName() + (list[i].isDirectory() ? "/" : "");
+				str.append("<a href=\"" + name + "\">" + name + "</a>\n");
+			}
+			str.append("</body></html>\n");
+			send(exchange, 200, str.toString().getBytes("UTF-8"), head);
+			return;
+		}
+		if (!file.exists()) {
+			send(exchange, 404, new byte[0], true);
+			return;
+		}
+		String eTag = "\"" + file.length() + "-" + file.lastModified() + "\"";
+		exchange.getResponseHeaders().set("ETag", eTag);
+		if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+			send(exchange, 304, new byte[0], true);
+			return;
+		}
+		byte[] data = new byte[(int) file.length()];
+		FileInputStream in = new FileInputStream(file);
+		try {
+			int k = 0;
+			while (k < data.length) {
+				k += in.read(data, k, data.length - k);
+			}
+		} finally {
+			in.close();
+		}
+		send(exchange, 200, data, head);
+	}
+
+	private void send(HttpExchange exchange, int code, byte[] data, boolean noBody) throws IOException {
+		if (noBody) {
+			exchange.sendResponseHeaders(code, -1);
+			return;
+		}
+		exchange.sendResponseHeaders(code, data.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(data);
+		out.close();
+	}
+
+	private void deleteAll(File file) {
+		File[] list = file.listFiles();
+		if (list != null) {
+			for (int i = 0; i < list.length; ++i) {
+				deleteAll(list[i]);
+			}
+		}
+		file.delete();
+	}
+
+}
@@ -101,17 +101,28 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 
 package gov.nasa.arc.dert.test;
 
+import gov.nasa.arc.dert.Dert;
+import gov.nasa.arc.dert.camera.BasicCamera;
 import gov.nasa.arc.dert.landscape.Landscape;
+import gov.nasa.arc.dert.landscape.RegionStatistics;
+import gov.nasa.arc.dert.landscape.quadtree.QuadTree;
+import gov.nasa.arc.dert.landscape.quadtree.QuadTreeFactory;
+import gov.nasa.arc.dert.render.SceneFramework;
 import gov.nasa.arc.dert.util.MathUtil;
 import gov.nasa.arc.dert.util.Tessellator;
 
+import java.awt.EventQueue;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 
 import com.ardor3d.bounding.BoundingBox;
 import com.ardor3d.math.Vector3;
 import com.ardor3d.math.type.ReadOnlyVector3;
+import com.ardor3d.renderer.Camera;
 import com.ardor3d.scenegraph.Mesh;
+import com.ardor3d.scenegraph.Node;
+import com.ardor3d.scenegraph.Spatial;
 import com.ardor3d.scenegraph.event.DirtyType;
 import com.ardor3d.util.geom.BufferUtils;
 
@@ -151,6 +162,11 @@ public class LandscapeTest {
 			return(false);
 		}
 		
+		if (!testGetZ(landscape)) {
+			System.err.println("Test of Landscape.getZ for a set of coordinates failed.");
+			return(false);
+		}
+		
 		if (!testGetSampledMeanElevationOfRegion(landscape)) {
 			System.err.println("Test of Landscape.getSampledMeanElevationOfRegion failed.");
 			return(false);
@@ -176,6 +192,21 @@ public class LandscapeTest {
 			return(false);
 		}
 		
+		if (!testGetSampledStatisticsOfRegion(landscape)) {
+			System.err.println("Test of Landscape.getSampledStatisticsOfRegion failed.");
+			return(false);
+		}
+		
+		if (!testBatchSamplingOfRegion(landscape)) {
+			System.err.println("Test of batch sampled region statistics against point sampling failed.");
+			return(false);
+		}
+		
+		if (!testStitching(landscape)) {
+			System.err.println("Test of stitching only the tiles next to a split or merge failed.");
+			return(false);
+		}
+		
 		
 		return(true);
 	}
@@ -210,6 +241,27 @@ public class LandscapeTest {
 		return(false);
 	}
 	
+	private boolean testGetZ(Landscape landscape) {
+		int n = 10000;
+		double[] xy = new double[n*2];
+		double[] z = new double[n];
+		// include points outside of the landscape
+		for (int i=0; i<n; ++i) {
+			xy[i*2] = Math.random()*1100-550;
+			xy[i*2+1] = Math.random()*1100-550;
+		}
+		landscape.getZ(xy, n, z);
+		for (int i=0; i<n; ++i) {
+			double zi = landscape.getZ(xy[i*2], xy[i*2+1]);
+			if (Double.isNaN(zi) != Double.isNaN(z[i]))
+				return(false);
+			if (!Double.isNaN(zi) && (zi != z[i]))
+				return(false);
+		}
+		System.err.println("LandscapeTest.testGetZ: "+n+" coordinates matched");
+		return(true);
+	}
+	
 	private boolean testGetSampledMeanElevationOfRegion(Landscape landscape) {
 		Vector3[] vertex = new Vector3[] {new Vector3(0,0,0), new Vector3(10,0, 0), new Vector3(10,10,0), new Vector3(0,10,0), new Vector3(0,0,0)};
 		Vector3 lowerBound = new Vector3(0,0,0);
@@ -329,6 +381,203 @@ public class LandscapeTest {
 		return(area);
 	}
 	
+	private boolean testGetSampledStatisticsOfRegion(Landscape landscape) {
+		Vector3[] vertex = new Vector3[] {new Vector3(-40,-30,0), new Vector3(50,-35, 0), new Vector3(20,10,0), new Vector3(45,60,0), new Vector3(-30,45,0), new Vector3(-40,-30,0)};
+		Vector3 lowerBound = new Vector3(-40,-35,0);
+		Vector3 upperBound = new Vector3(50,60,0);
+		RegionStatistics stats = landscape.getSampledStatisticsOfRegion(vertex, lowerBound, upperBound, 0);
+		double elev = landscape.getSampledMeanElevationOfRegion(vertex, lowerBound, upperBound);
+		double slope = landscape.getSampledMeanSlopeOfRegion(vertex, lowerBound, upperBound);
+		double surfaceArea = landscape.getSampledSurfaceAreaOfRegion(vertex, lowerBound, upperBound);
+		double[] volume = landscape.getSampledVolumeOfRegion(vertex, lowerBound, upperBound, 0);
+		System.err.println("LandscapeTest.testGetSampledStatisticsOfRegion mean elevation = "+elev+" "+stats.meanElevation+" slope = "+slope+" "+stats.meanSlope+" surface area = "+surfaceArea+" "+stats.surfaceArea+" volume = "+volume[0]+"/"+volume[1]+" "+stats.volumeAbove+"/"+stats.volumeBelow);
+		return((Math.abs(elev-stats.meanElevation) < 0.0001) && (Math.abs(slope-stats.meanSlope) < 0.0001)
+			&& (Math.abs(surfaceArea-stats.surfaceArea) < 0.01) && (Math.abs(volume[0]-stats.volumeAbove) < 0.01)
+			&& (Math.abs(volume[1]-stats.volumeBelow) < 0.01));
+	}
+	
+	// Compare the batch sampled statistics with the point by point sampling
+	// they replaced
+	private boolean testBatchSamplingOfRegion(Landscape landscape) {
+		// vertices are off the sample grid so no sample is on an edge
+		Vector3[] vertex = new Vector3[] {new Vector3(-60.3,-40.7,0), new Vector3(70.6,-45.2, 0), new Vector3(15.4,12.3,0), new Vector3(55.8,80.1,0), new Vector3(-45.9,60.6,0), new Vector3(-60.3,-40.7,0)};
+		Vector3 lowerBound = new Vector3(-60.3,-45.2,0);
+		Vector3 upperBound = new Vector3(70.6,80.1,0);
+		double pixelWidth = landscape.getPixelWidth();
+		double pixelLength = landscape.getPixelLength();
+		int columns = (int)((upperBound.getX()-lowerBound.getX())/pixelWidth);
+		int rows = (int)((upperBound.getY()-lowerBound.getY())/pixelLength);
+		double volElev = 0;
+		double elev = 0, volumeAbove = 0, volumeBelow = 0;
+		int count = 0, normalCount = 0;
+		Vector3 vert = new Vector3();
+		Vector3 normal = new Vector3();
+		Vector3 meanNormal = new Vector3();
+		for (int i=0; i<rows; ++i) {
+			for (int j=0; j<columns; ++j) {
+				vert.set(lowerBound.getX()+j*pixelWidth, lowerBound.getY()+i*pixelLength, 0);
+				if (!MathUtil.isInsidePolygon(vert, vertex))
+					continue;
+				double el = landscape.getElevationAtHighestLevel(vert.getX(), vert.getY());
+				if (!Double.isNaN(el)) {
+					elev += el;
+					count++;
+					if (el < volElev)
+						volumeBelow += volElev-el;
+					else
+						volumeAbove += el-volElev;
+				}
+				if (landscape.getNormalAtHighestLevel(vert.getX(), vert.getY(), normal)) {
+					meanNormal.addLocal(normal);
+					normalCount++;
+				}
+			}
+		}
+		elev /= count;
+		meanNormal.multiplyLocal(1.0/normalCount);
+		double slope = MathUtil.getSlopeFromNormal(meanNormal);
+		volumeAbove *= pixelWidth*pixelLength;
+		volumeBelow *= pixelWidth*pixelLength;
+		double sampledElev = landscape.getSampledMeanElevationOfRegion(vertex, lowerBound, upperBound);
+		double sampledSlope = landscape.getSampledMeanSlopeOfRegion(vertex, lowerBound, upperBound);
+		double[] sampledVolume = landscape.getSampledVolumeOfRegion(vertex, lowerBound, upperBound, volElev);
+		System.err.println("LandscapeTest.testBatchSamplingOfRegion "+count+" samples, mean elevation = "+elev+" "+sampledElev+" slope = "+slope+" "+sampledSlope+" volume = "+volumeAbove+"/"+volumeBelow+" "+sampledVolume[0]+"/"+sampledVolume[1]);
+		return((Math.abs(elev-sampledElev) < 0.0001) && (Math.abs(slope-sampledSlope) < 0.0001)
+			&& (Math.abs(volumeAbove-sampledVolume[0]) < 0.01) && (Math.abs(volumeBelow-sampledVolume[1]) < 0.01));
+	}
+	
+	// Move a camera of our own over the landscape and check that each update
+	// stitches no more edges than the tiles next to a split or merge have
+	private boolean testStitching(final Landscape landscape) {
+		// keep the render loop from updating the landscape with its own camera
+		SceneFramework.getInstance().suspend(true);
+		try {
+			Thread.sleep(500);
+			final BasicCamera camera = new BasicCamera((Camera)Dert.getWorldView().getViewpoint().getCamera());
+			Vector3 look = new Vector3(-100, -100, landscape.getZ(-100, -100));
+			camera.setFrameAndLookAt(new Vector3(look.getX(), look.getY()-150, look.getZ()+150), look, 0);
+			settle(landscape, camera);
+			
+			// nothing changes, nothing is stitched
+			long count = landscape.getStitchedEdgeCount();
+			update(landscape, camera);
+			if (landscape.getStitchedEdgeCount() != count) {
+				System.err.println("LandscapeTest.testStitching edges were stitched without a change.");
+				return(false);
+			}
+			
+			// fly to another spot one update at a time
+			look.set(100, 100, landscape.getZ(100, 100));
+			camera.setFrameAndLookAt(new Vector3(look.getX(), look.getY()-150, look.getZ()+150), look, 0);
+			ArrayList<QuadTree> before = getLeaves(landscape);
+			int changes = 0, local = 0;
+			for (int i=0; i<200; ++i) {
+				count = landscape.getStitchedEdgeCount();
+				boolean changed = update(landscape, camera);
+				ArrayList<QuadTree> after = getLeaves(landscape);
+				int stitched = (int)(landscape.getStitchedEdgeCount()-count);
+				if (changed) {
+					// the new leaves, and the leaves next to them, may be stitched to all their neighbors
+					IdentityHashMap<QuadTree, Boolean> old = new IdentityHashMap<QuadTree, Boolean>();
+					for (int j=0; j<before.size(); ++j)
+						old.put(before.get(j), Boolean.TRUE);
+					int bound = 0, total = 0;
+					for (int j=0; j<after.size(); ++j) {
+						QuadTree qt = after.get(j);
+						int neighbors = 0;
+						boolean near = !old.containsKey(qt);
+						for (int k=0; k<after.size(); ++k) {
+							if (isAdjacent(qt, after.get(k))) {
+								neighbors ++;
+								near |= !old.containsKey(after.get(k));
+							}
+						}
+						total += neighbors;
+						if (near)
+							bound += neighbors;
+					}
+					if (stitched > bound) {
+						System.err.println("LandscapeTest.testStitching stitched "+stitched+" edges, at most "+bound+" are next to a change.");
+						return(false);
+					}
+					changes ++;
+					if (bound < total)
+						local ++;
+				}
+				else if (stitched != 0) {
+					System.err.println("LandscapeTest.testStitching stitched "+stitched+" edges without a change.");
+					return(false);
+				}
+				before = after;
+				if (!changed && (QuadTreeFactory.getInstance().getLoader().getPendingCount() == 0))
+					break;
+				Thread.sleep(20);
+			}
+			System.err.println("LandscapeTest.testStitching "+changes+" updates changed the landscape, "+local+" stitched part of it.");
+			return((changes > 0) && (local > 0));
+		} catch (Exception e) {
+			e.printStackTrace();
+			return(false);
+		} finally {
+			SceneFramework.getInstance().suspend(false);
+		}
+	}
+	
+	// Update until the tiles for the camera are loaded and displayed
+	private void settle(Landscape landscape, BasicCamera camera) throws Exception {
+		for (int i=0; i<200; ++i) {
+			if (!update(landscape, camera) && (QuadTreeFactory.getInstance().getLoader().getPendingCount() == 0))
+				return;
+			Thread.sleep(20);
+		}
+	}
+	
+	// Update the landscape on the event thread, where the render loop does
+	private boolean update(final Landscape landscape, final BasicCamera camera) throws Exception {
+		final boolean[] changed = new boolean[1];
+		EventQueue.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				changed[0] = landscape.update(camera);
+			}
+		});
+		return(changed[0]);
+	}
+	
+	private ArrayList<QuadTree> getLeaves(Landscape landscape) {
+		ArrayList<QuadTree> list = new ArrayList<QuadTree>();
+		for (int i=0; i<landscape.getNumberOfChildren(); ++i)
+			addLeaves(landscape.getChild(i), list);
+		return(list);
+	}
+	
+	private void addLeaves(Spatial spatial, ArrayList<QuadTree> list) {
+		if (!(spatial instanceof QuadTree)) {
+			// the root QuadTree is held by the landscape contents node
+			if (spatial instanceof Node) {
+				for (int i=0; i<((Node)spatial).getNumberOfChildren(); ++i)
+					addLeaves(((Node)spatial).getChild(i), list);
+			}
+			return;
+		}
+		QuadTree qt = (QuadTree)spatial;
+		int n = list.size();
+		for (int i=0; i<qt.getNumberOfChildren(); ++i)
+			addLeaves(qt.getChild(i), list);
+		if (list.size() == n)
+			list.add(qt);
+	}
+	
+	// Tiles are adjacent if they share part of a side
+	private boolean isAdjacent(QuadTree qt0, QuadTree qt1) {
+		Vector3[] c0 = qt0.getCornerPoints();
+		Vector3[] c1 = qt1.getCornerPoints();
+		double eps = 0.0001;
+		double overlapX = Math.min(c0[2].getX(), c1[2].getX())-Math.max(c0[0].getX(), c1[0].getX());
+		double overlapY = Math.min(c0[2].getY(), c1[2].getY())-Math.max(c0[0].getY(), c1[0].getY());
+		return(((Math.abs(overlapX) < eps) && (overlapY > eps)) || ((Math.abs(overlapY) < eps) && (overlapX > eps)));
+	}
+	
 	private boolean testGetSampledDifferenceOfRegion(Landscape landscape) {
 		double zVal = -landscape.getMinimumElevation();
 		Vector3[] vertex = new Vector3[] {new Vector3(0,0,zVal), new Vector3(10,0,zVal), new Vector3(10,10,zVal), new Vector3(0,10,zVal), new Vector3(0,0,zVal)};
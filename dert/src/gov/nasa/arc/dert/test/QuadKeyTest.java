@@ -0,0 +1,443 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.test;
+
+import gov.nasa.arc.dert.landscape.io.AbstractTileSource;
+import gov.nasa.arc.dert.landscape.io.DepthIndex;
+import gov.nasa.arc.dert.landscape.io.DepthTree;
+import gov.nasa.arc.dert.landscape.io.QuadTreeTile;
+import gov.nasa.arc.dert.landscape.io.QuadTreeTile.DataType;
+import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
+import gov.nasa.arc.dert.landscape.quadtree.QuadTree;
+import gov.nasa.arc.dert.landscape.quadtree.QuadTreeCache;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ardor3d.math.Vector3;
+
+/**
+ * Provided for testing packed QuadKeys and tile key lookup. The main method
+ * runs a benchmark of point queries per second on a number of threads, for
+ * the tile key alone and for the key with the cache lookup of an elevation query.
+ *
+ */
+public class QuadKeyTest {
+	
+	public boolean testQuadKey() {
+		System.err.println("Testing quad keys . . .");
+		Random random = new Random(23);
+		for (int i = 0; i < 1000; ++i) {
+			int level = random.nextInt(QuadKey.MAX_PACKED_LEVEL + 1);
+			String str = "";
+			QuadKey key = new QuadKey();
+			for (int j = 0; j < level; ++j) {
+				int q = 1 + random.nextInt(4);
+				str += "/" + q;
+				QuadKey child = key.createChild(q);
+				if (!child.startsWith(key) || (key.getLevel() > 0 && key.startsWith(child)) || (child.getQuadrant() != q)) {
+					System.err.println("QuadKey " + child + " has incorrect parent " + key + ".");
+					return (false);
+				}
+				key = child;
+			}
+			QuadKey parsed = new QuadKey(str);
+			if (!str.equals(key.toString()) || !parsed.equals(key) || (parsed.hashCode() != key.hashCode())
+				|| (key.getLevel() != level) || (new QuadKey(key.toLong()).toLong() != key.toLong())) {
+				System.err.println("QuadKey " + str + " does not round trip, got " + key + ".");
+				return (false);
+			}
+		}
+		
+		// the quadrants of a key at the maximum level use the top bits of the packed key
+		QuadKey parent = new QuadKey();
+		for (int j = 1; j < QuadKey.MAX_PACKED_LEVEL; ++j) {
+			parent = parent.createChild(1 + random.nextInt(4));
+		}
+		QuadKey deep = parent.createChild(1 + random.nextInt(4));
+		QuadKey sibling = parent.createChild((deep.getQuadrant() % 4) + 1);
+		if (!deep.startsWith(deep) || !deep.startsWith(parent) || deep.startsWith(sibling) || sibling.startsWith(deep)) {
+			System.err.println("QuadKey " + deep + " at the maximum level has incorrect ancestry.");
+			return (false);
+		}
+		
+		// keys found by walking the depth index contain the point
+		TestTileSource source = new TestTileSource(DepthIndex.create(createTree(random, "", 0, 9)));
+		double size = 1000;
+		for (int i = 0; i < 10000; ++i) {
+			double x = (random.nextDouble() - 0.5) * size;
+			double y = (random.nextDouble() - 0.5) * size;
+			int lvl = (i % 2 == 0) ? -1 : random.nextInt(6);
+			QuadKey key = source.getKey(x, y, size, size, lvl);
+			double tileSize = size / (1 << key.getLevel());
+			Vector3 center = key.getTileCenter(size, size);
+			if ((Math.abs(x - center.getX()) > tileSize / 2) || (Math.abs(y - center.getY()) > tileSize / 2)) {
+				System.err.println("Tile " + key + " does not contain " + x + "," + y + ".");
+				return (false);
+			}
+			boolean deepest = !source.tileExists(key.createChild(1));
+			if ((lvl < 0) ? !deepest : (!deepest && (key.getLevel() != lvl))) {
+				System.err.println("Tile " + key + " is not at the requested level " + lvl + ".");
+				return (false);
+			}
+		}
+		return (testCache());
+	}
+	
+	private boolean testCache() {
+		long maxCacheMemory = QuadTreeCache.MAX_CACHE_MEMORY;
+		try {
+			// a tile looked up since it was placed is kept over the one being placed
+			QuadTreeCache.MAX_CACHE_MEMORY = 4;
+			QuadTreeCache cache = new QuadTreeCache();
+			QuadTree[] qt = new QuadTree[4];
+			for (int i = 0; i < qt.length; ++i) {
+				QuadKey key = new QuadKey().createChild(i + 1);
+				qt[i] = new QuadTree(key, Vector3.ZERO, 1, 1, 1);
+				if (cache.putQuadTree(key, qt[i]) != qt[i]) {
+					System.err.println("Tile " + key + " was not kept in the cache.");
+					return (false);
+				}
+				if (i < 3)
+					cache.getQuadTree(key);
+			}
+			if ((cache.getQuadTree(qt[3].getKey()) != qt[3]) || (cache.getCount() != 3) || (cache.getEvictionCount() != 1)) {
+				System.err.println("Tile " + qt[3].getKey() + " was evicted when it was placed in the cache.");
+				return (false);
+			}
+			
+			// tiles in use do not stop the eviction of those that are not
+			QuadTreeCache.MAX_CACHE_MEMORY = 6;
+			cache = new QuadTreeCache();
+			QuadKey parent = new QuadKey().createChild(1);
+			for (int i = 0; i < 4; ++i) {
+				QuadTree tile = new QuadTree(parent.createChild(i + 1), Vector3.ZERO, 1, 1, 1);
+				tile.inUse = (i != 2);
+				cache.putQuadTree(tile.getKey(), tile);
+			}
+			QuadTree big = new QuadTree(new QuadKey().createChild(2), Vector3.ZERO, 1, 1, 2);
+			cache.putQuadTree(big.getKey(), big);
+			if ((cache.getQuadTree(big.getKey()) != big) || (cache.getCount() != 4) || (cache.getCacheSize() != 5)) {
+				System.err.println("Tiles in use stopped the cache from evicting the others.");
+				return (false);
+			}
+			
+			// a full cache with every other tile in use can not be cleaned up
+			cache = new QuadTreeCache();
+			for (int i = 0; i < 3; ++i) {
+				QuadTree tile = new QuadTree(parent.createChild(i + 1), Vector3.ZERO, 1, 1, 1);
+				tile.inUse = true;
+				cache.putQuadTree(tile.getKey(), tile);
+			}
+			try {
+				QuadTree tile = new QuadTree(new QuadKey().createChild(2), Vector3.ZERO, 1, 1, 3);
+				cache.putQuadTree(tile.getKey(), tile);
+				System.err.println("Cache with all tiles in use was cleaned up.");
+				return (false);
+			} catch (IllegalStateException e) {
+				// expected
+			}
+			return (true);
+		} finally {
+			QuadTreeCache.MAX_CACHE_MEMORY = maxCacheMemory;
+		}
+	}
+	
+	private static DepthTree createTree(Random random, String key, int level, int maxLevel) {
+		DepthTree dTree = new DepthTree();
+		dTree.key = key;
+		if ((level < maxLevel) && ((level < 3) || (random.nextInt(4) > 0))) {
+			dTree.child = new DepthTree[4];
+			for (int i = 0; i < 4; ++i) {
+				dTree.child[i] = createTree(random, key + "/" + (i + 1), level + 1, maxLevel);
+			}
+		}
+		return (dTree);
+	}
+	
+	/**
+	 * Tile source with only a depth index.
+	 */
+	private static class TestTileSource extends AbstractTileSource {
+		
+		private DepthIndex index;
+		
+		public TestTileSource(DepthIndex index) {
+			this.index = index;
+		}
+		
+		@Override
+		protected DepthIndex loadDepthIndex() {
+			return (index);
+		}
+		
+		@Override
+		public boolean connect(String location, String userName, String password) {
+			return (true);
+		}
+		
+		@Override
+		public Properties getProperties(String layerName) {
+			return (null);
+		}
+		
+		@Override
+		public boolean tileExists(String key) {
+			return (index.contains(key));
+		}
+		
+		@Override
+		public QuadTreeTile getTile(String layerName, QuadKey id, DataType dataType) {
+			return (null);
+		}
+		
+		@Override
+		public String[][] getLayerInfo() {
+			return (new String[0][]);
+		}
+		
+		@Override
+		public String getLandscapePath() {
+			return (null);
+		}
+	}
+	
+	private static double benchmark(final AbstractTileSource source, final double size, int numThreads,
+		final long millis, final boolean packed) throws Exception {
+		final AtomicLong count = new AtomicLong();
+		Thread[] thread = new Thread[numThreads];
+		for (int t = 0; t < numThreads; ++t) {
+			final long seed = t;
+			thread[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					Random random = new Random(seed);
+					long end = System.currentTimeMillis() + millis;
+					long n = 0;
+					long sum = 0;
+					while (System.currentTimeMillis() < end) {
+						for (int i = 0; i < 1000; ++i) {
+							double x = (random.nextDouble() - 0.5) * size;
+							double y = (random.nextDouble() - 0.5) * size;
+							if (packed) {
+								sum += source.getPackedKey(x, y, size, size, -1);
+							} else {
+								// the lookup as it was, one lock and a QuadKey per query
+								synchronized (source) {
+									sum += source.getKey(x, y, size, size).getLevel();
+								}
+							}
+						}
+						n += 1000;
+					}
+					count.addAndGet(n + (sum & 1));
+				}
+			});
+		}
+		long t0 = System.nanoTime();
+		for (int t = 0; t < numThreads; ++t) {
+			thread[t].start();
+		}
+		for (int t = 0; t < numThreads; ++t) {
+			thread[t].join();
+		}
+		return (count.get() / ((System.nanoTime() - t0) / 1000000000.0));
+	}
+	
+	private static double benchmarkCache(final AbstractTileSource source, final QuadTreeCache cache, final double size,
+		final int level, int numThreads, final long millis, final boolean locked) throws Exception {
+		final AtomicLong count = new AtomicLong();
+		Thread[] thread = new Thread[numThreads];
+		for (int t = 0; t < numThreads; ++t) {
+			final long seed = t;
+			thread[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					Random random = new Random(seed);
+					long end = System.currentTimeMillis() + millis;
+					long n = 0;
+					long sum = 0;
+					while (System.currentTimeMillis() < end) {
+						for (int i = 0; i < 1000; ++i) {
+							double x = (random.nextDouble() - 0.5) * size;
+							double y = (random.nextDouble() - 0.5) * size;
+							long key = source.getPackedKey(x, y, size, size, level);
+							QuadTree qt = null;
+							if (locked) {
+								// the hit path as it was, under the cache lock
+								synchronized (cache) {
+									qt = cache.getQuadTree(key);
+								}
+							} else {
+								qt = cache.getQuadTree(key);
+							}
+							sum += qt.getSize();
+						}
+						n += 1000;
+					}
+					count.addAndGet(n + (sum & 1));
+				}
+			});
+		}
+		long t0 = System.nanoTime();
+		for (int t = 0; t < numThreads; ++t) {
+			thread[t].start();
+		}
+		for (int t = 0; t < numThreads; ++t) {
+			thread[t].join();
+		}
+		return (count.get() / ((System.nanoTime() - t0) / 1000000000.0));
+	}
+	
+	private static void fillCache(QuadTreeCache cache, QuadKey key, int level) {
+		if (key.getLevel() == level) {
+			cache.putQuadTree(key, new QuadTree(key, Vector3.ZERO, 1, 1, 1));
+			return;
+		}
+		for (int q = 1; q <= 4; ++q) {
+			fillCache(cache, key.createChild(q), level);
+		}
+	}
+	
+	/**
+	 * Benchmark point queries for the tile key and the cached tile.
+	 * 
+	 * @param arg number of levels (default 12), maximum threads (default number of processors), seconds per run (default 2)
+	 */
+	public static void main(String[] arg) {
+		int levels = (arg.length > 0) ? Integer.parseInt(arg[0]) : 12;
+		int maxThreads = (arg.length > 1) ? Integer.parseInt(arg[1]) : Runtime.getRuntime().availableProcessors();
+		long millis = (arg.length > 2) ? (long) (Double.parseDouble(arg[2]) * 1000) : 2000;
+		try {
+			TestTileSource source = new TestTileSource(DepthIndex.createComplete(levels));
+			double size = 10000;
+			
+			// warm up
+			benchmark(source, size, 1, millis / 2, true);
+			benchmark(source, size, 1, millis / 2, false);
+			
+			for (int n = 1; n <= maxThreads; n *= 2) {
+				double packed = benchmark(source, size, n, millis, true);
+				double locked = benchmark(source, size, n, millis, false);
+				System.out.println(String.format("%3d threads %12.0f queries/s packed %12.0f queries/s locked", n,
+					packed, locked));
+			}
+			
+			// elevation queries look up the tile in the cache after finding the key
+			int level = Math.min(levels, 6);
+			QuadTreeCache cache = new QuadTreeCache();
+			fillCache(cache, new QuadKey(), level);
+			benchmarkCache(source, cache, size, level, 1, millis / 2, false);
+			benchmarkCache(source, cache, size, level, 1, millis / 2, true);
+			for (int n = 1; n <= maxThreads; n *= 2) {
+				double lockFree = benchmarkCache(source, cache, size, level, n, millis, false);
+				double locked = benchmarkCache(source, cache, size, level, n, millis, true);
+				System.out.println(String.format("%3d threads %12.0f lookups/s lock-free %12.0f lookups/s locked", n,
+					lockFree, locked));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+}
@@ -0,0 +1,274 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.test;
+
+import gov.nasa.arc.dert.landscape.io.TileCodec;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.FileImageOutputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Provided for testing the RAW and LZ tile formats. The main method runs a
+ * benchmark comparing tile decode throughput with PNG.
+ *
+ */
+public class TileCodecTest {
+	
+	public boolean testTileCodec(String testLoc) {
+		System.err.println("Testing tile codec . . .");
+		File dir = new File(testLoc, "tilecodec");
+		int size = 129;
+		byte[][] data = new byte[][] { createElevationTile(size), createColorTile(size), createGrayTile(size) };
+		int[] bytesPerPixel = new int[] { 4, 4, 1 };
+		try {
+			for (int i = 0; i < data.length; ++i) {
+				for (int j = 0; j < 2; ++j) {
+					File file = new File(dir, "tile" + i + "_" + j + ".raw");
+					TileCodec.write(file, data[i], size, size, bytesPerPixel[i], j == 1);
+					int[] dimensions = new int[3];
+					ByteBuffer bBuf = TileCodec.read(file, dimensions);
+					if ((dimensions[0] != size) || (dimensions[1] != size) || (dimensions[2] != bytesPerPixel[i])) {
+						System.err.println("Tile " + file + " has incorrect dimensions.");
+						return (false);
+					}
+					if (!bBuf.isDirect() || (bBuf.limit() != data[i].length)) {
+						System.err.println("Tile " + file + " has incorrect buffer.");
+						return (false);
+					}
+					for (int k = 0; k < data[i].length; ++k) {
+						if (bBuf.get(k) != data[i][k]) {
+							System.err.println("Tile " + file + " differs at byte " + k + ".");
+							return (false);
+						}
+					}
+					file.delete();
+				}
+			}
+			// empty tile
+			File file = new File(dir, "empty.raw");
+			TileCodec.write(file, new byte[0], 0, 0, 4, true);
+			if (TileCodec.read(file, new int[3]) != null) {
+				System.err.println("Empty tile was not empty.");
+				return (false);
+			}
+			file.delete();
+			dir.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+			return (false);
+		}
+		return (true);
+	}
+	
+	private static byte[] createElevationTile(int size) {
+		TestDemFactory demFactory = new TestDemFactory(size);
+		ByteBuffer bBuf = ByteBuffer.allocate(size * size * 4);
+		for (int r = 0; r < size; ++r) {
+			for (int c = 0; c < size; ++c) {
+				bBuf.putFloat(demFactory.getZ(c - size / 2, size / 2 - r));
+			}
+		}
+		return (bBuf.array());
+	}
+	
+	private static byte[] createColorTile(int size) {
+		Random random = new Random(size);
+		byte[] bytes = new byte[size * size * 4];
+		for (int i = 0; i < bytes.length; i += 4) {
+			int p = i / 4;
+			bytes[i] = (byte) 255;
+			bytes[i + 1] = (byte) ((p % size) + random.nextInt(8));
+			bytes[i + 2] = (byte) ((p / size) + random.nextInt(8));
+			bytes[i + 3] = (byte) (p % 64);
+		}
+		return (bytes);
+	}
+	
+	private static byte[] createGrayTile(int size) {
+		Random random = new Random(size);
+		byte[] bytes = new byte[size * size];
+		for (int i = 0; i < bytes.length; ++i) {
+			bytes[i] = (byte) ((i % size) / 2 + random.nextInt(4));
+		}
+		return (bytes);
+	}
+	
+	private static void writePng(File file, byte[] data, int size) throws Exception {
+		BufferedImage bImage = new BufferedImage(size, size, BufferedImage.TYPE_4BYTE_ABGR);
+		byte[] iData = ((DataBufferByte) bImage.getRaster().getDataBuffer()).getData();
+		System.arraycopy(data, 0, iData, 0, data.length);
+		ImageOutputStream oStream = new FileImageOutputStream(file);
+		ImageIO.write(bImage, "PNG", oStream);
+		oStream.flush();
+		oStream.close();
+	}
+	
+	private static double benchmarkPng(File file, int count) throws Exception {
+		long t = System.nanoTime();
+		for (int i = 0; i < count; ++i) {
+			// same steps as FileSystemTileSource.getTilePng
+			BufferedImage bImage = ImageIO.read(file);
+			DataBufferByte dBuf = (DataBufferByte) bImage.getData().getDataBuffer();
+			ByteBuffer.wrap(dBuf.getData());
+		}
+		return ((System.nanoTime() - t) / 1000000.0);
+	}
+	
+	private static double benchmarkRaw(File file, int count) throws Exception {
+		int[] dimensions = new int[3];
+		long t = System.nanoTime();
+		for (int i = 0; i < count; ++i) {
+			TileCodec.read(file, dimensions);
+		}
+		return ((System.nanoTime() - t) / 1000000.0);
+	}
+	
+	/**
+	 * Benchmark tile decode throughput.
+	 * 
+	 * @param arg tile size (default 257), number of decodes (default 500), work directory
+	 */
+	public static void main(String[] arg) {
+		int size = (arg.length > 0) ? Integer.parseInt(arg[0]) : 257;
+		int count = (arg.length > 1) ? Integer.parseInt(arg[1]) : 500;
+		File dir = new File((arg.length > 2) ? arg[2] : System.getProperty("java.io.tmpdir"), "tilecodecbenchmark");
+		dir.mkdirs();
+		try {
+			byte[][] data = new byte[][] { createElevationTile(size), createColorTile(size) };
+			String[] name = new String[] { "elevation", "color" };
+			for (int i = 0; i < data.length; ++i) {
+				File png = new File(dir, name[i] + ".png");
+				File raw = new File(dir, name[i] + "_raw.raw");
+				File lz = new File(dir, name[i] + "_lz.raw");
+				writePng(png, data[i], size);
+				TileCodec.write(raw, data[i], size, size, 4, false);
+				TileCodec.write(lz, data[i], size, size, 4, true);
+				
+				// warm up
+				benchmarkPng(png, count / 10 + 1);
+				benchmarkRaw(raw, count / 10 + 1);
+				benchmarkRaw(lz, count / 10 + 1);
+				
+				double mb = (double) data[i].length * count / (1024 * 1024);
+				File[] file = new File[] { png, raw, lz };
+				String[] format = new String[] { "PNG", "RAW", "LZ" };
+				for (int j = 0; j < file.length; ++j) {
+					double ms = (j == 0) ? benchmarkPng(file[j], count) : benchmarkRaw(file[j], count);
+					System.out.println(String.format("%-9s %-3s %8d bytes %8.3f ms/tile %8.1f MB/s", name[i], format[j],
+						file[j].length(), ms / count, mb * 1000 / ms));
+					file[j].delete();
+				}
+			}
+			dir.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+}
@@ -0,0 +1,231 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+package gov.nasa.arc.dert.test;
+
+import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
+import gov.nasa.arc.dert.landscape.quadtree.QuadTree;
+import gov.nasa.arc.dert.landscape.quadtree.TileLoader;
+
+import java.util.IdentityHashMap;
+import java.util.Random;
+
+import com.ardor3d.math.Vector3;
+
+/**
+ * Provided for testing the order and deduplication of tile load requests.
+ *
+ */
+public class TileLoaderTest {
+	
+	public boolean testTileLoader() {
+		System.err.println("Testing tile load order . . .");
+		
+		// no workers, requests stay queued
+		TileLoader loader = new TileLoader(null, 0);
+		Random random = new Random(31);
+		QuadTree[] quadTree = new QuadTree[200];
+		IdentityHashMap<QuadTree, Double> priority = new IdentityHashMap<QuadTree, Double>();
+		for (int i = 0; i < quadTree.length; ++i) {
+			// a different level 4 tile for each request
+			QuadKey key = new QuadKey();
+			for (int j = 0; j < 4; ++j)
+				key = key.createChild(((i >> (2 * j)) & 3) + 1);
+			quadTree[i] = new QuadTree(key, Vector3.ZERO, 1, 1, 1);
+			priority.put(quadTree[i], random.nextDouble());
+			loader.request(quadTree[i], priority.get(quadTree[i]));
+		}
+		
+		// renewing a request changes its priority but does not queue it again
+		for (int i = 0; i < quadTree.length; i += 3) {
+			priority.put(quadTree[i], random.nextDouble() * 2);
+			loader.request(quadTree[i], priority.get(quadTree[i]));
+		}
+		if ((loader.getPendingCount() != quadTree.length) || (loader.getRequestCount() != quadTree.length)) {
+			System.err.println("Tile loader has " + loader.getPendingCount() + " requests pending and "
+				+ loader.getRequestCount() + " queued, expected " + quadTree.length + ".");
+			return (false);
+		}
+		if (!drain(loader, priority, quadTree.length))
+			return (false);
+		
+		// requests not renewed during an update are dropped
+		loader.beginUpdate();
+		for (int i = 0; i < quadTree.length; ++i)
+			loader.request(quadTree[i], priority.get(quadTree[i]));
+		loader.beginUpdate();
+		int renewed = 0;
+		for (int i = 0; i < quadTree.length; i += 2) {
+			loader.request(quadTree[i], priority.get(quadTree[i]));
+			renewed++;
+		}
+		loader.endUpdate();
+		if (!drain(loader, priority, renewed))
+			return (false);
+
+		// a prefetch stays a prefetch when the view asks for it, the view
+		// requests are dropped when they are not renewed
+		loader.beginUpdate();
+		for (int i = 0; i < 10; ++i)
+			loader.request(quadTree[i], 0.001);
+		for (int i = 10; i < 20; ++i)
+			loader.prefetch(quadTree[i], 100);
+		loader.request(quadTree[10], 0.001);
+		loader.beginUpdate();
+		loader.endUpdate();
+		if (loader.getPendingCount() != 10) {
+			System.err.println("Tile loader has " + loader.getPendingCount() + " prefetches pending, expected 10.");
+			return (false);
+		}
+		
+		// prefetches follow view requests, however important
+		for (int i = 0; i < 10; ++i)
+			loader.request(quadTree[i], 0.001);
+		for (int i = 0; i <= 10; ++i) {
+			QuadTree qt = loader.peek();
+			boolean view = false;
+			for (int j = 0; j <= 10; ++j)
+				view |= (qt == quadTree[j]);
+			if (!view) {
+				System.err.println("Prefetch " + qt.getKey() + " is ahead of a view request.");
+				return (false);
+			}
+			loader.cancel(qt);
+		}
+		loader.cancelPrefetches();
+		if (loader.getPendingCount() != 0) {
+			System.err.println("Tile loader has " + loader.getPendingCount() + " requests pending, expected none.");
+			return (false);
+		}
+
+		// of two equally coarse tiles the nearer one is more important
+		if (TileLoader.getPriority(4, 10, 100) <= TileLoader.getPriority(4, 200, 100)) {
+			System.err.println("Tile load priority does not decrease with distance.");
+			return (false);
+		}
+		loader.dispose();
+		return (true);
+	}
+	
+	// Remove the requests in order, checking that each is at most as
+	// important as the one before and that none is returned twice
+	private boolean drain(TileLoader loader, IdentityHashMap<QuadTree, Double> priority, int count) {
+		IdentityHashMap<QuadTree, Boolean> seen = new IdentityHashMap<QuadTree, Boolean>();
+		double last = Double.MAX_VALUE;
+		QuadTree qt = loader.peek();
+		while (qt != null) {
+			double p = priority.get(qt);
+			if ((p > last) || seen.containsKey(qt)) {
+				System.err.println("Tile " + qt.getKey() + " with priority " + p + " is out of order.");
+				return (false);
+			}
+			seen.put(qt, Boolean.TRUE);
+			last = p;
+			loader.cancel(qt);
+			qt = loader.peek();
+		}
+		if (seen.size() != count) {
+			System.err.println("Tile loader returned " + seen.size() + " requests, expected " + count + ".");
+			return (false);
+		}
+		return (true);
+	}
+
+}
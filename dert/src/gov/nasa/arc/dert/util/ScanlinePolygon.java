@@ -0,0 +1,220 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.util;
+
+import java.util.Arrays;
+
+import com.ardor3d.math.type.ReadOnlyVector3;
+
+/**
+ * Rasterizes a polygon on the XY plane into spans of samples on a row. A
+ * sample is inside the polygon when MathUtil.isInsidePolygon would say so,
+ * but each row is resolved from the edges that cross it rather than by
+ * testing every sample.
+ *
+ */
+public class ScanlinePolygon {
+
+	// polygon vertices, the last one is the same as the first
+	protected double[] vx, vy;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param vertex
+	 *            the polygon vertices, with the first vertex repeated at the
+	 *            end
+	 */
+	public ScanlinePolygon(ReadOnlyVector3[] vertex) {
+		vx = new double[vertex.length];
+		vy = new double[vertex.length];
+		for (int i = 0; i < vertex.length; ++i) {
+			vx[i] = vertex[i].getX();
+			vy[i] = vertex[i].getY();
+		}
+	}
+
+	/**
+	 * Get the maximum number of spans in a row, for sizing the span array.
+	 * 
+	 * @return
+	 */
+	public int getMaximumSpans() {
+		return (Math.max(1, vx.length));
+	}
+
+	/**
+	 * Find the samples of a row that are inside the polygon. Sample j is at
+	 * (x0+j*dx, y).
+	 * 
+	 * @param y
+	 *            the row coordinate
+	 * @param x0
+	 *            the first sample coordinate
+	 * @param dx
+	 *            the sample spacing
+	 * @param columns
+	 *            the number of samples in the row
+	 * @param span
+	 *            returns start (inclusive) and end (exclusive) sample pairs
+	 * @return the number of spans
+	 */
+	public int getSpans(double y, double x0, double dx, int columns, int[] span) {
+		// For each edge crossing the row, find the first sample that is not
+		// to its left. The winding number of a sample is the sum of the
+		// directions of the crossings it is left of.
+		long[] crossing = new long[vx.length];
+		int n = 0;
+		int winding = 0;
+		for (int i = 0; i < vx.length - 1; ++i) {
+			int dir = 0;
+			if (vy[i] <= y) {
+				if (vy[i + 1] > y) {
+					dir = 1;
+				}
+			} else if (vy[i + 1] <= y) {
+				dir = -1;
+			}
+			if (dir == 0) {
+				continue;
+			}
+			double xc = vx[i] + (y - vy[i]) * (vx[i + 1] - vx[i]) / (vy[i + 1] - vy[i]);
+			double c = Math.ceil((xc - x0) / dx);
+			int k = (int) Math.max(0, Math.min(columns, c));
+			// settle the boundary with the same test as isInsidePolygon
+			while ((k > 0) && !isLeft(i, x0 + (k - 1) * dx, y, dir)) {
+				k--;
+			}
+			while ((k < columns) && isLeft(i, x0 + k * dx, y, dir)) {
+				k++;
+			}
+			crossing[n++] = ((long) k << 2) | (dir + 1);
+			winding += dir;
+		}
+		Arrays.sort(crossing, 0, n);
+
+		int count = 0;
+		int start = 0;
+		for (int i = 0; i <= n; ++i) {
+			int end = (i < n) ? (int) (crossing[i] >> 2) : columns;
+			if ((winding != 0) && (end > start)) {
+				if ((count > 0) && (span[count * 2 - 1] == start)) {
+					span[count * 2 - 1] = end;
+				} else {
+					span[count * 2] = start;
+					span[count * 2 + 1] = end;
+					count++;
+				}
+			}
+			if (i < n) {
+				winding -= (int) (crossing[i] & 3) - 1;
+				start = end;
+			}
+		}
+		return (count);
+	}
+
+	private boolean isLeft(int i, double x, double y, int dir) {
+		double d = (vx[i + 1] - vx[i]) * (y - vy[i]) - (x - vx[i]) * (vy[i + 1] - vy[i]);
+		return ((dir > 0) ? (d > 0) : (d < 0));
+	}
+}
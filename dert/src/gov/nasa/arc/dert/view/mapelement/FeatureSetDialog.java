@@ -124,7 +124,7 @@ import javax.swing.SwingConstants;
 public class FeatureSetDialog
 	extends AbstractDialog {
 	
-	private JCheckBox ground;
+	private JCheckBox ground, batched;
 	private JTextField labelText;
 	private FileInputField fif;
 
@@ -158,6 +158,11 @@ public class FeatureSetDialog
 		ground = new JCheckBox();
 		compList.add(ground);
 		compList.add(new JLabel("Use landscape elevation for Z coordinate.", SwingConstants.LEFT));
+
+		batched = new JCheckBox();
+		batched.setSelected(FeatureSet.defaultBatched);
+		compList.add(batched);
+		compList.add(new JLabel("Merge lines into one mesh for faster drawing.", SwingConstants.LEFT));
 		
 		JLabel label = new JLabel("Label Property", SwingConstants.RIGHT);
 		label.setToolTipText("use this property for Point labels");
@@ -170,7 +175,7 @@ public class FeatureSetDialog
 		contentArea.add(new FieldPanel(compList), BorderLayout.CENTER);
 		
 		width = 400;
-		height = 220;
+		height = 250;
 		
 		messageText.setText("Enter the path to a GeoJSON file.");
 	}
@@ -194,6 +199,7 @@ public class FeatureSetDialog
 			labelProp = null;
 		String label = StringUtil.getLabelFromFilePath(filePath);
 		FeatureSetState lsState = new FeatureSetState(label, filePath, FeatureSet.defaultColor, null, ground.isSelected(), labelProp);
+		lsState.batched = batched.isSelected();
 		if (ConfigurationManager.getInstance().getCurrentConfiguration().addMapElementState(lsState, messageText) == null)
 			return(false);
 		return(true);
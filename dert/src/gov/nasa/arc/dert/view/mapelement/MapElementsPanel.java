@@ -346,7 +346,8 @@ public class MapElementsPanel extends JPanel implements DirtyEventListener {
 			DefaultMutableTreeNode treeNode = new DefaultMutableTreeNode(mapElement, true);
 			FeatureSet fSet = (FeatureSet)mapElement;
 			for (int j = 0; j < fSet.getNumberOfChildren(); ++j) {
-				treeNode.add(new DefaultMutableTreeNode(fSet.getChild(j), false));
+				if (fSet.getChild(j) instanceof Feature)
+					treeNode.add(new DefaultMutableTreeNode(fSet.getChild(j), false));
 			}
 			featureSetsNode.add(treeNode);
 			treeModel.nodeStructureChanged(featureSetsNode);
@@ -716,7 +717,8 @@ public class MapElementsPanel extends JPanel implements DirtyEventListener {
 			DefaultMutableTreeNode featureSetNode = new DefaultMutableTreeNode(vg, true);
 			featureSetsNode.add(featureSetNode);
 			for (int j = 0; j < vg.getNumberOfChildren(); ++j)
-				featureSetNode.add(new DefaultMutableTreeNode(vg.getChild(j), false));
+				if (vg.getChild(j) instanceof Feature)
+					featureSetNode.add(new DefaultMutableTreeNode(vg.getChild(j), false));
 		}
 
 		treeModel = new DefaultTreeModel(rootNode);
@@ -103,6 +103,7 @@ package gov.nasa.arc.dert.view.mapelement;
 
 import gov.nasa.arc.dert.icon.Icons;
 import gov.nasa.arc.dert.landscape.Landscape;
+import gov.nasa.arc.dert.landscape.RegionStatistics;
 import gov.nasa.arc.dert.scene.tool.Path;
 import gov.nasa.arc.dert.state.MapElementState;
 import gov.nasa.arc.dert.state.State;
@@ -262,35 +263,40 @@ public class PathView extends JPanelView {
 				
 				Vector3[] vertex = path.getPolygonVertices();
 				if (vertex != null) {
-					messageLabel.setText("Calculating mean elevation ...");
-					Thread.yield();
-					String str = getMeanElevation(vertex);
-					if (str == null) {
-						doCancel();
-						return;
-					}
-					textArea.append(str);
+					RegionStatistics stats = null;
+					String str = null;
 					if (vertex.length > 3) {
-						messageLabel.setText("Calculating surface area ...");
+						// mean elevation, surface area, slope and volume above
+						// an elevation in one pass
+						messageLabel.setText("Calculating statistics ...");
 						Thread.yield();
-						str = getSurfaceArea(vertex);
-						if (str == null) {
+						stats = Landscape.getInstance().getSampledStatisticsOfRegion(vertex, lowerBound, upperBound, getVolElevation());
+						if (stats == null) {
 							doCancel();
 							return;
 						}
-						textArea.append(str);
-						messageLabel.setText("Calculating mean slope ...");
+						str = "Mean Elevation: "+String.format(Landscape.stringFormat, stats.meanElevation)+"\n";
+					}
+					else {
+						messageLabel.setText("Calculating mean elevation ...");
 						Thread.yield();
-						str = getMeanSlope(vertex);
+						str = getMeanElevation(vertex);
 						if (str == null) {
 							doCancel();
 							return;
 						}
-						textArea.append(str);
-						if (polyMethod.isSelected() || planeMethod.isSelected()) {
+					}
+					textArea.append(str);
+					if (stats != null) {
+						textArea.append("Surface Area: "+String.format(Landscape.stringFormat, stats.surfaceArea)+"\n");
+						textArea.append("Mean Slope: "+String.format(Landscape.stringFormat, stats.meanSlope)+"\n");
+						if (planeMethod.isSelected()) {
+							textArea.append(getVolume(getVolElevation(), new double[] {stats.volumeAbove, stats.volumeBelow}));
+						}
+						else if (polyMethod.isSelected()) {
 							messageLabel.setText("Calculating volume ...");
 							Thread.yield();
-							str = getVolume(getVolElevation(), path);
+							str = getVolume(getVolElevation(), path.getVolume(getVolElevation()));
 							if (str == null) {
 								doCancel();
 								return;
@@ -354,13 +360,6 @@ public class PathView extends JPanelView {
 		return(str);
 	}
 	
-	private String getSurfaceArea(Vector3[] vertex) {
-		double sampledVal = Landscape.getInstance().getSampledSurfaceAreaOfRegion(vertex, lowerBound, upperBound);
-		if (Double.isNaN(sampledVal))
-			return(null);
-		return("Surface Area: "+String.format(Landscape.stringFormat, sampledVal)+"\n");
-	}
-	
 	private String getMeanElevation(Vector3[] vertex) {
 		String str = "";
 		if (vertex.length < 3) {
@@ -380,16 +379,8 @@ public class PathView extends JPanelView {
 		return(str);
 	}
 	
-	private String getMeanSlope(Vector3[] vertex) {
-		double sampledVal = Landscape.getInstance().getSampledMeanSlopeOfRegion(vertex, lowerBound, upperBound);
-		if (Double.isNaN(sampledVal))
-			return(null);
-		return("Mean Slope: "+String.format(Landscape.stringFormat, sampledVal)+"\n");
-	}
-	
-	private String getVolume(double volElev, Path path) {
+	private String getVolume(double volElev, double[] vol) {
 		String str = null;
-		double[] vol = path.getVolume(volElev);
 		if (vol == null)
 			return(str);
 		if (!Double.isNaN(volElev)) {
@@ -102,6 +102,7 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 package gov.nasa.arc.dert.view.viewpoint;
 
 import gov.nasa.arc.dert.icon.Icons;
+import gov.nasa.arc.dert.render.FrameGrabEncoder;
 import gov.nasa.arc.dert.scene.World;
 import gov.nasa.arc.dert.scene.tool.Path;
 import gov.nasa.arc.dert.state.AnimationState;
@@ -156,6 +157,7 @@ public class AnimationPanel extends JPanel {
 	private JLabel statusField;
 	private FileInputField fif;
 	private JComboBox subjectBox;
+	private JComboBox<FrameGrabEncoder.Format> formatBox;
 	private DefaultComboBoxModel subjectModel;
 	
 	// Parameters for fly through animation
@@ -279,6 +281,10 @@ public class AnimationPanel extends JPanel {
 			}
 		};
 		compList.add(fif);
+		compList.add(new JLabel("Image Format", SwingConstants.RIGHT));
+		formatBox = new JComboBox<FrameGrabEncoder.Format>(FrameGrabEncoder.Format.values());
+		formatBox.setToolTipText("FastPNG and Raw write larger files in less time");
+		compList.add(formatBox);
 		
 		add(new FieldPanel(compList), BorderLayout.SOUTH);
 		
@@ -316,6 +322,7 @@ public class AnimationPanel extends JPanel {
 		loop.setSelected(flyParams.loop);
 		grab.setSelected(flyParams.grab);
 		fif.setFilePath(flyParams.imageSequencePath);
+		formatBox.setSelectedItem(flyParams.grabFormat);
 	}
 
 	/**
@@ -331,6 +338,7 @@ public class AnimationPanel extends JPanel {
 		grab.setEnabled(enable);
 		loop.setEnabled(enable);
 		fif.setEnabled(enable);
+		formatBox.setEnabled(enable);
 	}
 	
 	private boolean setParameters() {
@@ -353,6 +361,7 @@ public class AnimationPanel extends JPanel {
 		flyParams.grab = grab.isSelected();
 		flyParams.loop = loop.isSelected();
 		flyParams.imageSequencePath = fif.getFilePath();
+		flyParams.grabFormat = (FrameGrabEncoder.Format)formatBox.getSelectedItem();
 		
 		String msg = null;
 		if (path == null) {
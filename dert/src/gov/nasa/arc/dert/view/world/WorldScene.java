@@ -107,6 +107,8 @@ import gov.nasa.arc.dert.camera.BasicCamera;
 import gov.nasa.arc.dert.landscape.Landscape;
 import gov.nasa.arc.dert.lighting.Lighting;
 import gov.nasa.arc.dert.render.BasicScene;
+import gov.nasa.arc.dert.render.FrameProfiler;
+import gov.nasa.arc.dert.render.FrameProfiler.Phase;
 import gov.nasa.arc.dert.scene.World;
 import gov.nasa.arc.dert.state.WorldState;
 import gov.nasa.arc.dert.viewpoint.Viewpoint;
@@ -142,11 +144,15 @@ public class WorldScene extends BasicScene implements DirtyEventListener {
 	private RGBAxes crosshair;
 	private Node textOverlay, centerScale;
 
+	// Frame profiling text, created when first shown
+	private ProfileOverlay profileOverlay;
+
 	// Flags
 	private boolean showCrosshair = true;
 	private boolean showNormals = false;
 	private boolean showTextOverlay = true;
 	private boolean showCenterScale = false;
+	private boolean showProfileOverlay = false;
 	
 	private boolean worldChanged, terrainChanged;
 
@@ -203,30 +209,47 @@ public class WorldScene extends BasicScene implements DirtyEventListener {
 	 */
 	@Override
 	public void update(ReadOnlyTimer timer) {
+		FrameProfiler profiler = FrameProfiler.getInstance();
 		// update the landscape quad tree
+		profiler.begin(Phase.Landscape);
 		Landscape.getInstance().update(viewpoint.getCamera());
+		profiler.end(Phase.Landscape);
 		// has the viewpoint changed?
 		boolean viewpointChanged = viewpoint.changed.getAndSet(false);
 		// if the viewpoint changed, update the other view dependent objects
-		if (viewpointChanged)
+		if (viewpointChanged) {
+			profiler.begin(Phase.SceneUpdate);
 			rootNode.update(viewpoint.getCamera());
+			profiler.end(Phase.SceneUpdate);
+		}
 		worldChanged = World.getInstance().getDirtyEventHandler().changed.get();
 		terrainChanged = World.getInstance().getDirtyEventHandler().terrainChanged.get();
 //		System.err.println("WorldScene.update "+viewpointChanged+" "+worldChanged+" "+terrainChanged+" "+sceneChanged.get());
 		sceneChanged.set(viewpointChanged || worldChanged || terrainChanged || sceneChanged.get());
-		if (sceneChanged.get())
+		if (sceneChanged.get()) {
+			profiler.begin(Phase.GeometricState);
 			rootNode.updateGeometricState(0);
+			profiler.end(Phase.GeometricState);
+		}
+		// refresh the profiling text
+		if (showProfileOverlay && profileOverlay.update())
+			sceneChanged.set(true);
 	}
 
 	@Override
 	public void preRender(Renderer renderer) {
 		if (rootNode == null)
 			return;
+		FrameProfiler profiler = FrameProfiler.getInstance();
 		Lighting lighting = ((World)rootNode).getLighting();
+		profiler.begin(Phase.Shadows);
 		lighting.prerender(viewpoint.getCamera(), renderer, worldChanged);
+		profiler.end(Phase.Shadows);
 //		System.err.println("WorldScene.preRender "+terrainChanged+" "+worldChanged);
 		if (terrainChanged || worldChanged) {
+			profiler.begin(Phase.Layers);
 			Landscape.getInstance().getLayerManager().renderLayers(renderer);
+			profiler.end(Phase.Layers);
 		}
 
 		viewpoint.getCamera().update();
@@ -262,10 +285,18 @@ public class WorldScene extends BasicScene implements DirtyEventListener {
 			centerScale.getSceneHints().setCullHint(CullHint.Always);
 			renderer.unsetOrtho();
 		}
+		if (showProfileOverlay) {
+			renderer.setOrtho();
+			profileOverlay.getSceneHints().setCullHint(CullHint.Never);
+			profileOverlay.onDraw(renderer);
+			profileOverlay.getSceneHints().setCullHint(CullHint.Always);
+			renderer.unsetOrtho();
+		}
 	}
 
 	@Override
 	public void render(Renderer renderer) {
+		FrameProfiler.getInstance().begin(Phase.Draw);
 		if (viewpoint.getCamera() instanceof AnaglyphCamera) {
 			AnaglyphCamera camera = (AnaglyphCamera) viewpoint.getCamera();
 			camera.setupLeftRightCameras();
@@ -286,6 +317,7 @@ public class WorldScene extends BasicScene implements DirtyEventListener {
 			renderer.draw(rootNode);
 		}
 		postRender(renderer);
+		FrameProfiler.getInstance().end(Phase.Draw);
 	}
 
 	/**
@@ -391,6 +423,29 @@ public class WorldScene extends BasicScene implements DirtyEventListener {
 		return (showCenterScale);
 	}
 
+	/**
+	 * Set frame profiling overlay visibility. The FrameProfiler records while
+	 * the overlay is shown, the trace is kept after it is hidden.
+	 * 
+	 * @param show
+	 */
+	public void setShowProfileOverlay(boolean show) {
+		if (show && (profileOverlay == null))
+			profileOverlay = new ProfileOverlay();
+		FrameProfiler.getInstance().setEnabled(show);
+		showProfileOverlay = show;
+		sceneChanged.set(true);
+	}
+
+	/**
+	 * Get frame profiling overlay visibility
+	 * 
+	 * @return
+	 */
+	public boolean getShowProfileOverlay() {
+		return (showProfileOverlay);
+	}
+
 	/**
 	 * Show surface normals
 	 * 
@@ -285,4 +285,22 @@ public class WorldScenePanel extends SceneCanvasPanel {
 		return (worldScene.getShowCenterScale());
 	}
 
+	/**
+	 * Set frame profiling overlay visibility
+	 * 
+	 * @param show
+	 */
+	public void setShowProfileOverlay(boolean show) {
+		worldScene.setShowProfileOverlay(show);
+	}
+
+	/**
+	 * Get frame profiling overlay visibility
+	 * 
+	 * @return
+	 */
+	public boolean isShowProfileOverlay() {
+		return (worldScene.getShowProfileOverlay());
+	}
+
 }
@@ -103,8 +103,10 @@ package gov.nasa.arc.dert.viewpoint;
 
 import gov.nasa.arc.dert.Dert;
 import gov.nasa.arc.dert.camera.BasicCamera;
+import gov.nasa.arc.dert.landscape.Landscape;
 import gov.nasa.arc.dert.render.SceneFramework;
 import gov.nasa.arc.dert.scene.tool.Path;
+import gov.nasa.arc.dert.view.Console;
 import gov.nasa.arc.dert.view.viewpoint.AnimationPanel;
 import gov.nasa.arc.dert.viewpoint.Viewpoint.ViewpointMode;
 
@@ -116,6 +118,7 @@ import java.util.Vector;
 import javax.swing.JLabel;
 import javax.swing.Timer;
 
+import com.ardor3d.bounding.BoundingSphere;
 import com.ardor3d.math.Vector3;
 import com.ardor3d.renderer.Camera;
 
@@ -135,6 +138,9 @@ public class Animator {
 	private DecimalFormat formatter1 = new DecimalFormat("00");
 	private DecimalFormat formatter2 = new DecimalFormat("00.000");
 	private ViewpointStore oldViewpoint;
+	private TilePrefetcher prefetcher;
+	// Incremented to drop a grabbed frame that is waiting for its tiles
+	private int grabRequest;
 	
 	private AnimationPanel animationPanel;
 	
@@ -175,7 +181,14 @@ public class Animator {
 			return;
 		flyThroughTimer.stop();
 		flyIndex = 0;
-		Dert.getWorldView().getScenePanel().enableFrameGrab(null);
+		grabRequest++;
+		if (prefetcher != null) {
+			prefetcher.stop();
+			if (flyParams.grab)
+				Console.println("Prefetched " + prefetcher.getRequestCount() + " tiles, waited " + formatter2.format(prefetcher.getAverageWaitMillis() / 1000) + " seconds per frame.");
+			prefetcher = null;
+		}
+		Dert.getWorldView().getScenePanel().enableFrameGrab(null, null);
 		// start the rendering framework again
 		SceneFramework.getInstance().suspend(false);
 		// put us back where we were
@@ -189,6 +202,7 @@ public class Animator {
 	 * Pause flight
 	 */
 	public void pauseFlyThrough() {
+		grabRequest++;
 		if (flyThroughTimer != null)
 			flyThroughTimer.stop();
 	}
@@ -201,32 +215,38 @@ public class Animator {
 	public void startFlyThrough(final JLabel statusField) {
 		if (flyThroughTimer == null) {
 			if (flyParams.grab)
-				Dert.getWorldView().getScenePanel().enableFrameGrab(flyParams.imageSequencePath);
+				Dert.getWorldView().getScenePanel().enableFrameGrab(flyParams.imageSequencePath, flyParams.grabFormat);
 			animationPanel.enableParameters(false);
 			// Pause the rendering framework so it won't interfere.
 			SceneFramework.getInstance().suspend(true);
-//			// make time step at least 1 second if we are grabbing frames
-//			final int millis = (flyParams.grab && (flyParams.millisPerFrame < 1000)) ? 1000 : flyParams.millisPerFrame;
 			final int millis = flyParams.millisPerFrame;
 			flyIndex = 0;
 			oldViewpoint = viewpoint.get(oldViewpoint);
+			// load the tiles for the upcoming frames in the background
+			prefetcher = new TilePrefetcher(flyList, viewpoint.getCamera(), flyParams.loop);
+			prefetcher.start();
 			flyThroughTimer = new Timer(millis, new ActionListener() {
 				@Override
 				public void actionPerformed(ActionEvent event) {
-					viewpoint.set(flyList.get(flyIndex), false);
-					SceneFramework.getInstance().getFrameHandler().updateFrame();
-					double t = (flyIndex * millis) / 1000.0;
-					int hr = (int) (t / 3600);
-					t -= hr * 3600;
-					int min = (int) (t / 60);
-					double sec = t - (min * 60);
-					statusField.setText(formatter1.format(hr) + ":" + formatter1.format(min) + ":" + formatter2.format(sec) + "    Frame " + flyIndex);
-					flyIndex++;
-					if (flyIndex == flyList.size()) {
-						if (!flyParams.loop)
-							stopFlyThrough();
-						flyIndex = 0;
+					prefetcher.setFrame(flyIndex);
+					if (!flyParams.grab) {
+						showFrame(statusField);
+						return;
 					}
+					// a grabbed frame is drawn at full resolution, wait for its tiles
+					// with the timer stopped rather than blocking the event thread
+					flyThroughTimer.stop();
+					final int request = ++grabRequest;
+					prefetcher.whenReady(flyIndex, TilePrefetcher.GRAB_WAIT_MILLIS, new Runnable() {
+						@Override
+						public void run() {
+							if ((request != grabRequest) || (flyThroughTimer == null))
+								return;
+							showFrame(statusField);
+							if (flyThroughTimer != null)
+								flyThroughTimer.start();
+						}
+					});
 				}
 			});
 			flyThroughTimer.setDelay(millis);
@@ -234,6 +254,29 @@ public class Animator {
 		flyThroughTimer.start();
 	}
 
+	/**
+	 * Show the current fly through frame and advance to the next one.
+	 */
+	private void showFrame(JLabel statusField) {
+		int millis = flyParams.millisPerFrame;
+		viewpoint.set(flyList.get(flyIndex), false);
+		if (flyParams.grab)
+			Landscape.getInstance().updateFully(viewpoint.getCamera(), Landscape.MAX_LEVELS);
+		SceneFramework.getInstance().getFrameHandler().updateFrame();
+		double t = (flyIndex * millis) / 1000.0;
+		int hr = (int) (t / 3600);
+		t -= hr * 3600;
+		int min = (int) (t / 60);
+		double sec = t - (min * 60);
+		statusField.setText(formatter1.format(hr) + ":" + formatter1.format(min) + ":" + formatter2.format(sec) + "    Frame " + flyIndex);
+		flyIndex++;
+		if (flyIndex == flyList.size()) {
+			if (!flyParams.loop)
+				stopFlyThrough();
+			flyIndex = 0;
+		}
+	}
+
 	/**
 	 * Fly through a list of viewpoints
 	 * 
@@ -271,12 +314,27 @@ public class Animator {
 		if (path.getNumberOfPoints() < 2)
 			return("Too few waypoints to animate.");
 		
+		flyList = getPathFlyList(path, flyParams.pathHeight, flyParams.numFrames, viewpoint.getCamera(), viewpoint.getSceneBounds());
+		return(null);
+	}
+	
+	/**
+	 * Create the list of viewpoints for a fly through along a path.
+	 * 
+	 * @param path the Path mapElement
+	 * @param pathHeight height of the viewpoints above the path
+	 * @param numFrames the number of frames
+	 * @param camera the camera to copy
+	 * @param sceneBounds bounds of the scene for the clipping planes
+	 * @return the fly list
+	 */
+	public static Vector<ViewpointStore> getPathFlyList(Path path, double pathHeight, int numFrames, BasicCamera camera, BoundingSphere sceneBounds) {
 		// create an interpolated curve from the path
 		Vector3[] curve = path.getCurve(10);
 
 		// create a list of viewpoints from the curve
 		Vector<ViewpointStore> vpList = new Vector<ViewpointStore>();
-		BasicCamera cam = new BasicCamera((Camera)viewpoint.getCamera());
+		BasicCamera cam = new BasicCamera((Camera)camera);
 		Vector3 loc = null;
 		Vector3 look = null;
 		ViewpointStore vps = null;
@@ -284,8 +342,8 @@ public class Animator {
 		for (int i = 0; i < curve.length-1; ++i) {
 
 			// point the camera at the next way point location
-			loc = new Vector3(curve[i].getX(), curve[i].getY(), curve[i].getZ()+flyParams.pathHeight);
-			look = new Vector3(curve[i+1].getX(), curve[i+1].getY(), curve[i+1].getZ()+flyParams.pathHeight);
+			loc = new Vector3(curve[i].getX(), curve[i].getY(), curve[i].getZ()+pathHeight);
+			look = new Vector3(curve[i+1].getX(), curve[i+1].getY(), curve[i+1].getZ()+pathHeight);
 			// Set the camera frame.
 			// Drop the tilt a little and rotate it 90 degrees since we are working parallel to the ground.
 			angle = cam.setFrameAndLookAt(loc, look, Math.PI/2-Math.PI/20);
@@ -294,25 +352,32 @@ public class Animator {
 				continue;
 			
 			// set frustum and clipping planes
-			cam.setClippingPlanes(viewpoint.getSceneBounds(), false);
+			cam.setClippingPlanes(sceneBounds, false);
 			vps = new ViewpointStore(Integer.toString(i), cam);
 			vpList.add(vps);
 		}
 		loc = look;
 		look.addLocal(vps.direction);
 		angle = cam.setFrameAndLookAt(loc, look, Math.PI/2-Math.PI/20);
-		cam.setClippingPlanes(viewpoint.getSceneBounds(), false);
+		cam.setClippingPlanes(sceneBounds, false);
 		vps = new ViewpointStore(Integer.toString(curve.length-1), cam);
 		vpList.add(vps);
-		flyList = new Vector<ViewpointStore>();
-		fillFlyList(vpList, flyList, flyParams.numFrames);
+		Vector<ViewpointStore> flyList = new Vector<ViewpointStore>();
+		fillFlyList(vpList, flyList, numFrames);
 		// set hike mode to true so we will use the viewpoint location as CoR
 		for (int i=0; i<flyList.size(); ++i)
 			flyList.get(i).mode = ViewpointMode.Hike.toString();
-		return(null);
+		return(flyList);
 	}
 	
-	private void fillFlyList(Vector<ViewpointStore> vpList, Vector<ViewpointStore> flyList, int numFrames) {
+	/**
+	 * Add viewpoints equally spaced along a list of viewpoints to a fly list.
+	 * 
+	 * @param vpList the viewpoints
+	 * @param flyList the fly list
+	 * @param numFrames the number of frames
+	 */
+	public static void fillFlyList(Vector<ViewpointStore> vpList, Vector<ViewpointStore> flyList, int numFrames) {
 		
 		// get the total distance along the viewpoint list
 		double dist = 0;
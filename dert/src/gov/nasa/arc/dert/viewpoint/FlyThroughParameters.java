@@ -101,6 +101,7 @@ UNILATERAL TERMINATION OF THIS AGREEMENT.
 
 package gov.nasa.arc.dert.viewpoint;
 
+import gov.nasa.arc.dert.render.FrameGrabEncoder;
 
 /**
  * Data structure that provides fly through parameters and can be persisted.
@@ -114,6 +115,7 @@ public class FlyThroughParameters {
 	public boolean loop;
 	public boolean grab;
 	public String imageSequencePath;
+	public FrameGrabEncoder.Format grabFormat;
 	
 	public FlyThroughParameters() {
 		numFrames = 100;
@@ -121,6 +123,7 @@ public class FlyThroughParameters {
 		pathHeight = 5;
 		loop = false;
 		grab = false;
+		grabFormat = FrameGrabEncoder.Format.PNG;
 	}
 	
 	public FlyThroughParameters(int numFrames, int millisPerFrame, double pathHeight, boolean loop, boolean grab) {
@@ -129,15 +132,17 @@ public class FlyThroughParameters {
 		this.pathHeight = pathHeight;
 		this.loop = loop;
 		this.grab = grab;
+		this.grabFormat = FrameGrabEncoder.Format.PNG;
 	}
 	
 	public double[] toArray() {
-		double[] array = new double[5];
+		double[] array = new double[6];
 		array[0] = numFrames;
 		array[1] = millisPerFrame;
 		array[2] = pathHeight;
 		array[3] = loop ? 1 : 0;
 		array[4] = grab ? 1 : 0;
+		array[5] = grabFormat.ordinal();
 		return(array);
 	}
 	
@@ -145,12 +150,18 @@ public class FlyThroughParameters {
 		if (array == null)
 			return(new FlyThroughParameters());
 		FlyThroughParameters params = new FlyThroughParameters((int)array[0], (int)array[1], array[2], array[3] == 1, array[4] == 1);
+		// older configurations do not have the grab format, an unknown one is left at the default
+		if (array.length > 5) {
+			int format = (int)array[5];
+			if ((format >= 0) && (format < FrameGrabEncoder.Format.values().length))
+				params.grabFormat = FrameGrabEncoder.Format.values()[format];
+		}
 		return(params);
 	}
 	
 	@Override
 	public String toString() {
-		String str = "FlyThroughParameters["+numFrames+","+millisPerFrame+","+pathHeight+","+loop+","+grab+","+imageSequencePath+"]";
+		String str = "FlyThroughParameters["+numFrames+","+millisPerFrame+","+pathHeight+","+loop+","+grab+","+grabFormat+","+imageSequencePath+"]";
 		return(str);
 	}
 
@@ -0,0 +1,518 @@
+/**
+
+DERT is a viewer for digital terrain models created from data collected during NASA missions.
+
+DERT is Released in under the NASA Open Source Agreement (NOSA) found in the “LICENSE” folder where you
+downloaded DERT.
+
+DERT includes 3rd Party software. The complete copyright notice listing for DERT is:
+
+Copyright © 2015 United States Government as represented by the Administrator of the National Aeronautics and
+Space Administration.  No copyright is claimed in the United States under Title 17, U.S.Code. All Other Rights
+Reserved.
+
+Desktop Exploration of Remote Terrain (DERT) could not have been written without the aid of a number of free,
+open source libraries. These libraries and their notices are listed below. Find the complete third party license
+listings in the separate “DERT Third Party Licenses” pdf document found where you downloaded DERT in the
+LICENSE folder.
+ 
+JogAmp Ardor3D Continuation
+Copyright © 2008-2012 Ardor Labs, Inc.
+ 
+JogAmp
+Copyright 2010 JogAmp Community. All rights reserved.
+ 
+JOGL Portions Sun Microsystems
+Copyright © 2003-2009 Sun Microsystems, Inc. All Rights Reserved.
+ 
+JOGL Portions Silicon Graphics
+Copyright © 1991-2000 Silicon Graphics, Inc.
+ 
+Light Weight Java Gaming Library Project (LWJGL)
+Copyright © 2002-2004 LWJGL Project All rights reserved.
+ 
+Tile Rendering Library - Brian Paul 
+Copyright © 1997-2005 Brian Paul. All Rights Reserved.
+ 
+OpenKODE, EGL, OpenGL , OpenGL ES1 & ES2
+Copyright © 2007-2010 The Khronos Group Inc.
+ 
+Cg
+Copyright © 2002, NVIDIA Corporation
+ 
+Typecast - David Schweinsberg 
+Copyright © 1999-2003 The Apache Software Foundation. All rights reserved.
+ 
+PNGJ - Herman J. Gonzalez and Shawn Hartsock
+Copyright © 2004 The Apache Software Foundation. All rights reserved.
+ 
+Apache Harmony - Open Source Java SE
+Copyright © 2006, 2010 The Apache Software Foundation.
+ 
+Guava
+Copyright © 2010 The Guava Authors
+ 
+GlueGen Portions
+Copyright © 2010 JogAmp Community. All rights reserved.
+ 
+GlueGen Portions - Sun Microsystems
+Copyright © 2003-2005 Sun Microsystems, Inc. All Rights Reserved.
+ 
+SPICE
+Copyright © 2003, California Institute of Technology.
+U.S. Government sponsorship acknowledged.
+ 
+LibTIFF
+Copyright © 1988-1997 Sam Leffler
+Copyright © 1991-1997 Silicon Graphics, Inc.
+ 
+PROJ.4
+Copyright © 2000, Frank Warmerdam
+
+LibJPEG - Independent JPEG Group
+Copyright © 1991-2018, Thomas G. Lane, Guido Vollbeding
+ 
+
+Disclaimers
+
+No Warranty: THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY KIND,
+EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT LIMITED TO, ANY WARRANTY
+THAT THE SUBJECT SOFTWARE WILL CONFORM TO SPECIFICATIONS, ANY IMPLIED WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY
+WARRANTY THAT THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE. THIS AGREEMENT
+DOES NOT, IN ANY MANNER, CONSTITUTE AN ENDORSEMENT BY GOVERNMENT AGENCY OR ANY
+PRIOR RECIPIENT OF ANY RESULTS, RESULTING DESIGNS, HARDWARE, SOFTWARE PRODUCTS OR
+ANY OTHER APPLICATIONS RESULTING FROM USE OF THE SUBJECT SOFTWARE.  FURTHER,
+GOVERNMENT AGENCY DISCLAIMS ALL WARRANTIES AND LIABILITIES REGARDING THIRD-PARTY
+SOFTWARE, IF PRESENT IN THE ORIGINAL SOFTWARE, AND DISTRIBUTES IT "AS IS."
+
+Waiver and Indemnity:  RECIPIENT AGREES TO WAIVE ANY AND ALL CLAIMS AGAINST THE UNITED
+STATES GOVERNMENT, ITS CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR
+RECIPIENT.  IF RECIPIENT'S USE OF THE SUBJECT SOFTWARE RESULTS IN ANY LIABILITIES,
+DEMANDS, DAMAGES, EXPENSES OR LOSSES ARISING FROM SUCH USE, INCLUDING ANY DAMAGES
+FROM PRODUCTS BASED ON, OR RESULTING FROM, RECIPIENT'S USE OF THE SUBJECT SOFTWARE,
+RECIPIENT SHALL INDEMNIFY AND HOLD HARMLESS THE UNITED STATES GOVERNMENT, ITS
+CONTRACTORS AND SUBCONTRACTORS, AS WELL AS ANY PRIOR RECIPIENT, TO THE EXTENT
+PERMITTED BY LAW.  RECIPIENT'S SOLE REMEDY FOR ANY SUCH MATTER SHALL BE THE IMMEDIATE,
+UNILATERAL TERMINATION OF THIS AGREEMENT.
+
+**/
+
+package gov.nasa.arc.dert.viewpoint;
+
+import gov.nasa.arc.dert.camera.BasicCamera;
+import gov.nasa.arc.dert.landscape.Landscape;
+import gov.nasa.arc.dert.landscape.quadtree.QuadKey;
+import gov.nasa.arc.dert.landscape.quadtree.QuadTree;
+import gov.nasa.arc.dert.landscape.quadtree.QuadTreeCache;
+import gov.nasa.arc.dert.landscape.quadtree.QuadTreeFactory;
+import gov.nasa.arc.dert.landscape.quadtree.TileLoader;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.ardor3d.bounding.BoundingBox;
+import com.ardor3d.math.Vector3;
+import com.ardor3d.math.type.ReadOnlyVector3;
+import com.ardor3d.renderer.Camera;
+import com.ardor3d.renderer.Camera.FrustumIntersect;
+
+/**
+ * Loads landscape tiles ahead of a fly through. The viewpoints of the
+ * upcoming frames are known, so the tiles each frame will split to are found
+ * the same way QuadTree.update does and requested from the tile loader at a
+ * lower priority than the tiles the current view needs. Requests stop while
+ * the tile cache is nearly full. Outstanding requests are cancelled when the
+ * fly through stops or jumps to another frame.
+ *
+ */
+public class TilePrefetcher implements TileLoader.LoadListener {
+
+	// Number of upcoming frames to prefetch
+	public static int LOOKAHEAD = 10;
+
+	// Fraction of the tile cache prefetching may fill
+	public static double CACHE_FRACTION = 0.8;
+
+	// Maximum number of requests waiting in the tile loader
+	public static int MAX_PENDING = 64;
+
+	// Longest time to wait for the tiles of a frame that is being grabbed
+	// (milliseconds)
+	public static int GRAB_WAIT_MILLIS = 10000;
+
+	// Time between passes over the upcoming frames (milliseconds)
+	private static final int PASS_MILLIS = 50;
+
+	// The viewpoints of the fly through
+	private List<ViewpointStore> flyList;
+
+	// Wrap to the beginning after the last frame
+	private boolean loop;
+
+	// Camera used to compute the tiles for a viewpoint
+	private BasicCamera camera;
+
+	// The tiles needed by each frame
+	private HashMap<Integer, ArrayList<QuadKey>> keyMap;
+
+	// Frame waiting for its tiles and the task to run when they are loaded
+	private int readyIndex;
+	private long readyStart, readyDeadline;
+	private Runnable readyCallback;
+
+	// Landscape dimensions
+	private double terrainWidth, terrainLength, rootPixelWidth, zMax;
+
+	// The current frame
+	private int frame;
+
+	// Prefetching thread
+	private Thread thread;
+	private volatile boolean running;
+
+	// Statistics
+	private long requestCount, waitCount, waitMillis;
+
+	// Work
+	private BoundingBox bbox = new BoundingBox();
+	private Vector3 look = new Vector3(), point = new Vector3();
+
+	/**
+	 * Constructor
+	 * 
+	 * @param flyList
+	 *            the fly through viewpoints
+	 * @param camera
+	 *            the scene camera (copied)
+	 * @param loop
+	 *            the fly through repeats
+	 */
+	public TilePrefetcher(List<ViewpointStore> flyList, Camera camera, boolean loop) {
+		this.flyList = flyList;
+		this.loop = loop;
+		this.camera = new BasicCamera(camera);
+		keyMap = new HashMap<Integer, ArrayList<QuadKey>>();
+		Landscape landscape = Landscape.getInstance();
+		double[] bounds = landscape.getBounds();
+		terrainWidth = bounds[3] - bounds[0];
+		terrainLength = bounds[4] - bounds[1];
+		rootPixelWidth = terrainWidth / QuadTreeFactory.getInstance().getTileWidth();
+		zMax = (bounds[5] - bounds[2]) * landscape.getPixelScale() * landscape.getVerticalExaggeration();
+	}
+
+	/**
+	 * Start prefetching in the background.
+	 */
+	public void start() {
+		running = true;
+		QuadTreeFactory.getInstance().getLoader().addLoadListener(this);
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				doWork();
+			}
+		}, "TilePrefetcher");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.NORM_PRIORITY - 1);
+		thread.start();
+	}
+
+	/**
+	 * Stop prefetching and cancel the requests that have not been loaded.
+	 */
+	public void stop() {
+		synchronized (this) {
+			running = false;
+			readyCallback = null;
+			notifyAll();
+		}
+		TileLoader loader = QuadTreeFactory.getInstance().getLoader();
+		loader.removeLoadListener(this);
+		loader.cancelPrefetches();
+	}
+
+	/**
+	 * Set the frame that is being displayed. If this is not the next frame,
+	 * the requests for the old position are cancelled.
+	 * 
+	 * @param frame
+	 */
+	public void setFrame(int frame) {
+		boolean seek;
+		synchronized (this) {
+			int next = this.frame + 1;
+			if (loop && (next >= flyList.size()))
+				next = 0;
+			seek = (frame != this.frame) && (frame != next);
+			this.frame = frame;
+			notifyAll();
+		}
+		if (seek)
+			QuadTreeFactory.getInstance().getLoader().cancelPrefetches();
+	}
+
+	/**
+	 * Run a task on the AWT event thread once the tiles needed by a frame are
+	 * loaded, or once maxMillis have passed. The tiles are checked on the
+	 * prefetching thread whenever the tile loader finishes a tile, so the
+	 * caller is not blocked. A later call replaces a task that has not run
+	 * yet, and stop drops it.
+	 * 
+	 * @param index
+	 *            the frame
+	 * @param maxMillis
+	 *            the longest time to wait
+	 * @param callback
+	 *            the task
+	 */
+	public synchronized void whenReady(int index, long maxMillis, Runnable callback) {
+		readyIndex = index;
+		readyStart = System.currentTimeMillis();
+		readyDeadline = readyStart + maxMillis;
+		readyCallback = callback;
+		notifyAll();
+	}
+
+	/**
+	 * A tile was loaded, check the frame that is waiting.
+	 */
+	@Override
+	public synchronized void quadTreeLoaded(QuadTree quadTree) {
+		if (readyCallback != null)
+			notifyAll();
+	}
+
+	/**
+	 * Wait until the tiles needed by a frame are loaded. This blocks the
+	 * calling thread, use whenReady on the AWT event thread.
+	 * 
+	 * @param index
+	 *            the frame
+	 * @param maxMillis
+	 *            the longest time to wait
+	 * @return true if the tiles are loaded
+	 */
+	public boolean waitForFrame(int index, long maxMillis) {
+		long t0 = System.currentTimeMillis();
+		List<QuadKey> keyList = getKeys(index);
+		QuadTreeFactory factory = QuadTreeFactory.getInstance();
+		boolean ready = false;
+		try {
+			while (true) {
+				if (isLoaded(factory, keyList)) {
+					ready = true;
+					break;
+				}
+				if (System.currentTimeMillis() - t0 >= maxMillis)
+					break;
+				Thread.sleep(10);
+			}
+		} catch (InterruptedException e) {
+			// done waiting
+		}
+		synchronized (this) {
+			waitCount++;
+			waitMillis += System.currentTimeMillis() - t0;
+		}
+		return (ready);
+	}
+
+	/**
+	 * Get the number of tiles requested by this prefetcher.
+	 * 
+	 * @return
+	 */
+	public synchronized long getRequestCount() {
+		return (requestCount);
+	}
+
+	/**
+	 * Get the average time spent waiting for a frame (milliseconds).
+	 * 
+	 * @return
+	 */
+	public synchronized double getAverageWaitMillis() {
+		if (waitCount == 0)
+			return (0);
+		return ((double) waitMillis / waitCount);
+	}
+
+	// Determine if the tiles in a list are loaded. The missing tiles are
+	// requested even if prefetching is throttled.
+	private boolean isLoaded(QuadTreeFactory factory, List<QuadKey> keyList) {
+		boolean loaded = true;
+		for (int i = 0; i < keyList.size(); ++i) {
+			if (!factory.prefetchQuadTree(keyList.get(i), 1))
+				loaded = false;
+		}
+		return (loaded);
+	}
+
+	// Run the task waiting for a frame if its tiles are loaded or it has
+	// waited long enough.
+	private void checkReady(QuadTreeFactory factory) {
+		int index;
+		long deadline;
+		Runnable callback;
+		synchronized (this) {
+			if (readyCallback == null)
+				return;
+			index = readyIndex;
+			deadline = readyDeadline;
+			callback = readyCallback;
+		}
+		boolean ready = isLoaded(factory, getKeys(index));
+		long now = System.currentTimeMillis();
+		if (!ready && (now < deadline))
+			return;
+		synchronized (this) {
+			// replaced or stopped while checking
+			if (readyCallback != callback)
+				return;
+			readyCallback = null;
+			waitCount++;
+			waitMillis += now - readyStart;
+		}
+		EventQueue.invokeLater(callback);
+	}
+
+	private void doWork() {
+		QuadTreeFactory factory = QuadTreeFactory.getInstance();
+		while (running) {
+			checkReady(factory);
+			int current;
+			synchronized (this) {
+				current = frame;
+			}
+			// forget the frames that are not coming up
+			synchronized (keyMap) {
+				ArrayList<Integer> old = new ArrayList<Integer>();
+				for (Integer i : keyMap.keySet()) {
+					int ahead = i - current;
+					if (loop && (ahead < 0))
+						ahead += flyList.size();
+					if ((ahead < 0) || (ahead > LOOKAHEAD))
+						old.add(i);
+				}
+				for (int i = 0; i < old.size(); ++i)
+					keyMap.remove(old.get(i));
+			}
+			boolean throttled = false;
+			for (int k = 0; (k <= LOOKAHEAD) && running && !throttled; ++k) {
+				int index = current + k;
+				if (index >= flyList.size()) {
+					if (!loop)
+						break;
+					index %= flyList.size();
+				}
+				List<QuadKey> keyList = getKeys(index);
+				for (int i = 0; (i < keyList.size()) && running; ++i) {
+					// the next frame is always requested
+					if ((k > 1) && isThrottled(factory)) {
+						throttled = true;
+						break;
+					}
+					// nearer frames are more important
+					if (!factory.prefetchQuadTree(keyList.get(i), 1.0 / (k + 1))) {
+						synchronized (this) {
+							requestCount++;
+						}
+					}
+				}
+			}
+			checkReady(factory);
+			synchronized (this) {
+				if (running && (current == frame)) {
+					try {
+						wait(PASS_MILLIS);
+					} catch (InterruptedException e) {
+						running = false;
+					}
+				}
+			}
+		}
+		// drop anything requested after stop
+		factory.getLoader().cancelPrefetches();
+	}
+
+	private boolean isThrottled(QuadTreeFactory factory) {
+		if (factory.getCache().getCacheSize() > QuadTreeCache.MAX_CACHE_MEMORY * CACHE_FRACTION)
+			return (true);
+		if (factory.getLoader().getPendingCount() > MAX_PENDING)
+			return (true);
+		return (false);
+	}
+
+	private ArrayList<QuadKey> getKeys(int index) {
+		synchronized (keyMap) {
+			ArrayList<QuadKey> keyList = keyMap.get(index);
+			if (keyList == null) {
+				keyList = new ArrayList<QuadKey>();
+				setCamera(flyList.get(index));
+				QuadTreeFactory factory = QuadTreeFactory.getInstance();
+				findKeys(factory, new QuadKey(), rootPixelWidth, 0, 0, terrainWidth, terrainLength, keyList);
+				keyMap.put(index, keyList);
+			}
+			return (keyList);
+		}
+	}
+
+	private void setCamera(ViewpointStore vps) {
+		camera.setMagnification(vps.magIndex);
+		camera.setFrustum(vps.frustumNear, vps.frustumFar, vps.frustumLeft, vps.frustumRight, vps.frustumTop,
+			vps.frustumBottom);
+		look.set(vps.location).addLocal(vps.direction);
+		camera.setFrameAndLookAt(vps.location, look, 0);
+		camera.setLookAt(vps.lookAt);
+	}
+
+	/**
+	 * Follow QuadTree.update down from a tile and collect the keys of the
+	 * children it would split to.
+	 */
+	private void findKeys(QuadTreeFactory factory, QuadKey key, double pixelWidth, double cx, double cy, double width,
+		double length, List<QuadKey> keyList) {
+		bbox.setCenter(cx, cy, zMax / 2);
+		bbox.setXExtent(width / 2);
+		bbox.setYExtent(length / 2);
+		bbox.setZExtent(zMax / 2);
+		if (camera.contains(bbox) == FrustumIntersect.Outside)
+			return;
+
+		// find the distance to the closest of the lookat point and corners
+		double minDist = Double.MAX_VALUE;
+		ReadOnlyVector3 camLoc = camera.getLocation();
+		ReadOnlyVector3 lookAt = camera.getLookAt();
+		if ((Math.abs(lookAt.getX() - cx) <= width / 2) && (Math.abs(lookAt.getY() - cy) <= length / 2))
+			minDist = camLoc.distance(lookAt);
+		for (int i = 0; i < 4; ++i) {
+			setPoint(cx + ((i % 2 == 0) ? -width / 2 : width / 2), cy + ((i < 2) ? -length / 2 : length / 2), key.getLevel());
+			minDist = Math.min(minDist, camLoc.distance(point));
+		}
+		double pixSize = camera.getPixelSizeAt(minDist, true);
+		if (pixSize <= 0)
+			return;
+		pixSize *= QuadTree.CELL_SIZE;
+		if (pixSize > pixelWidth / 2)
+			return;
+		if (!factory.childrenExist(key))
+			return;
+		for (int q = 1; q <= 4; ++q) {
+			QuadKey child = key.createChild(q);
+			keyList.add(child);
+			double x = cx + (((q == 1) || (q == 3)) ? -width / 4 : width / 4);
+			double y = cy + ((q <= 2) ? length / 4 : -length / 4);
+			findKeys(factory, child, pixelWidth / 2, x, y, width / 2, length / 2, keyList);
+		}
+	}
+
+	private void setPoint(double x, double y, int level) {
+		// not getZ(x, y), the displayed quad tree belongs to the render thread
+		double z = Landscape.getInstance().getZ(x, y, level);
+		point.set(x, y, Double.isNaN(z) ? 0 : z);
+	}
+}
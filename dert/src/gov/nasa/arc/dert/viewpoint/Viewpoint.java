@@ -159,6 +159,7 @@ public class Viewpoint
 	private Matrix3 workRot = new Matrix3();
 	private Vector3 workVec = new Vector3();
 	private Vector3 tmpVec = new Vector3();
+	private double[] overlayCoord = new double[6];
 	private Vector3 seekPoint = new Vector3();
 
 	// Orientation
@@ -349,38 +350,36 @@ public class Viewpoint
 	}
 	
 	private void updateOverlay() {
+		Landscape landscape = Landscape.getInstance();
+		boolean useLonLat = World.getInstance().getUseLonLat();
+		
 		// location of center of rotation
 		if (mode == ViewpointMode.Hike)
 			tmpVec.set(camera.getLocation());
 		else
 			tmpVec.set(camera.getLookAt());
-		Landscape.getInstance().localToWorldCoordinate(tmpVec);
-		String str = null;
-		if (World.getInstance().getUseLonLat()) {
-			Landscape.getInstance().worldToSphericalCoordinate(tmpVec);
-			str = String.format("CoR: "+Landscape.stringFormat+"%s, "+Landscape.stringFormat+"%s", Math.abs(tmpVec.getXf()), (tmpVec.getXf() < 0 ? "W" : "E"), Math.abs(tmpVec.getYf()), (tmpVec.getYf() < 0 ? "S" : "N"));
-		}
-		else
-			str = String.format("CoR: "+Landscape.stringFormat+", "+Landscape.stringFormat, tmpVec.getX(), tmpVec.getY());
-		str += String.format(", "+Landscape.stringFormat, tmpVec.getZ());
-		corText.setText(str);
+		landscape.localToWorldCoordinate(tmpVec);
+		overlayCoord[0] = tmpVec.getX();
+		overlayCoord[1] = tmpVec.getY();
+		overlayCoord[2] = tmpVec.getZ();
 		
 		// location of viewpoint
 		tmpVec.set(camera.getLocation());
-		double height = tmpVec.getZ()-Landscape.getInstance().getZ(tmpVec.getX(), tmpVec.getY());
-		Landscape.getInstance().localToWorldCoordinate(tmpVec);
+		double height = tmpVec.getZ()-landscape.getZ(tmpVec.getX(), tmpVec.getY());
+		landscape.localToWorldCoordinate(tmpVec);
+		overlayCoord[3] = tmpVec.getX();
+		overlayCoord[4] = tmpVec.getY();
+		overlayCoord[5] = tmpVec.getZ();
+		
+		// convert both locations at once
+		if (useLonLat)
+			landscape.worldToSphericalCoordinates(overlayCoord, 2);
+		corText.setText(formatLocation("CoR: ", overlayCoord, 0, useLonLat));
 		altText.setText(String.format("VP Hgt Abv Grnd: "+Landscape.stringFormat, height));
-		if (World.getInstance().getUseLonLat()) {
-			Landscape.getInstance().worldToSphericalCoordinate(tmpVec);
-			str = String.format("VP Loc: "+Landscape.stringFormat+"%s, "+Landscape.stringFormat+"%s", Math.abs(tmpVec.getXf()), (tmpVec.getXf() < 0 ? "W" : "E"), Math.abs(tmpVec.getYf()), (tmpVec.getYf() < 0 ? "S" : "N"));
-		}
-		else
-			str = String.format("VP Loc: "+Landscape.stringFormat+", "+Landscape.stringFormat, tmpVec.getX(), tmpVec.getY());
-		str += String.format(", "+Landscape.stringFormat, tmpVec.getZ());
-		locText.setText(str);
+		locText.setText(formatLocation("VP Loc: ", overlayCoord, 3, useLonLat));
 		
 		// Az/El location
-		str = String.format("VP Dir Az/El: "+Landscape.stringFormat+", "+Landscape.stringFormat, Math.toDegrees(azimuth), Math.toDegrees(elevation-ELEV_HOME));
+		String str = String.format("VP Dir Az/El: "+Landscape.stringFormat+", "+Landscape.stringFormat, Math.toDegrees(azimuth), Math.toDegrees(elevation-ELEV_HOME));
 		azElText.setText(str);
 		
 		// Magnification
@@ -393,6 +392,19 @@ public class Viewpoint
 		centerScale.setText(s*100, camera.getLookAt().distance(camera.getLocation()));
 	}
 	
+	private String formatLocation(String label, double[] coord, int k, boolean lonLat) {
+		String str = null;
+		if (lonLat) {
+			float lon = (float)coord[k];
+			float lat = (float)coord[k+1];
+			str = String.format(label+Landscape.stringFormat+"%s, "+Landscape.stringFormat+"%s", Math.abs(lon), (lon < 0 ? "W" : "E"), Math.abs(lat), (lat < 0 ? "S" : "N"));
+		}
+		else
+			str = String.format(label+Landscape.stringFormat+", "+Landscape.stringFormat, coord[k], coord[k+1]);
+		str += String.format(", "+Landscape.stringFormat, coord[k+2]);
+		return(str);
+	}
+	
 	public RGBAxes getCrosshair() {
 		return(crosshair);
 	}
@@ -487,7 +499,7 @@ public class Viewpoint
 //		System.err.println("ViewpointNode.reset A: lookAt="+camera.getLookAt()+" location="+camera.getLocation()+" magnification="+camera.getMagnification());
 		if (mode == ViewpointMode.Hike)
 			mode = ViewpointMode.Nominal;
-		ViewpointMenuAction.getInstance().setModeIcon(mode);
+		updateModeIcon();
 		World.getInstance().getContents().updateGeometricState(0);
 		setSceneBounds();
 		rotate.setIdentity();
@@ -502,7 +514,7 @@ public class Viewpoint
 		updateFromCamera();
 		camera.setClippingPlanes(sceneBounds, true);
 		updateCrosshair();
-		Dert.getMainWindow().getToolPanel().updateCompass(azimuth);
+		updateCompass();
 		updateOverlay();
 		changed.set(true);
 //		System.err.println("ViewpointNode.reset B: sceneBounds="+sceneBounds+" closestDistance="+closestDistance+" hikeMode="+hikeMode);
@@ -611,13 +623,30 @@ public class Viewpoint
 			rotateCameraAroundLocation(vps.location);
 		else
 			rotateCameraAroundLookAtPoint(vps.lookAt, vps.lookAt.distance(vps.location));
-		ViewpointMenuAction.getInstance().setModeIcon(mode);
+		updateModeIcon();
 		updateFromCamera();
 		updateCrosshair();
 		updateOverlay();
 		changed.set(true);
 	}
 	
+	/**
+	 * Update the compass in the tool panel. There is no main window when
+	 * rendering in batch mode.
+	 */
+	private void updateCompass() {
+		if (Dert.getMainWindow() != null)
+			Dert.getMainWindow().getToolPanel().updateCompass(azimuth);
+	}
+	
+	/**
+	 * Update the viewpoint mode icon in the tool panel.
+	 */
+	private void updateModeIcon() {
+		if (Dert.getMainWindow() != null)
+			ViewpointMenuAction.getInstance().setModeIcon(mode);
+	}
+	
 	/**
 	 * Adapted from Ardor3D CameraNode.
 	 */
@@ -705,7 +734,7 @@ public class Viewpoint
 		updateCrosshair();
 		updateOverlay();
 		changed.set(true);
-		Dert.getMainWindow().getToolPanel().updateCompass(azimuth);
+		updateCompass();
 	}
 
 	/**
@@ -728,7 +757,7 @@ public class Viewpoint
 		updateCrosshair();
 		updateOverlay();
 		changed.set(true);
-		Dert.getMainWindow().getToolPanel().updateCompass(azimuth);
+		updateCompass();
 	}
 
 	/**
@@ -103,6 +103,7 @@ package gov.nasa.arc.dert.viewpoint;
 
 import gov.nasa.arc.dert.Dert;
 import gov.nasa.arc.dert.camera.BasicCamera;
+import gov.nasa.arc.dert.landscape.Landscape;
 import gov.nasa.arc.dert.render.SceneFramework;
 import gov.nasa.arc.dert.scene.MapElement;
 import gov.nasa.arc.dert.scene.World;
@@ -111,6 +112,7 @@ import gov.nasa.arc.dert.scenegraph.Ray3WithLine;
 import gov.nasa.arc.dert.state.ConfigurationManager;
 import gov.nasa.arc.dert.state.PathState;
 import gov.nasa.arc.dert.state.ViewpointState;
+import gov.nasa.arc.dert.view.Console;
 import gov.nasa.arc.dert.viewpoint.Viewpoint.ViewpointMode;
 
 import java.awt.EventQueue;
@@ -171,6 +173,9 @@ public class ViewpointController {
 	private DecimalFormat formatter1 = new DecimalFormat("00");
 	private DecimalFormat formatter2 = new DecimalFormat("00.000");
 	private ViewpointStore oldViewpoint;
+	private TilePrefetcher prefetcher;
+	// Incremented to drop a grabbed frame that is waiting for its tiles
+	private int grabRequest;
 	
 	// Curve for fly through
 //	private CatmullRomSpline spline;
@@ -526,7 +531,14 @@ public class ViewpointController {
 			return;
 		flyThroughTimer.stop();
 		flyIndex = 0;
-		Dert.getWorldView().getScenePanel().enableFrameGrab(null);
+		grabRequest++;
+		if (prefetcher != null) {
+			prefetcher.stop();
+			if (flyParams.grab)
+				Console.println("Prefetched " + prefetcher.getRequestCount() + " tiles, waited " + formatter2.format(prefetcher.getAverageWaitMillis() / 1000) + " seconds per frame.");
+			prefetcher = null;
+		}
+		Dert.getWorldView().getScenePanel().enableFrameGrab(null, null);
 		// start the rendering framework again
 		SceneFramework.getInstance().suspend(false);
 		// put us back where we were
@@ -539,6 +551,7 @@ public class ViewpointController {
 	 * Pause flight
 	 */
 	public void pauseFlyThrough() {
+		grabRequest++;
 		if (flyThroughTimer != null)
 			flyThroughTimer.stop();
 	}
@@ -551,31 +564,38 @@ public class ViewpointController {
 	public void startFlyThrough(final JLabel statusField) {
 		if (flyThroughTimer == null) {
 			if (flyParams.grab) {
-				Dert.getWorldView().getScenePanel().enableFrameGrab(flyParams.imageSequencePath);
+				Dert.getWorldView().getScenePanel().enableFrameGrab(flyParams.imageSequencePath, flyParams.grabFormat);
 			}
 			// Pause the rendering framework so it won't interfere.
 			SceneFramework.getInstance().suspend(true);
-			// make time step at least 1 second if we are grabbing frames
-			final int millis = (flyParams.grab && (flyParams.millisPerFrame < 1000)) ? 1000 : flyParams.millisPerFrame;
+			final int millis = flyParams.millisPerFrame;
 			flyIndex = 0;
 			oldViewpoint = viewpoint.get(oldViewpoint);
+			// load the tiles for the upcoming frames in the background
+			prefetcher = new TilePrefetcher(flyList, viewpoint.getCamera(), flyParams.loop);
+			prefetcher.start();
 			flyThroughTimer = new Timer(millis, new ActionListener() {
 				@Override
 				public void actionPerformed(ActionEvent event) {
-					viewpoint.set(flyList.get(flyIndex), false);
-					SceneFramework.getInstance().getFrameHandler().updateFrame();
-					double t = (flyIndex * millis) / 1000.0;
-					int hr = (int) (t / 3600);
-					t -= hr * 3600;
-					int min = (int) (t / 60);
-					double sec = t - (min * 60);
-					statusField.setText(formatter1.format(hr) + ":" + formatter1.format(min) + ":" + formatter2.format(sec) + "    Frame " + flyIndex);
-					flyIndex++;
-					if (flyIndex == flyList.size()) {
-						if (!flyParams.loop)
-							stopFlyThrough();
-						flyIndex = 0;
+					prefetcher.setFrame(flyIndex);
+					if (!flyParams.grab) {
+						showFrame(statusField);
+						return;
 					}
+					// a grabbed frame is drawn at full resolution, wait for its tiles
+					// with the timer stopped rather than blocking the event thread
+					flyThroughTimer.stop();
+					final int request = ++grabRequest;
+					prefetcher.whenReady(flyIndex, TilePrefetcher.GRAB_WAIT_MILLIS, new Runnable() {
+						@Override
+						public void run() {
+							if ((request != grabRequest) || (flyThroughTimer == null))
+								return;
+							showFrame(statusField);
+							if (flyThroughTimer != null)
+								flyThroughTimer.start();
+						}
+					});
 				}
 			});
 			flyThroughTimer.setDelay(millis);
@@ -583,6 +603,29 @@ public class ViewpointController {
 		flyThroughTimer.start();
 	}
 
+	/**
+	 * Show the current fly through frame and advance to the next one.
+	 */
+	private void showFrame(JLabel statusField) {
+		int millis = flyParams.millisPerFrame;
+		viewpoint.set(flyList.get(flyIndex), false);
+		if (flyParams.grab)
+			Landscape.getInstance().updateFully(viewpoint.getCamera(), Landscape.MAX_LEVELS);
+		SceneFramework.getInstance().getFrameHandler().updateFrame();
+		double t = (flyIndex * millis) / 1000.0;
+		int hr = (int) (t / 3600);
+		t -= hr * 3600;
+		int min = (int) (t / 60);
+		double sec = t - (min * 60);
+		statusField.setText(formatter1.format(hr) + ":" + formatter1.format(min) + ":" + formatter2.format(sec) + "    Frame " + flyIndex);
+		flyIndex++;
+		if (flyIndex == flyList.size()) {
+			if (!flyParams.loop)
+				stopFlyThrough();
+			flyIndex = 0;
+		}
+	}
+
 	/**
 	 * Close the fly through dialog
 	 */